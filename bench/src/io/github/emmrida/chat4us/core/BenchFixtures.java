@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Synthetic RIA files and chat sessions shared by the benchmarks. Nothing here needs the
+ * database, the network nor a display.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+final class BenchFixtures {
+	static final String ANSWER = "yes"; //$NON-NLS-1$
+
+	private BenchFixtures() {}
+
+	/**
+	 * Writes a RIA file with a ring of text:equal questions. Every question counts its right
+	 * answers in a session variable and shows it, the last one moves back to the first one
+	 * so a session can chat forever.
+	 * @param folder Destination folder.
+	 * @param nodes Number of questions.
+	 * @return The RIA file.
+	 * @throws IOException
+	 */
+	static File textRia(Path folder, int nodes) throws IOException {
+		StringBuilder sb = header();
+		for(int id = 1; id <= nodes; id++) {
+			question(sb, id, "Question " + id + " of " + nodes + ", score {:points:}. Enter " + ANSWER + " to continue.", "text:equal", ANSWER, //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+					"Good answer! Score: {:points:} &lt;br&gt;Let&#39;s move to the next one.", "variable:operation", "points=+1", id % nodes + 1, ""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+		return write(folder, "text-" + nodes + ".ria", sb); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Writes a RIA file with a single script question which updates a session variable,
+	 * sets the message and returns its own id.
+	 * @param folder Destination folder.
+	 * @return The RIA file.
+	 * @throws IOException
+	 */
+	static File scriptRia(Path folder) throws IOException {
+		StringBuilder sb = header();
+		question(sb, 1, "Enter anything, score {:points:}.", "script", "", "", "", "", 1, //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+				"points = (parseInt(points) || 0) + 1;\nmessage = 'Got ' + response.length + ' chars, score ' + points;\n1;"); //$NON-NLS-1$
+		return write(folder, "script.ria", sb); //$NON-NLS-1$
+	}
+
+	/**
+	 * Fills the history of a session with alternating user and bot lines.
+	 * @param ses Chat session.
+	 * @param lines Number of lines.
+	 */
+	static void fillHistory(ChatSession ses, int lines) {
+		for(int i = 0; i < lines; i++) {
+			if((i & 1) == 0)
+				ses.addHistoryChatMessage(false, "What is the capital of country number " + i + " and what is it famous for?"); //$NON-NLS-1$ //$NON-NLS-2$
+			else ses.addHistoryChatMessage(true, "The capital of country number " + (i - 1) + " is a large city famous for its <b>old town</b>,<br/>museums and food."); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Clears the history of a session before it reaches ChatSession.HISTORY_LIMIT, so as the
+	 * benchmarks measure the in memory history and not the history file writes.
+	 * @param ses Chat session.
+	 */
+	static void keepHistoryInMemory(ChatSession ses) {
+		if(ses.getHistoryChatMessagesCount() >= ChatSession.HISTORY_LIMIT - 8)
+			ses.clearHistoryChatMessage();
+	}
+
+	/**
+	 * Deletes a folder and its content.
+	 * @param folder Folder to delete.
+	 */
+	static void delete(Path folder) {
+		if(folder == null)
+			return;
+		try(Stream<Path> paths = Files.walk(folder)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		} catch(IOException ex) {
+			// Temp folder, left to the OS
+		}
+	}
+
+	private static StringBuilder header() {
+		StringBuilder sb = new StringBuilder(4096);
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<route>\n\t<info>\n\t\t<entry_id>1</entry_id>\n\t\t<locale>EN</locale>\n") //$NON-NLS-1$
+			.append("\t\t<ai_model>\n\t\t\t<name>BenchBot</name>\n") //$NON-NLS-1$
+			.append("\t\t\t<guidelines>You are an AI assistant that is animating a countries/capitals quiz. Keep the quiz running and the user engaged.</guidelines>\n") //$NON-NLS-1$
+			.append("\t\t\t<script></script>\n\t\t\t<params>\n"); //$NON-NLS-1$
+		param(sb, "default_error_msg", "The chat ended due to an unexpected error!"); //$NON-NLS-1$ //$NON-NLS-2$
+		for(String prefix : new String[] { OllamaModelClient.AIQ_PREFIX, ChatGptModelClient.AIQ_PREFIX, DeepSeekModelClient.AIQ_PREFIX, GroqModelClient.AIQ_PREFIX, Chat4AllModelClient.AIQ_PREFIX }) {
+			param(sb, prefix + "model", "bench-model"); //$NON-NLS-1$ //$NON-NLS-2$
+			param(sb, prefix + "max_tokens", "512"); //$NON-NLS-1$ //$NON-NLS-2$
+			param(sb, prefix + "temperature", "0.5"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		sb.append("\t\t\t</params>\n\t\t</ai_model>\n\t</info>\n\t<questions>\n"); //$NON-NLS-1$
+		return sb;
+	}
+
+	private static void param(StringBuilder sb, String key, String value) {
+		sb.append("\t\t\t\t<param>\n\t\t\t\t\t<key>").append(key).append("</key>\n\t\t\t\t\t<value>").append(value).append("</value>\n\t\t\t\t</param>\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	private static void question(StringBuilder sb, int id, String message, String type, String validation, String successMsg, String action, String value, int move, String script) {
+		sb.append("\t\t<question>\n\t\t\t<id>").append(id).append("</id>\n") //$NON-NLS-1$ //$NON-NLS-2$
+			.append("\t\t\t<bounds>").append(id * 140).append(";15;100;100</bounds>\n") //$NON-NLS-1$ //$NON-NLS-2$
+			.append("\t\t\t<message>").append(message).append("</message>\n") //$NON-NLS-1$ //$NON-NLS-2$
+			.append("\t\t\t<response>\n\t\t\t\t<condition>\n") //$NON-NLS-1$
+			.append("\t\t\t\t\t<type>").append(type).append("</type>\n") //$NON-NLS-1$ //$NON-NLS-2$
+			.append("\t\t\t\t\t<validation>").append(validation).append("</validation>\n") //$NON-NLS-1$ //$NON-NLS-2$
+			.append("\t\t\t\t\t<on_success>\n\t\t\t\t\t\t<message>").append(successMsg).append("</message>\n") //$NON-NLS-1$ //$NON-NLS-2$
+			.append("\t\t\t\t\t\t<action>").append(action).append("</action>\n") //$NON-NLS-1$ //$NON-NLS-2$
+			.append("\t\t\t\t\t\t<value>").append(value).append("</value>\n") //$NON-NLS-1$ //$NON-NLS-2$
+			.append("\t\t\t\t\t\t<move>").append(move).append("</move>\n\t\t\t\t\t</on_success>\n") //$NON-NLS-1$ //$NON-NLS-2$
+			.append("\t\t\t\t\t<on_error>\n\t\t\t\t\t\t<message>Wrong answer! Try again...</message>\n\t\t\t\t\t\t<action>repeat</action>\n\t\t\t\t\t\t<value></value>\n\t\t\t\t\t\t<move>0</move>\n\t\t\t\t\t</on_error>\n") //$NON-NLS-1$
+			.append("\t\t\t\t\t<script>").append(script).append("</script>\n") //$NON-NLS-1$ //$NON-NLS-2$
+			.append("\t\t\t\t</condition>\n\t\t\t</response>\n\t\t</question>\n"); //$NON-NLS-1$
+	}
+
+	private static File write(Path folder, String name, StringBuilder sb) throws IOException {
+		sb.append("\t</questions>\n</route>\n"); //$NON-NLS-1$
+		Path file = folder.resolve(name);
+		Files.writeString(file, sb, StandardCharsets.UTF_8);
+		return file.toFile();
+	}
+}
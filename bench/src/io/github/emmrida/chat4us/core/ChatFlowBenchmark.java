@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Chat bot turns and session creation on synthetic RIA files of growing size.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ChatFlowBenchmark {
+	@Param({ "10", "100", "1000" })
+	private int nodes;
+
+	private Path folder;
+	private ChatBotClient client;
+	private String locale;
+	private ChatSession ses;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		this.folder = Files.createTempDirectory("chat4us-bench"); //$NON-NLS-1$
+		this.client = new ChatBotClient();
+		this.client.loadRIA(BenchFixtures.textRia(this.folder, this.nodes).getPath(), null);
+		this.locale = this.client.getMainLocale();
+		this.ses = newSession();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchFixtures.delete(this.folder);
+	}
+
+	/**
+	 * A right answer: validation, variable operation, placeholders and move to the next node.
+	 */
+	@Benchmark
+	public String[] userMessage() {
+		BenchFixtures.keepHistoryInMemory(this.ses);
+		return this.client.userMessage(this.ses, BenchFixtures.ANSWER);
+	}
+
+	/**
+	 * A wrong answer, the node is repeated.
+	 */
+	@Benchmark
+	public String[] userMessageRepeat() {
+		BenchFixtures.keepHistoryInMemory(this.ses);
+		return this.client.userMessage(this.ses, "no"); //$NON-NLS-1$
+	}
+
+	/**
+	 * A new session as ChatClient.riaChatSession makes it, started on the entry node.
+	 */
+	@Benchmark
+	public ChatSession newSession() {
+		ChatSession s = new ChatSession(this.client.riaChatSession(this.locale));
+		s.setUserId("bench-user"); //$NON-NLS-1$
+		this.client.letsChat(s);
+		return s;
+	}
+}
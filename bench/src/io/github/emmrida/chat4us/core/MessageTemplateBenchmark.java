@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bot messages placeholders, compiled once per RIA load and rendered on every bot message.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class MessageTemplateBenchmark {
+	private static final String MESSAGE = "Good answer {:name:}! Score: {:points:} of {:total:} &lt;br&gt;Let&#39;s move to the next one."; //$NON-NLS-1$
+
+	private MessageTemplate template;
+	private MessageTemplate staticTemplate;
+	private ChatSession ses;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.template = MessageTemplate.compile(MESSAGE);
+		this.staticTemplate = MessageTemplate.compile("What is the capital of Spain?"); //$NON-NLS-1$
+		this.ses = new ChatSession();
+		this.ses.setVar("name", "Rida"); //$NON-NLS-1$ //$NON-NLS-2$
+		this.ses.setVar("points", "7"); //$NON-NLS-1$ //$NON-NLS-2$
+		this.ses.setVar("total", "10"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Benchmark
+	public MessageTemplate compile() {
+		return MessageTemplate.compile(MESSAGE);
+	}
+
+	@Benchmark
+	public String render() {
+		return this.template.render(this.ses);
+	}
+
+	@Benchmark
+	public String renderStatic() {
+		return this.staticTemplate.render(this.ses);
+	}
+}
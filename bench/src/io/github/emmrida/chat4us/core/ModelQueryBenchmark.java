@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AI model queries built by each model client from a chat session with a long history.
+ * The whole history is sent, neither the context lines nor the query length cut it.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ModelQueryBenchmark {
+	private static final String AI_SERVER_URL = "http://127.0.0.1:11434/api/chat"; //$NON-NLS-1$
+
+	@Param({ "ollama", "chatgpt", "deepseek", "groq", "chat4all" })
+	private String client;
+
+	@Param({ "16", "64", "254" })
+	private int history;
+
+	private Path folder;
+	private PrintStream out;
+	private ChatSession ses;
+	private BiFunction<ChatSession, String, String> query;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		this.folder = Files.createTempDirectory("chat4us-bench"); //$NON-NLS-1$
+		ChatBotClient cbc = new ChatBotClient();
+		cbc.loadRIA(BenchFixtures.textRia(this.folder, 10).getPath(), null);
+		this.ses = new ChatSession(cbc.riaChatSession(cbc.getMainLocale()));
+		this.ses.setUserId("bench-user"); //$NON-NLS-1$
+		this.ses.setAiContextLinesCount(this.history);
+		BenchFixtures.fillHistory(this.ses, this.history);
+		this.ses.addHistoryChatMessage(false, "And what about Morocco?"); //$NON-NLS-1$
+		int contextSize = Integer.MAX_VALUE / 2;
+		switch(this.client) {
+		case "ollama": this.query = new OllamaModelClient(1, AI_SERVER_URL, true, contextSize)::makeQuery; break; //$NON-NLS-1$
+		case "chatgpt": this.query = new ChatGptModelClient(1, AI_SERVER_URL, true, contextSize)::makeQuery; break; //$NON-NLS-1$
+		case "deepseek": this.query = new DeepSeekModelClient(1, AI_SERVER_URL, true, contextSize)::makeQuery; break; //$NON-NLS-1$
+		case "groq": this.query = new GroqModelClient(1, AI_SERVER_URL, true, contextSize)::makeQuery; break; //$NON-NLS-1$
+		default: this.query = new Chat4AllModelClient(1, AI_SERVER_URL, true, contextSize)::makeQuery; break;
+		}
+		// The clients print their queries, keep them out of the benchmark output
+		this.out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.setOut(this.out);
+		BenchFixtures.delete(this.folder);
+	}
+
+	@Benchmark
+	public String makeQuery() {
+		return this.query.apply(this.ses, "And what about Morocco?"); //$NON-NLS-1$
+	}
+}
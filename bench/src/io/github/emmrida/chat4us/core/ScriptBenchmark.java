@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Node script turns, through ChatBotClient.executeScript and the pooled V8 runtimes.
+ * Needs the Javet V8 native library of the platform in lib/.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ScriptBenchmark {
+	private Path folder;
+	private ChatBotClient client;
+	private ChatSession ses;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		this.folder = Files.createTempDirectory("chat4us-bench"); //$NON-NLS-1$
+		this.client = new ChatBotClient();
+		this.client.loadRIA(BenchFixtures.scriptRia(this.folder).getPath(), null);
+		this.ses = new ChatSession(this.client.riaChatSession(this.client.getMainLocale()));
+		this.ses.setUserId("bench-user"); //$NON-NLS-1$
+		this.client.letsChat(this.ses);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchFixtures.delete(this.folder);
+	}
+
+	/**
+	 * The script reads and writes a session variable, sets the message and stays on its node.
+	 */
+	@Benchmark
+	public String[] scriptTurn() {
+		BenchFixtures.keepHistoryInMemory(this.ses);
+		return this.client.userMessage(this.ses, "Rabat"); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.util;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+
+/**
+ * Request body parsing and AI model response reading, both run on every chat turn.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class HelperBenchmark {
+	private static final String ANSWER = "The capital of Morocco is Rabat. It is known for its historic medina, the Kasbah of the Udayas and the Hassan Tower.\nWould you like another question?"; //$NON-NLS-1$
+
+	private String postBody;
+	private String ollamaResponse;
+	private String openAiResponse;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.postBody = "token=" + "a1b2c3d4e5f6a7b8c9d0e1f2a3b4c5d6e7f8a9b0c1d2e3f4a5b6c7d8e9f0a1b2" //$NON-NLS-1$ //$NON-NLS-2$
+				+ "&usr_id=" + "0f8fad5b-d9cb-469f-a165-70867728950e" //$NON-NLS-1$ //$NON-NLS-2$
+				+ "&message=" + URLEncoder.encode("What's the capital of Morocco & what is it famous for?", StandardCharsets.UTF_8); //$NON-NLS-1$ //$NON-NLS-2$
+		String content = new Gson().toJson(ANSWER);
+		this.ollamaResponse = "{\"model\":\"gemma3:4b\",\"created_at\":\"2025-11-18T20:55:47.123Z\",\"message\":{\"role\":\"assistant\",\"content\":" + content //$NON-NLS-1$
+				+ "},\"done_reason\":\"stop\",\"done\":true,\"total_duration\":5043500667,\"load_duration\":5025959,\"prompt_eval_count\":26,\"prompt_eval_duration\":325953000,\"eval_count\":290,\"eval_duration\":4709213000}"; //$NON-NLS-1$
+		this.openAiResponse = "{\"id\":\"chatcmpl-123\",\"object\":\"chat.completion\",\"created\":1763495747,\"model\":\"gpt-4o-mini\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":" + content //$NON-NLS-1$
+				+ "},\"logprobs\":null,\"finish_reason\":\"stop\"}],\"usage\":{\"prompt_tokens\":26,\"completion_tokens\":41,\"total_tokens\":67}}"; //$NON-NLS-1$
+	}
+
+	@Benchmark
+	public Map<String, String> parsePostData() {
+		return Helper.parsePostData(this.postBody);
+	}
+
+	@Benchmark
+	public Object jsonPathOllama() {
+		return Helper.getValueFromJsonPath(this.ollamaResponse, "message/content"); //$NON-NLS-1$
+	}
+
+	@Benchmark
+	public Object jsonPathOpenAi() {
+		return Helper.getValueFromJsonPath(this.openAiResponse, "choices/0/message/content"); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import io.github.emmrida.chat4us.ria.RiaDocument;
+
+/**
+ * The bot data of a loaded RIA file: name, AI model guidelines, bot script and parameters.
+ * A profile is immutable and shared by all the chat sessions of the RIA file locale, the
+ * sessions hold their own state only.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public final class BotProfile {
+	/** Profile of the sessions not yet bound to a RIA file. */
+	static final BotProfile EMPTY = new BotProfile(null, "ChatBot", "", "", Collections.emptyMap()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+	private final String locale;
+	private final String botName;
+	private final String aiModelGuidelines;
+	private final String botScript;
+	private final Map<String, String> aiModelParams;
+	private final String defaultErrorMessage;
+	private final String noAgentErrorMessage;
+	private final long scriptTimeout;
+
+	private BotProfile(String locale, String botName, String aiModelGuidelines, String botScript, Map<String, String> aiModelParams) {
+		this.locale = locale;
+		this.botName = botName;
+		this.aiModelGuidelines = aiModelGuidelines;
+		this.botScript = botScript;
+		this.aiModelParams = aiModelParams;
+		this.defaultErrorMessage = aiModelParams.getOrDefault("default_error_msg", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		this.noAgentErrorMessage = aiModelParams.getOrDefault("no_agent_error_msg", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		this.scriptTimeout = parseScriptTimeout(aiModelParams.get("script_timeout_ms")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Builds the profile of a RIA document.
+	 * @param document RIA document.
+	 * @return The bot profile.
+	 */
+	static BotProfile of(RiaDocument document) {
+		return new BotProfile(document.getLocale(), document.getBotName(), document.getBotGuidelines(), document.getBotScript(),
+				Collections.unmodifiableMap(new LinkedHashMap<>(document.getParams())));
+	}
+
+	private static long parseScriptTimeout(String value) {
+		if(value != null) {
+			try {
+				long ms = Long.parseLong(value.trim());
+				if(ms > 0)
+					return ms;
+			} catch(NumberFormatException ex) {
+				// Use default
+			}
+		}
+		return ScriptRunner.DEF_SCRIPT_TIMEOUT_MS;
+	}
+
+	/**
+	 * @return Locale of the RIA file, null if none.
+	 */
+	public String getLocale() { return this.locale; }
+
+	/**
+	 * @return Bot name.
+	 */
+	public String getBotName() { return this.botName; }
+
+	/**
+	 * @return AI model guidelines.
+	 */
+	public String getAiModelGuidelines() { return this.aiModelGuidelines; }
+
+	/**
+	 * @return Bot script.
+	 */
+	public String getBotScript() { return this.botScript; }
+
+	/**
+	 * @param key AI model param name.
+	 * @return AI model param value, null if not defined.
+	 */
+	public String getAiModelParam(String key) { return this.aiModelParams.get(key); }
+
+	/**
+	 * @return AI model params set, read only.
+	 */
+	public Set<Map.Entry<String, String>> getAiModelParamsEntrySet() { return this.aiModelParams.entrySet(); }
+
+	/**
+	 * @return Value of the 'default_error_msg' param, empty if not defined.
+	 */
+	public String getDefaultErrorMessage() { return this.defaultErrorMessage; }
+
+	/**
+	 * @return Value of the 'no_agent_error_msg' param, empty if not defined.
+	 */
+	public String getNoAgentErrorMessage() { return this.noAgentErrorMessage; }
+
+	/**
+	 * @return Value of the 'script_timeout_ms' param, the default budget if not defined or invalid.
+	 */
+	public long getScriptTimeout() { return this.scriptTimeout; }
+}
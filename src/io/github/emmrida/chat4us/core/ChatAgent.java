@@ -4,16 +4,24 @@
  */
 package io.github.emmrida.chat4us.core;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
 
 import com.google.gson.Gson;
 
@@ -26,6 +34,8 @@ import io.github.emmrida.chat4us.util.NoopTrustManager;
  * This class takes control of the exchanges with the remote user. It starts by
  * sending all the messages of the chat session to the remote agent. Then it
  * retrieves the response from the remote agent through the messenger app.
+ * The history is sent once as a JSON messages array (gzipped when large), later
+ * requests only carry the messages the agent app did not acknowledge yet.
  *
  * @author El Mhadder Mohamed Rida
  */
@@ -41,8 +51,20 @@ public class ChatAgent {
 	private static final int AG_REMOVED			= 8;
 	private static final int AG_AI_GROUP		= 9;
 
+	private static final String SYNC_PROTOCOL	= "2"; //$NON-NLS-1$
+	private static final int SYNC_GZIP_MIN_SIZE	= 4096; // Bytes
+
+	private static final Metrics.Histogram letsChatSeconds = Metrics.getInstance().histogram("chat4us_agent_request_seconds", "Agent messenger apps round trip time.", "path", "/letschat"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	private static final Metrics.Histogram messageSeconds = Metrics.getInstance().histogram("chat4us_agent_request_seconds", "Agent messenger apps round trip time.", "path", "/message"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	private static final LongAdder letsChatErrors = Metrics.getInstance().counter("chat4us_agent_errors_total", "Agent messenger apps failed requests.", "path", "/letschat"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	private static final LongAdder messageErrors = Metrics.getInstance().counter("chat4us_agent_errors_total", "Agent messenger apps failed requests.", "path", "/message"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+	private static final Set<String> legacyAgents = ConcurrentHashMap.newKeySet(); // Urls of the agent apps without sync protocol support
+
 	private int nextAgentIndex;
 	private List<Object[]> agents;
+	private HttpClient httpClient = null; // Guarded by this
+	private boolean httpClientSelfSigned;
 
 	private final Gson gson = new Gson();
 
@@ -71,7 +93,16 @@ public class ChatAgent {
 			agent = agents.get(i);
 			if((int)agent[AG_ENABLED] != 0 && (int)agent[AG_REMOVED] == 0 && (int)agent[AG_AI_GROUP] == ses.getAIGroupId()) {
 				Helper.logInfo(Messages.getString("ChatAgent.LOG_CONNECTING_TO") + agent[AG_NAME] + "@" + agent[AG_HOST] + ":" + agent[AG_PORT] + "..."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
-				response = sendHttpRequest("https://" + (String)agent[AG_HOST] + ":" + (String)agent[AG_PORT] + "/letschat", params); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				String url = agentUrl(agent);
+				if(legacyAgents.contains(url)) {
+					response = sendHttpRequest(ses, (int)agent[AG_ID], url + "/letschat", legacyParams(ses, params)); //$NON-NLS-1$
+				} else {
+					response = sendHttpRequest(ses, (int)agent[AG_ID], url + "/letschat", params); //$NON-NLS-1$
+					if(response != null && response.statusCode() == 400) { // Agent app without sync protocol support
+						legacyAgents.add(url);
+						response = sendHttpRequest(ses, (int)agent[AG_ID], url + "/letschat", legacyParams(ses, params)); //$NON-NLS-1$
+					}
+				}
 				if(response != null && response.statusCode() == 200) {
 					nextAgentIndex = i + 1;
 					if(nextAgentIndex == agents.size())
@@ -81,6 +112,7 @@ public class ChatAgent {
 					Helper.logInfo(String.format(Messages.getString("ChatAgent.AGENT_STARTED_CHAT"), agent[1], ses.getUserId())); //$NON-NLS-1$
 					String msg = (String)agentResponse.get("AGENT_MESSAGE"); //$NON-NLS-1$
 					ses.addHistoryChatMessage(true, msg);
+					updateSyncSeq(ses, agentResponse);
 					nextAgentIndex = i + 1;
 					Helper.logInfo(Messages.getString("ChatAgent.LOG_CONTO_SUCCESS") + agent[AG_NAME] + "@" + agent[AG_HOST] + ":" + agent[AG_PORT]); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 					return new String[] { msg };
@@ -92,7 +124,109 @@ public class ChatAgent {
 	}
 
 	/**
-	 * Starts the chat with remote agent. It sends the whole discussion history so as
+	 * Adds the chat history messages starting at fromSeq to the request params as a JSON array
+	 * of {seq, from, msg} objects. Large payloads are gzipped then base64 (url safe) encoded, the
+	 * encoding is given by the [key]_enc param (json|gzip).
+	 * @param params Request params.
+	 * @param key Name of the param to hold the messages.
+	 * @param ses Chat session object.
+	 * @param fromSeq Number of the messages already known by the agent app.
+	 */
+	private void putHistory(Map<String, String> params, String key, ChatSession ses, int fromSeq) {
+		int count = ses.getHistoryChatMessagesCount();
+		int from = fromSeq;
+		List<String> transcript = null;
+		if(from < ses.getHistoryFirstIndex()) { // Older messages are in the history file
+			try {
+				transcript = ses.getTranscript();
+			} catch(IOException ex) {
+				Helper.logWarning(ex, String.format(Messages.getString("ChatAgent.HISTORY_READ_ERROR"), ses.getUserId()), false); //$NON-NLS-1$
+				from = ses.getHistoryFirstIndex();
+			}
+		}
+		String[] line;
+		Map<String, Object> item;
+		List<Map<String, Object>> msgs = new ArrayList<>(Math.max(0, count - from));
+		for(int i = from; i < count; i++) {
+			line = (transcript != null ? transcript.get(i) : ses.getHistoryChatMessage(i)).split(" : ", 2); //$NON-NLS-1$
+			item = new HashMap<>(4);
+			item.put("seq", i + 1); //$NON-NLS-1$
+			item.put("from", line.length == 2 ? line[0] : ""); //$NON-NLS-1$ //$NON-NLS-2$
+			item.put("msg", line.length == 2 ? line[1] : line[0]); //$NON-NLS-1$
+			msgs.add(item);
+		}
+		String json = gson.toJson(msgs);
+		byte[] raw = json.getBytes(StandardCharsets.UTF_8);
+		if(raw.length >= SYNC_GZIP_MIN_SIZE) {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream(raw.length / 3);
+			try(GZIPOutputStream gz = new GZIPOutputStream(bos)) {
+				gz.write(raw);
+			} catch(IOException ex) {
+				Helper.logWarning(ex, Messages.getString("ChatAgent.HISTORY_COMPRESS_ERROR"), false); //$NON-NLS-1$
+				params.put(key, json);
+				params.put(key + "_enc", "json"); //$NON-NLS-1$ //$NON-NLS-2$
+				return;
+			}
+			params.put(key, Base64.getUrlEncoder().withoutPadding().encodeToString(bos.toByteArray()));
+			params.put(key + "_enc", "gzip"); //$NON-NLS-1$ //$NON-NLS-2$
+		} else {
+			params.put(key, json);
+			params.put(key + "_enc", "json"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Builds the params of the old letschat request for agent apps that do not support the sync protocol.
+	 * @param ses Chat session object.
+	 * @param params Sync protocol params.
+	 * @return Legacy request params.
+	 */
+	private Map<String, String> legacyParams(ChatSession ses, Map<String, String> params) {
+		StringBuilder chat = new StringBuilder();
+		try {
+			for(String line : ses.getTranscript())
+				chat.append(line).append("<<br/>>"); //$NON-NLS-1$
+		} catch(IOException ex) {
+			Helper.logWarning(ex, String.format(Messages.getString("ChatAgent.HISTORY_READ_ERROR"), ses.getUserId()), false); //$NON-NLS-1$
+			for(int i = ses.getHistoryFirstIndex(); i < ses.getHistoryChatMessagesCount(); i++)
+				chat.append(ses.getHistoryChatMessage(i)).append("<<br/>>"); //$NON-NLS-1$
+		}
+		Map<String, String> legacy = new HashMap<>();
+		legacy.put("chat", chat.toString()); //$NON-NLS-1$
+		legacy.put("usr_id", params.get("usr_id")); //$NON-NLS-1$ //$NON-NLS-2$
+		legacy.put("timeout", params.get("timeout")); //$NON-NLS-1$ //$NON-NLS-2$
+		return legacy;
+	}
+
+	/**
+	 * Builds the params of the old message request for agent apps that do not support the sync protocol.
+	 * @param params Sync protocol params.
+	 * @return Legacy request params.
+	 */
+	private Map<String, String> legacyMessageParams(Map<String, String> params) {
+		Map<String, String> legacy = new HashMap<>();
+		legacy.put("usr_id", params.get("usr_id")); //$NON-NLS-1$ //$NON-NLS-2$
+		legacy.put("usr_msg", params.get("usr_msg")); //$NON-NLS-1$ //$NON-NLS-2$
+		legacy.put("timeout", params.get("timeout")); //$NON-NLS-1$ //$NON-NLS-2$
+		return legacy;
+	}
+
+	/**
+	 * Updates the count of the messages acknowledged by the agent app. The agent app may answer with
+	 * ACK_SEQ lower than the history size when it lost messages (restart, reconnection...) so the
+	 * missing ones are sent again with the next user message.
+	 * @param ses Chat session object.
+	 * @param agentResponse Agent app response.
+	 */
+	private void updateSyncSeq(ChatSession ses, Map<String, Object> agentResponse) {
+		Object ack = agentResponse.get("ACK_SEQ"); //$NON-NLS-1$
+		if(ack instanceof Number) {
+			ses.setAgentSyncSeq(((Number)ack).intValue());
+		} else ses.setAgentSyncSeq(ses.getHistoryChatMessagesCount());
+	}
+
+	/**
+	 * Starts the chat with remote agent. It sends the whole discussion history once so as
 	 * the agent can understand the context and continues the conversation.
 	 * Ends the chat session on timeout.
 	 * @param ses The chat session object
@@ -102,11 +236,10 @@ public class ChatAgent {
 		Objects.requireNonNull(ses);
 		try {
 			loadAgents();
-			StringBuffer chat = new StringBuffer();
-			for(int i = 0; i < ses.getHistoryChatMessagesCount(); i++)
-				chat.append(ses.getHistoryChatMessage(i)).append("<<br/>>"); //$NON-NLS-1$
 			Map<String, String> params = new HashMap<>();
-			params.put("chat", chat.toString()); //$NON-NLS-1$
+			params.put("proto", SYNC_PROTOCOL); //$NON-NLS-1$
+			putHistory(params, "history", ses, 0); //$NON-NLS-1$
+			params.put("seq", Integer.toString(ses.getHistoryChatMessagesCount())); //$NON-NLS-1$
 			params.put("usr_id", ses.getUserId()); //$NON-NLS-1$
 			params.put("timeout", Integer.toString(io.github.emmrida.chat4us.gui.MainWindow.getSettings().getAgentResponseTimeoutSeconds())); //$NON-NLS-1$
 			int startAgentIndex = nextAgentIndex < agents.size() ? nextAgentIndex : 0;
@@ -126,7 +259,8 @@ public class ChatAgent {
 	}
 
 	/**
-	 * Sends the remote user message to the remote agent/messenger.
+	 * Sends the remote user message to the remote agent/messenger along with the history
+	 * messages not yet acknowledged by the agent app.
 	 * Ends the chat on timeout.
 	 * @param ses The chat session object
 	 * @param msg User message.
@@ -135,38 +269,79 @@ public class ChatAgent {
 	public String[] userMessage(ChatSession ses, String msg) {
 		Objects.requireNonNull(ses);
 		Helper.requiresNotEmpty(msg);
-		ses.addHistoryChatMessage(false, msg.trim());
 		Object[] agent = getAgentById(ses.getAgentId());
+		String url = agent != null ? agentUrl(agent) : null;
+		boolean legacy = url != null && legacyAgents.contains(url);
+		Map<String, String> params = new HashMap<>();
+		if(agent != null && !legacy) // Deltas are the messages before this one, it is sent as usr_msg
+			putHistory(params, "deltas", ses, ses.getAgentSyncSeq()); //$NON-NLS-1$
+		ses.addHistoryChatMessage(false, msg.trim());
 		if(agent != null) {
-			Map<String, String> params = new HashMap<>();
 			params.put("usr_id", ses.getUserId()); //$NON-NLS-1$
 			params.put("usr_msg", msg); //$NON-NLS-1$
 			params.put("timeout", Integer.toString(io.github.emmrida.chat4us.gui.MainWindow.getSettings().getAgentResponseTimeoutSeconds())); //$NON-NLS-1$
-			HttpResponse<String> response = sendHttpRequest("https://" + (String)agent[AG_HOST] + ":" + (String)agent[AG_PORT] + "/message", params); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-			if(response.statusCode() == 200) {
+			HttpResponse<String> response;
+			if(legacy) {
+				response = sendHttpRequest(ses, (int)agent[AG_ID], url + "/message", params); //$NON-NLS-1$
+			} else {
+				params.put("proto", SYNC_PROTOCOL); //$NON-NLS-1$
+				params.put("seq", Integer.toString(ses.getHistoryChatMessagesCount())); //$NON-NLS-1$
+				response = sendHttpRequest(ses, (int)agent[AG_ID], url + "/message", params); //$NON-NLS-1$
+				if(response != null && response.statusCode() == 400) { // Agent app without sync protocol support
+					legacyAgents.add(url);
+					response = sendHttpRequest(ses, (int)agent[AG_ID], url + "/message", legacyMessageParams(params)); //$NON-NLS-1$
+				}
+			}
+			if(response != null && response.statusCode() == 200) {
 				Map<String, Object> agentResponse = gson.fromJson(response.body(), Map.class);
 				String agResponse = (String)agentResponse.get("AGENT_MESSAGE"); //$NON-NLS-1$
 				ses.addHistoryChatMessage(true, agResponse.trim());
+				updateSyncSeq(ses, agentResponse);
 				return new String[] { agResponse };
 			}
 		}
 
-		Helper.logWarning(String.format(Messages.getString("ChatAgent.AGENT_RESPONSE_TIMEOUT"), agent[AG_NAME], ses.getUserId())); //$NON-NLS-1$
+		Helper.logWarning(String.format(Messages.getString("ChatAgent.AGENT_RESPONSE_TIMEOUT"), agent != null ? agent[AG_NAME] : ses.getAgentId(), ses.getUserId())); //$NON-NLS-1$
 		ses.setEnded(true);
 		return new String[] { Messages.getString("ChatAgent.UNK_ERROR_TRY_LATER") }; //$NON-NLS-1$
 	}
 
+	/**
+	 * Returns the HttpClient shared by the requests so as connections are reused. It is created
+	 * again when the self signed certificate setting changes.
+	 * @return The HttpClient instance.
+	 */
+	private synchronized HttpClient httpClient() {
+		boolean selfSigned = MainWindow.isSelfSigned();
+		if(httpClient == null || httpClientSelfSigned != selfSigned) {
+			if(selfSigned) {
+		        httpClient = HttpClient.newBuilder()
+		                .version(HttpClient.Version.HTTP_2)
+		                .sslContext(new NoopTrustManager().getNoopSSLContext()) // Disables SSL certificate verification
+		                .build();
+			} else {
+	            httpClient = HttpClient.newBuilder()
+	                    .version(HttpClient.Version.HTTP_2)
+	                    .build();
+	        }
+			httpClientSelfSigned = selfSigned;
+		}
+		return httpClient;
+	}
+
 	/**
 	 * Sends the HTTP request to the remote messenger app wait for the agent response
 	 * to return it.
-	 * @param url Url of the messenger app machine:port number.
+	 * @param ses Chat session the request is made for.
+	 * @param agentId Database id of the agent.
+	 * @param url Url of the messenger app machine:port number, with the /letschat or /message path.
 	 * @param params Request parameters.
 	 * @return Agent response or null on error or timeout.
 	 */
-	public HttpResponse<String> sendHttpRequest(String url, Map<String, String> params) {
+	public HttpResponse<String> sendHttpRequest(ChatSession ses, int agentId, String url, Map<String, String> params) {
 		Helper.requiresNotEmpty(url);
 		Objects.requireNonNull(params);
-        StringBuffer requestBody = new StringBuffer();
+        StringBuilder requestBody = new StringBuilder();
         for(Map.Entry<String, String> entry : params.entrySet()) {
 			requestBody.append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8));
 			requestBody.append("="); //$NON-NLS-1$
@@ -175,18 +350,7 @@ public class ChatAgent {
 		}
 		requestBody.deleteCharAt(requestBody.length() - 1);
 
-        // Create an HttpClient instance
-		HttpClient client;
-		if(MainWindow.isSelfSigned()) {
-	        client = HttpClient.newBuilder()
-	                .version(HttpClient.Version.HTTP_2)
-	                .sslContext(new NoopTrustManager().getNoopSSLContext()) // Disables SSL certificate verification
-	                .build();
-		} else {
-            client = HttpClient.newBuilder()
-                    .version(HttpClient.Version.HTTP_2)
-                    .build();
-        }
+        HttpClient client = httpClient();
 
         // Build the HttpRequest
         HttpRequest request = HttpRequest.newBuilder()
@@ -195,15 +359,38 @@ public class ChatAgent {
                 .POST(HttpRequest.BodyPublishers.ofString(requestBody.toString()))
                 .timeout(java.time.Duration.ofSeconds(120))
                 .build();
+        String path = request.uri().getPath();
+        boolean letsChat = "/letschat".equals(path); //$NON-NLS-1$
+        ChatEvents.AgentRequest event = new ChatEvents.AgentRequest();
+        event.begin();
+        long start = System.nanoTime();
         try {
             // Send the request and get the response
-            return client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            (letsChat ? letsChatSeconds : messageSeconds).record(System.nanoTime() - start);
+            event.status = response.statusCode();
+            if(response.statusCode() != 200)
+                (letsChat ? letsChatErrors : messageErrors).increment();
+            return response;
         } catch (Exception ex) {
+            (letsChat ? letsChatErrors : messageErrors).increment();
             Helper.logWarning(ex, String.format(Messages.getString("ChatAgent.ERROR_SENDING_MSG"), url)); //$NON-NLS-1$
+        } finally {
+            event.path = path;
+            event.end(ses, agentId);
         }
         return null;
     }
 
+	/**
+	 * Returns the base url of an agent messenger app, also the key of the negotiated protocol.
+	 * @param agent Agent data.
+	 * @return The https://host:port url.
+	 */
+	private static String agentUrl(Object[] agent) {
+		return "https://" + (String)agent[AG_HOST] + ":" + (String)agent[AG_PORT]; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
 	/**
 	 * Loads the list of the available agents.
 	 */
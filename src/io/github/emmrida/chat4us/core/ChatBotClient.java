@@ -5,35 +5,32 @@
 package io.github.emmrida.chat4us.core;
 
 import java.io.File;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
 import com.caoccao.javet.exceptions.JavetCompilationException;
 import com.caoccao.javet.exceptions.JavetException;
-import com.caoccao.javet.interop.V8Host;
-import com.caoccao.javet.interop.V8Runtime;
-import com.caoccao.javet.interop.converters.JavetProxyConverter;
-import com.caoccao.javet.values.reference.V8ValueGlobalObject;
 
 import io.github.emmrida.chat4us.core.ChatSession.ChatSessionState;
+import io.github.emmrida.chat4us.core.CompiledScriptCache.CompiledScript;
 import io.github.emmrida.chat4us.ria.NodePanel;
+import io.github.emmrida.chat4us.ria.RiaDocument;
 import io.github.emmrida.chat4us.util.Helper;
 import io.github.emmrida.chat4us.util.Messages;
-import io.github.emmrida.chat4us.util.ScriptEx;
 
 /**
  * This class loads and manages RIA files that contains the static chat bots Q/A ria
@@ -43,12 +40,16 @@ import io.github.emmrida.chat4us.util.ScriptEx;
  */
 public class ChatBotClient {
 	private static final Map<String, String[]> BOOLEAN_VALUES = new HashMap<>(); // locale : [non, oui]
+	private static final DateTimeFormatter DATE_DMY = DateTimeFormatter.ofPattern("dd/MM/yyyy"); //$NON-NLS-1$
+	private static final DateTimeFormatter DATE_MDY = DateTimeFormatter.ofPattern("MM/dd/yyyy"); //$NON-NLS-1$
+	private static final Pattern MATCHING_LIST_PATTERN = Pattern.compile("\\['(.*?)'\\s*,\\s*([-|\\d]+)\\]"); //$NON-NLS-1$
+	private static final Pattern MATCHING_VALUES_PATTERN = Pattern.compile("\\['(.*?)'\\s*,\\s*'(.*?)'\\]"); //$NON-NLS-1$
+	private static final String LOCALE_PARAM_PREFIX = "locale_"; //$NON-NLS-1$
+	private static final String PRELOAD_LOCALES_PARAM = "preload_locales"; //$NON-NLS-1$
 
-    private String mainLocale;
-    private Map<String, Integer> entryIds; // locale : entryId
-    private Map<String, String> riaFileNames; // locale : fileName
-    private Map<String, ChatSession> riaChatSessions; // locale : ChatSession>
-	private Map<String, Map<Integer, NodePanel.Data>> riaNodes; // locale : Map<Integer, NodePanel.Data>
+    private volatile Flows flows; // Replaced as a whole on reload, never changed once published
+    private final Map<String, CompletableFuture<Flows>> localeLoads = new ConcurrentHashMap<>(); // locale : Running first load
+	private boolean schedulesStarted;
 
     static {
     	BOOLEAN_VALUES.put("FR", new String[] {"non",  "oui"}); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
@@ -63,10 +64,38 @@ public class ChatBotClient {
      * Init the chat bot client.
      */
     public ChatBotClient() {
-    	this.entryIds = new HashMap<>();
-    	this.riaFileNames = new HashMap<>();
-		this.riaChatSessions = new HashMap<>();
-		this.riaNodes = new HashMap<>();
+    	this.flows = new Flows(0);
+		this.schedulesStarted = false;
+    }
+
+    /**
+     * The loaded RIA files of the chat bot, one per locale. Chat sessions keep the flow graph
+     * they started with, so a reload does not disturb running chats.
+     */
+    private static final class Flows {
+    	private final int version;
+    	private String mainLocale;
+    	private final Map<String, String> riaFileNames; // locale : fileName
+    	private final Map<String, ChatSession> riaChatSessions; // locale : ChatSession
+    	private final Map<String, FlowGraph> riaFlows; // locale : Compiled RIA nodes
+    	private final Map<String, List<ScriptScheduler.Job>> riaJobs; // locale : Jobs declared by the bot script
+
+    	private Flows(int version) {
+    		this.version = version;
+    		this.riaFileNames = new HashMap<>();
+    		this.riaChatSessions = new HashMap<>();
+    		this.riaFlows = new HashMap<>();
+    		this.riaJobs = new HashMap<>();
+    	}
+
+    	private Flows(Flows flows) {
+    		this.version = flows.version;
+    		this.mainLocale = flows.mainLocale;
+    		this.riaFileNames = new HashMap<>(flows.riaFileNames);
+    		this.riaChatSessions = new HashMap<>(flows.riaChatSessions);
+    		this.riaFlows = new HashMap<>(flows.riaFlows);
+    		this.riaJobs = new HashMap<>(flows.riaJobs);
+    	}
     }
 
     /**
@@ -76,11 +105,11 @@ public class ChatBotClient {
      * @return The message of the destination node.
      */
     public String moveTo(ChatSession ses, int nodeId) {
-        NodePanel.Data nodeData = getNodeById(ses.getCurLocale(), nodeId);
-        if(nodeData == null)
+        FlowNode node = getNodeById(ses, nodeId);
+        if(node == null)
             throw new IllegalArgumentException(Messages.getString("ChatBotClient.INVALID_ROUTE_ID")); //$NON-NLS-1$
-        ses.setCurrentNode(nodeData);
-        return nodeData.getMessage();
+        ses.setCurrentNode(node);
+        return node.getMessage();
     }
 
     /**
@@ -111,15 +140,14 @@ public class ChatBotClient {
         if(ses.isEnded())
             return new String[0];
         List<String> responses = new ArrayList<>();
-        NodePanel.Data curNode = getNodeById(ses.getCurLocale(), this.entryIds.get(ses.getCurLocale()));
-        NodePanel.Data data = curNode;
+        FlowNode curNode = getEntryNode(ses);
         String msg = curNode.getMessage();
         if(!msg.trim().isEmpty()) {
         	responses.add(msg);
         	ses.addHistoryChatMessage(true, msg);
         }
-        while(curNode.getValType().equals("nop")) { //$NON-NLS-1$
-            ses.setCurrentNode(getNodeById(ses.getCurLocale(), data.getSucMoveTo()));
+        while(curNode.getValidator() == FlowNode.Validator.NOP) {
+            ses.setCurrentNode(curNode.getSucNext());
             curNode = ses.getCurrentNode();
             if(curNode != null) {
 				msg = curNode.getMessage();
@@ -142,19 +170,38 @@ public class ChatBotClient {
      * @return Chat bot messages depending on current node condition validation.
      */
     public String[] userMessage(ChatSession ses, String response) {
+        ChatEvents.Flow event = new ChatEvents.Flow();
+        event.begin();
+        FlowNode node = ses.getCurrentNode();
+        try {
+            return flowMessage(ses, response);
+        } finally {
+            event.nodeId = node != null ? node.getId() : -1;
+            event.end(ses);
+        }
+    }
+
+    /**
+     * Validates the user message against the current node and moves the chat flow.
+     * @param ses Chat session object.
+     * @param response User message.
+     * @return Chat bot messages depending on current node condition validation.
+     */
+    private String[] flowMessage(ChatSession ses, String response) {
         String[] botMessages = null;
         if(!response.isEmpty())
             ses.addHistoryChatMessage(false, response.trim());
-        NodePanel.Data curNode = ses.getCurrentNode();
-        NodePanel.Data data = curNode;
+        FlowNode curNode = ses.getCurrentNode();
+        FlowNode data = curNode;
         if(data == null) {
             ses.setEnded(true);
             return new String[] { Messages.getString("ChatBotClient.OFFLINE") }; //$NON-NLS-1$
         }
-        if("nop".equals(data.getValType())) { //$NON-NLS-1$
+        switch(data.getValidator()) {
+        case NOP:
             List<String> responses = new ArrayList<>();
-            while(curNode.getValType().equals("nop")) { //$NON-NLS-1$
-                ses.setCurrentNode(getNodeById(ses.getCurLocale(), data.getSucMoveTo()));
+            while(curNode.getValidator() == FlowNode.Validator.NOP) {
+                ses.setCurrentNode(curNode.getSucNext());
                 responses.add(curNode.getMessage());
                 curNode = ses.getCurrentNode();
                 if(curNode == null) {
@@ -164,18 +211,20 @@ public class ChatBotClient {
                 }
             }
             botMessages = responses.toArray(new String[responses.size()]);
-        } else if("text:any".equals(data.getValType())) { //$NON-NLS-1$
+            break;
+        case TEXT_ANY:
             if(response.isEmpty()) {
                 botMessages =  processError(ses, data, response);
             } else botMessages =  processSuccess(ses, data, response);
-        } else if("text:equal".equals(data.getValType())) { //$NON-NLS-1$
+            break;
+        case TEXT_EQUAL:
             if(response.equalsIgnoreCase(data.getValCondition())) {
                 botMessages =  processSuccess(ses, data, response);
             } else botMessages =  processError(ses, data, response);
-        } else if("text:in_list".equals(data.getValType())) { //$NON-NLS-1$
+            break;
+        case TEXT_IN_LIST:
             boolean found = false;
-            String[] list = data.getValCondition().split(";"); //$NON-NLS-1$
-            for(String s : list) {
+            for(String s : data.getInList()) {
                 if(s.equalsIgnoreCase(response)) {
                     found = true;
                     break;
@@ -184,7 +233,8 @@ public class ChatBotClient {
             if(found) {
                 botMessages =  processSuccess(ses, data, response);
             } else botMessages =  processError(ses, data, response);
-        } else if("text:email".equals(data.getValType())) { //$NON-NLS-1$
+            break;
+        case TEXT_EMAIL:
             if(response.isEmpty()) {
                 botMessages =  processError(ses, data, response);
             } else {
@@ -192,14 +242,16 @@ public class ChatBotClient {
                     botMessages =  processSuccess(ses, data, response);
                 } else botMessages =  processError(ses, data, response);
             }
-        } else if("number:any".equals(data.getValType())) { //$NON-NLS-1$
+            break;
+        case NUMBER_ANY:
             try {
                 Double.parseDouble(response);
                 botMessages =  processSuccess(ses, data, response);
             } catch(NumberFormatException ex) {
                 botMessages =  processError(ses, data, response);
             }
-        } else if("number:equal".equals(data.getValType())) { //$NON-NLS-1$
+            break;
+        case NUMBER_EQUAL:
             try {
                 Double.parseDouble(response);
                 if(response.trim().equals(data.getValCondition())) {
@@ -208,52 +260,46 @@ public class ChatBotClient {
             } catch(NumberFormatException ex) {
                 botMessages =  processError(ses, data, response);
             }
-        } else if("number:interval".equals(data.getValType())) { //$NON-NLS-1$
+            break;
+        case NUMBER_INTERVAL:
             if(response.isEmpty()) {
                 botMessages =  processError(ses, data, response);
-            } else {
-                String interval = curNode.getValCondition();
-                Pattern p = Pattern.compile("(-?\\d+(?:\\.\\d+)?)\\.\\.\\.(-?\\d+(?:\\.\\d+)?)"); //$NON-NLS-1$
-                Matcher m = p.matcher(interval);
-                if(m.find()) {
-                    try {
-                        double min = Double.parseDouble(m.group(1));
-                        double max = Double.parseDouble(m.group(2));
-                        double val = Double.parseDouble(response);
-                        if(val >= min && val <= max) {
-                            botMessages =  processSuccess(ses, data, response);
-                        } else botMessages = processError(ses, data, response);
-                    } catch(NumberFormatException ex) {
-                        //Helper.logWarning(ex, String.format(Messages.getString("ChatBotClient.INVALID_NUMBER"), response)); //$NON-NLS-1$
-                        botMessages =  processError(ses, data, response);
-                    }
+            } else if(data.hasInterval()) {
+                try {
+                    double val = Double.parseDouble(response);
+                    if(val >= data.getIntervalMin() && val <= data.getIntervalMax()) {
+                        botMessages =  processSuccess(ses, data, response);
+                    } else botMessages = processError(ses, data, response);
+                } catch(NumberFormatException ex) {
+                    botMessages =  processError(ses, data, response);
                 }
             }
-        } else if("boolean:any".equals(data.getValType())) { //$NON-NLS-1$
+            break;
+        case BOOLEAN_ANY:
             int val = getBooleanValue(ses.getCurLocale(), response);
             if(val == 0 || val == 1) {
                 botMessages =  processSuccess(ses, data, response);
             } else botMessages =  processError(ses, data, response);
-        } else if("date:dd/MM/yyyy".equals(data.getValType())) { //$NON-NLS-1$
+            break;
+        case DATE_DMY:
+        case DATE_MDY:
         	try {
-        		Helper.toLocalDate(response, "dd/MM/yyyy"); //$NON-NLS-1$
+        		LocalDate.parse(response, data.getValidator() == FlowNode.Validator.DATE_DMY ? DATE_DMY : DATE_MDY);
                 botMessages =  processSuccess(ses, data, response);
             } catch(DateTimeParseException ex) {
                 botMessages =  processError(ses, data, response);
         	}
-        } else if("date:MM/dd/yyyy".equals(data.getValType())) { //$NON-NLS-1$
-        	try {
-        		Helper.toLocalDate(response, "MM/dd/yyyy"); //$NON-NLS-1$
-                botMessages =  processSuccess(ses, data, response);
-            } catch(DateTimeParseException ex) {
-                botMessages =  processError(ses, data, response);
-        	}
-        } else if("matching_list".equals(data.getValType())) { //$NON-NLS-1$
+            break;
+        case MATCHING_LIST:
         	botMessages = processMatchingList(data, ses, response);
-        } else if("matching_values".equals(data.getValType())) { //$NON-NLS-1$
+            break;
+        case MATCHING_VALUES:
 	        botMessages = processMatchingValues(data, ses, response);
-        } else if("script".equals(data.getValType())) { //$NON-NLS-1$
-            String script = data.getScript();
+            break;
+        case SCRIPT:
+            CompiledScript script = data.getScript();
+            if(script == null)
+            	break;
             ses.setVar("message", ""); //$NON-NLS-1$ //$NON-NLS-2$
             Integer nodeId = executeScript(script, ses, response);
             String msg = ses.getVar("message"); // Defined in the script as a return message to show to the user //$NON-NLS-1$
@@ -261,7 +307,7 @@ public class ChatBotClient {
             if(nodeId == null) {
                 botMessages = new String[] { curNode.getErrMessage() };
             } else if(nodeId > 0) {
-            	curNode = getNodeById(ses.getCurLocale(), nodeId);
+            	curNode = getNodeById(ses, nodeId);
                 ses.setCurrentNode(curNode);
             	if(curNode != null) {
 	                if(msg != null && !msg.trim().isEmpty()) {
@@ -275,9 +321,8 @@ public class ChatBotClient {
                 ses.setEnded(true);
                 botMessages = new String[] { msg != null ? msg : Messages.getString("ChatBotClient.OFFLINE") }; //$NON-NLS-1$
             } else if(nodeId == -2) { // Restart
-                nodeId = entryIds.get(ses.getCurLocale());
                 ses.clearVars();
-                ses.setCurrentNode(getNodeById(ses.getCurLocale(), nodeId));
+                ses.setCurrentNode(getEntryNode(ses));
                 botMessages = new String[] { curNode.getMessage() };
             } else if(nodeId == -3) { // Switch to AI
 	            ses.setState(ChatSessionState.AIMODEL);
@@ -286,6 +331,9 @@ public class ChatBotClient {
 	            ses.setState(ChatSessionState.AGENT);
 	            return new String[] { msg != null ? msg : Messages.getString("ChatBotClient.OFFLINE") }; //$NON-NLS-1$
             }
+            break;
+        default:
+            break;
         }
         if(botMessages == null) {
             IllegalStateException ex = new IllegalStateException(Messages.getString("ChatBotClient.ILLEGAL_STATE_EX")); //$NON-NLS-1$
@@ -298,7 +346,8 @@ public class ChatBotClient {
     /**
     * Executes the node's script on user message. Returns a message defined by the script.
     * Session variables defined [Success/Error action=variable:user_value & Value=var_name]
-    * during static chat flows are defined in the global scope.
+    * during static chat flows are defined in the global scope when the script refers to them,
+    * and all of them are reachable through the 'session' object.
     * Inside the script, declare 'message' variable and affect the content you want to
     * send back to remote user.
     * Possible return values:
@@ -308,36 +357,22 @@ public class ChatBotClient {
     * -2 : Restart the chat bot.
     * -3 : Switch to AI.
     * -4 : Switch to an agent.
-    * @param script Script to execute
+    * @param script Compiled script to execute
     * @param ses Chat session object.
     * @param response User response.
     * @return The node id to move to if > 0. 0:repeat. -1:end. -2:restart. -3:switch_to_ai. -4:switch_to_agent. null:Error.
     */
-   private Integer executeScript(String script, ChatSession ses, String response) {
-       try (V8Runtime v8Runtime = V8Host.getV8Instance().createV8Runtime()) {
-           v8Runtime.setConverter(new JavetProxyConverter());
-           V8ValueGlobalObject global = v8Runtime.getGlobalObject();
-           global.set("ScriptEx", ScriptEx.class); //$NON-NLS-1$
-           global.set("response", response); //$NON-NLS-1$
-           for(Map.Entry<String, String> entry : ses.getVarsSet())
-               global.set(entry.getKey(), entry.getValue());
-           String varName;
-           Object obj;
-           Integer ret = v8Runtime.getExecutor(script).executeInteger();
-           for(Map.Entry<String, String> entry : ses.getVarsSet()) {
-               varName = entry.getKey();
-               if(global.hasOwnProperty(varName)) {
-                   obj = global.get(entry.getKey());
-                   entry.setValue(obj.toString());
-                   global.delete(entry.getKey());
-               }
-           }
-           global.delete("response"); //$NON-NLS-1$
-           global.delete("ScriptEx"); //$NON-NLS-1$
-           global.close();
-           v8Runtime.lowMemoryNotification();
-           v8Runtime.close();
-           return ret;
+   private Integer executeScript(CompiledScript script, ChatSession ses, String response) {
+       if(script.getCompileError() != null) {
+    	   ses.setEnded(true);
+    	   Helper.logError(String.format(Messages.getString("ChatBotClient.SCRIPT_COMPILATION_ERROR"), ses.getCurrentNode().getId(), script.getCompileError())); //$NON-NLS-1$
+    	   return null;
+       }
+       ChatEvents.Script event = new ChatEvents.Script();
+       event.begin();
+       Integer ret = null;
+       try {
+           ret = ScriptRunner.execute(script, ses, response);
        } catch(JavetCompilationException ex) {
     	   ses.setEnded(true);
 		   Helper.logError(ex, String.format(Messages.getString("ChatBotClient.SCRIPT_COMPILATION_ERROR"), ses.getCurrentNode().getId(), ex.getScriptingError().toString()), true); //$NON-NLS-1$
@@ -345,7 +380,10 @@ public class ChatBotClient {
     	   ses.setEnded(true);
            Helper.logWarning(ex, String.format(Messages.getString("ChatBotClient.SCRIPT_RUNTIME_ERROR"), ses.getCurrentNode().getId()), false); //$NON-NLS-1$
        }
-       return null;
+       event.script = "node"; //$NON-NLS-1$
+       event.result = String.valueOf(ret);
+       event.end(ses);
+       return ret;
    }
 
     /**
@@ -356,17 +394,17 @@ public class ChatBotClient {
      * @param response User response.
      * @return Node response based on its condition and validation.
      */
-    private String[] processMatchingList(NodePanel.Data nodeData, ChatSession ses, String response) {
+    private String[] processMatchingList(FlowNode nodeData, ChatSession ses, String response) {
     	Objects.requireNonNull(nodeData);
     	Objects.requireNonNull(ses);
     	Objects.requireNonNull(response);
-		Map<String, Integer> map = extractMatchingList(nodeData.getValCondition());
-		if(map.containsKey(response)) {
-			int eid = map.get(response);
+		FlowNode.Branch branch = nodeData.getMatchingList().get(response);
+		if(branch != null) {
+			int eid = branch.getId();
 			if(eid > 0) {
-				NodePanel.Data data = getNodeById(ses.getCurLocale(), eid);
+				FlowNode data = branch.getNode();
 				if(data != null) {
-					NodePanel.Data curNode = ses.getCurrentNode();
+					FlowNode curNode = ses.getCurrentNode();
 					ses.setCurrentNode(data);
 					return nextSucMessages(ses, curNode.getSucMessage());
 				} else return processError(ses, nodeData, response);
@@ -380,17 +418,16 @@ public class ChatBotClient {
 		                ses.setEnded(true);
 		                return new String[] { msg.isEmpty() ? Messages.getString("ChatBotClient.OFFLINE") : msg }; //$NON-NLS-1$
 					case -2: // Restart
-		                int nodeId = entryIds.get(ses.getCurLocale());
 		                ses.clearVars();
-		                ses.setCurrentNode(getNodeById(ses.getCurLocale(), nodeId));
+		                ses.setCurrentNode(getEntryNode(ses));
 		                return new String[] { ses.getCurrentNode().getMessage() };
 					case -3: // Suitch to AI
 			            ses.setState(ChatSessionState.AIMODEL);
-			            ses.setCurrentNode(getNodeById(ses.getCurLocale(), nodeData.getSucMoveTo()));
+			            ses.setCurrentNode(nodeData.getSucNext());
 			            return nextSucMessages(ses, msg);
 					case -4: // Suitch to Agent
 				        ses.setState(ChatSessionState.AGENT);
-			            ses.setCurrentNode(getNodeById(ses.getCurLocale(), nodeData.getSucMoveTo()));
+			            ses.setCurrentNode(nodeData.getSucNext());
 			            return nextSucMessages(ses, msg);
 					default: // Error
 						return processError(ses, nodeData, response);
@@ -409,20 +446,14 @@ public class ChatBotClient {
      * @param response User response
      * @return Chat bot response strings.
      */
-    private String[] processMatchingValues(NodePanel.Data nodeData, ChatSession ses, String response) {
+    private String[] processMatchingValues(FlowNode nodeData, ChatSession ses, String response) {
     	Objects.requireNonNull(nodeData);
     	Objects.requireNonNull(ses);
     	Objects.requireNonNull(response);
-		Map<String, String> map = extractMatchingValues(nodeData.getValCondition());
-		if(map.containsKey(response)) {
-			String value = map.get(response);
-			NodePanel.Data curNode = ses.getCurrentNode();
-			if(curNode != null && value != null) {
-				return processSuccess(ses, nodeData, value);
-			} else return processError(ses, nodeData, response);
-		} else {
-			return processError(ses, nodeData, response);
-		}
+		String value = nodeData.getMatchingValues().get(response);
+		if(value != null && ses.getCurrentNode() != null) {
+			return processSuccess(ses, nodeData, value);
+		} else return processError(ses, nodeData, response);
     }
 
     /**
@@ -434,8 +465,7 @@ public class ChatBotClient {
     	String key;
     	int value;
         Map<String, Integer> map = new LinkedHashMap<>();
-        Pattern pattern = Pattern.compile("\\['(.*?)'\\s*,\\s*([-|\\d]+)\\]"); //$NON-NLS-1$
-        Matcher matcher = pattern.matcher(list);
+        Matcher matcher = MATCHING_LIST_PATTERN.matcher(list);
         while (matcher.find()) {
             key = matcher.group(1); // Extract the key
             value = Integer.parseInt(matcher.group(2)); // Extract and convert value to Integer
@@ -453,8 +483,7 @@ public class ChatBotClient {
 	   String key;
        String value;
        Map<String, String> map = new LinkedHashMap<>();
-       Pattern pattern = Pattern.compile("\\['(.*?)'\\s*,\\s*'(.*?)'\\]"); //$NON-NLS-1$
-       Matcher matcher = pattern.matcher(list);
+       Matcher matcher = MATCHING_VALUES_PATTERN.matcher(list);
        while (matcher.find()) {
            key = matcher.group(1); // Extract the key
            value = matcher.group(2); // Extract value
@@ -465,48 +494,26 @@ public class ChatBotClient {
 
     /**
      * Post processes cha bot messages for additional format and replacing variables names by their values.
+     * Node texts use the templates compiled with the RIA file, other messages are compiled on the fly.
      * @param botMessages List of bot messages.
      * @return List of bot messages.
      */
     private String[] postProcessChatBotMessages(ChatSession ses, String[] botMessages) {
         Objects.requireNonNull(botMessages);
-        String msg;
+        FlowGraph flow = getFlow(ses);
+        MessageTemplate tpl;
         for(int i = 0; i < botMessages.length; i++) {
-            msg = botMessages[i].replaceAll("\n", ""); //$NON-NLS-1$ //$NON-NLS-2$
-            if(!msg.isEmpty()) {
-                botMessages[i] = replacePlaceholders(ses, msg);
+            tpl = flow != null ? flow.getTemplate(botMessages[i]) : null;
+            if(tpl == null)
+            	tpl = MessageTemplate.compile(botMessages[i]);
+            if(!tpl.getText().isEmpty()) {
+                botMessages[i] = tpl.render(ses);
                 ses.addHistoryChatMessage(true, botMessages[i].trim());
             }
         }
         return botMessages;
     }
 
-    /**
-     * Chat bots can save variables by choosing "variable:user_value" or "variable:operation" and show them
-     * inside Node messages and success/error messages using {:var_name:} format. Chat bots can also read/write variables
-     * in a node script.
-     * @param ses Chat bot session
-     * @param msg Chat bot message.
-     * @return Post processed chat bot message.
-     */
-    private String replacePlaceholders(ChatSession ses, String msg) {
-        // Regex to match placeholders like {:key:}
-        Pattern pattern = Pattern.compile("\\{:(.*?):\\}"); //$NON-NLS-1$
-        Matcher matcher = pattern.matcher(msg);
-
-        String key;
-        String replacement;
-        StringBuffer result = new StringBuffer();
-        while (matcher.find()) {
-            key = matcher.group(1); // Extract the key inside {:...:}
-            replacement = ses.getVar(key, ""); // Get the replacement or empty string //$NON-NLS-1$
-            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
-        }
-        matcher.appendTail(result); // Append the remaining part of the template
-
-        return result.toString();
-    }
-
     /**
     * Returns next success messages. If a node condition=nop the chat bot client will move automatically
     * to the next node until the last node or a node with a condition!=nop.
@@ -519,11 +526,11 @@ public class ChatBotClient {
            return new String[0];
        List<String> responses = new ArrayList<>();
        responses.add(firstMsg);
-       NodePanel.Data curNode = ses.getCurrentNode();
+       FlowNode curNode = ses.getCurrentNode();
        if(curNode != null) {
     	   responses.add(curNode.getMessage());
-		   while(curNode.getValType().equals("nop")) { //$NON-NLS-1$
-				curNode = getNodeById(ses.getCurLocale(), curNode.getSucMoveTo());
+		   while(curNode.getValidator() == FlowNode.Validator.NOP) {
+				curNode = curNode.getSucNext();
 				if(curNode != null) {
 					responses.add(curNode.getMessage());
 					ses.setCurrentNode(curNode);
@@ -549,11 +556,11 @@ public class ChatBotClient {
            return new String[0];
        List<String> responses = new ArrayList<>();
        responses.add(firstMsg);
-       NodePanel.Data curNode = ses.getCurrentNode();
+       FlowNode curNode = ses.getCurrentNode();
        if(curNode != null) {
     	   responses.add(curNode.getMessage());
-           	while(curNode.getValType().equals("nop")) { //$NON-NLS-1$
-               curNode = getNodeById(ses.getCurLocale(), curNode.getErrMoveTo());
+           	while(curNode.getValidator() == FlowNode.Validator.NOP) {
+               curNode = curNode.getErrNext();
                if(curNode != null) {
                    responses.add(curNode.getMessage());
                    ses.setCurrentNode(curNode);
@@ -575,122 +582,96 @@ public class ChatBotClient {
      * @param response User response.
      * @return Next success messages.
      */
-    private String[] processSuccess(ChatSession ses, NodePanel.Data nodeData, String response) {
-        NodePanel.Data curNode = ses.getCurrentNode();
-        if("nop".equals(nodeData.getSucAction())) { //$NON-NLS-1$
+    private String[] processSuccess(ChatSession ses, FlowNode nodeData, String response) {
+        FlowNode curNode = ses.getCurrentNode();
+        switch(nodeData.getSucAction()) {
+        case NOP:
             String msg = curNode.getSucMessage();
-            ses.setCurrentNode(getNodeById(ses.getCurLocale(), nodeData.getSucMoveTo()));
+            ses.setCurrentNode(nodeData.getSucNext());
             return nextSucMessages(ses, msg);
-        }
-        if("repeat".equals(nodeData.getSucAction())) { //$NON-NLS-1$
-        	List<String> responses = new ArrayList<>();
-            responses.add(nodeData.getSucMessage());
-            responses.add(nodeData.getMessage());
-			return responses.toArray(new String[responses.size()]);
-        }
-        if("restart".equals(nodeData.getSucAction())) { //$NON-NLS-1$
-            String msg = curNode.getSucMessage();
-            ses.setCurrentNode(getNodeById(ses.getCurLocale(), entryIds.get(ses.getCurLocale())));
+        case REPEAT:
+            return new String[] { nodeData.getSucMessage(), nodeData.getMessage() };
+        case RESTART:
+            msg = curNode.getSucMessage();
+            ses.setCurrentNode(getEntryNode(ses));
             return nextSucMessages(ses, msg);
-        }
-        if("end".equals(nodeData.getSucAction())) { //$NON-NLS-1$
+        case END:
             ses.setEnded(true);
             // TODO : Ensure no more nodes processed
             return new String[] { nodeData.getSucMessage() };
-        }
-        if("variable:user_value".equals(nodeData.getSucAction())) { //$NON-NLS-1$
+        case VARIABLE_USER_VALUE:
             ses.setVar(nodeData.getSucValue(), response);
-            String msg = curNode.getSucMessage();
-            ses.setCurrentNode(getNodeById(ses.getCurLocale(), nodeData.getSucMoveTo()));
+            msg = curNode.getSucMessage();
+            ses.setCurrentNode(nodeData.getSucNext());
             return nextSucMessages(ses, msg);
-        }
-        if("user_locale:user_value".equals(nodeData.getSucAction())) { //$NON-NLS-1$
+        case USER_LOCALE:
         	return changeUserLocale(ses, nodeData, response);
-        }
-        if("switch_to_ai".equals(nodeData.getSucAction())) { //$NON-NLS-1$
+        case SWITCH_TO_AI:
             ses.setState(ChatSessionState.AIMODEL);
-            String msg = curNode.getSucMessage();
-            ses.setCurrentNode(getNodeById(ses.getCurLocale(), nodeData.getSucMoveTo()));
+            msg = curNode.getSucMessage();
+            ses.setCurrentNode(nodeData.getSucNext());
             return nextSucMessages(ses, msg);
-        }
-        if("switch_to_agent".equals(nodeData.getSucAction())) { //$NON-NLS-1$
+        case SWITCH_TO_AGENT:
 	        ses.setState(ChatSessionState.AGENT);
-            String msg = curNode.getSucMessage();
-            ses.setCurrentNode(getNodeById(ses.getCurLocale(), nodeData.getSucMoveTo()));
+            msg = curNode.getSucMessage();
+            ses.setCurrentNode(nodeData.getSucNext());
             return nextSucMessages(ses, msg);
+        case VARIABLE_OPERATION:
+            FlowNode.Operation op = nodeData.getSucOperation();
+            if(op == null)
+            	return null;
+            if(!applyOperation(ses, op))
+                return processError(ses, nodeData, response);
+            msg = curNode.getSucMessage();
+            ses.setCurrentNode(nodeData.getSucNext());
+            return nextSucMessages(ses, msg);
+        default:
+            return null;
         }
-        if("variable:operation".equals(nodeData.getSucAction())) { //$NON-NLS-1$
-            String[] parts = nodeData.getSucValue().split("=", 2); //$NON-NLS-1$
-            if(parts.length == 2) {
-                Character c = parts[1].charAt(0);
-                Double val = Double.NaN;
-                try {
-                    val = Double.parseDouble(parts[1].substring(1));
-                } catch(NumberFormatException ex) {
-                    ex.printStackTrace();
-                    return processError(ses, nodeData, response);
-                }
-                String key = parts[0].trim();
-                switch(c) {
-                case '+':
-                    Double v = Double.parseDouble(ses.getVar(key, "0")); //$NON-NLS-1$
-                    String s = String.valueOf(v + val);
-                    if(s.endsWith(".0")) s = s.substring(0, s.length() - 2); //$NON-NLS-1$
-                    ses.setVar(key, s);
-                    break;
-                case '-':
-                    v = Double.parseDouble(ses.getVar(key, "0")); //$NON-NLS-1$
-                    s = String.valueOf(v - val);
-                    if(s.endsWith(".0")) s = s.substring(0, s.length() - 2); //$NON-NLS-1$
-                    ses.setVar(key, s);
-                    break;
-                case '*':
-                    v = Double.parseDouble(ses.getVar(key, "0")); //$NON-NLS-1$
-                    s = String.valueOf(v * val);
-                    if(s.endsWith(".0")) s = s.substring(0, s.length() - 2); //$NON-NLS-1$
-                    ses.setVar(key, s);
-                    break;
-                case '/':
-                    v = Double.parseDouble(ses.getVar(key, "0")); //$NON-NLS-1$
-                    s = String.valueOf(v + val);
-                    if(s.endsWith(".0")) s = s.substring(0, s.length() - 2); //$NON-NLS-1$
-                    ses.setVar(key, s);
-                    break;
-                default:
-                    return processError(ses, nodeData, response);
-                }
-                String msg = curNode.getSucMessage();
-                ses.setCurrentNode(getNodeById(ses.getCurLocale(), nodeData.getSucMoveTo()));
-                return nextSucMessages(ses, msg);
-            }
-        }
+    }
 
-        return null;
+    /**
+     * Applies a variable:operation action to a session variable.
+     * @param ses Chat bot session.
+     * @param op Parsed operation.
+     * @return False if the operation is invalid.
+     */
+    private boolean applyOperation(ChatSession ses, FlowNode.Operation op) {
+    	if(!op.isValid())
+    		return false;
+    	double v = Double.parseDouble(ses.getVar(op.getVariable(), "0")); //$NON-NLS-1$
+    	switch(op.getOperator()) {
+    	case '+': v += op.getOperand(); break;
+    	case '-': v -= op.getOperand(); break;
+    	case '*': v *= op.getOperand(); break;
+    	case '/': v /= op.getOperand(); break;
+    	default: return false;
+    	}
+    	String s = String.valueOf(v);
+    	if(s.endsWith(".0")) s = s.substring(0, s.length() - 2); //$NON-NLS-1$
+    	ses.setVar(op.getVariable(), s);
+    	return true;
     }
 
     /**
      * Changes current chat bot locale based on user response and available locals in the RIA parameters table.
      * To add a locolized RIA file, Add in the parameters table a key/entry pair
      * in the form locale_<locale_name> : RIA file relative path. Example: locale_EN : ria_file_EN.ria
-     * This will load the localized RIA file, switch to it then returns the entry node message.
+     * This will load the localized RIA file if not loaded yet, switch to it then returns the entry node message.
      * @param ses Chat bot session
      * @param nodeData Node data
      * @param response User response
      * @return Localized RIA file entry node message.
      */
-    private String[] changeUserLocale(ChatSession ses, NodePanel.Data nodeData, String response) {
-    	String ria = ses.getAiModelParam("locale_" + response); //$NON-NLS-1$
+    private String[] changeUserLocale(ChatSession ses, FlowNode nodeData, String response) {
+    	String ria = ses.getAiModelParam(LOCALE_PARAM_PREFIX + response);
 		if(ria != null && new File(ria).exists()) {
 			try {
-				loadRIA(ria, response);
-				ses.setCurLocale(response, this.riaChatSessions.get(response));
-				List<String> responses = new ArrayList<>();
-				responses.add(nodeData.getSucMessage());
-				int eid = entryIds.get(response);
-				NodePanel.Data node = getNodeById(response, eid);
+				Flows f = loadLocale(ria, response);
+				ses.setProfile(f.riaChatSessions.get(response).getProfile());
+				FlowNode node = f.riaFlows.get(response).getEntry();
 				ses.setCurrentNode(node);
-				responses.add(node.getMessage());
-				return responses.toArray(new String[responses.size()]);
+				return new String[] { nodeData.getSucMessage(), node.getMessage() };
 			} catch (Exception ex) {
 				Helper.logError(ex, String.format(Messages.getString("ChatBotClient.ERROR_LOADING_RIA"), response,  ria)); //$NON-NLS-1$
 			}
@@ -706,183 +687,311 @@ public class ChatBotClient {
      * @param response User response
      * @return Next error messages.
      */
-    private String[] processError(ChatSession ses, NodePanel.Data nodeData, String response) {
-        NodePanel.Data curNode = ses.getCurrentNode();
-        if("nop".equals(nodeData.getErrAction())) { //$NON-NLS-1$
+    private String[] processError(ChatSession ses, FlowNode nodeData, String response) {
+        FlowNode curNode = ses.getCurrentNode();
+        switch(nodeData.getErrAction()) {
+        case NOP:
             String msg = curNode.getErrMessage();
-            ses.setCurrentNode(getNodeById(ses.getCurLocale(), nodeData.getErrMoveTo()));
+            ses.setCurrentNode(nodeData.getErrNext());
             return nextErrMessages(ses, msg);
-        }
-        if("repeat".equals(nodeData.getErrAction())) { //$NON-NLS-1$
-        	List<String> responses = new ArrayList<>();
-            responses.add(nodeData.getErrMessage());
-            responses.add(nodeData.getMessage());
-			return responses.toArray(new String[responses.size()]);
-        }
-        if("restart".equals(nodeData.getErrAction())) { //$NON-NLS-1$
-            String msg = curNode.getErrMessage();
-            ses.setCurrentNode(getNodeById(ses.getCurLocale(), entryIds.get(ses.getCurLocale())));
+        case REPEAT:
+            return new String[] { nodeData.getErrMessage(), nodeData.getMessage() };
+        case RESTART:
+            msg = curNode.getErrMessage();
+            ses.setCurrentNode(getEntryNode(ses));
             return nextErrMessages(ses, msg);
-        }
-        if("end".equals(nodeData.getErrAction())) { //$NON-NLS-1$
+        case END:
             ses.setEnded(true);
             ses.setCurrentNode(null);
             return new String[] { nodeData.getErrMessage() };
-        }
-        if("variable:user_value".equals(nodeData.getErrAction())) { //$NON-NLS-1$
+        case VARIABLE_USER_VALUE:
             ses.setVar(nodeData.getErrValue(), response);
-            String msg = curNode.getErrMessage();
-            ses.setCurrentNode(getNodeById(ses.getCurLocale(), curNode.getErrMoveTo()));
+            msg = curNode.getErrMessage();
+            ses.setCurrentNode(curNode.getErrNext());
             return nextErrMessages(ses, msg);
-        }
-        if("switch_to_ai".equals(nodeData.getErrAction())) { //$NON-NLS-1$
+        case SWITCH_TO_AI:
             ses.setState(ChatSessionState.AIMODEL);
-            String msg = curNode.getErrMessage();
-            ses.setCurrentNode(getNodeById(ses.getCurLocale(), nodeData.getErrMoveTo()));
+            msg = curNode.getErrMessage();
+            ses.setCurrentNode(nodeData.getErrNext());
             return nextErrMessages(ses, msg);
-        }
-		if("switch_to_agent".equals(nodeData.getErrAction())) { //$NON-NLS-1$
+		case SWITCH_TO_AGENT:
 	        ses.setState(ChatSessionState.AGENT);
-            String msg = curNode.getErrMessage();
-            ses.setCurrentNode(getNodeById(ses.getCurLocale(), nodeData.getErrMoveTo()));
+            msg = curNode.getErrMessage();
+            ses.setCurrentNode(nodeData.getErrNext());
             return nextErrMessages(ses, msg);
-		}
-        if("variable:operation".equals(nodeData.getErrAction())) { //$NON-NLS-1$
-            String[] parts = response.split("=", 2); //$NON-NLS-1$
-            if(parts.length == 2) {
-                Character c = parts[1].charAt(0);
-                Double val = Double.NaN;
-                try {
-                    val = Double.parseDouble(parts[1].substring(1));
-                } catch(NumberFormatException ex) {
-                    ex.printStackTrace();
-                    return processError(ses, nodeData, response);
-                }
-                String key = parts[0].trim();
-                switch(c) {
-                case '+':
-                    Double v = Double.parseDouble(ses.getVar(key, "0.0")); //$NON-NLS-1$
-                    ses.setVar(key, String.valueOf(v + val));
-                    break;
-                case '-':
-                    v = Double.parseDouble(ses.getVar(key, "0.0")); //$NON-NLS-1$
-                    ses.setVar(key, String.valueOf(v - val));
-                    break;
-                case '*':
-                    v = Double.parseDouble(ses.getVar(key, "0.0")); //$NON-NLS-1$
-                    ses.setVar(key, String.valueOf(v * val));
-                    break;
-                case '/':
-                    v = Double.parseDouble(ses.getVar(key, "0.0")); //$NON-NLS-1$
-                    ses.setVar(key, String.valueOf(v / val));
-                    break;
-                default:
-                    return processError(ses, nodeData, response);
-                }
-                return nextErrMessages(ses, curNode.getErrMessage());
-            }
+        case VARIABLE_OPERATION:
+            FlowNode.Operation op = nodeData.getErrOperation();
+            if(op == null || !applyOperation(ses, op))
+                return null;
+            return nextErrMessages(ses, curNode.getErrMessage());
+        default:
+            return null;
         }
-
-        return null;
     }
 
     /**
      * Reloads all RIA files. Its called when a RIA file is changed and the user wants to apply changes
-     * to the running chat bot server.
+     * to the running chat bot server. The new version is built aside then replaces the current one at
+     * once, running chats go on with the version they started with. On error the current version is kept.
      * @throws Exception
      */
-    public void reloadRIAs() throws Exception {
-    	Map<String, String> rias = this.riaFileNames;
-    	this.entryIds = new HashMap<>();
-		this.riaFileNames = new HashMap<>();
-		this.riaChatSessions = new HashMap<>();
-		this.riaNodes = new HashMap<>();
-		String locale = this.mainLocale;
-		this.mainLocale = null;
-		loadRIA(rias.get(locale), null);
-		rias.remove(locale);
-		for(String loc : rias.keySet()) {
-			loadRIA(rias.get(loc), loc);
+    public synchronized void reloadRIAs() throws Exception {
+    	Flows old = this.flows;
+    	for(String riaFile : old.riaFileNames.values())
+    		CompiledScriptCache.getInstance().invalidate(riaFile);
+    	Flows next = new Flows(old.version + 1);
+		loadRIA(next, old.riaFileNames.get(old.mainLocale), null);
+		for(Map.Entry<String, String> e : old.riaFileNames.entrySet()) {
+			if(!e.getKey().equals(old.mainLocale))
+				loadRIA(next, e.getValue(), e.getKey());
 		}
+		this.flows = next;
+		for(List<ScriptScheduler.Job> jobs : old.riaJobs.values())
+			for(ScriptScheduler.Job job : jobs)
+				job.stop();
+		if(this.schedulesStarted)
+			startSchedules();
     }
 
     /**
      * Loads a RIA file into memory so as to use it by the chat bot server when needed.
+     * The parsed RIA file is cached in a binary file next to it, see FlowCache.
      * @param riaFileName RIA file relative or absolute path.
      * @param locale Locale of the RIA file
      * @throws Exception
      */
-    public void loadRIA(String riaFileName, String locale) throws Exception {
-    	if(locale == null && this.riaFileNames.size() > 0)
+    public synchronized void loadRIA(String riaFileName, String locale) throws Exception {
+    	Flows cur = this.flows;
+    	if(locale == null && cur.riaFileNames.size() > 0)
     		throw new IllegalArgumentException(Messages.getString("ChatBotClient.RIA_ALREADY_LOADED")); //$NON-NLS-1$
+    	Flows next = locale == null ? new Flows(cur.version + 1) : new Flows(cur);
+    	loadRIA(next, riaFileName, locale);
+    	this.flows = next;
+    	if(this.schedulesStarted)
+    		startSchedules();
+    }
+
+    /**
+     * Returns the RIA files with a localized RIA file, loading it on first use. The file is parsed and
+     * compiled once, concurrent first requests for a locale wait for the same load and other
+     * locales are not blocked meanwhile.
+     * @param riaFileName Localized RIA file relative or absolute path.
+     * @param locale Locale of the RIA file
+     * @return The loaded RIA files, the locale included.
+     * @throws Exception
+     */
+    private Flows loadLocale(String riaFileName, String locale) throws Exception {
+    	Flows cur = this.flows;
+    	if(cur.riaFlows.containsKey(locale))
+    		return cur;
+    	CompletableFuture<Flows> load = new CompletableFuture<>();
+    	CompletableFuture<Flows> running = this.localeLoads.putIfAbsent(locale, load);
+    	if(running != null) {
+    		try {
+    			return running.join();
+    		} catch(CompletionException ex) {
+    			throw ex.getCause() instanceof Exception ? (Exception)ex.getCause() : ex;
+    		}
+    	}
+    	try {
+    		Flows part = new Flows(cur.version);
+    		loadRIA(part, riaFileName, locale);
+    		Flows next;
+    		synchronized(this) {
+    			next = new Flows(this.flows);
+    			if(!next.riaFlows.containsKey(locale)) { // Not reloaded meanwhile
+    				next.riaFileNames.putAll(part.riaFileNames);
+    				next.riaChatSessions.putAll(part.riaChatSessions);
+    				next.riaFlows.putAll(part.riaFlows);
+    				next.riaJobs.putAll(part.riaJobs);
+    				this.flows = next;
+    				if(this.schedulesStarted)
+    					startSchedules();
+    			}
+    			next = this.flows;
+    		}
+    		load.complete(next);
+    		return next;
+    	} catch(Exception ex) {
+    		load.completeExceptionally(ex);
+    		throw ex;
+    	} finally {
+    		this.localeLoads.remove(locale, load);
+    	}
+    }
+
+    /**
+     * Loads the localized RIA files declared by the locale_XX parameters of the main RIA file
+     * when its preload_locales parameter is true, so as the first chats in these locales do
+     * not wait for them. Load errors are logged.
+     */
+    public void preloadLocales() {
+    	ChatSession riaSes = riaChatSession(getMainLocale());
+    	if(riaSes == null || !Boolean.parseBoolean(riaSes.getAiModelParam(PRELOAD_LOCALES_PARAM)))
+    		return;
+    	for(Map.Entry<String, String> param : riaSes.getAiModelParamsEntrySet()) {
+    		if(param.getKey().startsWith(LOCALE_PARAM_PREFIX)) {
+    			String locale = param.getKey().substring(LOCALE_PARAM_PREFIX.length());
+    			try {
+    				loadLocale(param.getValue(), locale);
+    			} catch(Exception ex) {
+    				Helper.logError(ex, String.format(Messages.getString("ChatBotClient.ERROR_LOADING_RIA"), locale, param.getValue())); //$NON-NLS-1$
+    			}
+    		}
+    	}
+    }
+
+    /**
+     * Loads a RIA file into a not yet published Flows instance.
+     */
+    private void loadRIA(Flows target, String riaFileName, String locale) throws Exception {
     	riaFileName = Helper.osSpecificPath(riaFileName);
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document document = builder.parse(riaFileName);
-        document.getDocumentElement().normalize();
-        NodeList nodes = document.getElementsByTagName("info").item(0).getChildNodes(); //$NON-NLS-1$
-        String loc = Helper.getNodeValue(nodes, "locale"); //$NON-NLS-1$
+        RiaDocument document = FlowCache.load(riaFileName);
+        String loc = document.getLocale();
         if(locale == null) {
-        	this.mainLocale = loc;
+        	target.mainLocale = loc;
         } else {
             if(!loc.equals(locale))
     			throw new IllegalArgumentException(String.format(Messages.getString("ChatBotClient.INVALID_RIA_LOCALE"), riaFileName)); //$NON-NLS-1$
         }
-        this.riaFileNames.put(loc, riaFileName);
-        this.entryIds.put(loc, Integer.parseInt(Helper.getNodeValue(nodes, "entry_id"))); //$NON-NLS-1$
-        nodes = document.getElementsByTagName("ai_model").item(0).getChildNodes(); //$NON-NLS-1$
+        target.riaFileNames.put(loc, riaFileName);
         ChatSession riaSes = new ChatSession();
-        riaSes.setCurLocale(loc, null);
-        riaSes.setBotName(Helper.getNodeValue(nodes, "name")); //$NON-NLS-1$
-        riaSes.setAiModelGuidelines(Helper.getNodeValue(nodes, "guidelines")); //$NON-NLS-1$
-        riaSes.setBotScript(Helper.unescapeHtml(Helper.getNodeValue(nodes, "script"))); //$NON-NLS-1$
-        this.riaChatSessions.put(loc, riaSes);
-        nodes = document.getElementsByTagName("params").item(0).getChildNodes(); //$NON-NLS-1$
-        Node node;
-        Node item;
-        String param;
-        String value;
-        for(int i = 0; i < nodes.getLength(); i++) {
-            node = nodes.item(i);
-            if(node.getNodeType() == Node.ELEMENT_NODE) {
-        		item = Helper.getNodeByName(node.getChildNodes(), "key").getChildNodes().item(0); //$NON-NLS-1$
-	        	param = ""; //$NON-NLS-1$
-	        	if(item != null)
-	        		param = item.getNodeValue();
-	        	item = Helper.getNodeByName(node.getChildNodes(), "value").getChildNodes().item(0); //$NON-NLS-1$
-	        	value = ""; //$NON-NLS-1$
-	        	if(item != null)
-	        		value = item.getNodeValue();
-	        	riaSes.addAiModelParam(param, value);
-            }
-        }
+        riaSes.setProfile(BotProfile.of(document));
+        target.riaChatSessions.put(loc, riaSes);
 
-        NodePanel.Data data;
         Map<Integer, NodePanel.Data> nodesMap = new HashMap<>();
-        nodes = document.getElementsByTagName("question"); //$NON-NLS-1$
-        for(int i = 0; i < nodes.getLength(); i++) {
-            node = nodes.item(i);
-            data = NodePanel.Data.fromXml(node);
+        for(NodePanel.Data data : document.getNodes())
             nodesMap.put(data.getId(), data);
-        }
-        this.riaNodes.put(loc, nodesMap);
-        riaSes.setCurrentNode(getNodeById(loc, entryIds.get(loc)));
+        FlowGraph flow = FlowCompiler.compile(nodesMap, document.getEntryId(), riaFileName, target.version);
+        target.riaFlows.put(loc, flow);
+        riaSes.setCurrentNode(flow.getEntry());
+        precompileScripts(target, loc, riaSes);
+    }
+
+    /**
+     * Compiles the bot script of a loaded RIA file so as compilation errors are reported
+     * at load time and the code cache is ready for the first messages. Node scripts are
+     * compiled with the flow graph.
+     * @param target RIA files being loaded.
+     * @param locale Locale of the RIA file
+     * @param riaSes Default chat session of the RIA file.
+     */
+    private void precompileScripts(Flows target, String locale, ChatSession riaSes) {
+    	CompiledScriptCache cache = CompiledScriptCache.getInstance();
+    	String riaFile = target.riaFileNames.get(locale);
+    	String botScript = riaSes.getBotScript();
+    	if(botScript != null && !botScript.isBlank()) {
+    		String err = cache.precompile(riaFile, CompiledScriptCache.BOT_USER_SCRIPT_ID, botScript).getCompileError();
+    		if(err == null)
+    			err = cache.precompile(riaFile, CompiledScriptCache.BOT_AI_SCRIPT_ID, botScript).getCompileError();
+    		if(err != null) {
+    			Helper.logError(String.format(Messages.getString("ChatBotClient.BOT_SCRIPT_COMPILATION_ERROR"), riaFile, err)); //$NON-NLS-1$
+    		} else loadSchedules(target, locale, riaSes, botScript);
+    	}
+    }
+
+    /**
+     * Runs the onLoad() function of the bot script, if any, to collect the background jobs
+     * it declares. Jobs are started with the chat server.
+     * @param target RIA files being loaded.
+     * @param locale Locale of the RIA file
+     * @param riaSes Default chat session of the RIA file.
+     * @param botScript Bot script source.
+     */
+    private void loadSchedules(Flows target, String locale, ChatSession riaSes, String botScript) {
+    	String riaFile = target.riaFileNames.get(locale);
+    	CompiledScript cs = CompiledScriptCache.getInstance().precompile(riaFile, CompiledScriptCache.BOT_LOAD_SCRIPT_ID, botScript);
+    	if(cs.getGlobals() != null && !cs.getGlobals().contains("onLoad")) //$NON-NLS-1$
+    		return;
+    	try {
+    		List<ScriptScheduler.Job> jobs = ScriptScheduler.collect(cs, riaSes, botScript);
+    		target.riaJobs.put(locale, jobs);
+    	} catch(Exception ex) {
+    		Helper.logError(ex, String.format(Messages.getString("ChatBotClient.BOT_ONLOAD_ERROR"), riaFile)); //$NON-NLS-1$
+    	}
+    }
+
+    /**
+     * Starts the background jobs declared by the bot scripts.
+     */
+    public synchronized void startSchedules() {
+    	this.schedulesStarted = true;
+    	for(List<ScriptScheduler.Job> jobs : this.flows.riaJobs.values())
+    		for(ScriptScheduler.Job job : jobs)
+    			job.start();
+    }
+
+    /**
+     * Stops the background jobs declared by the bot scripts.
+     */
+    public synchronized void stopSchedules() {
+    	this.schedulesStarted = false;
+    	for(List<ScriptScheduler.Job> jobs : this.flows.riaJobs.values())
+    		for(ScriptScheduler.Job job : jobs)
+    			job.stop();
+    }
+
+    /**
+     * Returns the compiled bot script to run on a user or an AI message.
+     * @param locale Locale of the RIA file
+     * @param script Bot script source.
+     * @param isUser True for onUserMessage, False for onAIMessage.
+     * @return Compiled bot script.
+     */
+    public CompiledScript getBotScript(String locale, String script, boolean isUser) {
+    	return CompiledScriptCache.getInstance().get(this.flows.riaFileNames.get(locale), isUser ? CompiledScriptCache.BOT_USER_SCRIPT_ID : CompiledScriptCache.BOT_AI_SCRIPT_ID, script);
     }
 
     /**
-     * Returns a node data by its ID
+     * Returns a node by its ID
      * @param locale Locale of the RIA file
      * @param nodeId Node item id
-     * @return Node Item data or null on error.
+     * @return Node or null on error.
      */
-    public NodePanel.Data getNodeById(String locale, int nodeId) {
-    	Map<Integer, NodePanel.Data> routeItems = this.riaNodes.get(locale);
-    	if(routeItems == null)
+    public FlowNode getNodeById(String locale, int nodeId) {
+    	FlowGraph flow = this.flows.riaFlows.get(locale);
+    	if(flow == null)
 			return null;
-    	return routeItems.get(nodeId);
+    	return flow.getNode(nodeId);
     }
 
-    public int getEntryId(String locale) { return entryIds.get(locale); }
+    /**
+     * Returns a node by its ID in the RIA file version of a chat session.
+     * @param ses Chat session
+     * @param nodeId Node item id
+     * @return Node or null on error.
+     */
+    public FlowNode getNodeById(ChatSession ses, int nodeId) {
+    	FlowGraph flow = getFlow(ses);
+    	if(flow == null)
+			return null;
+    	return flow.getNode(nodeId);
+    }
+
+    /**
+     * Returns the entry node of the RIA file version of a chat session.
+     * @param ses Chat session
+     * @return Entry node or null on error.
+     */
+    public FlowNode getEntryNode(ChatSession ses) {
+    	FlowGraph flow = getFlow(ses);
+    	return flow != null ? flow.getEntry() : null;
+    }
+
+    /**
+     * Returns the flow graph a chat session runs on, the current one of its locale if it has none yet.
+     */
+    private FlowGraph getFlow(ChatSession ses) {
+    	FlowGraph flow = ses.getFlow();
+    	return flow != null ? flow : this.flows.riaFlows.get(ses.getCurLocale());
+    }
+
+    /**
+     * Returns the entry node id of a loaded RIA file.
+     * @param locale Locale of the RIA file.
+     * @return The entry node id.
+     */
+    public int getEntryId(String locale) { return this.flows.riaFlows.get(locale).getEntry().getId(); }
 
    /**
     * Returns the number of nodes in current RIA file.
@@ -890,56 +999,79 @@ public class ChatBotClient {
     * @return
     */
     public int getNodesCount(String locale) {
-    	Map<Integer, NodePanel.Data> nodes = this.riaNodes.get(locale);
-    	if(nodes == null)
+    	FlowGraph flow = this.flows.riaFlows.get(locale);
+    	if(flow == null)
 			return -1;
-    	return nodes.size();
+    	return flow.size();
     }
 
+    /**
+     * @return Version of the loaded RIA files, grows on each reload.
+     */
+    public int getVersion() { return this.flows.version; }
+
+    /**
+     * @return Paths of the loaded RIA files.
+     */
+    public Collection<String> getRiaFiles() { return Collections.unmodifiableCollection(this.flows.riaFileNames.values()); }
+
     /**
      * Returns the default RIA chat session
      * @param locale Locale of the RIA file
      * @return Default chat session or null on error.
      */
-    public ChatSession riaChatSession(String locale) { return riaChatSessions.get(locale); }
+    public ChatSession riaChatSession(String locale) { return this.flows.riaChatSessions.get(locale); }
+
+    /**
+     * Returns the default RIA chat session of a locale, loading its localized RIA file declared by
+     * the main RIA file if not loaded yet. Used to restore the sessions of a localized chat.
+     * @param locale Locale of the RIA file
+     * @return Default chat session or null if the locale is not available.
+     */
+    ChatSession riaChatSessionOrLoad(String locale) {
+    	ChatSession ses = riaChatSession(locale);
+    	if(ses != null)
+    		return ses;
+    	ChatSession main = riaChatSession(getMainLocale());
+    	String ria = main != null ? main.getAiModelParam(LOCALE_PARAM_PREFIX + locale) : null;
+    	if(ria != null && new File(ria).exists()) {
+    		try {
+    			return loadLocale(ria, locale).riaChatSessions.get(locale);
+    		} catch(Exception ex) {
+    			Helper.logError(ex, String.format(Messages.getString("ChatBotClient.ERROR_LOADING_RIA"), locale, ria)); //$NON-NLS-1$
+    		}
+    	}
+    	return null;
+    }
 
     /**
      * Return the main RIA file name of current chat bot.
      * @return Main RIA file name
      */
-    public String getRiaFileName() { return Helper.getRelativePath(new File(Helper.osSpecificPath(riaFileNames.get(mainLocale))), new File(".")); } //$NON-NLS-1$
+    public String getRiaFileName() {
+    	Flows f = this.flows;
+    	return Helper.getRelativePath(new File(Helper.osSpecificPath(f.riaFileNames.get(f.mainLocale))), new File(".")); //$NON-NLS-1$
+    }
 
     /**
      * Returns the RIA file name by its locale
      * @param locale Locale of the RIA file
      * @return RIA file name
      */
-    public String getRiaFileName(String locale) { return Helper.getRelativePath(new File(Helper.osSpecificPath(riaFileNames.get(locale))), new File(".")); } //$NON-NLS-1$
+    public String getRiaFileName(String locale) { return Helper.getRelativePath(new File(Helper.osSpecificPath(this.flows.riaFileNames.get(locale))), new File(".")); } //$NON-NLS-1$
 
     /**
      * Returns the chat bot name.
      * @return Chat bot name
      */
-    public String getChatBotName() { return riaChatSessions.get(this.mainLocale).getBotName(); }
+    public String getChatBotName() {
+    	Flows f = this.flows;
+    	return f.riaChatSessions.get(f.mainLocale).getBotName();
+    }
 
 	/**
 	 * Returns the main chat bot locale.
 	 * @return Main chat bot locale
 	 */
-    public String getMainLocale() { return mainLocale; }
+    public String getMainLocale() { return this.flows.mainLocale; }
 }
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.List;
+
+import io.github.emmrida.chat4us.core.ChatSession.ChatSessionState;
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of the stages of a chat turn, from the body parsing to the JSON
+ * reply, through the bot scripts, the chat flow, the AI model queries and the agent requests.
+ * Disabled events cost a branch, fields are only filled when the event is to be committed.
+ * A recording is started and dumped from the Tools menu, or with -XX:StartFlightRecording.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public final class ChatEvents {
+	private static Recording recording = null;
+
+	private ChatEvents() {}
+
+	/**
+	 * Base of the chat turn events, carries the chat session fields.
+	 */
+	@Category({ "Chat4Us", "Chat turn" }) //$NON-NLS-1$ //$NON-NLS-2$
+	@StackTrace(false)
+	abstract static class TurnEvent extends Event {
+		@Label("Session Id") //$NON-NLS-1$
+		int sessionId = -1;
+
+		@Label("Bot Name") //$NON-NLS-1$
+		String botName;
+
+		@Label("State") //$NON-NLS-1$
+		String state;
+
+		@Label("Backend Id") //$NON-NLS-1$
+		@Description("Database id of the AI server or the agent serving the chat, -1 if none.") //$NON-NLS-1$
+		int backendId = -1;
+
+		/**
+		 * Ends the event and commits it with the chat session fields. The backend id is the
+		 * agent id of the agent chats, AI model events set the AI server id themselves.
+		 * @param ses Chat session, may be null.
+		 */
+		void end(ChatSession ses) {
+			end(ses, ses != null && ses.getState() == ChatSessionState.AGENT ? ses.getAgentId() : -1);
+		}
+
+		/**
+		 * Ends the event and commits it with the chat session fields.
+		 * @param ses Chat session, may be null.
+		 * @param backendId Database id of the AI server or the agent, -1 if none.
+		 */
+		void end(ChatSession ses, int backendId) {
+			end();
+			if(shouldCommit()) {
+				if(ses != null) {
+					this.sessionId = ses.getId();
+					this.botName = ses.getBotName();
+					this.state = String.valueOf(ses.getState());
+				}
+				this.backendId = backendId;
+				commit();
+			}
+		}
+	}
+
+	@Name("io.github.emmrida.chat4us.UserMessage") //$NON-NLS-1$
+	@Label("User Message") //$NON-NLS-1$
+	@Description("A /message request of a chat server, the whole chat turn.") //$NON-NLS-1$
+	static final class UserMessage extends TurnEvent {
+		@Label("Server Id") //$NON-NLS-1$
+		int serverId;
+	}
+
+	@Name("io.github.emmrida.chat4us.ParseBody") //$NON-NLS-1$
+	@Label("Parse Body") //$NON-NLS-1$
+	static final class ParseBody extends TurnEvent {
+		@Label("Body Size") //$NON-NLS-1$
+		@DataAmount
+		int bytes;
+	}
+
+	@Name("io.github.emmrida.chat4us.Script") //$NON-NLS-1$
+	@Label("Script") //$NON-NLS-1$
+	@Description("A bot or node script run.") //$NON-NLS-1$
+	static final class Script extends TurnEvent {
+		@Label("Script") //$NON-NLS-1$
+		String script;
+
+		@Label("Result") //$NON-NLS-1$
+		String result;
+	}
+
+	@Name("io.github.emmrida.chat4us.Flow") //$NON-NLS-1$
+	@Label("Chat Flow") //$NON-NLS-1$
+	@Description("A chat bot flow step.") //$NON-NLS-1$
+	static final class Flow extends TurnEvent {
+		@Label("Node Id") //$NON-NLS-1$
+		int nodeId = -1;
+	}
+
+	@Name("io.github.emmrida.chat4us.Prompt") //$NON-NLS-1$
+	@Label("Prompt") //$NON-NLS-1$
+	@Description("AI model query building.") //$NON-NLS-1$
+	static final class Prompt extends TurnEvent {
+		@Label("Query Length") //$NON-NLS-1$
+		int length;
+	}
+
+	@Name("io.github.emmrida.chat4us.ModelQuery") //$NON-NLS-1$
+	@Label("Model Query") //$NON-NLS-1$
+	@Description("AI model server round trip.") //$NON-NLS-1$
+	static final class ModelQuery extends TurnEvent {
+		@Label("Client") //$NON-NLS-1$
+		String client;
+	}
+
+	@Name("io.github.emmrida.chat4us.AgentRequest") //$NON-NLS-1$
+	@Label("Agent Request") //$NON-NLS-1$
+	@Description("Agent messenger app round trip.") //$NON-NLS-1$
+	static final class AgentRequest extends TurnEvent {
+		@Label("Path") //$NON-NLS-1$
+		String path;
+
+		@Label("Status") //$NON-NLS-1$
+		int status = -1;
+	}
+
+	@Name("io.github.emmrida.chat4us.Reply") //$NON-NLS-1$
+	@Label("Reply") //$NON-NLS-1$
+	@Description("JSON serialization of the chat turn reply.") //$NON-NLS-1$
+	static final class Reply extends TurnEvent {
+		@Label("Reply Size") //$NON-NLS-1$
+		@DataAmount
+		int bytes;
+	}
+
+	/**
+	 * @return True if a recording started by startRecording is running.
+	 */
+	public static synchronized boolean isRecording() { return recording != null; }
+
+	/**
+	 * Starts a recording with the JDK profile settings and the chat turn events.
+	 * @throws IOException
+	 * @throws ParseException
+	 */
+	public static synchronized void startRecording() throws IOException, ParseException {
+		if(recording != null)
+			return;
+		Recording r = new Recording(Configuration.getConfiguration("profile")); //$NON-NLS-1$
+		r.setName("Chat4Us"); //$NON-NLS-1$
+		r.setToDisk(true);
+		for(Class<? extends Event> c : List.of(UserMessage.class, ParseBody.class, Script.class, Flow.class, Prompt.class, ModelQuery.class, AgentRequest.class, Reply.class))
+			r.enable(c);
+		r.start();
+		recording = r;
+	}
+
+	/**
+	 * Writes the running recording to a file then stops it. The recording keeps running
+	 * when it could not be written, so the dump can be tried again.
+	 * @param file Destination .jfr file.
+	 * @throws IOException
+	 */
+	public static synchronized void dumpRecording(Path file) throws IOException {
+		if(recording == null)
+			return;
+		recording.dump(file);
+		recording.close();
+		recording = null;
+	}
+}
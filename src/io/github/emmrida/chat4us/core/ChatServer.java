@@ -10,6 +10,7 @@ import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.nio.file.Path;
 import java.security.KeyStore;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -26,8 +27,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
@@ -36,18 +39,14 @@ import org.xnio.Options;
 
 import com.caoccao.javet.exceptions.JavetCompilationException;
 import com.caoccao.javet.exceptions.JavetException;
-import com.caoccao.javet.interop.V8Host;
-import com.caoccao.javet.interop.V8Runtime;
-import com.caoccao.javet.interop.converters.JavetProxyConverter;
-import com.caoccao.javet.values.reference.V8ValueGlobalObject;
 import com.google.gson.Gson;
 
 import io.github.emmrida.chat4us.core.ChatSession.ChatSessionState;
+import io.github.emmrida.chat4us.core.CompiledScriptCache.CompiledScript;
 import io.github.emmrida.chat4us.gui.CertGenDialog;
 import io.github.emmrida.chat4us.gui.MainWindow;
 import io.github.emmrida.chat4us.util.Helper;
 import io.github.emmrida.chat4us.util.Messages;
-import io.github.emmrida.chat4us.util.ScriptEx;
 import io.undertow.Undertow;
 import io.undertow.UndertowOptions;
 import io.undertow.server.HttpHandler;
@@ -61,6 +60,7 @@ import io.undertow.util.Headers;
  * @author El Mhadder Mohamed Rida
  */
 public class ChatServer {
+	private static final String[] METRICS_ENDPOINTS = { "/login", "/ilogin", "/logout", "/letschat", "/message", "/metrics" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
 
 	private boolean started;
 	private boolean terminated;
@@ -79,7 +79,12 @@ public class ChatServer {
 	private ChatClient chatClient;
 	private Map<String, WebsiteSession> webSessions;	// Key: "token"
 	private Map<String, UserSession> userSessions;		// Key: "userId"
+	private SessionStore sessionStore;					// Idle user sessions
+	private SessionJournal journal;						// Running user sessions, replayed on start
+	private volatile TrafficCapture capture;			// Requests captured for replay, null when not capturing
 	private Map<Integer, WebsiteRecord> websiteRecords;	// Key: db id record
+	private Map<String, Metrics.Histogram> requestSeconds;	// Key: endpoint
+	private Metrics.Histogram queueWaitSeconds;
 
 	private List<ChatServerListener> listeners;
 
@@ -87,6 +92,7 @@ public class ChatServer {
 
 	private Thread serverThread;
 	private ExecutorService executor;
+	private int scriptRuntimes = 0; // Added to the V8 runtime pool while running
 
 	/**
 	 * Load a website record from memory, if not found then from database.
@@ -155,7 +161,9 @@ public class ChatServer {
 	 */
 	private void storeEndedChats(boolean force) {
 		int n = 0;
+		int spilled = 0;
 		long timeout = io.github.emmrida.chat4us.gui.MainWindow.getSettings().getChatSessionsTimeoutMinutes()*60*1000;
+		long spill = MainWindow.getSettings().getChatSessionsSpillMinutes()*60*1000L;
 		long now = System.currentTimeMillis();
 		boolean tout;
 		File file;
@@ -164,9 +172,14 @@ public class ChatServer {
 		Iterator<Map.Entry<String, UserSession>> it = this.userSessions.entrySet().iterator();
 		while(it.hasNext()) {
 			us = it.next().getValue();
-			ses = us.getChatSession();
-			tout = now - ses.getLastMsgTime() > timeout;
-			if(tout || force || ses.isEnded()) {
+			tout = now - us.getLastMsgTime() > timeout;
+			if(tout || force || us.isEnded()) {
+				ses = chatSession(us);
+				if(ses == null) {
+					it.remove();
+					this.journal.logEnd(us.getUserId());
+					continue;
+				}
 				if(tout && !ses.isEnded()) {
 					ses.setEnded(true);
 					Helper.logInfo(String.format(Messages.getString("ChatServer.CHAT_MARKED_ENDED"), ses.getUserId())); //$NON-NLS-1$
@@ -180,25 +193,84 @@ public class ChatServer {
 						for(Map.Entry<String, String> var : ses.getVarsSet())
 							bw.write("\t" + var.getKey() + " = " + var.getValue() + System.lineSeparator()); //$NON-NLS-1$ //$NON-NLS-2$
 						bw.write("--Messages :" + System.lineSeparator()); //$NON-NLS-1$
-						for(int i = 0; i < ses.getHistoryChatMessagesCount(); i++)
-							bw.write(ses.getHistoryChatMessage(i).replaceAll("<[^>]+>", "") + System.lineSeparator()); //$NON-NLS-1$ //$NON-NLS-2$
+						List<String> transcript;
+						try {
+							transcript = ses.getTranscript();
+						} catch(IOException ex) {
+							Helper.logWarning(ex, String.format(Messages.getString("ChatServer.CHAT_HISTORY_READ_ERROR"), ses.getUserId()), false); //$NON-NLS-1$
+							bw.write("-- " + ses.getHistoryFirstIndex() + " OLDER MESSAGES LOST --" + System.lineSeparator()); //$NON-NLS-1$ //$NON-NLS-2$
+							transcript = new ArrayList<>();
+							for(int i = ses.getHistoryFirstIndex(); i < ses.getHistoryChatMessagesCount(); i++)
+								transcript.add(ses.getHistoryChatMessage(i));
+						}
+						for(String line : transcript)
+							bw.write(line.replaceAll("<[^>]+>", "") + System.lineSeparator()); //$NON-NLS-1$ //$NON-NLS-2$
 						if(!ses.isEnded()) {
 							bw.write("-- NOT ENDED --" + System.lineSeparator()); //$NON-NLS-1$
 							Helper.logInfo(String.format(Messages.getString("ChatServer.CHAT_FORCED_ENDED"), ses.getUserId())); //$NON-NLS-1$
 						} else bw.write("-- ENDED --" + System.lineSeparator()); //$NON-NLS-1$
 						// TODO : Clean user sessions
+						ses.deleteHistoryFile();
 						it.remove();
+						this.journal.logEnd(us.getUserId());
 						n++;
 					} catch (IOException ex) {
 						Helper.logWarning(ex, String.format(Messages.getString("ChatServer.CHAT_SAVE_ERROR"), file.getName()), false); //$NON-NLS-1$
 					}
 				}
+			} else if(spill > 0 && now - us.getLastMsgTime() > spill && now - us.getLastAccessMillis() > spill) {
+				if(spillChatSession(us))
+					spilled++;
 			}
 		}
 		if(n > 0) {
 			Helper.logInfo(String.format(Messages.getString("ChatServer.CHAT_SAVE_SUCCESS"), n)); //$NON-NLS-1$
 			fireStatsChanged(this);
 		}
+		if(spilled > 0) {
+			int cold = this.sessionStore.getColdCount();
+			Helper.logInfo(String.format(Messages.getString("ChatServer.SESSIONS_TIERS"), this.getName(), this.userSessions.size() - cold, cold)); //$NON-NLS-1$
+			Helper.logInfo(this.sessionStore.toString());
+		}
+	}
+
+	/**
+	 * Returns the chat session of a user session, reading it back from the sessions store
+	 * if it was moved there.
+	 * @param us User session.
+	 * @return The chat session, null if it could not be restored.
+	 */
+	private ChatSession chatSession(UserSession us) {
+		synchronized(us) {
+			us.setLastAccess(System.currentTimeMillis());
+			if(us.cold != null) {
+				try {
+					us.chatSession = this.sessionStore.restore(us.cold, this.chatClient.getChatBotClient());
+					us.chatSession.setJournal(this.journal);
+				} catch(Exception ex) {
+					Helper.logWarning(ex, String.format(Messages.getString("SessionStore.RESTORE_ERROR"), us.getUserId()), false); //$NON-NLS-1$
+				}
+				us.cold = null;
+			}
+			return us.chatSession;
+		}
+	}
+
+	/**
+	 * Moves an idle user session to the sessions store.
+	 * @param us User session.
+	 * @return True if moved.
+	 */
+	private boolean spillChatSession(UserSession us) {
+		synchronized(us) {
+			if(us.cold != null || us.chatSession == null)
+				return false;
+			us.cold = this.sessionStore.spill(us.chatSession);
+			if(us.cold == null)
+				return false;
+			us.chatSession = null;
+			return true;
+		}
 	}
 
 	/**
@@ -215,9 +287,13 @@ public class ChatServer {
 		this.enabled = false;
 		this.server = null;
 		this.chatClient = new ChatClient();
-		this.webSessions = new HashMap<>();
-		this.userSessions = new HashMap<>();
+		this.webSessions = new ConcurrentHashMap<>(); // Used by the handlers and the metrics threads
+		this.userSessions = new ConcurrentHashMap<>();
+		this.sessionStore = new SessionStore("chatserver-" + dbId); //$NON-NLS-1$
+		this.journal = new SessionJournal("chatserver-" + dbId, this.chatClient.getChatBotClient()); //$NON-NLS-1$
 		this.websiteRecords = new HashMap<>();
+		this.requestSeconds = new ConcurrentHashMap<>();
+		this.queueWaitSeconds = Metrics.getInstance().histogram("chat4us_queue_wait_seconds", "Time requests wait for a worker thread.", "server", String.valueOf(dbId)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 		this.listeners = new ArrayList<>();
 
 		this.serverThread = new Thread() {
@@ -287,6 +363,9 @@ public class ChatServer {
                     })
                     .addPrefixPath("/message", exchange -> { //$NON-NLS-1$
                         processUserMessage(exchange);
+                    })
+                    .addPrefixPath("/metrics", exchange -> { //$NON-NLS-1$
+                    	exchange.dispatch(() -> processMetrics(exchange));
                     });
 	        HttpHandler fallbackHandler = new PathHandler() {
 	        	@Override
@@ -305,8 +384,13 @@ public class ChatServer {
 	                .addHttpListener(port, host)
 	                .setHandler(rootHandler)
 	                .build();
+	        this.chatClient.getChatBotClient().preloadLocales();
+	        recoverSessions();
 	        this.server.start();
 	        this.started = true;
+	        registerGauges();
+	        this.chatClient.getChatBotClient().startSchedules();
+	        RiaWatcher.getInstance().watch(this.chatClient.getChatBotClient());
 	        fireStatsChanged(this);
 		} catch(Exception ex) {
 			this.host = null;
@@ -345,48 +429,23 @@ public class ChatServer {
 	        sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
 
 	        executor = Executors.newFixedThreadPool(MainWindow.getSettings().getAiServersTasks());
+	        this.scriptRuntimes = MainWindow.getSettings().getAiServersTasks(); // One per worker thread
+	        V8RuntimePool.getInstance().addCapacity(this.scriptRuntimes);
+	        executor.submit(() -> V8RuntimePool.getInstance().prewarm());
 	        HttpHandler prefPathHandler = new PathHandler()
-                    .addPrefixPath("/login", exchange -> { //$NON-NLS-1$
-                    	exchange.dispatch(() -> {
-                    		executor.submit(() -> {
-                    			processWebsiteLogin(exchange);
-                    		});
-                    	});
-                    })
-                    .addPrefixPath("/ilogin", exchange -> { // Localhost internal client login //$NON-NLS-1$
-                    	exchange.dispatch(() -> {
-                    		executor.submit(() -> {
-                    			processWebsiteInternalLogin(exchange);
-                    		});
-                    	});
-                    })
-                    .addPrefixPath("/logout", exchange -> { //$NON-NLS-1$
-                    	exchange.dispatch(() -> {
-                    		executor.submit(() -> {
-                    			processWebsiteLogout(exchange);
-                    		});
-                    	});
-                    })
-                    .addPrefixPath("/letschat", exchange -> { //$NON-NLS-1$
-                    	exchange.dispatch(() -> {
-                    		executor.submit(() -> {
-                    			processUserLetsChat(exchange);
-                    		});
-                    	});
-                    })
-                    .addPrefixPath("/message", exchange -> { //$NON-NLS-1$
-                    	exchange.dispatch(() -> {
-                    		executor.submit(() -> {
-                    			processUserMessage(exchange);
-                    		});
-                    	});
-                    });
+                    .addPrefixPath("/login", exchange -> dispatch(exchange, this::processWebsiteLogin)) //$NON-NLS-1$
+                    .addPrefixPath("/ilogin", exchange -> dispatch(exchange, this::processWebsiteInternalLogin)) // Localhost internal client login //$NON-NLS-1$
+                    .addPrefixPath("/logout", exchange -> dispatch(exchange, this::processWebsiteLogout)) //$NON-NLS-1$
+                    .addPrefixPath("/letschat", exchange -> dispatch(exchange, this::processUserLetsChat)) //$NON-NLS-1$
+                    .addPrefixPath("/message", exchange -> dispatch(exchange, this::processUserMessage)) //$NON-NLS-1$
+                    .addPrefixPath("/metrics", exchange -> exchange.dispatch(() -> processMetrics(exchange))); // Not queued behind the chats //$NON-NLS-1$
 	        HttpHandler fallbackHandler = exchange -> {
         		if(!exchange.isResponseComplete())
         			processError(exchange, Messages.getString("ChatServer.REZ_404"), 404); //$NON-NLS-1$
 	        };
 
 	        HttpHandler rootHandler = exchange -> {
+	        	long start = System.nanoTime();
                 prefPathHandler.handleRequest(exchange);
                 exchange.addExchangeCompleteListener((exchng, next) -> {
 	                if(!exchng.isResponseComplete()) {
@@ -396,6 +455,7 @@ public class ChatServer {
 							Helper.logError(ex, Messages.getString("ChatServer.FALLBACK_HANDLER_FAILURE"), true); //$NON-NLS-1$
 						}
 	                }
+	                recordRequest(exchng.getRequestPath(), exchng.getStatusCode(), System.nanoTime() - start);
 	                next.proceed();
                 });
             };
@@ -412,8 +472,13 @@ public class ChatServer {
 	                .setServerOption(UndertowOptions.NO_REQUEST_TIMEOUT, timeout) // Settings defined
 	                .setServerOption(UndertowOptions.REQUEST_PARSE_TIMEOUT, timeout*2) // Settings defined
 	                .build();
+	        this.chatClient.getChatBotClient().preloadLocales();
+	        recoverSessions();
 	        this.server.start();
 	        this.started = true;
+	        registerGauges();
+	        this.chatClient.getChatBotClient().startSchedules();
+	        RiaWatcher.getInstance().watch(this.chatClient.getChatBotClient());
 	        fireStatsChanged(this);
 	        Helper.logInfo(String.format(Messages.getString("ChatServer.SERVER_STARTED_SUCCESS"), getName(), host, port)); //$NON-NLS-1$
 		} catch(Exception ex) {
@@ -423,15 +488,168 @@ public class ChatServer {
 		}
    }
 
+	/**
+	 * Rebuilds the user sessions and website tokens left by the last run from the session journal,
+	 * so as the websites and users go on with their chats. Website tokens of the websites
+	 * disabled or moved to another group meanwhile are dropped.
+	 */
+	private void recoverSessions() {
+		long start = System.currentTimeMillis();
+		SessionJournal.Recovery rec = this.journal.open();
+		int nws = 0;
+		for(SessionJournal.Website w : rec.getWebsites()) {
+			WebsiteRecord wr = null;
+			if(w.getWebsiteId() >= 0) {
+				wr = getWebsiteRecord(w.getWebsiteId());
+				if(wr == null || !wr.isEnabled() || wr.isRemoved() || wr.getAiGroupId() != this.getGroupId()) {
+					this.journal.logWebsiteClose(w.getToken());
+					continue;
+				}
+			}
+			this.webSessions.put(w.getToken(), new WebsiteSession(wr, w.getToken(), w.getStarted()));
+			nws++;
+		}
+		for(ChatSession ses : rec.getSessions())
+			this.userSessions.put(ses.getUserId(), new UserSession(ses, ses.getUserId()));
+		if(nws > 0 || !rec.getSessions().isEmpty())
+			Helper.logInfo(String.format(Messages.getString("ChatServer.SESSIONS_RECOVERED"), getName(), rec.getSessions().size(), nws, System.currentTimeMillis() - start)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Runs a request handler on the chat executor, timing the wait for a free thread.
+	 * @param exchange HttpServerExchange object from Undertow
+	 * @param handler Request handler
+	 */
+	private void dispatch(HttpServerExchange exchange, Consumer<HttpServerExchange> handler) {
+		exchange.dispatch(() -> {
+			long queued = System.nanoTime();
+			executor.submit(() -> {
+				this.queueWaitSeconds.record(System.nanoTime() - queued);
+				handler.accept(exchange);
+			});
+		});
+	}
+
+	/**
+	 * Records the latency and the status of a completed request.
+	 * @param path Request path
+	 * @param status Response status code
+	 * @param nanos Time from the request to the response end
+	 */
+	private void recordRequest(String path, int status, long nanos) {
+		String endpoint = "other"; //$NON-NLS-1$
+		for(String ep : METRICS_ENDPOINTS) {
+			if(path.startsWith(ep)) {
+				endpoint = ep;
+				break;
+			}
+		}
+		this.requestSeconds.computeIfAbsent(endpoint, ep -> Metrics.getInstance().histogram("chat4us_http_request_seconds", "Requests time, from the request to the response end.", "server", String.valueOf(this.dbId), "endpoint", ep)).record(nanos); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		if(status >= 400)
+			Metrics.getInstance().counter("chat4us_http_errors_total", "Requests answered with an error status.", "server", String.valueOf(this.dbId), "endpoint", endpoint, "status", String.valueOf(status)).increment(); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+	}
+
+	/**
+	 * Registers the sessions gauges of this chat server.
+	 */
+	private void registerGauges() {
+		Metrics m = Metrics.getInstance();
+		String id = String.valueOf(this.dbId);
+		for(ChatSessionState state : new ChatSessionState[] { ChatSessionState.CHATBOT, ChatSessionState.AIMODEL, ChatSessionState.AGENT })
+			m.gauge("chat4us_sessions", "Running chat sessions in memory by state.", () -> countChats(state), "server", id, "state", state.toString()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		m.gauge("chat4us_sessions_cold", "Idle chat sessions moved to the sessions store.", () -> this.sessionStore.getColdCount(), "server", id); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		m.gauge("chat4us_website_sessions", "Logged in websites sessions.", () -> this.webSessions.size(), "server", id); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	/**
+	 * Counts the running chat sessions in memory having a state.
+	 */
+	private long countChats(ChatSessionState state) {
+		long n = 0L;
+		for(UserSession us : this.userSessions.values()) {
+			ChatSession ses = us.getChatSession();
+			if(ses != null && !ses.isEnded() && ses.getState() == state)
+				n++;
+		}
+		return n;
+	}
+
+	/**
+	 * Sends the metrics in the Prometheus text format. Only served to the local and private
+	 * network addresses, where the metrics collectors run.
+	 * @param exchange HttpServerExchange object from Undertow
+	 */
+	private void processMetrics(HttpServerExchange exchange) {
+		InetAddress ia = exchange.getSourceAddress().getAddress();
+		if(!ia.isLoopbackAddress() && !ia.isSiteLocalAddress()) {
+			processError(exchange, Messages.getString("ChatServer.AUTH_ERROR"), 403); //$NON-NLS-1$
+			return;
+		}
+		if(!"GET".equalsIgnoreCase(exchange.getRequestMethod().toString())) { //$NON-NLS-1$
+			processError(exchange, Messages.getString("ChatServer.BAD_QUERY"), 400); //$NON-NLS-1$
+			return;
+		}
+		exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, Metrics.CONTENT_TYPE);
+		exchange.getResponseSender().send(Metrics.getInstance().render());
+		exchange.endExchange();
+	}
+
+	/**
+	 * Starts capturing the /letschat and /message requests, for the TrafficReplay tool.
+	 * @return The capture file.
+	 * @throws IOException If the capture file cannot be created.
+	 */
+	public synchronized Path startCapture() throws IOException {
+		if(this.capture != null) {
+			if(this.capture.isOpen())
+				return this.capture.getPath();
+			this.capture.close(); // Stopped by itself
+		}
+		TrafficCapture cap = new TrafficCapture("chatserver-" + this.dbId); //$NON-NLS-1$
+		Path path = cap.open();
+		this.capture = cap;
+		return path;
+	}
+
+	/**
+	 * Stops capturing the requests.
+	 * @return The capture file, null if not capturing.
+	 */
+	public synchronized Path stopCapture() {
+		TrafficCapture cap = this.capture;
+		if(cap == null)
+			return null;
+		this.capture = null;
+		cap.close();
+		return cap.getPath();
+	}
+
+	/**
+	 * @return True while the requests are captured.
+	 */
+	public boolean isCapturing() {
+		TrafficCapture cap = this.capture;
+		return cap != null && cap.isOpen();
+	}
+
 	/**
 	 * Stop the server
 	 */
 	public void stopServer() {
 		if(this.server != null)
 			this.server.stop();
+		this.chatClient.getChatBotClient().stopSchedules();
+		RiaWatcher.getInstance().unwatch(this.chatClient.getChatBotClient());
+		V8RuntimePool.getInstance().addCapacity(-this.scriptRuntimes);
+		this.scriptRuntimes = 0;
 		terminated = true;
-		storeEndedChats(true);
+		Metrics.getInstance().remove("server", String.valueOf(this.dbId)); //$NON-NLS-1$
+		storeEndedChats(!this.journal.isOpen()); // Running chats are resumed from the journal on next start
+		this.journal.close();
+		this.sessionStore.close();
+		stopCapture();
 		Helper.logInfo(String.format(Messages.getString("ChatServer.SERVER_NOW_SHUTDOWN"), host, port)); //$NON-NLS-1$
+		Helper.logInfo(V8RuntimePool.getInstance().toString());
 	}
 
 	/**
@@ -512,6 +730,7 @@ public class ChatServer {
 							if(validateAuthKeys(hAuthKey, pAuthKey)) {
 								WebsiteSession ws = new WebsiteSession(null);
 								this.webSessions.put(ws.getAccessToken(), ws);
+								this.journal.logWebsiteOpen(ws.getAccessToken(), -1, ws.getStartedMillis());
 								Map<String, Object> rslt = new HashMap<>();
 								rslt.put("TOKEN", ws.getAccessToken()); //$NON-NLS-1$
 								rslt.put("STATUS", "OK"); //$NON-NLS-1$ //$NON-NLS-2$
@@ -564,6 +783,7 @@ public class ChatServer {
 								if(wr.getKey1Hash().equals(k1h) && wr.getKey2Hash().equals(k2h)) {
 									WebsiteSession ws = new WebsiteSession(wr);
 									this.webSessions.put(ws.getAccessToken(), ws);
+									this.journal.logWebsiteOpen(ws.getAccessToken(), wr.getId(), ws.getStartedMillis());
 									Map<String, Object> rslt = new HashMap<>();
 									rslt.put("TOKEN", ws.getAccessToken()); //$NON-NLS-1$
 									rslt.put("STATUS", "OK"); //$NON-NLS-1$ //$NON-NLS-2$
@@ -605,6 +825,7 @@ public class ChatServer {
 					WebsiteSession ws = this.webSessions.get(token);
 					if(ws != null && ws.getAccessToken().equals(token)) {
 						this.webSessions.remove(token);
+						this.journal.logWebsiteClose(token);
 						Map<String, Object> rslt = new HashMap<>();
 						rslt.put("STATUS", "OK"); //$NON-NLS-1$ //$NON-NLS-2$
 						exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json"); //$NON-NLS-1$
@@ -631,6 +852,7 @@ public class ChatServer {
 			String ct = exchange.getRequestHeaders().getFirst(Headers.CONTENT_TYPE);
 			if(ct.equalsIgnoreCase("application/x-www-form-urlencoded")) { //$NON-NLS-1$
 				exchange.getRequestReceiver().receiveFullString((xchng, body) -> {
+					long arrival = System.nanoTime();
 					InetAddress ia = xchng.getSourceAddress().getAddress();
 					String ip = Helper.ipv6Compress(ia.getHostAddress());
 					String domain = Helper.ipv6Compress(ia.getHostName());
@@ -650,6 +872,7 @@ public class ChatServer {
 						SwingUtilities.invokeLater(() -> fireActivityStateChanged(ChatSessionState.WEBSITE));
 						Map<String, Object> rslt = new HashMap<>();
 						rslt.put("CHATBOT_MESSAGE", chatClient.letsChat(ses)); //$NON-NLS-1$
+						this.journal.logSession(ses);
 						rslt.put("CHAT_ENDED", ses.isEnded()); //$NON-NLS-1$
 						rslt.put("CHAT_STATE", ses.getState().toString()); //$NON-NLS-1$
 						rslt.put("LOCALE", ses.getCurLocale()); //$NON-NLS-1$
@@ -657,6 +880,9 @@ public class ChatServer {
 						exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json"); //$NON-NLS-1$
 						exchange.getResponseSender().send(new Gson().toJson(rslt));
 						exchange.endExchange();
+						TrafficCapture cap = this.capture;
+						if(cap != null)
+							cap.logLetsChat(usrId, arrival);
 						SwingUtilities.invokeLater(() -> fireActivityStateChanged(ses.getState()));
 						Helper.logInfo(String.format(Messages.getString("ChatServer.NEW_CHAT_STARTED"), ses.getBotName(), usrId), false); //$NON-NLS-1$
 						fireStatsChanged(this);
@@ -679,10 +905,17 @@ public class ChatServer {
 			String ct = exchange.getRequestHeaders().getFirst(Headers.CONTENT_TYPE);
 			if(ct.equalsIgnoreCase("application/x-www-form-urlencoded")) { //$NON-NLS-1$
 				exchange.getRequestReceiver().receiveFullString((xchng, body) -> {
+					long arrival = System.nanoTime();
+					ChatEvents.UserMessage turnEvent = new ChatEvents.UserMessage();
+					turnEvent.begin();
 					InetAddress ia = xchng.getSourceAddress().getAddress();
 					String ip = Helper.ipv6Compress(ia.getHostAddress());
 					String domain = Helper.ipv6Compress(ia.getHostName());
+					ChatEvents.ParseBody parseEvent = new ChatEvents.ParseBody();
+					parseEvent.begin();
 					Map<String, String> params = Helper.parsePostData(body);
+					parseEvent.bytes = body.length();
+					parseEvent.end(null);
 					String token = params.get("token"); //$NON-NLS-1$
 					String usrId = params.get("usr_id"); //$NON-NLS-1$
 					String usrMsg = params.get("message").trim(); //$NON-NLS-1$
@@ -690,11 +923,13 @@ public class ChatServer {
 						processError(exchange, Messages.getString("ChatServer.MISSING_PARAMS"), 400); //$NON-NLS-1$
 						return;
 					}
+					String rcvdMsg = usrMsg; // As received, the bot script may change it
+					String aiAnswer = null;
 					WebsiteSession ws = this.webSessions.get(token);
 					if(ws != null && ws.getAccessToken().equals(token)) {
 						UserSession us = this.userSessions.get(usrId);
-						if(us != null) {
-							ChatSession ses = us.getChatSession();
+						ChatSession ses = us != null ? chatSession(us) : null;
+						if(ses != null) {
 							ChatSessionState curState = ses.getState();
 							SwingUtilities.invokeLater(() -> fireActivityStateChanged(ChatSessionState.WEBSITE));
 							Map<String, Object> rslt = new HashMap<>();
@@ -711,21 +946,21 @@ public class ChatServer {
 								Integer retScript = null;
 								String botScript = ses.getBotScript();
 								if(botScript != null && !botScript.isBlank()) {
-									retScript = executeScript(botScript, ses, true, usrMsg);
+									retScript = executeScript(chatClient.getChatBotClient().getBotScript(ses.getCurLocale(), botScript, true), ses, usrMsg);
 									if(retScript != null) {
 										usrMsg = ses.getVar("message"); //$NON-NLS-1$
 										ses.removeVar("message"); //$NON-NLS-1$
 										if(retScript > 0) { // Go back to chatbot mode then execute the node with (ret) id.
 											curState = ChatSessionState.CHATBOT; // Important
 											ses.setState(curState);
-											ses.setCurrentNode(chatClient.getChatBotClient().getNodeById(ses.getCurLocale(), retScript));
+											ses.setCurrentNode(chatClient.getChatBotClient().getNodeById(ses, retScript));
 										} else if(retScript ==  0) { // Restart the current node.
 											Helper.logWarning(Messages.getString("ChatServer.EX_NODE_RESTART")); //$NON-NLS-1$
 										} else if(retScript == -1) { // End the chat.
 											ses.setEnded(true);
 										} else if(retScript == -2) { // Restart the chat bot.
 											ses.setState(ChatSessionState.CHATBOT);
-											ses.setCurrentNode(chatClient.getChatBotClient().getNodeById(ses.getCurLocale(), chatClient.getChatBotClient().getEntryId(ses.getCurLocale())));
+											ses.setCurrentNode(chatClient.getChatBotClient().getEntryNode(ses));
 										} else if(retScript == -3) { // Switch to AI.
 											ses.setState(ChatSessionState.AIMODEL);
 										} else if(retScript == -4) { // Switch to an agent.
@@ -735,16 +970,18 @@ public class ChatServer {
 									}
 								}
 								String[] botMsg = chatClient.userMessage(ses, usrMsg);
+								if(ChatSessionState.AIMODEL.equals(ses.getState()))
+									aiAnswer = String.join(System.lineSeparator(), botMsg);
 								// Bot script onAIMessage is called only during AI mode.
 								if(botScript != null && !botScript.isBlank() && ChatSessionState.AIMODEL.equals(ses.getState())) {
-									retScript = executeScript(botScript, ses, false, String.join(System.lineSeparator(), botMsg));
+									retScript = executeScript(chatClient.getChatBotClient().getBotScript(ses.getCurLocale(), botScript, false), ses, String.join(System.lineSeparator(), botMsg));
 									if(retScript != null) {
 										botMsg = ses.getVar("message").split(System.lineSeparator()); //$NON-NLS-1$
 										ses.removeVar("message"); //$NON-NLS-1$
 										if(retScript > 0) { // Go back to chatbot mode then execute the node with (ret) id.
 											curState = ChatSessionState.CHATBOT; // Important
 											ses.setState(curState);
-											ses.setCurrentNode(chatClient.getChatBotClient().getNodeById(ses.getCurLocale(), retScript));
+											ses.setCurrentNode(chatClient.getChatBotClient().getNodeById(ses, retScript));
 											System.out.println(Messages.getString("ChatServer.EX_CHATBOT_SWITCH") + retScript); //$NON-NLS-1$
 										} else if(retScript ==  0) { // Restart the current node.
 											Helper.logWarning(Messages.getString("ChatServer.EX_NODE_RESTART")); //$NON-NLS-1$
@@ -752,7 +989,7 @@ public class ChatServer {
 											ses.setEnded(true);
 										} else if(retScript == -2) { // Restart the chat bot.
 											ses.setState(ChatSessionState.CHATBOT);
-											ses.setCurrentNode(chatClient.getChatBotClient().getNodeById(ses.getCurLocale(), chatClient.getChatBotClient().getEntryId(ses.getCurLocale())));
+											ses.setCurrentNode(chatClient.getChatBotClient().getEntryNode(ses));
 										} else if(retScript == -3) { // Switch to AI.
 											ses.setState(ChatSessionState.AIMODEL);
 										} else if(retScript == -4) { // Switch to an agent.
@@ -789,8 +1026,18 @@ public class ChatServer {
 								}
 							}
 							exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json"); //$NON-NLS-1$
-							exchange.getResponseSender().send(new Gson().toJson(rslt));
+							ChatEvents.Reply replyEvent = new ChatEvents.Reply();
+							replyEvent.begin();
+							String reply = new Gson().toJson(rslt);
+							replyEvent.bytes = reply.length();
+							replyEvent.end(ses);
+							exchange.getResponseSender().send(reply);
 							exchange.endExchange();
+							TrafficCapture cap = this.capture;
+							if(cap != null)
+								cap.logMessage(usrId, arrival, rcvdMsg, aiAnswer);
+							turnEvent.serverId = this.dbId;
+							turnEvent.end(ses);
 							fireActivityStateChanged(ses.getState()); // TODO : Check out this
 							fireStatsChanged(this); // TODO : Check out this
 							if(ses.isEnded())
@@ -908,9 +1155,7 @@ public class ChatServer {
 			try {
 				Helper.logInfo(String.format(Messages.getString("ChatServer.SERVER_RELOADING_START"), this.getName())); //$NON-NLS-1$
 				ChatBotClient cbc = this.chatClient.getChatBotClient();
-				cbc.reloadRIAs();
-				for(UserSession us : this.userSessions.values())
-					us.getChatSession().updateRootSession(cbc.riaChatSession(cbc.getMainLocale()));
+				cbc.reloadRIAs(); // Running chats finish on the version they started with
 				Helper.logInfo(String.format(Messages.getString("ChatServer.SERVER_RELOADING_FINISHED"), this.getName())); //$NON-NLS-1$
 			} catch(Exception ex) {
 				enabled = false;
@@ -919,7 +1164,9 @@ public class ChatServer {
 		} else {
 			storeEndedChats(true);
 			this.userSessions.clear();
+			this.sessionStore.close();
 			this.webSessions.clear();
+			this.journal.logClear();
 			this.websiteRecords.clear();
 		}
 	}
@@ -927,7 +1174,8 @@ public class ChatServer {
     /**
     * Executes the RIA's script on user/AI messages. Returns a message defined by the script
     * Session variables defined [Success/Error action=variable:user_value & Value=var_name]
-    * during static chat flows are defined in the global scope.
+    * during static chat flows are defined in the global scope when the script refers to them,
+    * and all of them are reachable through the 'session' object.
     * Inside the script, declare 'message' variable and affect the content you want to
     * send back to remote user.
     * Possible return values:
@@ -938,42 +1186,23 @@ public class ChatServer {
     * -3 : Switch to AI.
     * -4 : Switch to an agent.
     * Calls onUserMessage(var msg) or onAIMessage(var msg) depending on the message source.
-    * @param script Script to execute
+    * @param script Compiled bot script to execute, its main() calls onUserMessage or onAIMessage.
     * @param ses Chat session object.
-    * @param isUser True if the message is from the user, False if from the AI.
     * @param response Original user/AI response.
     * @return The node id to move to if > 0. 0:repeat. -1:end. -2:restart. -3:switch_to_ai. -4:switch_to_agent. null:Error.
     */
-   private Integer executeScript(String script, ChatSession ses, boolean isUser, String response) {
-       try (V8Runtime v8Runtime = V8Host.getV8Instance().createV8Runtime()) {
-           v8Runtime.setConverter(new JavetProxyConverter());
-           V8ValueGlobalObject global = v8Runtime.getGlobalObject();
-           global.set("ScriptEx", ScriptEx.class); //$NON-NLS-1$
-           global.set("response", response); //$NON-NLS-1$
-           global.set("message", ""); //$NON-NLS-1$ //$NON-NLS-2$
+   private Integer executeScript(CompiledScript script, ChatSession ses, String response) {
+       if(script.getCompileError() != null) {
+    	   ses.setEnded(true);
+    	   Helper.logError(String.format(Messages.getString("ChatBotClient.BOT_SCRIPT_COMPILATION_ERROR"), script.getRiaFile(), script.getCompileError())); //$NON-NLS-1$
+    	   return null;
+       }
+       ChatEvents.Script event = new ChatEvents.Script();
+       event.begin();
+       Integer ret = null;
+       try {
            ses.setVar("message", ""); //$NON-NLS-1$ //$NON-NLS-2$
-           for(Map.Entry<String, String> entry : ses.getVarsSet())
-               global.set(entry.getKey(), entry.getValue());
-           if(isUser) {
-        	   script += "function main() { return onUserMessage(response); }" + System.lineSeparator() + "main();"; //$NON-NLS-1$ //$NON-NLS-1$ //$NON-NLS-2$
-           } else script += "function main() { return onAIMessage(response); }" + System.lineSeparator() + "main();"; //$NON-NLS-1$ //$NON-NLS-1$ //$NON-NLS-2$
-           String varName;
-           Object obj;
-           Integer ret = v8Runtime.getExecutor(script).executeInteger();
-           for(Map.Entry<String, String> entry : ses.getVarsSet()) {
-               varName = entry.getKey();
-               if(global.hasOwnProperty(varName)) {
-                   obj = global.get(entry.getKey());
-                   entry.setValue(obj.toString());
-               }
-           }
-           global.delete("message"); //$NON-NLS-1$
-           global.delete("response"); //$NON-NLS-1$
-           global.delete("ScriptEx"); //$NON-NLS-1$
-           global.close();
-           v8Runtime.lowMemoryNotification();
-           v8Runtime.close();
-           return ret;
+           ret = ScriptRunner.execute(script, ses, response);
        } catch(JavetCompilationException ex) {
     	   ses.setEnded(true);
 		   Helper.logError(ex, String.format(Messages.getString("ChatBotClient.SCRIPT_COMPILATION_ERROR"), ses.getCurrentNode().getId(), ex.getScriptingError().toString()), true); //$NON-NLS-1$
@@ -981,7 +1210,10 @@ public class ChatServer {
     	   ses.setEnded(true);
            Helper.logWarning(ex, String.format(Messages.getString("ChatBotClient.SCRIPT_RUNTIME_ERROR"), ses.getCurrentNode().getId()), false); //$NON-NLS-1$
        }
-       return null;
+       event.script = "bot"; //$NON-NLS-1$
+       event.result = String.valueOf(ret);
+       event.end(ses);
+       return ret;
    }
 
 	/**
@@ -1062,6 +1294,11 @@ public class ChatServer {
 	 */
 	public int getChatsCount() { return this.userSessions.size(); }
 
+	/**
+	 * @return Number of chats moved out of memory while idle.
+	 */
+	public int getColdChatsCount() { return this.sessionStore.getColdCount(); }
+
 	/**
 	 * Returns the ids of the connected agents.
 	 * @return The ids of the connected agents.
@@ -1090,7 +1327,7 @@ public class ChatServer {
 	public int getActiveChatsCount() {
 		int count = 0;
 		for(UserSession us : this.userSessions.values())
-			if(!us.getChatSession().isEnded())
+			if(!us.isEnded())
 				count++;
 		return count;
 	}
@@ -1159,7 +1396,8 @@ public class ChatServer {
 		private static int nextId = 0;
 		private int sessionId;
 		private String userId;
-		private ChatSession chatSession;
+		private ChatSession chatSession; // Null while in the sessions store
+		private SessionStore.Cold cold = null;
 		private long started;
 		private long lastAccess;
 
@@ -1176,6 +1414,7 @@ public class ChatServer {
 			this.chatSession = ses;
 			this.chatSession.setUserId(userId);
 			this.started = System.currentTimeMillis();
+			this.lastAccess = this.started;
 		}
 
 		/**
@@ -1195,10 +1434,20 @@ public class ChatServer {
 		public String getUserId() { return this.userId; }
 
 		/**
-		 * @return Chat session
+		 * @return Chat session, null if moved to the sessions store
 		 */
 		public ChatSession getChatSession() { return this.chatSession; }
 
+		/**
+		 * @return Last message time of the chat session, in memory or not.
+		 */
+		public synchronized long getLastMsgTime() { return this.cold != null ? this.cold.getLastMsgTime() : this.chatSession.getLastMsgTime(); }
+
+		/**
+		 * @return True if the chat session is ended. Sessions in the store are never ended.
+		 */
+		public synchronized boolean isEnded() { return this.chatSession != null && this.chatSession.isEnded(); }
+
 		/**
 		 * @return Session start time
 		 */
@@ -1251,6 +1500,19 @@ public class ChatServer {
 			}
 		}
 
+		/**
+		 * Init a WebsiteSession object recovered from the session journal
+		 * @param wr Website record
+		 * @param accessToken Access token given at login
+		 * @param started Login time
+		 */
+		public WebsiteSession(WebsiteRecord wr, String accessToken, long started) {
+			this.sessionId = ++nextId;
+			this.websiteRecord = wr;
+			this.started = started;
+			this.accessToken = accessToken;
+		}
+
 		/**
 		 * @return Session id
 		 */
@@ -4,18 +4,33 @@
  */
 package io.github.emmrida.chat4us.core;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
-import io.github.emmrida.chat4us.ria.NodePanel;
+import io.github.emmrida.chat4us.gui.MainWindow;
+import io.github.emmrida.chat4us.ria.RiaDocument;
+import io.github.emmrida.chat4us.util.Helper;
 import io.github.emmrida.chat4us.util.Messages;
+import io.github.emmrida.chat4us.util.Settings;
 
 /**
  * Chat session. This is to isolate chat sessions.
+ * The bot data of the RIA file is held by a shared bot profile, a session holds its own state
+ * only: variables, history and position in the flow. The history keeps the last HISTORY_LIMIT
+ * messages in memory, message indexes are counted from the start of the chat. Older messages are
+ * appended to a history file so getTranscript() still returns the whole chat.
+ * State changes of the sessions of a chat server are written to its session journal.
  *
  * @author El Mhadder Mohamed Rida
  */
@@ -23,80 +38,74 @@ public class ChatSession {
 
 	public static enum ChatSessionState { CHATBOT, AIMODEL, AGENT, WEBSITE }; // WEBSITE is a special case.
 
+	/** Maximum number of messages kept in the chat history. */
+	public static final int HISTORY_LIMIT = 256;
+	private static final int INITIAL_HISTORY = 8;
+	private static final String HISTORY_FOLDER = "./journal/history/"; //$NON-NLS-1$
+	private static final int DEF_AI_CONTEXT_LINES = 5;
+
 	private static int nextId = 1;
 
 	private int id;
 	private ChatSessionState state;
-	private ChatSession rootSession = null;
-	private Map<String, String> vars;
+	private BotProfile profile = BotProfile.EMPTY;
+	private VarMap vars;
 	private long creationTime;
 
 	private boolean ended = false;
-	private NodePanel.Data currentNode = null;
+	private FlowNode currentNode = null;
+	private FlowGraph flow = null; // RIA file version of this chat
 
 	private int aiGroupId = -1;
-	private int nAiContextLines = 5;
-	private List<String> chatMsg;
+	private int nAiContextLines = DEF_AI_CONTEXT_LINES;
+	private String[] chatMsg = null; // Ring buffer, allocated on first message
+	private int chatMsgHead = 0;
+	private int chatMsgCount = 0;
+	private int chatMsgFirst = 0; // Index of the oldest kept message
 	private long lastMsgTime = 0L;
-	private String botName = "ChatBot"; //$NON-NLS-1$
-	private Map<String, String> aiModelParams;
-	private String aiModelGuidelines = ""; //$NON-NLS-1$
-	private String botScript = ""; //$NON-NLS-1$
 
 	// Agent section
 	private int agentId = -1;
 	private String agentIp = null;
 	private int agentPort = -1;
 	private String userId = null;
+	private int agentSyncSeq = 0;
 
-	// Locale section
-	private String curLocale = null;
+	private SessionJournal journal = null; // Set while the session is journaled by its chat server
 
 	/**
 	 * Init the chat session.
 	 */
 	public ChatSession() {
 		this.id = nextId++;
-		this.vars = new HashMap<>();
-		this.chatMsg = new ArrayList<>();
-		this.aiModelParams = new HashMap<>();
+		this.vars = new VarMap();
 		this.state = ChatSessionState.CHATBOT;
 		this.creationTime = System.currentTimeMillis();
-		this.nAiContextLines = io.github.emmrida.chat4us.gui.MainWindow.getSettings().getAiContextLines();
+		Settings settings = MainWindow.getSettings();
+		if(settings != null) // Not set when running outside of the app
+			this.nAiContextLines = settings.getAiContextLines();
 	}
 
 	/**
-	 * Init a chat session using an old one.
+	 * Init a chat session using an old one. The bot profile is shared.
 	 * @param ses Source chat session.
 	 */
 	public ChatSession(ChatSession ses) {
 		this();
 		this.state = ses.state;
-		this.vars = new HashMap<>(ses.vars);
+		this.profile = ses.profile;
+		this.vars = new VarMap(ses.vars);
 		this.ended = ses.ended;
 		this.currentNode = ses.currentNode;
+		this.flow = ses.flow;
 		this.nAiContextLines = ses.nAiContextLines;
-		this.chatMsg = new ArrayList<>(ses.chatMsg);
-		this.botName = ses.botName;
-		this.aiModelParams = new HashMap<>(ses.aiModelParams);
-		this.aiModelGuidelines = ses.aiModelGuidelines;
-		this.botScript = ses.botScript;
-		this.curLocale = ses.curLocale;
-		this.rootSession = ses;
-	}
-
-	/**
-	 * Updates the root chat session using a source one. This is usefull when reloading a RIA file
-	 * that has changed so as the ChatServer run the latest version of the RIA file.
-	 * @param riaSes Source chat session.
-	 */
-	public void updateRootSession(ChatSession riaSes) {
-		Objects.requireNonNull(riaSes);
-		this.botName = riaSes.botName;
-		this.aiModelGuidelines = riaSes.aiModelGuidelines;
-		this.botScript = riaSes.botScript;
-		this.aiModelParams = riaSes.aiModelParams;
-		this.rootSession = riaSes;
+		if(ses.chatMsgCount > 0) {
+			this.chatMsg = new String[ses.chatMsg.length];
+			for(int i = 0; i < ses.chatMsgCount; i++)
+				this.chatMsg[i] = ses.chatMsg[(ses.chatMsgHead + i) % ses.chatMsg.length];
+			this.chatMsgCount = ses.chatMsgCount;
+			this.chatMsgFirst = ses.chatMsgFirst;
+		}
 	}
 
 	/**
@@ -106,10 +115,110 @@ public class ChatSession {
 	 */
 	public void addHistoryChatMessage(boolean isBot, String msg) {
 		if(msg.isEmpty() || msg.startsWith("{")) return; //$NON-NLS-1$
-		if(isBot && msg.startsWith(botName)) {
-			this.chatMsg.add(msg.replaceAll("\n", "\\n")); //$NON-NLS-1$ //$NON-NLS-2$
-		} else this.chatMsg.add((isBot ? state.toString() : "User"  ) + " : " +  msg.replaceAll("\n", "\\n")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		String line;
+		if(isBot && msg.startsWith(profile.getBotName())) {
+			line = msg.replaceAll("\n", "\\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		} else line = (isBot ? state.toString() : "User"  ) + " : " +  msg.replaceAll("\n", "\\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		addHistory(line);
 		lastMsgTime = System.currentTimeMillis();
+		if(this.journal != null)
+			this.journal.logHistory(this, line);
+	}
+
+	/**
+	 * Appends a journaled history line.
+	 * @param line History line as added by addHistoryChatMessage().
+	 * @param time Time of the message.
+	 */
+	void replayHistory(String line, long time) {
+		addHistory(line, false); // Dropped lines were written to the history file when first added
+		this.lastMsgTime = time;
+	}
+
+	/**
+	 * Clears the history on journal replay, the history file already holds the lines added after the clear.
+	 */
+	void replayHistoryClear() {
+		this.chatMsg = null;
+		this.chatMsgHead = 0;
+		this.chatMsgCount = 0;
+		this.chatMsgFirst = 0;
+		this.agentSyncSeq = 0;
+	}
+
+	/**
+	 * @return File holding the messages dropped from the history, named after the user id and the chat start.
+	 */
+	private Path historyFile() {
+		String name = this.userId != null ? this.userId.replaceAll("[^\\w-]", "_") : "chat" + this.id; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		return Path.of(HISTORY_FOLDER, name + "-" + this.creationTime + ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Appends a line dropped from the history to the history file.
+	 */
+	private void spillHistory(String line) {
+		try {
+			Files.createDirectories(Path.of(HISTORY_FOLDER));
+			Files.writeString(historyFile(), line + System.lineSeparator(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		} catch(IOException ex) {
+			Helper.logWarning(ex, String.format(Messages.getString("ChatSession.HISTORY_SPILL_ERROR"), this.userId), false); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Returns the whole chat history, the messages dropped from memory are read from the history file.
+	 * Message indexes are the list indexes.
+	 * @return History lines since the start of the chat.
+	 * @throws IOException When the history file could not be read.
+	 */
+	public List<String> getTranscript() throws IOException {
+		List<String> lines = new ArrayList<>(getHistoryChatMessagesCount());
+		if(this.chatMsgFirst > 0)
+			lines.addAll(Files.readAllLines(historyFile(), StandardCharsets.UTF_8));
+		if(lines.size() != this.chatMsgFirst)
+			throw new IOException(String.format(Messages.getString("ChatSession.HISTORY_FILE_MISMATCH"), historyFile(), lines.size(), this.chatMsgFirst)); //$NON-NLS-1$
+		for(int i = 0; i < this.chatMsgCount; i++)
+			lines.add(this.chatMsg[(this.chatMsgHead + i) % this.chatMsg.length]);
+		return lines;
+	}
+
+	/**
+	 * Deletes the history file, called once the chat is saved.
+	 */
+	public void deleteHistoryFile() {
+		try {
+			Files.deleteIfExists(historyFile());
+		} catch(IOException ex) {
+			Helper.logWarning(ex, String.format(Messages.getString("ChatSession.HISTORY_SPILL_ERROR"), this.userId), false); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Appends a line to the history, dropping the oldest one once HISTORY_LIMIT is reached.
+	 */
+	private void addHistory(String line) {
+		addHistory(line, true);
+	}
+
+	/**
+	 * Appends a line to the history, dropping the oldest one once HISTORY_LIMIT is reached.
+	 * @param line History line.
+	 * @param spill Appends the dropped line to the history file, false when it is already there.
+	 */
+	private void addHistory(String line, boolean spill) {
+		if(this.chatMsg == null) {
+			this.chatMsg = new String[INITIAL_HISTORY];
+		} else if(this.chatMsgCount == this.chatMsg.length && this.chatMsg.length < HISTORY_LIMIT) {
+			this.chatMsg = Arrays.copyOf(this.chatMsg, Math.min(this.chatMsg.length * 2, HISTORY_LIMIT)); // Head is 0 until the limit is reached
+		}
+		if(this.chatMsgCount == this.chatMsg.length) {
+			if(spill)
+				spillHistory(this.chatMsg[this.chatMsgHead]);
+			this.chatMsg[this.chatMsgHead] = line;
+			this.chatMsgHead = (this.chatMsgHead + 1) % this.chatMsg.length;
+			this.chatMsgFirst++;
+		} else this.chatMsg[(this.chatMsgHead + this.chatMsgCount++) % this.chatMsg.length] = line;
 	}
 
 	/**
@@ -124,7 +233,10 @@ public class ChatSession {
 		this.agentIp = agentIp;
 		this.agentPort = agentPort;
 		this.userId = userId;
+		this.agentSyncSeq = 0;
 		this.state = ChatSessionState.AGENT;
+		if(this.journal != null)
+			this.journal.logAgent(this);
 	}
 
 	/**
@@ -145,24 +257,30 @@ public class ChatSession {
 	public int getAIGroupId() { return this.aiGroupId; }
 
 	/**
-	 * Sets current locale of the chat session
-	 * @param locale Locale id AR, EN, FR, etc.
-	 * @param ses Chat session object.
+	 * Sets the bot profile of the chat session, switching to its locale.
+	 * @param profile Bot profile of a loaded RIA file.
 	 */
-	public void setCurLocale(String locale, ChatSession ses) {
-		this.curLocale = locale;
-		if(ses != null) {
-			this.botName = ses.botName;
-			this.aiModelGuidelines = ses.aiModelGuidelines;
-			this.botScript = ses.botScript;
-			this.aiModelParams = ses.aiModelParams;
-		}
+	void setProfile(BotProfile profile) {
+		this.profile = Objects.requireNonNull(profile);
+		if(this.journal != null)
+			this.journal.logLocale(this);
 	}
 
+	/**
+	 * Sets the journal the state changes of this chat session are written to.
+	 * @param journal Session journal, null to stop journaling.
+	 */
+	void setJournal(SessionJournal journal) { this.journal = journal; }
+
+	/**
+	 * @return Bot profile of the chat session.
+	 */
+	public BotProfile getProfile() { return this.profile; }
+
 	/**
 	 * @return Current locale.
 	 */
-	public String getCurLocale() { return this.curLocale; }
+	public String getCurLocale() { return this.profile.getLocale(); }
 
 	/*
 	 * @return Agent id, -1 on error.
@@ -184,6 +302,21 @@ public class ChatSession {
 	 */
 	public String getUserId() { return this.userId; }
 
+	/**
+	 * @return Number of history messages the agent messenger app acknowledged.
+	 */
+	public int getAgentSyncSeq() { return this.agentSyncSeq; }
+
+	/**
+	 * Sets the number of history messages the agent messenger app acknowledged.
+	 * @param seq Sequence number of the next message to send to the agent app.
+	 */
+	public void setAgentSyncSeq(int seq) {
+		this.agentSyncSeq = Math.max(0, Math.min(seq, getHistoryChatMessagesCount()));
+		if(this.journal != null)
+			this.journal.logAgentSeq(this);
+	}
+
 	/**
 	 * Sets the remote user id.
 	 * @param userId User id.
@@ -204,14 +337,22 @@ public class ChatSession {
 	 * Sets the state of this chat session.
 	 * @param state The new state of this chat session.
 	 */
-	public void setState(ChatSessionState state) { this.state = state; }
+	public void setState(ChatSessionState state) {
+		this.state = state;
+		if(this.journal != null)
+			this.journal.logState(this);
+	}
 
 	/**
 	 * Sets the value of a variable identified by the key param.
 	 * @param key Name of the variable.
 	 * @param value New value of the variable.
 	 */
-	public void setVar(String key, String value) { this.vars.put(key, value); }
+	public void setVar(String key, String value) {
+		this.vars.put(key, value);
+		if(this.journal != null)
+			this.journal.logVar(this, key, value);
+	}
 
 	/**
 	 * Gets the value of a variable.
@@ -232,12 +373,19 @@ public class ChatSession {
 	 * Remove a variable from chat session.
 	 * @param key Name of the variable to remove.
 	 */
-	public void removeVar(String key) { this.vars.remove(key); }
+	public void removeVar(String key) {
+		if(this.vars.remove(key) != null && this.journal != null)
+			this.journal.logVar(this, key, null);
+	}
 
 	/**
 	 * Remove all vars from chat session.
 	 */
-	public void clearVars() { this.vars.clear(); }
+	public void clearVars() {
+		this.vars.clear();
+		if(this.journal != null)
+			this.journal.logVarsClear(this);
+	}
 
 	/**
 	 * Gets the variables set.
@@ -258,95 +406,81 @@ public class ChatSession {
 
 	/**
 	 * Gets a message at index from the chat history.
-	 * @param index Index of the message to return.
+	 * @param index Index of the message to return, from getHistoryFirstIndex() to getHistoryChatMessagesCount() - 1.
 	 * @return Message at index.
 	 */
-	public String getHistoryChatMessage(int index) { return this.chatMsg.get(index); }
+	public String getHistoryChatMessage(int index) {
+		int i = index - this.chatMsgFirst;
+		if(i < 0 || i >= this.chatMsgCount)
+			throw new IndexOutOfBoundsException(index);
+		return this.chatMsg[(this.chatMsgHead + i) % this.chatMsg.length];
+	}
 
 	/**
 	 * Clears the history chat messages.
 	 */
-	public void clearHistoryChatMessage() { this.chatMsg.clear(); }
+	public void clearHistoryChatMessage() {
+		if(this.chatMsgFirst > 0)
+			deleteHistoryFile();
+		replayHistoryClear();
+		if(this.journal != null)
+			this.journal.logHistoryClear(this);
+	}
 
 	/**
-	 * @return Chat messages count in the chat history.
+	 * @return Chat messages count since the start of the chat, dropped ones included.
 	 */
-	public int getHistoryChatMessagesCount() { return this.chatMsg.size(); }
+	public int getHistoryChatMessagesCount() { return this.chatMsgFirst + this.chatMsgCount; }
 
 	/**
-	 * @return Bot name.
+	 * @return Index of the oldest message kept in the chat history.
 	 */
-	public String getBotName() { return this.botName; }
+	public int getHistoryFirstIndex() { return this.chatMsgFirst; }
 
 	/**
-	 * Changes the bot name of the instance.
-	 * @param name Chat bot new name.
+	 * @return Bot name.
 	 */
-	public void setBotName(String name) { this.botName = name; }
+	public String getBotName() { return this.profile.getBotName(); }
 
 	/**
 	 * @return AI model guidelines.
 	 */
-	public String getAiModelGuidelines() { return this.aiModelGuidelines; }
-
-	/**
-	 * Sets new guidelines for the AI model.
-	 * @param guidelines New guidelines for the AI model.
-	 */
-	public void setAiModelGuidelines(String guidelines) { this.aiModelGuidelines = guidelines; }
+	public String getAiModelGuidelines() { return this.profile.getAiModelGuidelines(); }
 
 	/**
 	 * @return Bot script.
 	 */
-	public String getBotScript() { return this.botScript; }
-
-	/**
-	 * Sets new bot script.
-	 * @param script New bot script.
-	 */
-	public void setBotScript(String script) { this.botScript = script; }
+	public String getBotScript() { return this.profile.getBotScript(); }
 
 	/**
 	 * Gets an AI model param identified by the key param. AI model params are defined in the RIA file.
-	 * @param key
-	 * @return
-	 */
-	public String getAiModelParam(String key) { return this.aiModelParams.get(key); }
-
-	/**
-	 * Adds an AI model param.
 	 * @param key AI model param name.
-	 * @param value AI model param value.
+	 * @return AI model param value, null if not defined.
 	 */
-	public void addAiModelParam(String key, String value) { this.aiModelParams.put(key, value); }
+	public String getAiModelParam(String key) { return this.profile.getAiModelParam(key); }
 
 	/**
-	 * @return AI model params set.
+	 * @return AI model params set, read only.
 	 */
-	public Set<Map.Entry<String, String>> getAiModelParamsEntrySet() { return this.aiModelParams.entrySet(); }
+	public Set<Map.Entry<String, String>> getAiModelParamsEntrySet() { return this.profile.getAiModelParamsEntrySet(); }
 
 	/**
 	 * This is useful for localized error messages.
 	 * @return Default error message. If not defined in the RIA file, returns an empty string.
 	 */
-	public String getDefaultErrorMessage() { return this.aiModelParams.containsKey("default_error_msg") ? this.aiModelParams.get("default_error_msg") : ""; } //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	public String getDefaultErrorMessage() { return this.profile.getDefaultErrorMessage(); }
 
 	/**
 	 * This is useful for localized error messages when no agent is available.
 	 * @return Default error message. If not defined in the RIA file, returns an empty string.
 	 */
-	public String getNoAgentErrorMessage() { return this.aiModelParams.containsKey("no_agent_error_msg") ? this.aiModelParams.get("no_agent_error_msg") : ""; } //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-
-	/**
-	 * Sets the root chat session that will be used to create new ones.
-	 * @param ses Chat session object.
-	 */
-	public void setRootSession(ChatSession ses) { this.rootSession = ses; }
+	public String getNoAgentErrorMessage() { return this.profile.getNoAgentErrorMessage(); }
 
 	/**
-	 * @return Root chat session instance.
+	 * Wall-clock budget of the bot and node scripts, set by the 'script_timeout_ms' RIA param.
+	 * @return Script execution budget in milliseconds. If not defined or invalid, returns the default one.
 	 */
-	public ChatSession getRootSession() { return this.rootSession; }
+	public long getScriptTimeout() { return this.profile.getScriptTimeout(); }
 
 	/**
 	 * @return True if this chat session is finished.
@@ -357,7 +491,11 @@ public class ChatSession {
 	 * Sets the chat session as ended.
 	 * @param ended New state of this chat session.
 	 */
-	public void setEnded(boolean ended) { this.ended = ended; }
+	public void setEnded(boolean ended) {
+		this.ended = ended;
+		if(this.journal != null)
+			this.journal.logEnded(this);
+	}
 
 	/**
 	 * @return Last chat session message time.
@@ -372,13 +510,109 @@ public class ChatSession {
 	/**
 	 * @return Current RIA node of this chat session.
 	 */
-	public NodePanel.Data getCurrentNode() { return this.currentNode; }
+	public FlowNode getCurrentNode() { return this.currentNode; }
 
 	/**
 	 * Sets current RIA node for this chat session.
 	 * @param curNode New current node.
 	 */
-	public void setCurrentNode(NodePanel.Data curNode) { this.currentNode = curNode; }
+	public void setCurrentNode(FlowNode curNode) {
+		this.currentNode = curNode;
+		if(curNode != null)
+			this.flow = curNode.getGraph();
+		if(this.journal != null)
+			this.journal.logNode(this);
+	}
+
+	/**
+	 * @return The RIA flow graph this chat session runs on, null if none yet.
+	 */
+	public FlowGraph getFlow() { return this.flow; }
+
+	/**
+	 * Writes the state of the chat session to a binary stream. The bot profile is written as its
+	 * locale and the current node as its id, both are resolved again by readFrom().
+	 * @param out Binary stream.
+	 * @throws IOException
+	 */
+	void writeTo(DataOutputStream out) throws IOException {
+		out.writeInt(this.id);
+		out.writeByte(this.state.ordinal());
+		RiaDocument.writeString(out, this.profile.getLocale());
+		out.writeLong(this.creationTime);
+		out.writeLong(this.lastMsgTime);
+		out.writeBoolean(this.ended);
+		out.writeInt(this.currentNode != null ? this.currentNode.getId() : -1);
+		out.writeInt(this.aiGroupId);
+		out.writeInt(this.nAiContextLines);
+		out.writeInt(this.vars.size());
+		for(Map.Entry<String, String> var : this.vars.entrySet()) {
+			RiaDocument.writeString(out, var.getKey());
+			RiaDocument.writeString(out, var.getValue());
+		}
+		out.writeInt(this.chatMsgFirst);
+		out.writeInt(this.chatMsgCount);
+		for(int i = 0; i < this.chatMsgCount; i++)
+			RiaDocument.writeString(out, this.chatMsg[(this.chatMsgHead + i) % this.chatMsg.length]);
+		out.writeInt(this.agentId);
+		RiaDocument.writeString(out, this.agentIp);
+		out.writeInt(this.agentPort);
+		RiaDocument.writeString(out, this.userId);
+		out.writeInt(this.agentSyncSeq);
+	}
+
+	/**
+	 * Reads a chat session written by writeTo().
+	 * @param in Binary stream over an in memory buffer.
+	 * @param cbc Chat bot client, to resolve the bot profile and the current node.
+	 * @param flow Flow graph the session was running on, null for the current one of its locale.
+	 * @return The chat session.
+	 * @throws IOException
+	 */
+	static ChatSession readFrom(DataInputStream in, ChatBotClient cbc, FlowGraph flow) throws IOException {
+		ChatSession ses = new ChatSession();
+		ses.id = in.readInt();
+		ses.state = ChatSessionState.values()[in.readByte()];
+		String locale = RiaDocument.readString(in);
+		ChatSession riaSes = locale != null ? cbc.riaChatSessionOrLoad(locale) : null;
+		if(riaSes == null)
+			riaSes = cbc.riaChatSession(cbc.getMainLocale());
+		if(riaSes != null) {
+			ses.profile = riaSes.profile;
+			if(flow == null)
+				flow = riaSes.flow;
+		}
+		ses.creationTime = in.readLong();
+		ses.lastMsgTime = in.readLong();
+		ses.ended = in.readBoolean();
+		int nodeId = in.readInt();
+		if(flow != null) {
+			if(nodeId >= 0) {
+				FlowNode node = flow.getNode(nodeId);
+				ses.currentNode = node != null ? node : flow.getEntry(); // The node may be gone since the RIA file changed
+			}
+			ses.flow = flow;
+		}
+		ses.aiGroupId = in.readInt();
+		ses.nAiContextLines = in.readInt();
+		int n = in.readInt();
+		for(int i = 0; i < n; i++)
+			ses.vars.put(RiaDocument.readString(in), RiaDocument.readString(in));
+		ses.chatMsgFirst = in.readInt();
+		n = in.readInt();
+		if(n > 0) {
+			ses.chatMsg = new String[Math.max(INITIAL_HISTORY, Integer.highestOneBit(n - 1) << 1)];
+			for(int i = 0; i < n; i++)
+				ses.chatMsg[i] = RiaDocument.readString(in);
+			ses.chatMsgCount = n;
+		}
+		ses.agentId = in.readInt();
+		ses.agentIp = RiaDocument.readString(in);
+		ses.agentPort = in.readInt();
+		ses.userId = RiaDocument.readString(in);
+		ses.agentSyncSeq = in.readInt();
+		return ses;
+	}
 }
 
 
@@ -0,0 +1,251 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.caoccao.javet.exceptions.JavetCompilationException;
+import com.caoccao.javet.exceptions.JavetException;
+import com.caoccao.javet.interop.V8Runtime;
+import com.caoccao.javet.values.V8Value;
+import com.caoccao.javet.values.reference.V8Script;
+
+import io.github.emmrida.chat4us.util.Helper;
+import io.github.emmrida.chat4us.util.Messages;
+
+/**
+ * Cache of the RIA scripts compiled once per RIA file, script id and script content.
+ * Compiled V8 scripts belong to a runtime context that is reset by the runtimes pool,
+ * so the cache keeps the final script source and the V8 code cache data that lets
+ * any pooled runtime skip the parsing and the compilation of the script.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public class CompiledScriptCache {
+	public static final String BOT_USER_SCRIPT_ID = "bot.onUserMessage"; //$NON-NLS-1$
+	public static final String BOT_AI_SCRIPT_ID = "bot.onAIMessage"; //$NON-NLS-1$
+	public static final String BOT_LOAD_SCRIPT_ID = "bot.onLoad"; //$NON-NLS-1$
+	public static final String NODE_SCRIPT_ID = "node."; //$NON-NLS-1$
+	public static final String SCHEDULE_SCRIPT_ID = "schedule."; //$NON-NLS-1$
+
+	private static final String BOT_USER_MAIN = System.lineSeparator() + "function main() { return onUserMessage(response); }" + System.lineSeparator() + "main();"; //$NON-NLS-1$ //$NON-NLS-2$
+	private static final String BOT_AI_MAIN = System.lineSeparator() + "function main() { return onAIMessage(response); }" + System.lineSeparator() + "main();"; //$NON-NLS-1$ //$NON-NLS-2$
+	private static final String BOT_LOAD_MAIN = System.lineSeparator() + "if(typeof onLoad === 'function') onLoad();"; //$NON-NLS-1$
+
+	private static CompiledScriptCache instance = null;
+
+	private final Map<Key, CompiledScript> scripts;
+
+	/**
+	 * Init the compiled scripts cache.
+	 */
+	private CompiledScriptCache() {
+		this.scripts = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * @return The compiled scripts cache shared by all the chat bots.
+	 */
+	public static synchronized CompiledScriptCache getInstance() {
+		if(instance == null)
+			instance = new CompiledScriptCache();
+		return instance;
+	}
+
+	/**
+	 * Returns the compiled script of a RIA script, creating it on the first call.
+	 * Bot scripts get their main() entry point appended once here.
+	 * @param riaFile RIA file name.
+	 * @param scriptId BOT_USER_SCRIPT_ID, BOT_AI_SCRIPT_ID, BOT_LOAD_SCRIPT_ID, NODE_SCRIPT_ID followed
+	 * by the node id or SCHEDULE_SCRIPT_ID followed by the bot script function to run.
+	 * @param script Script source as found in the RIA file.
+	 * @return Compiled script entry.
+	 */
+	public CompiledScript get(String riaFile, String scriptId, String script) {
+		Objects.requireNonNull(scriptId);
+		Objects.requireNonNull(script);
+		return scripts.computeIfAbsent(new Key(riaFile, scriptId, script), k -> {
+			String source = script;
+			if(BOT_USER_SCRIPT_ID.equals(scriptId)) {
+				source = script + BOT_USER_MAIN;
+			} else if(BOT_AI_SCRIPT_ID.equals(scriptId)) {
+				source = script + BOT_AI_MAIN;
+			} else if(BOT_LOAD_SCRIPT_ID.equals(scriptId)) {
+				source = script + BOT_LOAD_MAIN;
+			} else if(scriptId.startsWith(SCHEDULE_SCRIPT_ID)) {
+				source = script + System.lineSeparator() + "function main() { return " + scriptId.substring(SCHEDULE_SCRIPT_ID.length()) + "(); }" + System.lineSeparator() + "main();"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			return new CompiledScript(riaFile, scriptId, source);
+		});
+	}
+
+	/**
+	 * Gets then compiles a script in a pooled runtime so as its code cache data is ready
+	 * and its compilation errors are known before any chat session runs it.
+	 * @param riaFile RIA file name.
+	 * @param scriptId Script id.
+	 * @param script Script source as found in the RIA file.
+	 * @return Compiled script entry. Check getCompileError() for the compilation result.
+	 */
+	public CompiledScript precompile(String riaFile, String scriptId, String script) {
+		CompiledScript cs = get(riaFile, scriptId, script);
+		if(cs.cachedData == null && cs.compileError == null) {
+			try (V8RuntimePool.Lease lease = V8RuntimePool.getInstance().borrow()) {
+				cs.compile(lease.getRuntime()).close(); // Compiled only, the code cache data is kept by the entry.
+			} catch(JavetCompilationException ex) {
+				cs.compileError = ex.getScriptingError().toString();
+			} catch(JavetException ex) {
+				Helper.logWarning(ex, String.format(Messages.getString("CompiledScriptCache.PRECOMPILE_FAILURE"), scriptId, riaFile)); //$NON-NLS-1$
+			}
+		}
+		return cs;
+	}
+
+	/**
+	 * Removes the scripts of a RIA file. Called when the RIA file is reloaded.
+	 * @param riaFile RIA file name.
+	 */
+	public void invalidate(String riaFile) {
+		scripts.keySet().removeIf(k -> Objects.equals(k.riaFile, riaFile));
+	}
+
+	/**
+	 * @return Number of the cached scripts.
+	 */
+	public int size() { return scripts.size(); }
+
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Cache key made of the RIA file, the script id and the script hash. Sources are
+	 * compared on hash match so as a changed script never runs a stale code cache.
+	 */
+	private static final class Key {
+		private final String riaFile;
+		private final String scriptId;
+		private final String script;
+		private final int hash;
+
+		private Key(String riaFile, String scriptId, String script) {
+			this.riaFile = riaFile;
+			this.scriptId = scriptId;
+			this.script = script;
+			this.hash = Objects.hash(riaFile, scriptId, script);
+		}
+
+		@Override
+		public int hashCode() { return hash; }
+
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj)
+				return true;
+			if(!(obj instanceof Key))
+				return false;
+			Key k = (Key)obj;
+			return hash == k.hash && scriptId.equals(k.scriptId) && Objects.equals(riaFile, k.riaFile) && script.equals(k.script);
+		}
+	}
+
+	/**
+	 * A RIA script ready to run on any pooled runtime.
+	 */
+	public static class CompiledScript {
+		private final String riaFile;
+		private final String scriptId;
+		private final String source;
+		private final String resourceName;
+		private final Set<String> globals;
+		private volatile byte[] cachedData;
+		private volatile String compileError;
+
+		/**
+		 * Init a compiled script entry.
+		 * @param riaFile RIA file name.
+		 * @param scriptId Script id.
+		 * @param source Final script source.
+		 */
+		private CompiledScript(String riaFile, String scriptId, String source) {
+			this.riaFile = riaFile;
+			this.scriptId = scriptId;
+			this.source = source;
+			this.resourceName = (riaFile != null ? riaFile : "") + "#" + scriptId; //$NON-NLS-1$ //$NON-NLS-2$
+			this.globals = ScriptRunner.scanGlobals(source);
+			this.cachedData = null;
+			this.compileError = null;
+		}
+
+		/**
+		 * Compiles the script in a runtime using the code cache data when available.
+		 * @param v8Runtime V8 runtime.
+		 * @return Compiled V8 script to close after use.
+		 * @throws JavetException
+		 */
+		private V8Script compile(V8Runtime v8Runtime) throws JavetException {
+			byte[] data = this.cachedData;
+			V8Script script = v8Runtime.getExecutor(source, data).setResourceName(resourceName).compileV8Script();
+			if(data == null)
+				this.cachedData = script.getCachedData();
+			return script;
+		}
+
+		/**
+		 * Runs the script in a runtime.
+		 * @param v8Runtime V8 runtime.
+		 * @return The script result as an integer.
+		 * @throws JavetException
+		 */
+		public Integer executeInteger(V8Runtime v8Runtime) throws JavetException {
+			try (V8Script script = compile(v8Runtime)) {
+				return script.executeInteger();
+			}
+		}
+
+		/**
+		 * Runs the script in a runtime.
+		 * @param v8Runtime V8 runtime.
+		 * @return The script result to close after use.
+		 * @throws JavetException
+		 */
+		public V8Value execute(V8Runtime v8Runtime) throws JavetException {
+			try (V8Script script = compile(v8Runtime)) {
+				return script.execute();
+			}
+		}
+
+		/**
+		 * @return RIA file name.
+		 */
+		public String getRiaFile() { return this.riaFile; }
+
+		/**
+		 * @return Script id.
+		 */
+		public String getScriptId() { return this.scriptId; }
+
+		/**
+		 * @return Final script source.
+		 */
+		public String getSource() { return this.source; }
+
+		/**
+		 * @return Identifiers used by the script, null if the script may reach any global.
+		 */
+		public Set<String> getGlobals() { return this.globals; }
+
+		/**
+		 * @return The compilation error found while precompiling, null if none.
+		 */
+		public String getCompileError() { return this.compileError; }
+
+		/**
+		 * @return True if the V8 code cache data is available.
+		 */
+		public boolean isCached() { return this.cachedData != null; }
+	}
+}
@@ -17,6 +17,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.google.gson.Gson;
 import io.github.emmrida.chat4us.gui.MainWindow;
@@ -39,6 +40,8 @@ public class DeepSeekModelClient implements IChatModelClient {
 	private String aiServerUrl; // https://api.deepseek.com/v1/chat/completions
 	private int dbId;
 	private int aiContextSize;
+	private final Metrics.Histogram aiRequestSeconds;
+	private final LongAdder aiErrorsTotal;
 
 	/**
 	 *
@@ -47,11 +50,7 @@ public class DeepSeekModelClient implements IChatModelClient {
 	 * @param enabled
 	 */
 	public DeepSeekModelClient(int dbId, String aiServerUrl, boolean enabled) {
-		this.dbId = dbId;
-		this.aiServerUrl = aiServerUrl;
-		this.enabled = enabled;
-		this.busy = false;
-		this.aiContextSize = MainWindow.getSettings().getAiQueryMaxLength();
+		this(dbId, aiServerUrl, enabled, MainWindow.getSettings().getAiQueryMaxLength());
 	}
 
 	/**
@@ -62,8 +61,13 @@ public class DeepSeekModelClient implements IChatModelClient {
 	 * @param aiContextSize AI context size or max query length
 	 */
 	public DeepSeekModelClient(int dbId, String aiServerUrl, boolean enabled, int aiContextSize) {
-    	this(dbId, aiServerUrl, enabled);
-    	this.aiContextSize = aiContextSize;
+		this.dbId = dbId;
+		this.aiServerUrl = aiServerUrl;
+		this.enabled = enabled;
+		this.busy = false;
+		this.aiContextSize = aiContextSize;
+		this.aiRequestSeconds = Metrics.getInstance().aiRequestSeconds(dbId, "deepseek"); //$NON-NLS-1$
+		this.aiErrorsTotal = Metrics.getInstance().aiErrors(dbId, "deepseek"); //$NON-NLS-1$
 	}
 
 	/**
@@ -72,7 +76,9 @@ public class DeepSeekModelClient implements IChatModelClient {
 	 * @param msg User message.
 	 * @return AI model web server query.
 	 */
-	private String makeQuery(ChatSession ses, String msg) {
+	String makeQuery(ChatSession ses, String msg) {
+		ChatEvents.Prompt event = new ChatEvents.Prompt();
+		event.begin();
 		String key;
 		String value;
 		int contentLength = msg.length();
@@ -102,7 +108,7 @@ public class DeepSeekModelClient implements IChatModelClient {
 		contentLength += 8 + 7 + ses.getAiModelGuidelines().length();
 		String[] hline;
 		StringBuilder content = new StringBuilder();
-		for(int i = ses.getHistoryChatMessagesCount()-2; i >= Math.max(0, ses.getHistoryChatMessagesCount()-MainWindow.getSettings().getAiContextLines()-1); i--) {
+		for(int i = ses.getHistoryChatMessagesCount()-2; i >= Math.max(ses.getHistoryFirstIndex(), ses.getHistoryChatMessagesCount()-ses.getAiContextLinesCount()-1); i--) {
 			data = new HashMap<>();
 			content.setLength(0);
 			hline = ses.getHistoryChatMessage(i).split(" : ", 2); //$NON-NLS-1$
@@ -127,6 +133,8 @@ public class DeepSeekModelClient implements IChatModelClient {
 
 		String json = new Gson().toJson(gson);
 		System.out.println(json);
+		event.length = json.length();
+		event.end(ses, dbId);
 		return json;
 	}
 
@@ -139,8 +147,10 @@ public class DeepSeekModelClient implements IChatModelClient {
     private String sendMsgToModelServer(ChatSession ses, String msg) {
         if(httpClient == null)
         	httpClient = HttpClient.newHttpClient();
+        ChatEvents.ModelQuery event = new ChatEvents.ModelQuery();
         try {
 	        String jsonInputString = makeQuery(ses, msg);
+	        event.begin();
 	        HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(aiServerUrl))
                 .header("Authorization", "Bearer " + ses.getAiModelParam(AIQ_PREFIX+"api_key")) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
@@ -153,6 +163,9 @@ public class DeepSeekModelClient implements IChatModelClient {
         	Helper.logError(ex, Messages.getString("DeepSeekModelClient.RESPONSE_ERROR")); //$NON-NLS-1$
         	ses.setEnded(true);
             return Messages.getString("DeepSeekModelClient.OFFLINE"); //$NON-NLS-1$
+        } finally {
+        	event.client = "deepseek"; //$NON-NLS-1$
+        	event.end(ses, dbId);
         }
     }
 
@@ -177,11 +190,14 @@ public class DeepSeekModelClient implements IChatModelClient {
     	busy = true;
 		long l = System.currentTimeMillis();
 		ses.addHistoryChatMessage(false, msg.trim());
+		long start = System.nanoTime();
 		String response = sendMsgToModelServer(ses, msg);
+		aiRequestSeconds.record(System.nanoTime() - start);
 		System.out.println(response);
 		response = (String)Helper.getValueFromJsonPath(response, "choices/0/message/content"); //$NON-NLS-1$
 		if(response == null) {
 			Helper.logError(Messages.getString("DeepSeekModelClient.RESPONSE_ERROR")); //$NON-NLS-1$
+			aiErrorsTotal.increment();
 			response = ses.getDefaultErrorMessage();
 			ses.setEnded(true);
 		}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import io.github.emmrida.chat4us.ria.RiaDocument;
+import io.github.emmrida.chat4us.util.Helper;
+import io.github.emmrida.chat4us.util.Messages;
+
+/**
+ * Binary cache of the RIA files loaded by the chat bot servers. The parsed content of a RIA
+ * file is saved next to it and reused as long as the RIA file content has the same SHA-256
+ * hash, so servers start without parsing XML. A missing, outdated or unreadable cache file
+ * is rebuilt from the RIA file.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+final class FlowCache {
+	static final String CACHE_EXT = ".cache"; //$NON-NLS-1$
+	private static final int MAGIC = 0x43344643; // C4FC
+	private static final int VERSION = 1;
+	private static final int HASH_SIZE = 32;
+
+	private FlowCache() {}
+
+	/**
+	 * Loads a RIA file from its cache file if up to date, from the RIA file otherwise.
+	 * @param riaFile RIA file path.
+	 * @return The RIA document.
+	 * @throws Exception On RIA file read or parse errors.
+	 */
+	static RiaDocument load(String riaFile) throws Exception {
+		byte[] ria = Files.readAllBytes(Path.of(riaFile));
+		byte[] hash = sha256(ria);
+		Path cache = Path.of(riaFile + CACHE_EXT);
+		if(Files.isRegularFile(cache)) {
+			try(DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(cache)))) {
+				if(in.readInt() == MAGIC && in.readInt() == VERSION) {
+					byte[] h = new byte[HASH_SIZE];
+					in.readFully(h);
+					if(Arrays.equals(h, hash))
+						return RiaDocument.readFrom(in);
+				}
+			} catch(IOException ex) {
+				Helper.logWarning(ex, String.format(Messages.getString("FlowCache.READ_ERROR"), cache)); //$NON-NLS-1$
+			}
+		}
+		RiaDocument doc = RiaDocument.read(new ByteArrayInputStream(ria));
+		write(cache, hash, doc);
+		return doc;
+	}
+
+	/**
+	 * Writes a cache file. The file is written to a temporary file first then moved in place
+	 * so a reader never sees a partial file. Write errors are logged only.
+	 */
+	private static void write(Path cache, byte[] hash, RiaDocument doc) {
+		Path tmp = null;
+		try {
+			Path dir = cache.toAbsolutePath().getParent();
+			tmp = Files.createTempFile(dir, cache.getFileName().toString(), ".tmp"); //$NON-NLS-1$
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.write(hash);
+				doc.writeTo(out);
+			}
+			Files.move(tmp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			tmp = null;
+		} catch(Exception ex) {
+			Helper.logWarning(ex, String.format(Messages.getString("FlowCache.WRITE_ERROR"), cache)); //$NON-NLS-1$
+		} finally {
+			if(tmp != null)
+				tmp.toFile().delete();
+		}
+	}
+
+	private static byte[] sha256(byte[] data) throws NoSuchAlgorithmException {
+		return MessageDigest.getInstance("SHA-256").digest(data); //$NON-NLS-1$
+	}
+}
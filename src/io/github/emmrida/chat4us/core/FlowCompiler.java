@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.github.emmrida.chat4us.core.CompiledScriptCache.CompiledScript;
+import io.github.emmrida.chat4us.ria.NodePanel;
+import io.github.emmrida.chat4us.util.Helper;
+import io.github.emmrida.chat4us.util.Messages;
+
+/**
+ * Compiles the nodes of a RIA file, as edited by the RIA editor, into a flow graph
+ * for the chat bot runtime.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+final class FlowCompiler {
+	private static final Pattern INTERVAL = Pattern.compile("(-?\\d+(?:\\.\\d+)?)\\.\\.\\.(-?\\d+(?:\\.\\d+)?)"); //$NON-NLS-1$
+
+	private FlowCompiler() {}
+
+	/**
+	 * Compiles RIA nodes. Node scripts are precompiled and their errors logged.
+	 * @param nodes RIA nodes by id.
+	 * @param entryId Entry node id.
+	 * @param riaFile RIA file name.
+	 * @param version Load version of the RIA file.
+	 * @return The flow graph.
+	 */
+	static FlowGraph compile(Map<Integer, NodePanel.Data> nodes, int entryId, String riaFile, int version) {
+		return new FlowGraph(graph -> compileNodes(nodes, riaFile, graph), entryId, version);
+	}
+
+	/**
+	 * Compiles the nodes of a graph then links them together.
+	 * @param nodes RIA nodes by id.
+	 * @param riaFile RIA file name.
+	 * @param graph The graph of the nodes.
+	 * @return Compiled nodes by id.
+	 */
+	private static Map<Integer, FlowNode> compileNodes(Map<Integer, NodePanel.Data> nodes, String riaFile, FlowGraph graph) {
+		Map<Integer, FlowNode> flow = new HashMap<>(nodes.size() * 2);
+		Map<Integer, Map<String, FlowNode.Branch>> branches = new HashMap<>(); // Matching lists to link, by node id
+		for(NodePanel.Data data : nodes.values())
+			flow.put(data.getId(), compileNode(data, riaFile, graph, branches));
+		for(FlowNode node : flow.values()) {
+			node.sucNext = flow.get(node.getSucMoveTo());
+			node.errNext = flow.get(node.getErrMoveTo());
+		}
+		for(Map<String, FlowNode.Branch> matchingList : branches.values())
+			for(Map.Entry<String, FlowNode.Branch> e : matchingList.entrySet())
+				if(e.getValue().getId() > 0)
+					e.setValue(new FlowNode.Branch(e.getValue().getId(), flow.get(e.getValue().getId())));
+		return flow;
+	}
+
+	private static FlowNode compileNode(NodePanel.Data data, String riaFile, FlowGraph graph, Map<Integer, Map<String, FlowNode.Branch>> branches) {
+		FlowNode.Validator validator = FlowNode.Validator.of(data.getValType());
+		String condition = data.getValCondition();
+		String[] inList = null;
+		double[] interval = null;
+		Map<String, FlowNode.Branch> matchingList = null;
+		Map<String, String> matchingValues = null;
+		CompiledScript script = null;
+		switch(validator) {
+		case TEXT_IN_LIST:
+			inList = condition.split(";"); //$NON-NLS-1$
+			break;
+		case NUMBER_INTERVAL:
+			Matcher m = INTERVAL.matcher(condition);
+			if(m.find()) {
+				try {
+					interval = new double[] { Double.parseDouble(m.group(1)), Double.parseDouble(m.group(2)) };
+				} catch(NumberFormatException ex) {
+					interval = null;
+				}
+			}
+			break;
+		case MATCHING_LIST:
+			matchingList = new HashMap<>();
+			for(Map.Entry<String, Integer> e : ChatBotClient.extractMatchingList(condition).entrySet())
+				matchingList.put(e.getKey(), new FlowNode.Branch(e.getValue(), null));
+			branches.put(data.getId(), matchingList);
+			break;
+		case MATCHING_VALUES:
+			matchingValues = new HashMap<>(ChatBotClient.extractMatchingValues(condition));
+			break;
+		case SCRIPT:
+			if(data.getScript() != null) {
+				script = CompiledScriptCache.getInstance().precompile(riaFile, CompiledScriptCache.NODE_SCRIPT_ID + data.getId(), data.getScript());
+				if(script.getCompileError() != null)
+					Helper.logError(String.format(Messages.getString("ChatBotClient.SCRIPT_COMPILATION_ERROR"), data.getId(), script.getCompileError())); //$NON-NLS-1$
+			}
+			break;
+		default:
+			break;
+		}
+		FlowNode.Action sucAction = FlowNode.Action.of(data.getSucAction());
+		FlowNode.Action errAction = FlowNode.Action.of(data.getErrAction());
+		return new FlowNode(graph, data.getId(), data.getMessage(), validator, condition, inList, interval, matchingList, matchingValues, script,
+				data.getSucMessage(), sucAction, data.getSucValue(), sucAction == FlowNode.Action.VARIABLE_OPERATION ? parseOperation(data.getSucValue()) : null, data.getSucMoveTo(),
+				data.getErrMessage(), errAction, data.getErrValue(), errAction == FlowNode.Action.VARIABLE_OPERATION ? parseOperation(data.getErrValue()) : null, data.getErrMoveTo());
+	}
+
+	/**
+	 * Parses a variable:operation value like var=+1.
+	 * @param value Action value.
+	 * @return The operation, null if it has no '='.
+	 */
+	private static FlowNode.Operation parseOperation(String value) {
+		String[] parts = value.split("=", 2); //$NON-NLS-1$
+		if(parts.length != 2)
+			return null;
+		String key = parts[0].trim();
+		if(parts[1].isEmpty())
+			return new FlowNode.Operation(key, ' ', Double.NaN, false);
+		try {
+			return new FlowNode.Operation(key, parts[1].charAt(0), Double.parseDouble(parts[1].substring(1)), true);
+		} catch(NumberFormatException ex) {
+			return new FlowNode.Operation(key, parts[1].charAt(0), Double.NaN, false);
+		}
+	}
+}
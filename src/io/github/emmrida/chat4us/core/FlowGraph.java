@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The compiled nodes of a RIA file and its entry node. A new graph is compiled each time
+ * the RIA file is loaded, chat sessions keep the graph they started with.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public final class FlowGraph {
+	private final Map<Integer, FlowNode> nodes;
+	private final FlowNode entry;
+	private final int version;
+	private final Map<String, MessageTemplate> templates; // node text : template
+
+	/**
+	 * Init a flow graph.
+	 * @param compiler Compiles the nodes of the graph, by id, given the graph they belong to.
+	 * @param entryId Entry node id.
+	 * @param version Load version of the RIA file.
+	 */
+	FlowGraph(Function<FlowGraph, Map<Integer, FlowNode>> compiler, int entryId, int version) {
+		this.version = version;
+		Map<Integer, FlowNode> nodes = compiler.apply(this);
+		this.nodes = Collections.unmodifiableMap(nodes);
+		this.entry = nodes.get(entryId);
+		this.templates = new HashMap<>(nodes.size() * 4);
+		for(FlowNode node : nodes.values()) {
+			this.templates.put(node.getMessage(), node.getMessageTemplate());
+			this.templates.put(node.getSucMessage(), node.getSucTemplate());
+			this.templates.put(node.getErrMessage(), node.getErrTemplate());
+		}
+	}
+
+	/**
+	 * @param id Node id.
+	 * @return The node or null if not found.
+	 */
+	public FlowNode getNode(int id) { return this.nodes.get(id); }
+
+	/**
+	 * @return The entry node.
+	 */
+	public FlowNode getEntry() { return this.entry; }
+
+	/**
+	 * Returns the precompiled template of a node message, success or error text.
+	 * @param text A bot message.
+	 * @return The template or null if the text does not come from a node of this graph.
+	 */
+	public MessageTemplate getTemplate(String text) { return this.templates.get(text); }
+
+	/**
+	 * @return Load version of the RIA file, starts at 1 and grows on each reload.
+	 */
+	public int getVersion() { return this.version; }
+
+	/**
+	 * @return Number of nodes.
+	 */
+	public int size() { return this.nodes.size(); }
+}
@@ -0,0 +1,333 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.util.Collections;
+import java.util.Map;
+
+import io.github.emmrida.chat4us.core.CompiledScriptCache.CompiledScript;
+
+/**
+ * A RIA node compiled for the chat bot runtime. Validators and actions are resolved to enums,
+ * conditions and messages are parsed once and the success and error nodes are referenced directly, so a
+ * static flow turn does not parse, look up or allocate anything beyond the bot messages.
+ * Nodes are built by FlowCompiler and never change afterwards.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public final class FlowNode {
+
+	/**
+	 * Node validation types.
+	 */
+	public enum Validator {
+		NOP("nop"), //$NON-NLS-1$
+		TEXT_ANY("text:any"), //$NON-NLS-1$
+		TEXT_EQUAL("text:equal"), //$NON-NLS-1$
+		TEXT_IN_LIST("text:in_list"), //$NON-NLS-1$
+		TEXT_EMAIL("text:email"), //$NON-NLS-1$
+		NUMBER_ANY("number:any"), //$NON-NLS-1$
+		NUMBER_EQUAL("number:equal"), //$NON-NLS-1$
+		NUMBER_INTERVAL("number:interval"), //$NON-NLS-1$
+		BOOLEAN_ANY("boolean:any"), //$NON-NLS-1$
+		DATE_DMY("date:dd/MM/yyyy"), //$NON-NLS-1$
+		DATE_MDY("date:MM/dd/yyyy"), //$NON-NLS-1$
+		MATCHING_LIST("matching_list"), //$NON-NLS-1$
+		MATCHING_VALUES("matching_values"), //$NON-NLS-1$
+		SCRIPT("script"), //$NON-NLS-1$
+		UNKNOWN(null);
+
+		private final String type;
+
+		private Validator(String type) { this.type = type; }
+
+		/**
+		 * @param type Validation type as found in the RIA file.
+		 * @return The validator, UNKNOWN if not supported.
+		 */
+		public static Validator of(String type) {
+			for(Validator v : values())
+				if(v.type != null && v.type.equals(type))
+					return v;
+			return UNKNOWN;
+		}
+	}
+
+	/**
+	 * Node success and error actions.
+	 */
+	public enum Action {
+		NOP("nop"), //$NON-NLS-1$
+		REPEAT("repeat"), //$NON-NLS-1$
+		RESTART("restart"), //$NON-NLS-1$
+		END("end"), //$NON-NLS-1$
+		VARIABLE_USER_VALUE("variable:user_value"), //$NON-NLS-1$
+		VARIABLE_OPERATION("variable:operation"), //$NON-NLS-1$
+		USER_LOCALE("user_locale:user_value"), //$NON-NLS-1$
+		SWITCH_TO_AI("switch_to_ai"), //$NON-NLS-1$
+		SWITCH_TO_AGENT("switch_to_agent"), //$NON-NLS-1$
+		UNKNOWN(null);
+
+		private final String type;
+
+		private Action(String type) { this.type = type; }
+
+		/**
+		 * @param type Action type as found in the RIA file.
+		 * @return The action, UNKNOWN if not supported.
+		 */
+		public static Action of(String type) {
+			for(Action a : values())
+				if(a.type != null && a.type.equals(type))
+					return a;
+			return UNKNOWN;
+		}
+	}
+
+	/**
+	 * A variable:operation action value like var=+1, parsed once.
+	 */
+	public static final class Operation {
+		private final String variable;
+		private final char operator;
+		private final double operand;
+		private final boolean valid;
+
+		Operation(String variable, char operator, double operand, boolean valid) {
+			this.variable = variable;
+			this.operator = operator;
+			this.operand = operand;
+			this.valid = valid;
+		}
+
+		public String getVariable() { return this.variable; }
+		public char getOperator() { return this.operator; }
+		public double getOperand() { return this.operand; }
+
+		/**
+		 * @return False if the operand is not a number.
+		 */
+		public boolean isValid() { return this.valid; }
+	}
+
+	/**
+	 * A matching list target, a node id or a command when not positive.
+	 */
+	public static final class Branch {
+		private final int id;
+		private final FlowNode node;
+
+		Branch(int id, FlowNode node) {
+			this.id = id;
+			this.node = node;
+		}
+
+		public int getId() { return this.id; }
+
+		/**
+		 * @return The target node, null if the id is a command or an unknown node.
+		 */
+		public FlowNode getNode() { return this.node; }
+	}
+
+	private final int id;
+	private final String message;
+	private final MessageTemplate messageTemplate;
+	private final Validator validator;
+	private final String valCondition;
+	private final String[] inList;
+	private final double intervalMin;
+	private final double intervalMax;
+	private final boolean hasInterval;
+	private final Map<String, Branch> matchingList;
+	private final Map<String, String> matchingValues;
+	private final CompiledScript script;
+
+	private final String sucMessage;
+	private final MessageTemplate sucTemplate;
+	private final Action sucAction;
+	private final String sucValue;
+	private final Operation sucOperation;
+	private final int sucMoveTo;
+
+	private final String errMessage;
+	private final MessageTemplate errTemplate;
+	private final Action errAction;
+	private final String errValue;
+	private final Operation errOperation;
+	private final int errMoveTo;
+
+	private final FlowGraph graph;
+
+	// Set once by FlowCompiler when all the nodes exist.
+	FlowNode sucNext;
+	FlowNode errNext;
+
+	FlowNode(FlowGraph graph, int id, String message, Validator validator, String valCondition, String[] inList, double[] interval,
+			Map<String, Branch> matchingList, Map<String, String> matchingValues, CompiledScript script,
+			String sucMessage, Action sucAction, String sucValue, Operation sucOperation, int sucMoveTo,
+			String errMessage, Action errAction, String errValue, Operation errOperation, int errMoveTo) {
+		this.graph = graph;
+		this.id = id;
+		this.message = message;
+		this.messageTemplate = MessageTemplate.compile(message);
+		this.validator = validator;
+		this.valCondition = valCondition;
+		this.inList = inList;
+		this.hasInterval = interval != null;
+		this.intervalMin = interval != null ? interval[0] : 0;
+		this.intervalMax = interval != null ? interval[1] : 0;
+		this.matchingList = matchingList != null ? Collections.unmodifiableMap(matchingList) : Collections.emptyMap();
+		this.matchingValues = matchingValues != null ? Collections.unmodifiableMap(matchingValues) : Collections.emptyMap();
+		this.script = script;
+		this.sucMessage = sucMessage;
+		this.sucTemplate = MessageTemplate.compile(sucMessage);
+		this.sucAction = sucAction;
+		this.sucValue = sucValue;
+		this.sucOperation = sucOperation;
+		this.sucMoveTo = sucMoveTo;
+		this.errMessage = errMessage;
+		this.errTemplate = MessageTemplate.compile(errMessage);
+		this.errAction = errAction;
+		this.errValue = errValue;
+		this.errOperation = errOperation;
+		this.errMoveTo = errMoveTo;
+	}
+
+	/**
+	 * @return Node id, as in the RIA file.
+	 */
+	public int getId() { return this.id; }
+
+	/**
+	 * @return Node message, as in the RIA file.
+	 */
+	public String getMessage() { return this.message; }
+
+	/**
+	 * @return Compiled node message.
+	 */
+	public MessageTemplate getMessageTemplate() { return this.messageTemplate; }
+
+	/**
+	 * @return Validator of the condition type.
+	 */
+	public Validator getValidator() { return this.validator; }
+
+	/**
+	 * @return Condition validation value.
+	 */
+	public String getValCondition() { return this.valCondition; }
+
+	/**
+	 * @return text:in_list values.
+	 */
+	public String[] getInList() { return this.inList; }
+
+	/**
+	 * @return True if the number:interval condition is valid.
+	 */
+	public boolean hasInterval() { return this.hasInterval; }
+
+	/**
+	 * @return Lower bound of the number:interval condition.
+	 */
+	public double getIntervalMin() { return this.intervalMin; }
+
+	/**
+	 * @return Upper bound of the number:interval condition.
+	 */
+	public double getIntervalMax() { return this.intervalMax; }
+
+	/**
+	 * @return matching_list user responses and their targets.
+	 */
+	public Map<String, Branch> getMatchingList() { return this.matchingList; }
+
+	/**
+	 * @return matching_values user responses and their values.
+	 */
+	public Map<String, String> getMatchingValues() { return this.matchingValues; }
+
+	/**
+	 * @return The compiled script of a script node, null otherwise.
+	 */
+	public CompiledScript getScript() { return this.script; }
+
+	/**
+	 * @return Success message, as in the RIA file.
+	 */
+	public String getSucMessage() { return this.sucMessage; }
+
+	/**
+	 * @return Compiled success message.
+	 */
+	public MessageTemplate getSucTemplate() { return this.sucTemplate; }
+
+	/**
+	 * @return Success action.
+	 */
+	public Action getSucAction() { return this.sucAction; }
+
+	/**
+	 * @return Success action value.
+	 */
+	public String getSucValue() { return this.sucValue; }
+
+	/**
+	 * @return The parsed success variable:operation, null if malformed or not an operation.
+	 */
+	public Operation getSucOperation() { return this.sucOperation; }
+
+	/**
+	 * @return Id of the success node, as in the RIA file.
+	 */
+	public int getSucMoveTo() { return this.sucMoveTo; }
+
+	/**
+	 * @return The success node, null if none.
+	 */
+	public FlowNode getSucNext() { return this.sucNext; }
+
+	/**
+	 * @return Error message, as in the RIA file.
+	 */
+	public String getErrMessage() { return this.errMessage; }
+
+	/**
+	 * @return Compiled error message.
+	 */
+	public MessageTemplate getErrTemplate() { return this.errTemplate; }
+
+	/**
+	 * @return Error action.
+	 */
+	public Action getErrAction() { return this.errAction; }
+
+	/**
+	 * @return Error action value.
+	 */
+	public String getErrValue() { return this.errValue; }
+
+	/**
+	 * @return The parsed error variable:operation, null if malformed or not an operation.
+	 */
+	public Operation getErrOperation() { return this.errOperation; }
+
+	/**
+	 * @return Id of the error node, as in the RIA file.
+	 */
+	public int getErrMoveTo() { return this.errMoveTo; }
+
+	/**
+	 * @return The error node, null if none.
+	 */
+	public FlowNode getErrNext() { return this.errNext; }
+
+	/**
+	 * @return The flow graph, and so the RIA file version, this node belongs to.
+	 */
+	public FlowGraph getGraph() { return this.graph; }
+}
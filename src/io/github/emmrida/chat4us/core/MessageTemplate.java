@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bot message split once into literal texts and {:var_name:} session variable references.
+ * Line breaks are removed as the chat clients expect single line messages.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public final class MessageTemplate {
+	private static final String VAR_START = "{:"; //$NON-NLS-1$
+	private static final String VAR_END = ":}"; //$NON-NLS-1$
+	private static final int VAR_VALUE_HINT = 16;
+
+	private final String text;
+	private final String[] segments; // literal, var, literal, var, ..., literal
+	private final int literalsLength;
+
+	private MessageTemplate(String text, String[] segments, int literalsLength) {
+		this.text = text;
+		this.segments = segments;
+		this.literalsLength = literalsLength;
+	}
+
+	/**
+	 * Splits a bot message into its literal texts and variable references.
+	 * @param msg Bot message.
+	 * @return The message template.
+	 */
+	public static MessageTemplate compile(String msg) {
+		String text = msg.indexOf('\n') >= 0 ? msg.replace("\n", "") : msg; //$NON-NLS-1$ //$NON-NLS-2$
+		int start = text.indexOf(VAR_START);
+		if(start < 0)
+			return new MessageTemplate(text, null, text.length());
+		List<String> segments = new ArrayList<>();
+		int from = 0;
+		int length = 0;
+		int end;
+		while(start >= 0 && (end = text.indexOf(VAR_END, start + VAR_START.length())) >= 0) {
+			segments.add(text.substring(from, start));
+			segments.add(text.substring(start + VAR_START.length(), end));
+			length += start - from;
+			from = end + VAR_END.length();
+			start = text.indexOf(VAR_START, from);
+		}
+		if(segments.isEmpty())
+			return new MessageTemplate(text, null, text.length());
+		segments.add(text.substring(from));
+		length += text.length() - from;
+		return new MessageTemplate(text, segments.toArray(new String[segments.size()]), length);
+	}
+
+	/**
+	 * @return The message without line breaks, placeholders not replaced.
+	 */
+	public String getText() { return this.text; }
+
+	/**
+	 * @return True if the message has no variable reference.
+	 */
+	public boolean isStatic() { return this.segments == null; }
+
+	/**
+	 * Replaces the variable references by their values in a chat session, empty if not defined.
+	 * @param ses Chat session.
+	 * @return The message to send.
+	 */
+	public String render(ChatSession ses) {
+		if(this.segments == null)
+			return this.text;
+		StringBuilder sb = new StringBuilder(this.literalsLength + (this.segments.length / 2) * VAR_VALUE_HINT);
+		for(int i = 0; i < this.segments.length; i++) {
+			if((i & 1) == 0) {
+				sb.append(this.segments[i]);
+			} else sb.append(ses.getVar(this.segments[i], "")); //$NON-NLS-1$
+		}
+		return sb.toString();
+	}
+}
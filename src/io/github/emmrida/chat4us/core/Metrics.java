@@ -0,0 +1,271 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Runtime metrics of the chat servers, rendered in the Prometheus text format by the /metrics
+ * path of each chat server. Counters are LongAdders and latencies go to log-linear histograms,
+ * so recording costs a few atomic adds. Series of the hot paths are looked up once and kept
+ * by their callers, in final fields, one per label values combination, when the values are
+ * known up front. Gauges are computed when the metrics are rendered, as are the JVM heap, GC and
+ * thread figures.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public final class Metrics {
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8"; //$NON-NLS-1$
+
+	private static final String COUNTER = "counter"; //$NON-NLS-1$
+	private static final String GAUGE = "gauge"; //$NON-NLS-1$
+	private static final String HISTOGRAM = "histogram"; //$NON-NLS-1$
+
+	private static Metrics instance = null;
+
+	/**
+	 * Latency histogram. Buckets are powers of two split in two halves, from 16µs to 137s,
+	 * so a bucket upper bound is at most 50% above the values it counts.
+	 */
+	public static final class Histogram {
+		private static final int MIN_SHIFT = 14; // 16µs
+		private static final int MAX_SHIFT = 37; // 137s
+		private static final int BUCKETS = (MAX_SHIFT - MIN_SHIFT) * 2 + 1; // Last one is +Inf
+
+		private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+		private final LongAdder sumNanos = new LongAdder();
+
+		private Histogram() {}
+
+		/**
+		 * Records a duration.
+		 * @param nanos Duration in nanoseconds.
+		 */
+		public void record(long nanos) {
+			this.counts.incrementAndGet(bucket(nanos));
+			this.sumNanos.add(Math.max(0L, nanos));
+		}
+
+		/**
+		 * @return Number of durations recorded.
+		 */
+		public long getCount() {
+			long n = 0L;
+			for(int i = 0; i < BUCKETS; i++)
+				n += this.counts.get(i);
+			return n;
+		}
+
+		static int bucket(long nanos) {
+			if(nanos < (1L << MIN_SHIFT))
+				return 0;
+			int k = 63 - Long.numberOfLeadingZeros(nanos);
+			if(k >= MAX_SHIFT)
+				return BUCKETS - 1;
+			return (k - MIN_SHIFT) * 2 + (int)((nanos >>> (k - 1)) & 1L);
+		}
+
+		static long upperBound(int bucket) {
+			int k = MIN_SHIFT + bucket / 2;
+			return (bucket & 1) == 0 ? 3L << (k - 1) : 1L << (k + 1);
+		}
+
+		private void render(StringBuilder sb, String name, String labels) {
+			String sep = labels.isEmpty() ? "" : ","; //$NON-NLS-1$ //$NON-NLS-2$
+			long cumul = 0L;
+			for(int i = 0; i < BUCKETS - 1; i++) {
+				cumul += this.counts.get(i);
+				sb.append(name).append("_bucket{").append(labels).append(sep).append("le=\"") //$NON-NLS-1$ //$NON-NLS-2$
+				  .append(upperBound(i) / 1e9).append("\"} ").append(cumul).append('\n'); //$NON-NLS-1$
+			}
+			cumul += this.counts.get(BUCKETS - 1);
+			sb.append(name).append("_bucket{").append(labels).append(sep).append("le=\"+Inf\"} ").append(cumul).append('\n'); //$NON-NLS-1$ //$NON-NLS-2$
+			sb.append(name).append("_sum").append(braces(labels)).append(' ').append(this.sumNanos.sum() / 1e9).append('\n'); //$NON-NLS-1$
+			sb.append(name).append("_count").append(braces(labels)).append(' ').append(cumul).append('\n'); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Metrics of the same name, one series per label set.
+	 */
+	private static final class Family {
+		private final String help;
+		private final String type;
+		private final Map<String, Object> series = new ConcurrentHashMap<>(); // Key: rendered labels
+
+		private Family(String help, String type) {
+			this.help = help;
+			this.type = type;
+		}
+	}
+
+	private final Map<String, Family> families = new ConcurrentHashMap<>();
+
+	private Metrics() {}
+
+	/**
+	 * @return The metrics instance.
+	 */
+	public static synchronized Metrics getInstance() {
+		if(instance == null)
+			instance = new Metrics();
+		return instance;
+	}
+
+	/**
+	 * Returns a counter, created on first use.
+	 * @param name Metric name, ending with _total.
+	 * @param help Metric description.
+	 * @param labels Label names and values, in pairs.
+	 * @return The counter.
+	 */
+	public LongAdder counter(String name, String help, String... labels) {
+		return (LongAdder)series(name, help, COUNTER, labels(labels), null);
+	}
+
+	/**
+	 * Returns a latency histogram, created on first use.
+	 * @param name Metric name, ending with _seconds.
+	 * @param help Metric description.
+	 * @param labels Label names and values, in pairs.
+	 * @return The histogram.
+	 */
+	public Histogram histogram(String name, String help, String... labels) {
+		return (Histogram)series(name, help, HISTOGRAM, labels(labels), null);
+	}
+
+	/**
+	 * Registers a gauge computed when the metrics are rendered. Replaces the gauge of the same labels.
+	 * @param name Metric name.
+	 * @param help Metric description.
+	 * @param value Gauge value supplier.
+	 * @param labels Label names and values, in pairs.
+	 */
+	public void gauge(String name, String help, LongSupplier value, String... labels) {
+		series(name, help, GAUGE, labels(labels), value);
+	}
+
+	/**
+	 * @param aiServerId Id of the ai_servers record.
+	 * @param client AI model client kind.
+	 * @return Response time histogram of an AI model server.
+	 */
+	public Histogram aiRequestSeconds(int aiServerId, String client) {
+		return histogram("chat4us_ai_request_seconds", "AI model servers response time.", "ai_server", String.valueOf(aiServerId), "client", client); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+	/**
+	 * @param aiServerId Id of the ai_servers record.
+	 * @param client AI model client kind.
+	 * @return Failed queries counter of an AI model server.
+	 */
+	public LongAdder aiErrors(int aiServerId, String client) {
+		return counter("chat4us_ai_errors_total", "AI model servers failed queries.", "ai_server", String.valueOf(aiServerId), "client", client); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+	/**
+	 * Removes the series having a label value, as the gauges of a stopped chat server.
+	 * @param label Label name.
+	 * @param value Label value.
+	 */
+	public void remove(String label, String value) {
+		String pair = label + "=\"" + escape(value) + "\""; //$NON-NLS-1$ //$NON-NLS-2$
+		for(Family f : this.families.values())
+			f.series.keySet().removeIf(k -> k.equals(pair) || k.startsWith(pair + ",") || k.contains("," + pair)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private Object series(String name, String help, String type, String labels, LongSupplier gauge) {
+		Family f = this.families.computeIfAbsent(name, n -> new Family(help, type));
+		if(!f.type.equals(type))
+			throw new IllegalArgumentException(name);
+		if(gauge != null) {
+			f.series.put(labels, gauge);
+			return gauge;
+		}
+		return f.series.computeIfAbsent(labels, l -> HISTOGRAM.equals(type) ? new Histogram() : new LongAdder());
+	}
+
+	/**
+	 * Renders all the metrics and the JVM ones in the Prometheus text format.
+	 * @return Metrics text.
+	 */
+	public String render() {
+		StringBuilder sb = new StringBuilder(16 * 1024);
+		for(Map.Entry<String, Family> entry : new TreeMap<>(this.families).entrySet()) {
+			Family f = entry.getValue();
+			if(f.series.isEmpty())
+				continue;
+			String name = entry.getKey();
+			header(sb, name, f.help, f.type);
+			for(Map.Entry<String, Object> s : new TreeMap<>(f.series).entrySet()) {
+				Object m = s.getValue();
+				if(m instanceof Histogram) {
+					((Histogram)m).render(sb, name, s.getKey());
+				} else {
+					long v = m instanceof LongAdder ? ((LongAdder)m).sum() : ((LongSupplier)m).getAsLong();
+					sb.append(name).append(braces(s.getKey())).append(' ').append(v).append('\n');
+				}
+			}
+		}
+		renderJvm(sb);
+		return sb.toString();
+	}
+
+	private static void renderJvm(StringBuilder sb) {
+		MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+		header(sb, "jvm_memory_used_bytes", "Memory used.", GAUGE); //$NON-NLS-1$ //$NON-NLS-2$
+		sb.append("jvm_memory_used_bytes{area=\"heap\"} ").append(heap.getUsed()).append('\n'); //$NON-NLS-1$
+		sb.append("jvm_memory_used_bytes{area=\"nonheap\"} ").append(nonHeap.getUsed()).append('\n'); //$NON-NLS-1$
+		header(sb, "jvm_memory_committed_bytes", "Memory committed.", GAUGE); //$NON-NLS-1$ //$NON-NLS-2$
+		sb.append("jvm_memory_committed_bytes{area=\"heap\"} ").append(heap.getCommitted()).append('\n'); //$NON-NLS-1$
+		sb.append("jvm_memory_committed_bytes{area=\"nonheap\"} ").append(nonHeap.getCommitted()).append('\n'); //$NON-NLS-1$
+		header(sb, "jvm_memory_max_bytes", "Memory max, -1 if undefined.", GAUGE); //$NON-NLS-1$ //$NON-NLS-2$
+		sb.append("jvm_memory_max_bytes{area=\"heap\"} ").append(heap.getMax()).append('\n'); //$NON-NLS-1$
+		header(sb, "jvm_gc_collections_total", "Garbage collections.", COUNTER); //$NON-NLS-1$ //$NON-NLS-2$
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			sb.append("jvm_gc_collections_total{gc=\"").append(escape(gc.getName())).append("\"} ").append(Math.max(0L, gc.getCollectionCount())).append('\n'); //$NON-NLS-1$ //$NON-NLS-2$
+		header(sb, "jvm_gc_collection_seconds_total", "Time spent in garbage collections.", COUNTER); //$NON-NLS-1$ //$NON-NLS-2$
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			sb.append("jvm_gc_collection_seconds_total{gc=\"").append(escape(gc.getName())).append("\"} ").append(Math.max(0L, gc.getCollectionTime()) / 1e3).append('\n'); //$NON-NLS-1$ //$NON-NLS-2$
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		header(sb, "jvm_threads", "Live threads.", GAUGE); //$NON-NLS-1$ //$NON-NLS-2$
+		sb.append("jvm_threads{kind=\"all\"} ").append(threads.getThreadCount()).append('\n'); //$NON-NLS-1$
+		sb.append("jvm_threads{kind=\"daemon\"} ").append(threads.getDaemonThreadCount()).append('\n'); //$NON-NLS-1$
+		sb.append("jvm_threads{kind=\"peak\"} ").append(threads.getPeakThreadCount()).append('\n'); //$NON-NLS-1$
+	}
+
+	private static void header(StringBuilder sb, String name, String help, String type) {
+		sb.append("# HELP ").append(name).append(' ').append(help).append('\n'); //$NON-NLS-1$
+		sb.append("# TYPE ").append(name).append(' ').append(type).append('\n'); //$NON-NLS-1$
+	}
+
+	private static String braces(String labels) { return labels.isEmpty() ? "" : "{" + labels + "}"; } //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+	private static String labels(String... pairs) {
+		if(pairs.length % 2 != 0)
+			throw new IllegalArgumentException();
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < pairs.length; i += 2) {
+			if(i > 0)
+				sb.append(',');
+			sb.append(pairs[i]).append("=\"").append(escape(pairs[i + 1])).append('"'); //$NON-NLS-1$
+		}
+		return sb.toString();
+	}
+
+	private static String escape(String value) {
+		return String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+	}
+}
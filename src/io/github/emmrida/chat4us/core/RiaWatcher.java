@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.github.emmrida.chat4us.util.Helper;
+import io.github.emmrida.chat4us.util.Messages;
+
+/**
+ * Watches the RIA files of the running chat bot servers and reloads them when they change.
+ * Reloads run in background once the file has not changed for a moment, the chat bot client
+ * swaps the new version in at once and the running chats finish on the version they started
+ * with. A RIA file that fails to load leaves the running version in place.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public final class RiaWatcher {
+	private static final long RELOAD_DELAY_MILLIS = 1000L;
+
+	private static RiaWatcher instance = null;
+
+	private final Set<ChatBotClient> clients = new HashSet<>();
+	private final Map<ChatBotClient, ScheduledFuture<?>> pending = new HashMap<>();
+	private final Set<Path> folders = new HashSet<>();
+	private final ScheduledExecutorService reloader;
+	private WatchService watchService = null;
+
+	private RiaWatcher() {
+		this.reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "RiaReloader"); //$NON-NLS-1$
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		});
+	}
+
+	/**
+	 * @return The RIA watcher instance.
+	 */
+	public static synchronized RiaWatcher getInstance() {
+		if(instance == null)
+			instance = new RiaWatcher();
+		return instance;
+	}
+
+	/**
+	 * Starts watching the RIA files of a chat bot client.
+	 * @param client Chat bot client.
+	 */
+	public synchronized void watch(ChatBotClient client) {
+		this.clients.add(client);
+		register(client);
+	}
+
+	/**
+	 * Stops watching the RIA files of a chat bot client.
+	 * @param client Chat bot client.
+	 */
+	public synchronized void unwatch(ChatBotClient client) {
+		this.clients.remove(client);
+		ScheduledFuture<?> future = this.pending.remove(client);
+		if(future != null)
+			future.cancel(false);
+	}
+
+	/**
+	 * Registers the folders of the client RIA files, starting the watch thread on first use.
+	 */
+	private void register(ChatBotClient client) {
+		if(this.watchService == null) {
+			try {
+				this.watchService = FileSystems.getDefault().newWatchService();
+			} catch(IOException ex) {
+				Helper.logWarning(ex, Messages.getString("RiaWatcher.SERVICE_ERROR")); //$NON-NLS-1$
+				return;
+			}
+			Thread t = new Thread(this::run, "RiaWatcher"); //$NON-NLS-1$
+			t.setDaemon(true);
+			t.start();
+		}
+		for(String riaFile : client.getRiaFiles()) {
+			Path folder = toPath(riaFile).getParent();
+			if(folder != null && !this.folders.contains(folder)) {
+				try {
+					folder.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+					this.folders.add(folder);
+				} catch(IOException ex) {
+					Helper.logWarning(ex, String.format(Messages.getString("RiaWatcher.WATCH_ERROR"), folder)); //$NON-NLS-1$
+				}
+			}
+		}
+	}
+
+	private void run() {
+		while(true) {
+			WatchKey key;
+			try {
+				key = this.watchService.take();
+			} catch(InterruptedException ex) {
+				return;
+			}
+			Path folder = (Path)key.watchable();
+			for(WatchEvent<?> event : key.pollEvents()) {
+				if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					changed(folder, null);
+				} else changed(folder, folder.resolve((Path)event.context()));
+			}
+			if(!key.reset()) {
+				synchronized(this) {
+					this.folders.remove(folder);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Schedules the reload of the clients using a changed file, or any file of the folder if null.
+	 */
+	private synchronized void changed(Path folder, Path file) {
+		for(ChatBotClient client : this.clients) {
+			for(String riaFile : client.getRiaFiles()) {
+				Path path = toPath(riaFile);
+				if(file != null ? path.equals(file) : folder.equals(path.getParent())) {
+					ScheduledFuture<?> future = this.pending.get(client);
+					if(future != null)
+						future.cancel(false);
+					this.pending.put(client, this.reloader.schedule(() -> reload(client), RELOAD_DELAY_MILLIS, TimeUnit.MILLISECONDS));
+					break;
+				}
+			}
+		}
+	}
+
+	private void reload(ChatBotClient client) {
+		synchronized(this) {
+			if(!this.clients.contains(client))
+				return;
+			this.pending.remove(client);
+		}
+		try {
+			client.reloadRIAs();
+			Helper.logInfo(String.format(Messages.getString("RiaWatcher.RELOADED"), client.getChatBotName(), client.getVersion())); //$NON-NLS-1$
+			synchronized(this) {
+				register(client); // Localized RIA files may be in other folders
+			}
+		} catch(Exception ex) {
+			Helper.logWarning(ex, String.format(Messages.getString("RiaWatcher.RELOAD_ERROR"), client.getRiaFileName())); //$NON-NLS-1$
+		}
+	}
+
+	private static Path toPath(String riaFile) {
+		return Path.of(riaFile).toAbsolutePath().normalize();
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.caoccao.javet.exceptions.JavetException;
+import com.caoccao.javet.exceptions.JavetTerminatedException;
+import com.caoccao.javet.interop.V8Runtime;
+import com.caoccao.javet.values.reference.V8ValuePromise;
+
+import io.github.emmrida.chat4us.core.CompiledScriptCache.CompiledScript;
+
+/**
+ * State of the script running on the current thread. ScriptEx async functions use it to hand
+ * promises to the script, and the runner settles them on the V8 thread once the background
+ * work is done, as V8 values can only be used by the thread running the script.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public final class ScriptContext {
+	private static final ThreadLocal<ScriptContext> CURRENT = new ThreadLocal<>();
+
+	private final V8Runtime v8Runtime;
+	private final CompiledScript script;
+	private final BlockingQueue<Completion> completions;
+	private int outstanding;
+
+	/**
+	 * Init a script context.
+	 * @param v8Runtime Runtime running the script.
+	 * @param script Running script.
+	 */
+	private ScriptContext(V8Runtime v8Runtime, CompiledScript script) {
+		this.v8Runtime = v8Runtime;
+		this.script = script;
+		this.completions = new LinkedBlockingQueue<>();
+		this.outstanding = 0;
+	}
+
+	/**
+	 * Binds a new script context to the current thread.
+	 * @param v8Runtime Runtime running the script.
+	 * @param script Running script.
+	 * @return The new context.
+	 */
+	static ScriptContext enter(V8Runtime v8Runtime, CompiledScript script) {
+		ScriptContext ctx = new ScriptContext(v8Runtime, script);
+		CURRENT.set(ctx);
+		return ctx;
+	}
+
+	/**
+	 * Unbinds the script context of the current thread.
+	 */
+	static void exit() {
+		CURRENT.remove();
+	}
+
+	/**
+	 * @return The context of the script running on the current thread, null if none.
+	 */
+	public static ScriptContext current() { return CURRENT.get(); }
+
+	/**
+	 * @return The running script.
+	 */
+	public CompiledScript getScript() { return this.script; }
+
+	/**
+	 * Returns a promise to the script that is settled with the result of a background task.
+	 * Must be called from the script thread.
+	 * @param future Background task.
+	 * @return The promise to return to the script.
+	 * @throws JavetException
+	 */
+	public V8ValuePromise toPromise(CompletableFuture<?> future) throws JavetException {
+		V8ValuePromise resolver = v8Runtime.createV8ValuePromise();
+		outstanding++;
+		future.whenComplete((value, ex) -> completions.offer(new Completion(resolver, value, ex)));
+		return resolver.getPromise();
+	}
+
+	/**
+	 * Settles the promises handed to the script as their tasks complete, running the
+	 * script continuations after each one, until no task is left.
+	 * @param deadline System.nanoTime() value after which the script is terminated.
+	 * @throws JavetException
+	 */
+	void awaitPending(long deadline) throws JavetException {
+		v8Runtime.await();
+		Completion c;
+		while(outstanding > 0) {
+			long remaining = deadline - System.nanoTime();
+			try {
+				c = remaining > 0 ? completions.poll(remaining, TimeUnit.NANOSECONDS) : null;
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				c = null;
+			}
+			if(c == null)
+				throw new JavetTerminatedException(false);
+			outstanding--;
+			try (V8ValuePromise resolver = c.resolver) {
+				if(c.error != null) {
+					Throwable err = c.error instanceof CompletionException && c.error.getCause() != null ? c.error.getCause() : c.error;
+					resolver.reject(String.valueOf(err.getMessage()));
+				} else resolver.resolve(c.value);
+			}
+			v8Runtime.await();
+		}
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * A completed background task and the promise to settle.
+	 */
+	private static class Completion {
+		private final V8ValuePromise resolver;
+		private final Object value;
+		private final Throwable error;
+
+		private Completion(V8ValuePromise resolver, Object value, Throwable error) {
+			this.resolver = resolver;
+			this.value = value;
+			this.error = error;
+		}
+	}
+}
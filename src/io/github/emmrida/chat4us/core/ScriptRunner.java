@@ -0,0 +1,368 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.caoccao.javet.exceptions.JavetException;
+import com.caoccao.javet.exceptions.JavetTerminatedException;
+import com.caoccao.javet.interop.V8Runtime;
+import com.caoccao.javet.values.V8Value;
+import com.caoccao.javet.values.primitive.V8ValueDouble;
+import com.caoccao.javet.values.primitive.V8ValueInteger;
+import com.caoccao.javet.values.reference.V8ValueGlobalObject;
+import com.caoccao.javet.values.reference.V8ValuePromise;
+
+import io.github.emmrida.chat4us.core.CompiledScriptCache.CompiledScript;
+import io.github.emmrida.chat4us.util.Helper;
+import io.github.emmrida.chat4us.util.Messages;
+
+/**
+ * Runs the compiled RIA scripts on a pooled runtime against a chat session.
+ * Only the session variables the script refers to are defined as globals and only the
+ * ones whose value changed are written back. Scripts can also read and write the session
+ * variables lazily through the global 'session' object.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public final class ScriptRunner {
+	public static final String SESSION_OBJECT = "session"; //$NON-NLS-1$
+	public static final long DEF_SCRIPT_TIMEOUT_MS = 30000L;
+
+	// Identifiers that let a script reach globals by a computed name.
+	private static final Set<String> REGEX_KEYWORDS = Set.of("return", "typeof", "instanceof", "in", "of", "new", "delete", "void", "throw", "case", "do", "else", "yield", "await"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$ //$NON-NLS-12$ //$NON-NLS-13$ //$NON-NLS-14$
+	private static final Set<String> DYNAMIC_GLOBALS = Set.of("this", "globalThis", "eval", "Function", "with", "self", "window"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+
+	private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "ScriptWatchdog"); //$NON-NLS-1$
+		t.setDaemon(true);
+		return t;
+	});
+
+	private static final LongAdder scriptsRun = new LongAdder();
+	private static final LongAdder scriptsKilled = new LongAdder();
+	private static final LongAdder scriptsNanos = new LongAdder();
+	private static final Metrics.Histogram botScriptSeconds = Metrics.getInstance().histogram("chat4us_script_seconds", "Bot and node scripts execution time.", "script", "bot"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	private static final Metrics.Histogram nodeScriptSeconds = Metrics.getInstance().histogram("chat4us_script_seconds", "Bot and node scripts execution time.", "script", "node"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	private static final LongAdder scriptsKilledTotal = Metrics.getInstance().counter("chat4us_scripts_killed_total", "Scripts terminated by the watchdog."); //$NON-NLS-1$ //$NON-NLS-2$
+
+	private ScriptRunner() {}
+
+	/**
+	 * Executes a compiled script. The 'response' global holds the user/AI response and the
+	 * session variables are synchronized before and after the execution. The script is
+	 * terminated by the watchdog when it runs longer than the session script budget.
+	 * @param script Compiled script to execute.
+	 * @param ses Chat session object.
+	 * @param response User/AI response.
+	 * @return The script result.
+	 * @throws JavetException
+	 */
+	public static Integer execute(CompiledScript script, ChatSession ses, String response) throws JavetException {
+		try (V8RuntimePool.Lease lease = V8RuntimePool.getInstance().borrow()) {
+			V8Runtime v8Runtime = lease.getRuntime();
+			SessionVars sessionVars = new SessionVars(ses);
+			try (V8ValueGlobalObject global = v8Runtime.getGlobalObject()) {
+				global.set("response", response); //$NON-NLS-1$
+				global.set(SESSION_OBJECT, sessionVars);
+				List<Map.Entry<String, String>> synced = syncVars(global, script.getGlobals(), ses);
+				Integer ret = executeWithBudget(script, lease, ses.getScriptTimeout());
+				String value;
+				for(Map.Entry<String, String> entry : synced) {
+					if(sessionVars.isWritten(entry.getKey()))
+						continue;
+					try (V8Value v8Value = global.get(entry.getKey())) {
+						if(v8Value.isUndefined())
+							continue;
+						value = v8Value.toString();
+					}
+					if(!value.equals(entry.getValue()))
+						ses.setVar(entry.getKey(), value); // Through the session so as the change is journaled
+				}
+				return ret;
+			}
+		}
+	}
+
+	/**
+	 * Runs a script under the watchdog. Once the budget is spent the V8 execution is terminated
+	 * and the runtime is discarded instead of going back to the pool. Promises returned by the
+	 * ScriptEx async functions are settled here, on the script thread, within the same budget.
+	 * @param script Compiled script to execute.
+	 * @param lease Runtime lease.
+	 * @param timeoutMs Wall-clock budget in milliseconds.
+	 * @return The script result, the settled value if the script returned a promise.
+	 * @throws JavetException
+	 */
+	private static Integer executeWithBudget(CompiledScript script, V8RuntimePool.Lease lease, long timeoutMs) throws JavetException {
+		V8Runtime v8Runtime = lease.getRuntime();
+		Watch watch = new Watch(v8Runtime);
+		ScheduledFuture<?> future = WATCHDOG.schedule(watch, timeoutMs, TimeUnit.MILLISECONDS);
+		long start = System.nanoTime();
+		ScriptContext ctx = ScriptContext.enter(v8Runtime, script);
+		try {
+			Integer ret;
+			try (V8Value result = script.execute(v8Runtime)) {
+				ctx.awaitPending(start + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+				ret = toInteger(script, result);
+			}
+			if(watch.finish())
+				throw new JavetTerminatedException(false);
+			return ret;
+		} catch(JavetException ex) {
+			if(ex instanceof JavetTerminatedException)
+				watch.run();
+			if(watch.finish()) {
+				lease.discard();
+				scriptsKilled.increment();
+				scriptsKilledTotal.increment();
+				Helper.logWarning(String.format(Messages.getString("ScriptRunner.SCRIPT_TERMINATED"), script.getScriptId(), script.getRiaFile(), timeoutMs)); //$NON-NLS-1$
+			}
+			throw ex;
+		} finally {
+			ScriptContext.exit();
+			future.cancel(false);
+			long nanos = System.nanoTime() - start;
+			scriptsRun.increment();
+			scriptsNanos.add(nanos);
+			(script.getScriptId().startsWith(CompiledScriptCache.NODE_SCRIPT_ID) ? nodeScriptSeconds : botScriptSeconds).record(nanos);
+		}
+	}
+
+	/**
+	 * Converts a script result to a node id.
+	 * @param script Executed script.
+	 * @param result Script result.
+	 * @return The node id or null if the result is not a number.
+	 * @throws JavetException
+	 */
+	private static Integer toInteger(CompiledScript script, V8Value result) throws JavetException {
+		if(result instanceof V8ValuePromise) {
+			V8ValuePromise promise = (V8ValuePromise)result;
+			if(promise.isRejected()) {
+				try (V8Value reason = promise.getResult()) {
+					Helper.logWarning(String.format(Messages.getString("ScriptRunner.SCRIPT_PROMISE_REJECTED"), script.getScriptId(), script.getRiaFile(), reason)); //$NON-NLS-1$
+				}
+				return null;
+			}
+			if(!promise.isFulfilled())
+				return null;
+			try (V8Value value = promise.getResult()) {
+				return toInteger(script, value);
+			}
+		}
+		if(result instanceof V8ValueInteger)
+			return ((V8ValueInteger)result).getValue();
+		if(result instanceof V8ValueDouble)
+			return ((V8ValueDouble)result).getValue().intValue();
+		return null;
+	}
+
+	/**
+	 * @return Number of the scripts executed.
+	 */
+	public static long getScriptsRun() { return scriptsRun.sum(); }
+
+	/**
+	 * @return Number of the scripts terminated by the watchdog.
+	 */
+	public static long getScriptsKilled() { return scriptsKilled.sum(); }
+
+	/**
+	 * @return Total time spent running scripts in milliseconds.
+	 */
+	public static long getScriptsMillis() { return scriptsNanos.sum() / 1000000L; }
+
+	/**
+	 * Defines as globals the session variables a script refers to.
+	 * @param global V8 global object.
+	 * @param names Global names used by the script, null to define all the variables.
+	 * @param ses Chat session object.
+	 * @return The defined session variables.
+	 * @throws JavetException
+	 */
+	private static List<Map.Entry<String, String>> syncVars(V8ValueGlobalObject global, Set<String> names, ChatSession ses) throws JavetException {
+		Set<Map.Entry<String, String>> vars = ses.getVarsSet();
+		List<Map.Entry<String, String>> synced = new ArrayList<>(names == null ? vars.size() : Math.min(names.size(), vars.size()));
+		for(Map.Entry<String, String> entry : vars) {
+			if(names == null || names.contains(entry.getKey())) {
+				global.set(entry.getKey(), entry.getValue());
+				synced.add(entry);
+			}
+		}
+		return synced;
+	}
+
+	/**
+	 * Collects the identifiers of a script source. Comments and string literals are skipped.
+	 * Template literals and regex literals are not parsed, the scan gives up on a backtick or
+	 * on a slash which is not clearly a division so as all the variables are synchronized.
+	 * @param source Script source.
+	 * @return Identifiers found in the script, or null if the script may reach globals by name
+	 * or could not be scanned.
+	 */
+	static Set<String> scanGlobals(String source) {
+		Set<String> names = new HashSet<>();
+		int len = source.length();
+		int i = 0;
+		char c;
+		char prev = 0; // Last significant char
+		String prevWord = null; // Last identifier if it is the last token
+		while(i < len) {
+			c = source.charAt(i);
+			if(c == '/' && i + 1 < len && source.charAt(i + 1) == '/') {
+				i = source.indexOf('\n', i);
+				if(i < 0)
+					break;
+			} else if(c == '/' && i + 1 < len && source.charAt(i + 1) == '*') {
+				i = source.indexOf("*/", i + 2); //$NON-NLS-1$
+				if(i < 0)
+					break;
+				i += 2;
+			} else if(c == '`') {
+				return null; // Template literal
+			} else if(c == '/') {
+				boolean division = prevWord != null ? !REGEX_KEYWORDS.contains(prevWord) : prev == ']' || Character.isJavaIdentifierPart(prev);
+				if(!division)
+					return null; // Regex literal, or ambiguous as after ')'
+				prev = c;
+				prevWord = null;
+				i++;
+			} else if(c == '\'' || c == '"') {
+				i++;
+				while(i < len && source.charAt(i) != c) {
+					if(source.charAt(i) == '\\')
+						i++;
+					i++;
+				}
+				i++;
+				prev = c;
+				prevWord = null;
+			} else if(Character.isJavaIdentifierStart(c)) {
+				int start = i;
+				while(i < len && Character.isJavaIdentifierPart(source.charAt(i)))
+					i++;
+				String name = source.substring(start, i);
+				if(DYNAMIC_GLOBALS.contains(name))
+					return null;
+				names.add(name);
+				prev = source.charAt(i - 1);
+				prevWord = name;
+			} else {
+				if(!Character.isWhitespace(c)) {
+					prev = c;
+					prevWord = null;
+				}
+				i++;
+			}
+		}
+		return names;
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Watchdog task of a running script. The script end and its termination exclude each other
+	 * so as a late watchdog never terminates the next script run by the same runtime.
+	 */
+	private static class Watch implements Runnable {
+		private final V8Runtime v8Runtime;
+		private boolean done;
+		private boolean terminated;
+
+		private Watch(V8Runtime v8Runtime) {
+			this.v8Runtime = v8Runtime;
+			this.done = false;
+			this.terminated = false;
+		}
+
+		@Override
+		public synchronized void run() {
+			if(!done) {
+				terminated = true;
+				v8Runtime.terminateExecution();
+			}
+		}
+
+		/**
+		 * Flags the script as ended.
+		 * @return True if the watchdog terminated the script.
+		 */
+		private synchronized boolean finish() {
+			done = true;
+			return terminated;
+		}
+	}
+
+	/**
+	 * Session variables seen by the scripts as the 'session' object. Values are read
+	 * on demand and written straight to the chat session.
+	 */
+	public static class SessionVars extends AbstractMap<String, Object> {
+		private final ChatSession ses;
+		private Set<String> written;
+
+		/**
+		 * Init the session variables view.
+		 * @param ses Chat session object.
+		 */
+		public SessionVars(ChatSession ses) {
+			this.ses = ses;
+			this.written = null;
+		}
+
+		@Override
+		public Object get(Object key) { return ses.getVar(String.valueOf(key)); }
+
+		@Override
+		public boolean containsKey(Object key) { return ses.getVar(String.valueOf(key)) != null; }
+
+		@Override
+		public Object put(String key, Object value) {
+			if(written == null)
+				written = new HashSet<>();
+			written.add(key);
+			String old = ses.getVar(key);
+			ses.setVar(key, String.valueOf(value));
+			return old;
+		}
+
+		@Override
+		public Object remove(Object key) {
+			String name = String.valueOf(key);
+			if(written == null)
+				written = new HashSet<>();
+			written.add(name);
+			String old = ses.getVar(name);
+			ses.removeVar(name);
+			return old;
+		}
+
+		@Override
+		public Set<Map.Entry<String, Object>> entrySet() {
+			Map<String, Object> vars = new HashMap<>();
+			for(Map.Entry<String, String> entry : ses.getVarsSet())
+				vars.put(entry.getKey(), entry.getValue());
+			return vars.entrySet();
+		}
+
+		/**
+		 * @param key Variable name.
+		 * @return True if the script wrote the variable through the 'session' object.
+		 */
+		public boolean isWritten(String key) { return written != null && written.contains(key); }
+	}
+}
@@ -0,0 +1,287 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import io.github.emmrida.chat4us.core.CompiledScriptCache.CompiledScript;
+import io.github.emmrida.chat4us.util.Helper;
+import io.github.emmrida.chat4us.util.Messages;
+
+/**
+ * Runs the background jobs declared by the bot scripts. A bot script declares its jobs from
+ * its onLoad() function, run once when the RIA file is loaded, by calling
+ * ScriptEx.schedule(spec, functionName). Jobs run the named function of the bot script on
+ * a pooled runtime, in low priority threads, while the chat server is running. Their results
+ * are meant to be stored in the bot shared cache for the message scripts to use.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public final class ScriptScheduler {
+	private static final int SCHEDULER_THREADS = 2;
+	private static final Pattern FUNCTION_NAME = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*"); //$NON-NLS-1$
+
+	private static final ScheduledExecutorService EXECUTOR;
+	private static final ThreadLocal<List<Job>> DECLARED = new ThreadLocal<>();
+
+	static {
+		ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(SCHEDULER_THREADS, r -> {
+			Thread t = new Thread(r, "ScriptScheduler"); //$NON-NLS-1$
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		});
+		stpe.setRemoveOnCancelPolicy(true);
+		EXECUTOR = stpe;
+	}
+
+	private ScriptScheduler() {}
+
+	/**
+	 * Runs the onLoad() function of a bot script and collects the jobs it declares.
+	 * @param loadScript Compiled bot script calling onLoad().
+	 * @param riaSes Default chat session of the RIA file.
+	 * @param botScript Bot script source.
+	 * @return The declared jobs, not started yet.
+	 * @throws Exception
+	 */
+	static List<Job> collect(CompiledScript loadScript, ChatSession riaSes, String botScript) throws Exception {
+		List<Job> jobs = new ArrayList<>();
+		DECLARED.set(jobs);
+		try {
+			ScriptRunner.execute(loadScript, new ChatSession(riaSes), ""); //$NON-NLS-1$
+		} finally {
+			DECLARED.remove();
+		}
+		for(Job job : jobs) {
+			job.riaSes = riaSes;
+			job.script = CompiledScriptCache.getInstance().get(loadScript.getRiaFile(), CompiledScriptCache.SCHEDULE_SCRIPT_ID + job.function, botScript);
+		}
+		return jobs;
+	}
+
+	/**
+	 * Declares a job. Only allowed while a bot script onLoad() function runs.
+	 * @param spec Cron expression of 5 fields or '@every' followed by a duration like 30s, 5m or 2h.
+	 * @param function Name of the bot script function to run.
+	 * @throws IllegalArgumentException If the spec or the function name is invalid.
+	 * @throws IllegalStateException If not called from onLoad().
+	 */
+	public static void declare(String spec, String function) {
+		List<Job> jobs = DECLARED.get();
+		if(jobs == null)
+			throw new IllegalStateException(Messages.getString("ScriptScheduler.NOT_IN_ONLOAD")); //$NON-NLS-1$
+		if(function == null || !FUNCTION_NAME.matcher(function).matches())
+			throw new IllegalArgumentException(Messages.getString("ScriptScheduler.INVALID_FUNCTION") + function); //$NON-NLS-1$
+		jobs.add(new Job(Schedule.parse(spec), function));
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * A declared job. A run is scheduled once the previous one is done so runs never overlap.
+	 */
+	public static class Job implements Runnable {
+		private final Schedule schedule;
+		private final String function;
+		private ChatSession riaSes;
+		private CompiledScript script;
+		private ScheduledFuture<?> future;
+		private boolean started;
+
+		private Job(Schedule schedule, String function) {
+			this.schedule = schedule;
+			this.function = function;
+		}
+
+		/**
+		 * Schedules the first run.
+		 */
+		synchronized void start() {
+			if(!started) {
+				started = true;
+				scheduleNext();
+			}
+		}
+
+		/**
+		 * Cancels the next run. A running one ends normally.
+		 */
+		synchronized void stop() {
+			started = false;
+			if(future != null) {
+				future.cancel(false);
+				future = null;
+			}
+		}
+
+		private void scheduleNext() {
+			long delay = schedule.delayMillis(System.currentTimeMillis());
+			future = EXECUTOR.schedule(this, delay, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public void run() {
+			synchronized(this) {
+				if(!started)
+					return;
+			}
+			try {
+				ScriptRunner.execute(script, new ChatSession(riaSes), ""); //$NON-NLS-1$
+			} catch(Throwable ex) {
+				Helper.logWarning(ex, String.format(Messages.getString("ScriptScheduler.JOB_ERROR"), function, script.getRiaFile())); //$NON-NLS-1$
+			}
+			synchronized(this) {
+				if(started)
+					scheduleNext();
+			}
+		}
+
+		/**
+		 * @return Name of the function run by the job.
+		 */
+		public String getFunction() { return this.function; }
+	}
+
+	/**
+	 * A job schedule, a fixed interval or a cron expression in the local time zone
+	 * with the minute, hour, day of month, month and day of week fields.
+	 */
+	static class Schedule {
+		private static final int MAX_SEARCH_MINUTES = 5 * 366 * 24 * 60;
+
+		private final long everyMillis; // 0 for cron
+		private final BitSet minutes;
+		private final BitSet hours;
+		private final BitSet days;
+		private final BitSet months;
+		private final BitSet weekDays;
+		private final boolean anyDay;
+		private final boolean anyWeekDay;
+
+		private Schedule(long everyMillis, BitSet minutes, BitSet hours, BitSet days, BitSet months, BitSet weekDays, boolean anyDay, boolean anyWeekDay) {
+			this.everyMillis = everyMillis;
+			this.minutes = minutes;
+			this.hours = hours;
+			this.days = days;
+			this.months = months;
+			this.weekDays = weekDays;
+			this.anyDay = anyDay;
+			this.anyWeekDay = anyWeekDay;
+		}
+
+		/**
+		 * @param spec Cron expression or '@every' duration.
+		 * @return The parsed schedule.
+		 * @throws IllegalArgumentException If the spec is invalid.
+		 */
+		static Schedule parse(String spec) {
+			String s = spec != null ? spec.trim() : ""; //$NON-NLS-1$
+			try {
+				if(s.startsWith("@every")) { //$NON-NLS-1$
+					String d = s.substring(6).trim();
+					long n = Long.parseLong(d.substring(0, d.length() - 1));
+					long unit;
+					switch(d.charAt(d.length() - 1)) {
+					case 's': unit = 1000L; break;
+					case 'm': unit = 60000L; break;
+					case 'h': unit = 3600000L; break;
+					default: throw new IllegalArgumentException(spec);
+					}
+					if(n <= 0)
+						throw new IllegalArgumentException(spec);
+					return new Schedule(n * unit, null, null, null, null, null, true, true);
+				}
+				String[] f = s.split("\\s+"); //$NON-NLS-1$
+				if(f.length != 5)
+					throw new IllegalArgumentException(spec);
+				BitSet weekDays = field(f[4], 0, 7);
+				if(weekDays.get(7))
+					weekDays.set(0); // 7 is Sunday too
+				return new Schedule(0, field(f[0], 0, 59), field(f[1], 0, 23), field(f[2], 1, 31), field(f[3], 1, 12), weekDays, f[2].equals("*"), f[4].equals("*")); //$NON-NLS-1$ //$NON-NLS-2$
+			} catch(RuntimeException ex) {
+				throw new IllegalArgumentException(Messages.getString("ScriptScheduler.INVALID_SCHEDULE") + spec, ex); //$NON-NLS-1$
+			}
+		}
+
+		/**
+		 * Parses a cron field made of values, ranges and steps separated by commas.
+		 */
+		private static BitSet field(String field, int min, int max) {
+			BitSet bits = new BitSet(max + 1);
+			for(String part : field.split(",")) { //$NON-NLS-1$
+				int step = 1;
+				int slash = part.indexOf('/');
+				if(slash >= 0) {
+					step = Integer.parseInt(part.substring(slash + 1));
+					part = part.substring(0, slash);
+				}
+				int from;
+				int to;
+				if(part.equals("*")) { //$NON-NLS-1$
+					from = min;
+					to = max;
+				} else if(part.indexOf('-') > 0) {
+					from = Integer.parseInt(part.substring(0, part.indexOf('-')));
+					to = Integer.parseInt(part.substring(part.indexOf('-') + 1));
+				} else {
+					from = Integer.parseInt(part);
+					to = slash >= 0 ? max : from;
+				}
+				if(step <= 0 || from < min || to > max || from > to)
+					throw new IllegalArgumentException(field);
+				for(int i = from; i <= to; i += step)
+					bits.set(i);
+			}
+			return bits;
+		}
+
+		/**
+		 * @param now Current time in milliseconds.
+		 * @return Delay until the next run in milliseconds.
+		 */
+		long delayMillis(long now) {
+			if(everyMillis > 0)
+				return everyMillis;
+			ZoneId zone = ZoneId.systemDefault();
+			LocalDateTime t = LocalDateTime.now(zone).truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+			for(int i = 0; i < MAX_SEARCH_MINUTES; i++) {
+				if(!months.get(t.getMonthValue())) {
+					t = t.withDayOfMonth(1).withHour(0).withMinute(0).plusMonths(1);
+				} else if(!dayMatches(t)) {
+					t = t.withHour(0).withMinute(0).plusDays(1);
+				} else if(!hours.get(t.getHour())) {
+					t = t.withMinute(0).plusHours(1);
+				} else if(!minutes.get(t.getMinute())) {
+					t = t.plusMinutes(1);
+				} else return Math.max(0, t.atZone(zone).toInstant().toEpochMilli() - now);
+			}
+			return Long.MAX_VALUE / 2; // Never matches, like 0 0 31 2 *
+		}
+
+		/**
+		 * Day of month and day of week match either one when both are restricted, as cron does.
+		 */
+		private boolean dayMatches(LocalDateTime t) {
+			boolean day = days.get(t.getDayOfMonth());
+			boolean weekDay = weekDays.get(t.getDayOfWeek().getValue() % 7);
+			if(anyDay)
+				return weekDay;
+			if(anyWeekDay)
+				return day;
+			return day || weekDay;
+		}
+	}
+}
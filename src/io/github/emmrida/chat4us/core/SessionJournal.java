@@ -0,0 +1,662 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import io.github.emmrida.chat4us.core.ChatSession.ChatSessionState;
+import io.github.emmrida.chat4us.ria.RiaDocument;
+import io.github.emmrida.chat4us.util.Helper;
+import io.github.emmrida.chat4us.util.Messages;
+
+/**
+ * Write ahead journal of the chat sessions and website tokens of a chat server, so as a
+ * restarted server goes on with the running chats. Sessions append their state changes as
+ * small binary records to an in memory buffer, a committer thread writes and syncs the buffer
+ * every COMMIT_INTERVAL_MILLIS, so a crash loses the changes of the last interval at most.
+ * Once the journal file is large enough, it is folded into a snapshot of the live sessions
+ * and a new journal file is started.
+ * Files: name.snap (snapshot of generation N) and name.N.wal, name.N+1.wal... replayed in order.
+ * Each record is framed by its length and CRC32, replay stops at the first torn record.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+final class SessionJournal {
+	private static final String JOURNAL_FOLDER = "./journal/"; //$NON-NLS-1$
+	private static final int MAGIC = 0x43344A4C; // C4JL
+	private static final int VERSION = 1;
+	private static final long COMMIT_INTERVAL_MILLIS = 20L;
+	private static final long COMPACT_SIZE = 16L * 1024 * 1024;
+	private static final int MAX_RECORD = 16 * 1024 * 1024;
+
+	// Record types
+	private static final byte SESSION = 1;
+	private static final byte END = 2;
+	private static final byte NODE = 3;
+	private static final byte VAR = 4;
+	private static final byte VAR_REMOVE = 5;
+	private static final byte VARS_CLEAR = 6;
+	private static final byte HISTORY = 7;
+	private static final byte HISTORY_CLEAR = 8;
+	private static final byte STATE = 9;
+	private static final byte ENDED = 10;
+	private static final byte LOCALE = 11;
+	private static final byte AGENT = 12;
+	private static final byte AGENT_SEQ = 13;
+	private static final byte WEBSITE_OPEN = 14;
+	private static final byte WEBSITE_CLOSE = 15;
+	private static final byte CLEAR = 16;
+
+	/**
+	 * A website token found by the recovery.
+	 */
+	static final class Website {
+		private final String token;
+		private final int websiteId;
+		private final long started;
+
+		private Website(String token, int websiteId, long started) {
+			this.token = token;
+			this.websiteId = websiteId;
+			this.started = started;
+		}
+
+		/**
+		 * @return Access token.
+		 */
+		String getToken() { return this.token; }
+
+		/**
+		 * @return Website record id, -1 for the internal client.
+		 */
+		int getWebsiteId() { return this.websiteId; }
+
+		/**
+		 * @return Login time.
+		 */
+		long getStarted() { return this.started; }
+	}
+
+	/**
+	 * Sessions and website tokens rebuilt from the snapshot and the journal files.
+	 */
+	static final class Recovery {
+		private final Map<String, ChatSession> sessions = new LinkedHashMap<>(); // Key: userId
+		private final Map<String, Website> websites = new LinkedHashMap<>(); // Key: token
+		private int records = 0;
+
+		/**
+		 * @return Recovered chat sessions.
+		 */
+		Collection<ChatSession> getSessions() { return this.sessions.values(); }
+
+		/**
+		 * @return Recovered website tokens.
+		 */
+		Collection<Website> getWebsites() { return this.websites.values(); }
+	}
+
+	/**
+	 * Body of a record, written after its type and user id.
+	 */
+	private interface Body {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	private final String name;
+	private final ChatBotClient cbc;
+	private final ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+	private final DataOutputStream recordOut = new DataOutputStream(this.record);
+	private final CRC32 crc = new CRC32();
+	private ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+	private ByteArrayOutputStream spare = new ByteArrayOutputStream(64 * 1024);
+	private boolean open = false;
+
+	// Committer thread side
+	private final Object commitLock = new Object();
+	private ScheduledExecutorService committer = null;
+	private FileChannel wal = null;
+	private long generation = 0L;
+	private long records = 0L;
+	private long commits = 0L;
+	private long committedBytes = 0L;
+	private long maxCommitNanos = 0L;
+
+	/**
+	 * Init a session journal. Nothing is written before open().
+	 * @param name Name of the journal files, unique per chat server.
+	 * @param cbc Chat bot client of the chat server, to resolve the replayed sessions.
+	 */
+	SessionJournal(String name, ChatBotClient cbc) {
+		this.name = name;
+		this.cbc = cbc;
+	}
+
+	/**
+	 * Rebuilds the sessions left by the last run, then starts a new journal file.
+	 * On error the journal stays closed and the chat server runs without it.
+	 * @return The recovered sessions and website tokens, empty on error.
+	 */
+	Recovery open() {
+		Recovery rec = new Recovery();
+		synchronized(this.commitLock) {
+			if(this.committer != null)
+				return rec;
+			try {
+				Files.createDirectories(Path.of(JOURNAL_FOLDER));
+				long gen = replay(rec, Long.MAX_VALUE);
+				writeSnapshot(rec, gen);
+				this.wal = openWal(gen);
+				this.generation = gen;
+			} catch(Exception ex) {
+				Helper.logWarning(ex, String.format(Messages.getString("SessionJournal.OPEN_ERROR"), this.name), false); //$NON-NLS-1$
+				rec.sessions.clear();
+				rec.websites.clear();
+				return rec;
+			}
+			this.committer = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "SessionJournal-" + this.name); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			});
+			this.committer.scheduleWithFixedDelay(this::commit, COMMIT_INTERVAL_MILLIS, COMMIT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		synchronized(this) {
+			this.open = true;
+		}
+		for(ChatSession ses : rec.sessions.values())
+			ses.setJournal(this);
+		return rec;
+	}
+
+	/**
+	 * @return True if state changes are journaled.
+	 */
+	synchronized boolean isOpen() { return this.open; }
+
+	/**
+	 * Commits the pending records and closes the journal file. The journal is replayed on next open().
+	 */
+	void close() {
+		synchronized(this) {
+			this.open = false;
+		}
+		ScheduledExecutorService exec;
+		synchronized(this.commitLock) {
+			exec = this.committer;
+			this.committer = null;
+		}
+		if(exec == null)
+			return;
+		exec.shutdown();
+		try {
+			exec.awaitTermination(5, TimeUnit.SECONDS);
+		} catch(InterruptedException ignored) {
+			Thread.currentThread().interrupt();
+		}
+		commit();
+		synchronized(this.commitLock) {
+			Helper.logInfo(toString());
+			closeWal();
+		}
+	}
+
+	/**
+	 * Journals the whole state of a session and attaches the journal to it.
+	 * @param ses Chat session with a user id.
+	 */
+	void logSession(ChatSession ses) {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(512);
+		try(DataOutputStream out = new DataOutputStream(bos)) {
+			ses.writeTo(out);
+		} catch(IOException ex) {
+			return; // In memory
+		}
+		if(append(SESSION, ses.getUserId(), out -> bos.writeTo(out)))
+			ses.setJournal(this);
+	}
+
+	/**
+	 * Journals the end of a session, it is not recovered anymore.
+	 * @param userId Id of the session user.
+	 */
+	void logEnd(String userId) { append(END, userId, null); }
+
+	void logNode(ChatSession ses) {
+		FlowNode node = ses.getCurrentNode();
+		append(NODE, ses.getUserId(), out -> out.writeInt(node != null ? node.getId() : -1));
+	}
+
+	void logVar(ChatSession ses, String key, String value) {
+		append(value != null ? VAR : VAR_REMOVE, ses.getUserId(), out -> {
+			RiaDocument.writeString(out, key);
+			if(value != null)
+				RiaDocument.writeString(out, value);
+		});
+	}
+
+	void logVarsClear(ChatSession ses) { append(VARS_CLEAR, ses.getUserId(), null); }
+
+	void logHistory(ChatSession ses, String line) {
+		long time = ses.getLastMsgTime();
+		append(HISTORY, ses.getUserId(), out -> {
+			RiaDocument.writeString(out, line);
+			out.writeLong(time);
+		});
+	}
+
+	void logHistoryClear(ChatSession ses) { append(HISTORY_CLEAR, ses.getUserId(), null); }
+
+	void logState(ChatSession ses) {
+		ChatSessionState state = ses.getState();
+		append(STATE, ses.getUserId(), out -> out.writeByte(state.ordinal()));
+	}
+
+	void logEnded(ChatSession ses) {
+		boolean ended = ses.isEnded();
+		append(ENDED, ses.getUserId(), out -> out.writeBoolean(ended));
+	}
+
+	void logLocale(ChatSession ses) {
+		String locale = ses.getCurLocale();
+		append(LOCALE, ses.getUserId(), out -> RiaDocument.writeString(out, locale));
+	}
+
+	void logAgent(ChatSession ses) {
+		int agentId = ses.getAgentId();
+		String agentIp = ses.getAgentIp();
+		int agentPort = ses.getAgentPort();
+		append(AGENT, ses.getUserId(), out -> {
+			out.writeInt(agentId);
+			RiaDocument.writeString(out, agentIp);
+			out.writeInt(agentPort);
+		});
+	}
+
+	void logAgentSeq(ChatSession ses) {
+		int seq = ses.getAgentSyncSeq();
+		append(AGENT_SEQ, ses.getUserId(), out -> out.writeInt(seq));
+	}
+
+	/**
+	 * Journals a website login.
+	 * @param token Access token.
+	 * @param websiteId Website record id, -1 for the internal client.
+	 * @param started Login time.
+	 */
+	void logWebsiteOpen(String token, int websiteId, long started) {
+		append(WEBSITE_OPEN, token, out -> {
+			out.writeInt(websiteId);
+			out.writeLong(started);
+		});
+	}
+
+	/**
+	 * Journals a website logout.
+	 * @param token Access token.
+	 */
+	void logWebsiteClose(String token) { append(WEBSITE_CLOSE, token, null); }
+
+	/**
+	 * Journals that all the sessions and website tokens are dropped.
+	 */
+	void logClear() { append(CLEAR, null, null); }
+
+	/**
+	 * Frames a record into the pending buffer.
+	 * @return False if the journal is closed.
+	 */
+	private synchronized boolean append(byte type, String key, Body body) {
+		if(!this.open)
+			return false;
+		try {
+			this.record.reset();
+			this.recordOut.writeByte(type);
+			RiaDocument.writeString(this.recordOut, key);
+			if(body != null)
+				body.write(this.recordOut);
+			this.recordOut.flush();
+			this.crc.reset();
+			this.crc.update(this.record.toByteArray());
+			DataOutputStream out = new DataOutputStream(this.pending);
+			out.writeInt(this.record.size());
+			out.writeInt((int)this.crc.getValue());
+			this.record.writeTo(out);
+			this.records++;
+			return true;
+		} catch(IOException ex) {
+			return false; // In memory
+		}
+	}
+
+	/**
+	 * Group commit: writes and syncs the records appended since the last commit.
+	 */
+	private void commit() {
+		synchronized(this.commitLock) {
+			if(this.wal == null)
+				return;
+			ByteArrayOutputStream batch;
+			synchronized(this) {
+				if(this.pending.size() == 0)
+					return;
+				batch = this.pending;
+				this.pending = this.spare;
+				this.spare = batch;
+			}
+			long start = System.nanoTime();
+			try {
+				ByteBuffer buf = ByteBuffer.wrap(batch.toByteArray());
+				while(buf.hasRemaining())
+					this.wal.write(buf);
+				this.wal.force(false);
+				this.commits++;
+				this.committedBytes += batch.size();
+				this.maxCommitNanos = Math.max(this.maxCommitNanos, System.nanoTime() - start);
+				if(this.wal.size() > COMPACT_SIZE)
+					compact();
+			} catch(Exception ex) {
+				Helper.logWarning(ex, String.format(Messages.getString("SessionJournal.WRITE_ERROR"), this.name), false); //$NON-NLS-1$
+				synchronized(this) {
+					this.open = false; // Sessions go on without journal
+				}
+				closeWal();
+			} finally {
+				batch.reset();
+			}
+		}
+	}
+
+	/**
+	 * Starts a new journal file then folds the previous ones into the snapshot. Runs on the
+	 * committer thread, the records appended meanwhile wait for the next commit.
+	 */
+	private void compact() throws Exception {
+		closeWal();
+		long gen = this.generation + 1;
+		this.wal = openWal(gen);
+		this.generation = gen;
+		Recovery rec = new Recovery();
+		replay(rec, gen);
+		writeSnapshot(rec, gen);
+		Helper.logInfo(String.format(Messages.getString("SessionJournal.COMPACTED"), this.name, rec.sessions.size(), rec.records)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Replays the snapshot and the journal files older than a generation.
+	 * @return Generation of the next journal file.
+	 */
+	private long replay(Recovery rec, long beforeGen) throws IOException {
+		long snapGen = 0L;
+		Path snap = snapshotPath();
+		if(Files.exists(snap)) {
+			try(DataInputStream in = new DataInputStream(Files.newInputStream(snap))) {
+				if(in.readInt() != MAGIC || in.readInt() != VERSION)
+					throw new IOException(snap.toString());
+				snapGen = in.readLong();
+				if(readRecords(in, rec))
+					throw new IOException(snap.toString()); // Snapshots are written whole
+			}
+		}
+		long next = Math.max(1L, snapGen);
+		for(long gen : walGenerations()) {
+			if(gen < snapGen || gen >= beforeGen)
+				continue;
+			try(DataInputStream in = new DataInputStream(Files.newInputStream(walPath(gen)))) {
+				if(in.readInt() != MAGIC || in.readInt() != VERSION)
+					throw new IOException(walPath(gen).toString());
+				if(readRecords(in, rec))
+					Helper.logWarning(String.format(Messages.getString("SessionJournal.TORN_RECORD"), walPath(gen).getFileName()), false); //$NON-NLS-1$
+			} catch(EOFException ex) {
+				// Empty file, crashed on creation
+			}
+			next = Math.max(next, gen + 1);
+		}
+		return next;
+	}
+
+	/**
+	 * Applies the records of a stream.
+	 * @return True if the stream ends with a torn or corrupted record.
+	 */
+	private boolean readRecords(DataInputStream in, Recovery rec) throws IOException {
+		CRC32 check = new CRC32();
+		while(true) {
+			int size;
+			try {
+				size = in.readInt();
+			} catch(EOFException ex) {
+				return false;
+			}
+			if(size <= 0 || size > MAX_RECORD)
+				return true;
+			byte[] data = new byte[size];
+			try {
+				int crc32 = in.readInt();
+				in.readFully(data);
+				check.reset();
+				check.update(data);
+				if((int)check.getValue() != crc32)
+					return true;
+			} catch(EOFException ex) {
+				return true;
+			}
+			try(DataInputStream rin = new DataInputStream(new ByteArrayInputStream(data))) {
+				apply(rin, rec);
+			}
+			rec.records++;
+		}
+	}
+
+	/**
+	 * Applies a record to the recovered state.
+	 */
+	private void apply(DataInputStream in, Recovery rec) throws IOException {
+		byte type = in.readByte();
+		String key = RiaDocument.readString(in);
+		switch(type) {
+		case SESSION:
+			ChatSession restored = ChatSession.readFrom(in, this.cbc, null);
+			if(restored.getFlow() != null) // No RIA file loaded
+				rec.sessions.put(key, restored);
+			return;
+		case END:
+			rec.sessions.remove(key);
+			return;
+		case WEBSITE_OPEN:
+			rec.websites.put(key, new Website(key, in.readInt(), in.readLong()));
+			return;
+		case WEBSITE_CLOSE:
+			rec.websites.remove(key);
+			return;
+		case CLEAR:
+			rec.sessions.clear();
+			rec.websites.clear();
+			return;
+		default:
+			break;
+		}
+		ChatSession ses = rec.sessions.get(key);
+		if(ses == null)
+			return;
+		switch(type) {
+		case NODE:
+			int nodeId = in.readInt();
+			FlowGraph flow = ses.getFlow();
+			FlowNode node = null;
+			if(nodeId >= 0 && flow != null) {
+				node = flow.getNode(nodeId);
+				if(node == null) // The node may be gone since the RIA file changed
+					node = flow.getEntry();
+			}
+			ses.setCurrentNode(node);
+			break;
+		case VAR:
+			ses.setVar(RiaDocument.readString(in), RiaDocument.readString(in));
+			break;
+		case VAR_REMOVE:
+			ses.removeVar(RiaDocument.readString(in));
+			break;
+		case VARS_CLEAR:
+			ses.clearVars();
+			break;
+		case HISTORY:
+			ses.replayHistory(RiaDocument.readString(in), in.readLong());
+			break;
+		case HISTORY_CLEAR:
+			ses.replayHistoryClear();
+			break;
+		case STATE:
+			ses.setState(ChatSessionState.values()[in.readByte()]);
+			break;
+		case ENDED:
+			ses.setEnded(in.readBoolean());
+			break;
+		case LOCALE:
+			ChatSession riaSes = this.cbc.riaChatSessionOrLoad(RiaDocument.readString(in));
+			if(riaSes != null) {
+				ses.setProfile(riaSes.getProfile());
+				ses.setCurrentNode(riaSes.getCurrentNode()); // Switch to the locale graph, a node record follows
+			}
+			break;
+		case AGENT:
+			ses.switchToAgentChatSession(in.readInt(), RiaDocument.readString(in), in.readInt(), key);
+			break;
+		case AGENT_SEQ:
+			ses.setAgentSyncSeq(in.readInt());
+			break;
+		default:
+			throw new IOException(String.valueOf(type));
+		}
+	}
+
+	/**
+	 * Writes the recovered state as the snapshot of a generation, then deletes the journal
+	 * files it covers. The snapshot replaces the previous one at once.
+	 */
+	private void writeSnapshot(Recovery rec, long gen) throws IOException {
+		Path snap = snapshotPath();
+		Path tmp = snap.resolveSibling(snap.getFileName() + ".tmp"); //$NON-NLS-1$
+		CRC32 check = new CRC32();
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(1024);
+		DataOutputStream rout = new DataOutputStream(bos);
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(gen);
+			for(Website w : rec.websites.values()) {
+				bos.reset();
+				rout.writeByte(WEBSITE_OPEN);
+				RiaDocument.writeString(rout, w.token);
+				rout.writeInt(w.websiteId);
+				rout.writeLong(w.started);
+				writeFrame(out, bos, check);
+			}
+			for(Map.Entry<String, ChatSession> entry : rec.sessions.entrySet()) {
+				bos.reset();
+				rout.writeByte(SESSION);
+				RiaDocument.writeString(rout, entry.getKey());
+				entry.getValue().writeTo(rout);
+				writeFrame(out, bos, check);
+			}
+		}
+		try(FileChannel fc = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+			fc.force(true);
+		}
+		Files.move(tmp, snap, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		for(long g : walGenerations())
+			if(g < gen)
+				Files.deleteIfExists(walPath(g));
+	}
+
+	private static void writeFrame(DataOutputStream out, ByteArrayOutputStream bos, CRC32 check) throws IOException {
+		check.reset();
+		check.update(bos.toByteArray());
+		out.writeInt(bos.size());
+		out.writeInt((int)check.getValue());
+		bos.writeTo(out);
+	}
+
+	private FileChannel openWal(long gen) throws IOException {
+		FileChannel fc = FileChannel.open(walPath(gen), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		ByteBuffer header = ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION).flip();
+		while(header.hasRemaining())
+			fc.write(header);
+		fc.force(true);
+		return fc;
+	}
+
+	private void closeWal() {
+		if(this.wal != null) {
+			try {
+				this.wal.close();
+			} catch(IOException ex) {
+				Helper.logWarning(ex, String.format(Messages.getString("SessionJournal.WRITE_ERROR"), this.name), false); //$NON-NLS-1$
+			}
+			this.wal = null;
+		}
+	}
+
+	/**
+	 * @return Generations of the journal files on disk, in order.
+	 */
+	private List<Long> walGenerations() throws IOException {
+		TreeSet<Long> gens = new TreeSet<>();
+		String prefix = this.name + "."; //$NON-NLS-1$
+		try(DirectoryStream<Path> ds = Files.newDirectoryStream(Path.of(JOURNAL_FOLDER), prefix + "*.wal")) { //$NON-NLS-1$
+			for(Path p : ds) {
+				String fn = p.getFileName().toString();
+				try {
+					gens.add(Long.parseLong(fn.substring(prefix.length(), fn.length() - 4)));
+				} catch(NumberFormatException ignored) {
+					// Not a journal file
+				}
+			}
+		}
+		return new ArrayList<>(gens);
+	}
+
+	private Path snapshotPath() { return Path.of(JOURNAL_FOLDER, this.name + ".snap"); } //$NON-NLS-1$
+
+	private Path walPath(long gen) { return Path.of(JOURNAL_FOLDER, this.name + "." + gen + ".wal"); } //$NON-NLS-1$ //$NON-NLS-2$
+
+	/**
+	 * @return Records, commits and sync latency.
+	 */
+	@Override
+	public String toString() {
+		long recs;
+		synchronized(this) {
+			recs = this.records;
+		}
+		synchronized(this.commitLock) {
+			return String.format(Messages.getString("SessionJournal.STATS"), this.name, recs, this.commits, //$NON-NLS-1$
+					this.commits > 0 ? (double)recs / this.commits : 0.0, this.committedBytes / 1024, this.maxCommitNanos / 1000000.0);
+		}
+	}
+}
@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.github.emmrida.chat4us.util.Helper;
+import io.github.emmrida.chat4us.util.Messages;
+
+/**
+ * Cold tier of the chat sessions of a chat server. Idle sessions are serialized into a memory
+ * mapped scratch file so they no longer weigh on the heap, and read back on their next message.
+ * The file is split into blocks of power of two sizes, freed blocks are reused by the sessions
+ * of the same size class. Sessions larger than the largest block stay on heap.
+ * The file is deleted when the store is closed, sessions survive neither a restart nor a crash.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+final class SessionStore {
+	private static final String STORE_FOLDER = "./sessions/"; //$NON-NLS-1$
+	private static final int CHUNK_SIZE = 64 * 1024 * 1024;
+	private static final int MIN_BLOCK_SHIFT = 9; // 512 bytes
+	private static final int MAX_BLOCK_SHIFT = 16; // 64 KB
+	private static final int BLOCK_HEADER = 4; // Serialized size
+
+	/**
+	 * A session moved to the store. Keeps on heap what is needed without reading it back.
+	 */
+	static final class Cold {
+		private final long address;
+		private final byte sizeClass;
+		private final long lastMsgTime;
+		private final FlowGraph flow;
+
+		private Cold(long address, int sizeClass, long lastMsgTime, FlowGraph flow) {
+			this.address = address;
+			this.sizeClass = (byte)sizeClass;
+			this.lastMsgTime = lastMsgTime;
+			this.flow = flow;
+		}
+
+		/**
+		 * @return Last message time of the session.
+		 */
+		long getLastMsgTime() { return this.lastMsgTime; }
+	}
+
+	private final String name;
+	private FileChannel channel = null;
+	private final List<MappedByteBuffer> chunks = new ArrayList<>();
+	private int chunkUsed = CHUNK_SIZE; // Bytes used in the last chunk
+	private final long[][] freeBlocks = new long[MAX_BLOCK_SHIFT - MIN_BLOCK_SHIFT + 1][];
+	private final int[] freeCounts = new int[MAX_BLOCK_SHIFT - MIN_BLOCK_SHIFT + 1];
+
+	private int coldCount = 0;
+	private long spilled = 0L;
+	private long restored = 0L;
+	private long restoreNanos = 0L;
+	private long maxRestoreNanos = 0L;
+
+	/**
+	 * Init a session store. The file is created on first use.
+	 * @param name Name of the store file, unique per chat server.
+	 */
+	SessionStore(String name) {
+		this.name = name;
+		Arrays.fill(this.freeBlocks, new long[0]);
+	}
+
+	/**
+	 * Moves a session to the store.
+	 * @param ses Chat session, not to be used anymore if the move succeeds.
+	 * @return The stored session handle, null if it has to stay on heap.
+	 */
+	synchronized Cold spill(ChatSession ses) {
+		try {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream(1024);
+			try(DataOutputStream out = new DataOutputStream(bos)) {
+				ses.writeTo(out);
+			}
+			int size = bos.size();
+			int sizeClass = sizeClass(size + BLOCK_HEADER);
+			if(sizeClass < 0)
+				return null;
+			long address = allocate(sizeClass);
+			MappedByteBuffer chunk = this.chunks.get((int)(address / CHUNK_SIZE));
+			int offset = (int)(address % CHUNK_SIZE);
+			chunk.putInt(offset, size);
+			chunk.put(offset + BLOCK_HEADER, bos.toByteArray(), 0, size);
+			this.coldCount++;
+			this.spilled++;
+			return new Cold(address, sizeClass, ses.getLastMsgTime(), ses.getFlow());
+		} catch(IOException ex) {
+			Helper.logWarning(ex, String.format(Messages.getString("SessionStore.SPILL_ERROR"), this.name), false); //$NON-NLS-1$
+			return null;
+		}
+	}
+
+	/**
+	 * Reads a session back from the store and frees its block.
+	 * @param cold Stored session handle.
+	 * @param cbc Chat bot client of the chat server.
+	 * @return The chat session.
+	 * @throws IOException
+	 */
+	synchronized ChatSession restore(Cold cold, ChatBotClient cbc) throws IOException {
+		long start = System.nanoTime();
+		MappedByteBuffer chunk = this.chunks.get((int)(cold.address / CHUNK_SIZE));
+		int offset = (int)(cold.address % CHUNK_SIZE);
+		byte[] data = new byte[chunk.getInt(offset)];
+		chunk.get(offset + BLOCK_HEADER, data);
+		free(cold);
+		ChatSession ses;
+		try(DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+			ses = ChatSession.readFrom(in, cbc, cold.flow);
+		}
+		long nanos = System.nanoTime() - start;
+		this.restored++;
+		this.restoreNanos += nanos;
+		this.maxRestoreNanos = Math.max(this.maxRestoreNanos, nanos);
+		return ses;
+	}
+
+	/**
+	 * Drops a stored session.
+	 * @param cold Stored session handle.
+	 */
+	synchronized void free(Cold cold) {
+		int c = cold.sizeClass;
+		if(this.freeCounts[c] == this.freeBlocks[c].length)
+			this.freeBlocks[c] = Arrays.copyOf(this.freeBlocks[c], Math.max(16, this.freeCounts[c] * 2));
+		this.freeBlocks[c][this.freeCounts[c]++] = cold.address;
+		this.coldCount--;
+	}
+
+	/**
+	 * @return Number of sessions in the store.
+	 */
+	synchronized int getColdCount() { return this.coldCount; }
+
+	/**
+	 * @return Size of the store file in bytes.
+	 */
+	synchronized long getFileSize() { return (long)this.chunks.size() * CHUNK_SIZE; }
+
+	/**
+	 * @return Spilled, restored counts and restore latency.
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format(Messages.getString("SessionStore.STATS"), this.name, this.coldCount, this.spilled, this.restored, //$NON-NLS-1$
+				this.restored > 0 ? this.restoreNanos / this.restored / 1000.0 : 0.0, this.maxRestoreNanos / 1000.0, getFileSize() / (1024 * 1024));
+	}
+
+	/**
+	 * Closes and deletes the store file. Stored sessions are lost.
+	 */
+	synchronized void close() {
+		this.chunks.clear();
+		Arrays.fill(this.freeBlocks, new long[0]);
+		Arrays.fill(this.freeCounts, 0);
+		this.chunkUsed = CHUNK_SIZE;
+		this.coldCount = 0;
+		if(this.channel != null) {
+			try {
+				this.channel.close();
+			} catch(IOException ex) {
+				Helper.logWarning(ex, String.format(Messages.getString("SessionStore.CLOSE_ERROR"), this.name), false); //$NON-NLS-1$
+			}
+			this.channel = null;
+		}
+	}
+
+	/**
+	 * @return Size class of a block large enough for size bytes, -1 if too large.
+	 */
+	private static int sizeClass(int size) {
+		int shift = Math.max(MIN_BLOCK_SHIFT, 32 - Integer.numberOfLeadingZeros(size - 1));
+		return shift <= MAX_BLOCK_SHIFT ? shift - MIN_BLOCK_SHIFT : -1;
+	}
+
+	/**
+	 * Takes a free block of the size class or a new one at the end of the file.
+	 */
+	private long allocate(int sizeClass) throws IOException {
+		if(this.freeCounts[sizeClass] > 0)
+			return this.freeBlocks[sizeClass][--this.freeCounts[sizeClass]];
+		int blockSize = 1 << (sizeClass + MIN_BLOCK_SHIFT);
+		if(this.chunkUsed + blockSize > CHUNK_SIZE) {
+			if(this.channel == null) {
+				Path folder = Path.of(STORE_FOLDER);
+				Files.createDirectories(folder);
+				this.channel = FileChannel.open(folder.resolve(this.name + ".sessions"), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, //$NON-NLS-1$
+						StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.SPARSE, StandardOpenOption.DELETE_ON_CLOSE);
+			}
+			this.chunks.add(this.channel.map(FileChannel.MapMode.READ_WRITE, (long)this.chunks.size() * CHUNK_SIZE, CHUNK_SIZE));
+			this.chunkUsed = 0;
+		}
+		long address = (long)(this.chunks.size() - 1) * CHUNK_SIZE + this.chunkUsed;
+		this.chunkUsed += blockSize;
+		return address;
+	}
+}
@@ -0,0 +1,420 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import io.github.emmrida.chat4us.util.Helper;
+import io.github.emmrida.chat4us.util.Messages;
+
+/**
+ * Capture of the /letschat and /message requests of a chat server, to be replayed against a
+ * test server by the TrafficReplay tool. Each request is a small binary record: its arrival
+ * time and service time, a session number standing for the user id, and for messages the
+ * user message and the AI model answer when the session is in AI mode. Texts are anonymized,
+ * tokens, addresses and user ids are never written.
+ * Request threads append to an in memory buffer, a writer thread writes it every
+ * FLUSH_INTERVAL_MILLIS without syncing. Records are dropped while the buffer is full, the
+ * capture stops by itself once the file reaches MAX_FILE_SIZE.
+ * File: ./capture/chatserver-ID-yyyyMMdd-HHmmss.c4tc, a header then the records until EOF.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public final class TrafficCapture {
+	public static final String CAPTURE_FOLDER = "./capture/"; //$NON-NLS-1$
+	public static final String FILE_EXT = ".c4tc"; //$NON-NLS-1$
+	private static final int MAGIC = 0x43345443; // C4TC
+	private static final int VERSION = 1;
+	private static final long FLUSH_INTERVAL_MILLIS = 1000L;
+	private static final int MAX_PENDING = 8 * 1024 * 1024;
+	private static final long MAX_FILE_SIZE = 512L * 1024 * 1024;
+	private static final int MAX_TEXT = 64 * 1024;
+
+	// Record types
+	public static final byte LETSCHAT = 1;
+	public static final byte MESSAGE = 2;
+
+	private static final Pattern EMAIL = Pattern.compile("[\\w.%+-]+@[\\w-]+(\\.[\\w-]+)+"); //$NON-NLS-1$
+	private static final Pattern URL = Pattern.compile("(?i)\\b(https?://|www\\.)\\S+"); //$NON-NLS-1$
+	private static final Pattern DIGITS = Pattern.compile("\\d(?:[ \\-./]?\\d){3,}"); //$NON-NLS-1$
+
+	/**
+	 * A captured request.
+	 */
+	public static final class Record {
+		private final byte type;
+		private final long offsetMicros;
+		private final int session;
+		private final int serviceMicros;
+		private final String message;
+		private final String aiAnswer;
+
+		private Record(byte type, long offsetMicros, int session, int serviceMicros, String message, String aiAnswer) {
+			this.type = type;
+			this.offsetMicros = offsetMicros;
+			this.session = session;
+			this.serviceMicros = serviceMicros;
+			this.message = message;
+			this.aiAnswer = aiAnswer;
+		}
+
+		/**
+		 * @return LETSCHAT or MESSAGE.
+		 */
+		public byte getType() { return this.type; }
+
+		/**
+		 * @return Arrival time from the capture start, in microseconds.
+		 */
+		public long getOffsetMicros() { return this.offsetMicros; }
+
+		/**
+		 * @return Session number, the same for all the requests of a user.
+		 */
+		public int getSession() { return this.session; }
+
+		/**
+		 * @return Time the server took to answer, in microseconds.
+		 */
+		public int getServiceMicros() { return this.serviceMicros; }
+
+		/**
+		 * @return Anonymized user message, null for LETSCHAT.
+		 */
+		public String getMessage() { return this.message; }
+
+		/**
+		 * @return Anonymized AI model answer, null if the message was not answered by a model.
+		 */
+		public String getAiAnswer() { return this.aiAnswer; }
+	}
+
+	/**
+	 * Receives the records of a capture file.
+	 */
+	public interface RecordHandler {
+		void onRecord(Record rec);
+	}
+
+	private final String name;
+	private final long startNanos;
+	private final long startMillis;
+	private final Map<String, Integer> sessions = new HashMap<>(); // Key: userId
+	private final DataOutputStream recordOut;
+	private ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+	private ByteArrayOutputStream spare = new ByteArrayOutputStream(64 * 1024);
+	private boolean open = false;
+	private long records = 0L;
+	private long dropped = 0L;
+
+	// Writer thread side
+	private final Object writeLock = new Object();
+	private ScheduledExecutorService writer = null;
+	private OutputStream file = null;
+	private Path path = null;
+	private long fileSize = 0L;
+
+	/**
+	 * Init a traffic capture. Nothing is written before open().
+	 * @param name Name of the capture files, unique per chat server.
+	 */
+	TrafficCapture(String name) {
+		this.name = name;
+		this.startNanos = System.nanoTime();
+		this.startMillis = System.currentTimeMillis();
+		this.recordOut = new DataOutputStream(new OutputStream() {
+			@Override
+			public void write(int b) { pending.write(b); }
+			@Override
+			public void write(byte[] b, int off, int len) { pending.write(b, off, len); }
+		});
+	}
+
+	/**
+	 * Creates the capture file and starts the writer thread.
+	 * @return The capture file.
+	 * @throws IOException If the file cannot be created.
+	 */
+	Path open() throws IOException {
+		synchronized(this.writeLock) {
+			if(this.writer != null)
+				return this.path;
+			Files.createDirectories(Path.of(CAPTURE_FOLDER));
+			String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(this.startMillis)); //$NON-NLS-1$
+			this.path = Path.of(CAPTURE_FOLDER, this.name + "-" + stamp + FILE_EXT); //$NON-NLS-1$
+			this.file = Files.newOutputStream(this.path);
+			DataOutputStream out = new DataOutputStream(this.file);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(this.startMillis);
+			out.flush();
+			this.fileSize = out.size();
+			this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "TrafficCapture-" + this.name); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			});
+			this.writer.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		synchronized(this) {
+			this.open = true;
+		}
+		return this.path;
+	}
+
+	/**
+	 * @return True while requests are captured.
+	 */
+	public synchronized boolean isOpen() { return this.open; }
+
+	/**
+	 * @return The capture file, null before open().
+	 */
+	public Path getPath() {
+		synchronized(this.writeLock) {
+			return this.path;
+		}
+	}
+
+	/**
+	 * Writes the pending records and closes the capture file.
+	 */
+	void close() {
+		synchronized(this) {
+			this.open = false;
+		}
+		ScheduledExecutorService exec;
+		synchronized(this.writeLock) {
+			exec = this.writer;
+			this.writer = null;
+		}
+		if(exec == null)
+			return;
+		exec.shutdown();
+		try {
+			exec.awaitTermination(5, TimeUnit.SECONDS);
+		} catch(InterruptedException ignored) {
+			Thread.currentThread().interrupt();
+		}
+		flush();
+		synchronized(this.writeLock) {
+			closeFile();
+			Helper.logInfo(toString());
+		}
+	}
+
+	/**
+	 * Captures a /letschat request.
+	 * @param userId Id of the user, replaced by a session number.
+	 * @param arrivalNanos System.nanoTime() of the request arrival.
+	 */
+	void logLetsChat(String userId, long arrivalNanos) {
+		append(LETSCHAT, userId, arrivalNanos, null, null);
+	}
+
+	/**
+	 * Captures a /message request.
+	 * @param userId Id of the user, replaced by a session number.
+	 * @param arrivalNanos System.nanoTime() of the request arrival.
+	 * @param message User message as received.
+	 * @param aiAnswer AI model answer, null if not in AI mode.
+	 */
+	void logMessage(String userId, long arrivalNanos, String message, String aiAnswer) {
+		append(MESSAGE, userId, arrivalNanos, anonymize(message), aiAnswer != null ? anonymize(aiAnswer) : null);
+	}
+
+	private synchronized void append(byte type, String userId, long arrivalNanos, String message, String aiAnswer) {
+		if(!this.open)
+			return;
+		if(this.pending.size() > MAX_PENDING) {
+			this.dropped++;
+			return;
+		}
+		Integer ses = this.sessions.get(userId);
+		if(ses == null) {
+			ses = this.sessions.size();
+			this.sessions.put(userId, ses);
+		}
+		long now = System.nanoTime();
+		try {
+			this.recordOut.writeByte(type);
+			writeVarLong(this.recordOut, Math.max(0L, (arrivalNanos - this.startNanos) / 1000L));
+			writeVarLong(this.recordOut, ses);
+			writeVarLong(this.recordOut, Math.max(0L, (now - arrivalNanos) / 1000L));
+			if(type == MESSAGE) {
+				writeText(this.recordOut, message);
+				writeText(this.recordOut, aiAnswer);
+			}
+			this.records++;
+		} catch(IOException ex) {
+			// In memory
+		}
+	}
+
+	/**
+	 * Writes the records appended since the last flush. Runs on the writer thread.
+	 */
+	private void flush() {
+		synchronized(this.writeLock) {
+			if(this.file == null)
+				return;
+			ByteArrayOutputStream batch;
+			synchronized(this) {
+				if(this.pending.size() == 0)
+					return;
+				batch = this.pending;
+				this.pending = this.spare;
+				this.spare = batch;
+			}
+			try {
+				batch.writeTo(this.file);
+				this.file.flush();
+				this.fileSize += batch.size();
+				if(this.fileSize > MAX_FILE_SIZE) {
+					synchronized(this) {
+						this.open = false;
+					}
+					Helper.logWarning(String.format(Messages.getString("TrafficCapture.MAX_SIZE"), this.name, this.path)); //$NON-NLS-1$
+					closeFile();
+				}
+			} catch(IOException ex) {
+				Helper.logWarning(ex, String.format(Messages.getString("TrafficCapture.WRITE_ERROR"), this.name), false); //$NON-NLS-1$
+				synchronized(this) {
+					this.open = false;
+				}
+				closeFile();
+			} finally {
+				batch.reset();
+			}
+		}
+	}
+
+	private void closeFile() {
+		if(this.file == null)
+			return;
+		try {
+			this.file.close();
+		} catch(IOException ignored) { }
+		this.file = null;
+	}
+
+	/**
+	 * Masks the personal data of a text: emails, links, and numbers of 4 digits or more like
+	 * phone, card or id numbers. Words and short numbers are kept so as replayed messages
+	 * follow the same chat flow paths.
+	 * @param text Text to anonymize.
+	 * @return The anonymized text.
+	 */
+	public static String anonymize(String text) {
+		if(text == null)
+			return null;
+		String s = EMAIL.matcher(text).replaceAll("user@example.com"); //$NON-NLS-1$
+		s = URL.matcher(s).replaceAll("https://example.com"); //$NON-NLS-1$
+		s = DIGITS.matcher(s).replaceAll(mr -> mr.group().replaceAll("\\d", "0")); //$NON-NLS-1$ //$NON-NLS-2$
+		return s.length() > MAX_TEXT ? s.substring(0, MAX_TEXT) : s;
+	}
+
+	/**
+	 * Reads a capture file.
+	 * @param file Capture file.
+	 * @param handler Receives the records in order.
+	 * @return Capture start time, epoch millis.
+	 * @throws IOException If the file is not a capture file. A truncated last record is ignored.
+	 */
+	public static long read(Path file, RecordHandler handler) throws IOException {
+		try(InputStream is = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+			DataInputStream in = new DataInputStream(is);
+			if(in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException(String.format(Messages.getString("TrafficCapture.BAD_FILE"), file)); //$NON-NLS-1$
+			long start = in.readLong();
+			while(true) {
+				int type = in.read();
+				if(type < 0)
+					break;
+				Record rec;
+				try {
+					long offset = readVarLong(in);
+					int ses = (int)readVarLong(in);
+					int service = (int)Math.min(Integer.MAX_VALUE, readVarLong(in));
+					if(type == MESSAGE)
+						rec = new Record(MESSAGE, offset, ses, service, readText(in), readText(in));
+					else if(type == LETSCHAT)
+						rec = new Record(LETSCHAT, offset, ses, service, null, null);
+					else throw new IOException(String.format(Messages.getString("TrafficCapture.BAD_FILE"), file)); //$NON-NLS-1$
+				} catch(EOFException ex) {
+					break; // Torn last record
+				}
+				handler.onRecord(rec);
+			}
+			return start;
+		}
+	}
+
+	private static void writeVarLong(DataOutputStream out, long v) throws IOException {
+		while((v & ~0x7FL) != 0L) {
+			out.writeByte((int)((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		out.writeByte((int)v);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long v = 0L;
+		for(int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			v |= (long)(b & 0x7F) << shift;
+			if((b & 0x80) == 0)
+				return v;
+		}
+		throw new IOException(Messages.getString("TrafficCapture.BAD_VARINT")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Writes a text as its UTF-8 length + 1, 0 for null, then its bytes.
+	 */
+	private static void writeText(DataOutputStream out, String s) throws IOException {
+		if(s == null) {
+			out.writeByte(0);
+			return;
+		}
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(out, b.length + 1L);
+		out.write(b);
+	}
+
+	private static String readText(DataInputStream in) throws IOException {
+		long len = readVarLong(in);
+		if(len == 0L)
+			return null;
+		if(len - 1 > MAX_TEXT * 4L)
+			throw new IOException(Messages.getString("TrafficCapture.BAD_TEXT_LENGTH")); //$NON-NLS-1$
+		byte[] b = new byte[(int)(len - 1)];
+		in.readFully(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format(Messages.getString("TrafficCapture.STATS"), this.name, this.records, this.sessions.size(), this.dropped, this.fileSize / 1024); //$NON-NLS-1$
+	}
+}
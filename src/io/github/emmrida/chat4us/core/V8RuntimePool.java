@@ -0,0 +1,337 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.caoccao.javet.exceptions.JavetError;
+import com.caoccao.javet.exceptions.JavetException;
+import com.caoccao.javet.interop.V8Host;
+import com.caoccao.javet.interop.V8Runtime;
+import com.caoccao.javet.interop.converters.JavetProxyConverter;
+import com.caoccao.javet.values.reference.V8ValueGlobalObject;
+
+import io.github.emmrida.chat4us.gui.MainWindow;
+import io.github.emmrida.chat4us.util.Helper;
+import io.github.emmrida.chat4us.util.Messages;
+import io.github.emmrida.chat4us.util.ScriptEx;
+import io.github.emmrida.chat4us.util.Settings;
+
+/**
+ * A bounded pool of V8 runtimes shared by the bot and node scripts of all the chat servers.
+ * Runtimes are created with the proxy converter and ScriptEx already bound. The global context
+ * is reset when a runtime is given back, and the runtime is closed then replaced after a number
+ * of executions or when it is not healthy anymore. Each running chat server adds its worker
+ * threads count to the pool size, a borrow that waits longer than DEF_BORROW_TIMEOUT_SECONDS
+ * fails.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public class V8RuntimePool {
+	private static final int DEF_SIZE = 4;
+	private static final int DEF_MAX_EXECUTIONS = 500;
+	private static final int DEF_PREWARM_COUNT = 2;
+	private static final long DEF_BORROW_TIMEOUT_SECONDS = 30L;
+	private static final long WAIT_SLICE_NANOS = 100_000_000L;
+
+	private static V8RuntimePool instance = null;
+
+	private volatile int maxSize;
+	private final int maxExecutions;
+	private final BlockingQueue<Lease> idle;
+	private final AtomicInteger size;
+
+	private final LongAdder createdCount;
+	private final LongAdder recycledCount;
+	private final LongAdder borrowCount;
+	private final LongAdder waitCount;
+	private final LongAdder waitNanos;
+
+	/**
+	 * Init a V8 runtime pool.
+	 * @param maxSize Max number of the runtimes alive at the same time.
+	 * @param maxExecutions Number of executions after which a runtime is replaced.
+	 */
+	public V8RuntimePool(int maxSize, int maxExecutions) {
+		if(maxSize < 1 || maxExecutions < 1)
+			throw new IllegalArgumentException();
+		this.maxSize = maxSize;
+		this.maxExecutions = maxExecutions;
+		this.idle = new LinkedBlockingQueue<>(); // Bounded by size
+		this.size = new AtomicInteger(0);
+		this.createdCount = new LongAdder();
+		this.recycledCount = new LongAdder();
+		this.borrowCount = new LongAdder();
+		this.waitCount = new LongAdder();
+		this.waitNanos = new LongAdder();
+	}
+
+	/**
+	 * Returns the pool shared by all the chat servers. Its initial size, for the scheduled scripts
+	 * and the precompilation, is the number of the server tasks, DEF_SIZE when the app settings
+	 * are not loaded. The chat servers add their worker threads with addCapacity().
+	 * @return The shared V8 runtime pool.
+	 */
+	public static synchronized V8RuntimePool getInstance() {
+		if(instance == null) {
+			Settings settings = MainWindow.getSettings(); // Not set when running outside of the app
+			instance = new V8RuntimePool(settings != null ? Math.max(1, settings.getAiServersTasks()) : DEF_SIZE, DEF_MAX_EXECUTIONS);
+		}
+		return instance;
+	}
+
+	/**
+	 * Changes the max number of the runtimes. Called by the chat servers with their worker threads
+	 * count when they start, and its opposite when they stop. Extra runtimes are closed when given back.
+	 * @param n Number of the runtimes to add, negative to remove.
+	 */
+	public synchronized void addCapacity(int n) {
+		this.maxSize = Math.max(1, this.maxSize + n);
+	}
+
+	/**
+	 * Creates a few runtimes ahead so as the first messages do not pay the isolate creation.
+	 */
+	public void prewarm() {
+		int n = Math.min(DEF_PREWARM_COUNT, maxSize);
+		while(size.get() < n) {
+			if(size.incrementAndGet() > n) {
+				size.decrementAndGet();
+				break;
+			}
+			try {
+				Lease lease = create();
+				if(!idle.offer(lease))
+					destroy(lease);
+			} catch(JavetException ex) {
+				size.decrementAndGet();
+				Helper.logWarning(ex, Messages.getString("V8RuntimePool.RUNTIME_CREATION_ERROR"), false); //$NON-NLS-1$
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Borrows a runtime from the pool. Waits for a runtime to be given back when the pool
+	 * reached its max size. Close the returned lease to give the runtime back.
+	 * @return A runtime lease.
+	 * @throws JavetException When no runtime was given back within DEF_BORROW_TIMEOUT_SECONDS.
+	 */
+	public Lease borrow() throws JavetException {
+		borrowCount.increment();
+		Lease lease = idle.poll();
+		if(lease != null)
+			return lease.acquire();
+		if(size.incrementAndGet() <= maxSize) {
+			try {
+				return create().acquire();
+			} catch(JavetException ex) {
+				size.decrementAndGet();
+				throw ex;
+			}
+		}
+		size.decrementAndGet();
+		long start = System.nanoTime();
+		waitCount.increment();
+		long deadline = start + TimeUnit.SECONDS.toNanos(DEF_BORROW_TIMEOUT_SECONDS);
+		try {
+			while(lease == null) { // Polled by slices as a place may be freed by a discarded runtime or a larger max size
+				long left = deadline - System.nanoTime();
+				if(left <= 0L) {
+					Helper.logWarning(String.format(Messages.getString("V8RuntimePool.BORROW_TIMEOUT"), DEF_BORROW_TIMEOUT_SECONDS, this)); //$NON-NLS-1$
+					throw new JavetException(JavetError.LockAcquisitionFailure);
+				}
+				lease = idle.poll(Math.min(left, WAIT_SLICE_NANOS), TimeUnit.NANOSECONDS);
+				if(lease != null)
+					break;
+				if(size.incrementAndGet() <= maxSize) {
+					try {
+						lease = create();
+					} catch(JavetException ex) {
+						size.decrementAndGet();
+						throw ex;
+					}
+				} else size.decrementAndGet();
+			}
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			size.incrementAndGet(); // Temporary runtime, closed on release as the pool is full.
+			try {
+				lease = create();
+			} catch(JavetException jex) {
+				size.decrementAndGet();
+				throw jex;
+			}
+		} finally {
+			waitNanos.add(System.nanoTime() - start);
+		}
+		return lease.acquire();
+	}
+
+	/**
+	 * Creates a new runtime with the proxy converter and ScriptEx bound.
+	 * @return New runtime lease.
+	 * @throws JavetException
+	 */
+	private Lease create() throws JavetException {
+		V8Runtime v8Runtime = V8Host.getV8Instance().createV8Runtime();
+		v8Runtime.setConverter(new JavetProxyConverter());
+		bindGlobals(v8Runtime);
+		createdCount.increment();
+		return new Lease(v8Runtime);
+	}
+
+	/**
+	 * Binds the objects every script expects to find in the global scope.
+	 * @param v8Runtime V8 runtime.
+	 * @throws JavetException
+	 */
+	private static void bindGlobals(V8Runtime v8Runtime) throws JavetException {
+		try(V8ValueGlobalObject global = v8Runtime.getGlobalObject()) {
+			global.set("ScriptEx", ScriptEx.class); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Gives a runtime back to the pool. The runtime is replaced if it is not healthy anymore.
+	 * @param lease Runtime lease.
+	 */
+	private void release(Lease lease) {
+		V8Runtime v8Runtime = lease.v8Runtime;
+		lease.executions++;
+		if(lease.discarded || lease.executions >= maxExecutions || v8Runtime.isClosed() || v8Runtime.isDead() || size.get() > maxSize) {
+			destroy(lease);
+			return;
+		}
+		try {
+			v8Runtime.resetContext();
+			bindGlobals(v8Runtime);
+		} catch(JavetException ex) {
+			Helper.logWarning(ex, Messages.getString("V8RuntimePool.RUNTIME_RESET_ERROR"), false); //$NON-NLS-1$
+			destroy(lease);
+			return;
+		}
+		if(!idle.offer(lease))
+			destroy(lease);
+	}
+
+	/**
+	 * Closes a runtime and frees its place in the pool.
+	 * @param lease Runtime lease.
+	 */
+	private void destroy(Lease lease) {
+		size.decrementAndGet();
+		recycledCount.increment();
+		try {
+			if(!lease.v8Runtime.isClosed())
+				lease.v8Runtime.close();
+		} catch(JavetException ex) {
+			Helper.logWarning(ex, Messages.getString("V8RuntimePool.RUNTIME_CLOSE_ERROR"), false); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * @return Max number of the runtimes alive at the same time.
+	 */
+	public int getMaxSize() { return this.maxSize; }
+
+	/**
+	 * @return Number of the runtimes alive.
+	 */
+	public int getSize() { return this.size.get(); }
+
+	/**
+	 * @return Number of the idle runtimes.
+	 */
+	public int getIdleCount() { return this.idle.size(); }
+
+	/**
+	 * @return Number of the runtimes created since the pool creation.
+	 */
+	public long getCreatedCount() { return this.createdCount.sum(); }
+
+	/**
+	 * @return Number of the runtimes closed since the pool creation.
+	 */
+	public long getRecycledCount() { return this.recycledCount.sum(); }
+
+	/**
+	 * @return Number of borrow requests.
+	 */
+	public long getBorrowCount() { return this.borrowCount.sum(); }
+
+	/**
+	 * @return Number of borrow requests that had to wait for a runtime.
+	 */
+	public long getWaitCount() { return this.waitCount.sum(); }
+
+	/**
+	 * @return Total time spent waiting for a runtime in milliseconds.
+	 */
+	public long getWaitMillis() { return this.waitNanos.sum() / 1000000L; }
+
+	@Override
+	public String toString() {
+		return String.format("V8RuntimePool{size=%d/%d, idle=%d, created=%d, recycled=%d, borrows=%d, waits=%d, waitMs=%d}", //$NON-NLS-1$
+				getSize(), maxSize, getIdleCount(), getCreatedCount(), getRecycledCount(), getBorrowCount(), getWaitCount(), getWaitMillis());
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * A runtime borrowed from the pool. Closing the lease gives the runtime back.
+	 */
+	public class Lease implements AutoCloseable {
+		private final V8Runtime v8Runtime;
+		private int executions;
+		private boolean discarded;
+		private boolean inUse;
+
+		/**
+		 * Init a runtime lease.
+		 * @param v8Runtime Pooled runtime.
+		 */
+		private Lease(V8Runtime v8Runtime) {
+			this.v8Runtime = v8Runtime;
+			this.executions = 0;
+			this.discarded = false;
+			this.inUse = false;
+		}
+
+		/**
+		 * Flags the lease as used.
+		 * @return This lease.
+		 */
+		private Lease acquire() {
+			this.inUse = true;
+			return this;
+		}
+
+		/**
+		 * @return The borrowed runtime.
+		 */
+		public V8Runtime getRuntime() { return this.v8Runtime; }
+
+		/**
+		 * Flags the runtime to be closed instead of reused. Call it when the runtime state is unknown.
+		 */
+		public void discard() { this.discarded = true; }
+
+		/**
+		 * Gives the runtime back to the pool.
+		 */
+		@Override
+		public void close() {
+			if(inUse) {
+				inUse = false;
+				release(this);
+			}
+		}
+	}
+}
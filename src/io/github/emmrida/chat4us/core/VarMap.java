@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Chat session variables. Sessions hold a few variables only, so keys and values are kept
+ * side by side in one array searched linearly, allocated on the first variable set. Past
+ * HASH_THRESHOLD variables a key to index hash map is added for the lookups. Null keys are
+ * rejected. Entries of the entry set read and write the variable by key, so they stay valid
+ * when other variables are added or removed.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+final class VarMap extends AbstractMap<String, String> {
+	private static final String[] NO_VARS = new String[0];
+	private static final int INITIAL_VARS = 4;
+	private static final int HASH_THRESHOLD = 12;
+
+	private String[] table = NO_VARS; // key, value, key, value, ...
+	private int size = 0;
+	private HashMap<String, Integer> index = null; // Key to table index, past HASH_THRESHOLD variables
+
+	VarMap() {}
+
+	VarMap(VarMap vars) {
+		if(vars.size > 0) {
+			this.table = Arrays.copyOf(vars.table, vars.size * 2);
+			this.size = vars.size;
+			if(vars.index != null)
+				this.index = new HashMap<>(vars.index);
+		}
+	}
+
+	private int indexOf(Object key) {
+		if(key == null)
+			return -1;
+		if(this.index != null) {
+			Integer i = this.index.get(key);
+			return i != null ? i : -1;
+		}
+		for(int i = 0; i < this.size * 2; i += 2)
+			if(this.table[i].equals(key))
+				return i;
+		return -1;
+	}
+
+	@Override
+	public int size() { return this.size; }
+
+	@Override
+	public boolean containsKey(Object key) { return indexOf(key) >= 0; }
+
+	@Override
+	public String get(Object key) {
+		int i = indexOf(key);
+		return i >= 0 ? this.table[i + 1] : null;
+	}
+
+	@Override
+	public String put(String key, String value) {
+		Objects.requireNonNull(key);
+		int i = indexOf(key);
+		if(i >= 0) {
+			String old = this.table[i + 1];
+			this.table[i + 1] = value;
+			return old;
+		}
+		i = this.size * 2;
+		if(i == this.table.length)
+			this.table = Arrays.copyOf(this.table, Math.max(INITIAL_VARS, this.size * 2) * 2);
+		this.table[i] = key;
+		this.table[i + 1] = value;
+		this.size++;
+		if(this.index != null) {
+			this.index.put(key, i);
+		} else if(this.size > HASH_THRESHOLD) {
+			this.index = new HashMap<>(this.size * 4);
+			for(int j = 0; j < this.size * 2; j += 2)
+				this.index.put(this.table[j], j);
+		}
+		return null;
+	}
+
+	@Override
+	public String remove(Object key) {
+		int i = indexOf(key);
+		if(i < 0)
+			return null;
+		String old = this.table[i + 1];
+		int last = (this.size - 1) * 2;
+		if(this.index != null) {
+			this.index.remove(key);
+			if(i != last)
+				this.index.put(this.table[last], i);
+		}
+		this.table[i] = this.table[last];
+		this.table[i + 1] = this.table[last + 1];
+		this.table[last] = null;
+		this.table[last + 1] = null;
+		this.size--;
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		this.table = NO_VARS;
+		this.size = 0;
+		this.index = null;
+	}
+
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+		return new AbstractSet<Map.Entry<String, String>>() {
+			@Override
+			public int size() { return VarMap.this.size; }
+
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator() {
+				return new Iterator<Map.Entry<String, String>>() {
+					private int next = 0;
+					private String last = null;
+
+					@Override
+					public boolean hasNext() { return this.next < VarMap.this.size * 2; }
+
+					@Override
+					public Map.Entry<String, String> next() {
+						if(!hasNext())
+							throw new NoSuchElementException();
+						this.last = VarMap.this.table[this.next];
+						this.next += 2;
+						return new Var(this.last);
+					}
+
+					@Override
+					public void remove() {
+						if(this.last == null)
+							throw new IllegalStateException();
+						VarMap.this.remove(this.last);
+						this.last = null;
+						this.next -= 2; // The last variable took the removed one place
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * A variable of the map, read and written by key.
+	 */
+	private final class Var implements Map.Entry<String, String> {
+		private final String key;
+
+		private Var(String key) { this.key = key; }
+
+		@Override
+		public String getKey() { return this.key; }
+
+		@Override
+		public String getValue() { return VarMap.this.get(this.key); }
+
+		@Override
+		public String setValue(String value) { return VarMap.this.put(this.key, value); }
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Map.Entry))
+				return false;
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>)o;
+			return this.key.equals(e.getKey()) && Objects.equals(getValue(), e.getValue());
+		}
+
+		@Override
+		public int hashCode() { return this.key.hashCode() ^ Objects.hashCode(getValue()); }
+
+		@Override
+		public String toString() { return this.key + "=" + getValue(); } //$NON-NLS-1$
+	}
+}
@@ -23,6 +23,7 @@ import io.github.emmrida.chat4us.controls.IdLabelComboElement;
 import io.github.emmrida.chat4us.controls.IdLabelComboModel;
 import io.github.emmrida.chat4us.controls.IdLabelComboRenderer;
 import io.github.emmrida.chat4us.core.ChatClient;
+import io.github.emmrida.chat4us.core.ChatEvents;
 import io.github.emmrida.chat4us.core.ChatServer;
 import io.github.emmrida.chat4us.core.ChatServer.AiServer;
 import io.github.emmrida.chat4us.core.ChatServer.ChatServerListener;
@@ -33,8 +34,10 @@ import io.github.emmrida.chat4us.ria.NodePanel;
 import io.github.emmrida.chat4us.ria.RiaEditorPanel;
 import io.github.emmrida.chat4us.util.Helper;
 import io.github.emmrida.chat4us.util.HotkeyManager;
+import io.github.emmrida.chat4us.util.KeyValueStore;
 import io.github.emmrida.chat4us.util.Messages;
 import io.github.emmrida.chat4us.util.Settings;
+import io.github.emmrida.chat4us.util.SqlitePool;
 import io.github.emmrida.chat4us.util.TeePrintStream;
 import io.github.emmrida.chat4us.util.UExceptionDialog;
 
@@ -190,6 +193,8 @@ public class MainWindow {
 	private JMenuItem mnuCertImport;
 	private JMenuItem mnuOpenGuide;
 	private JMenuItem mnuSettings;
+	private JMenuItem mnuFlightRecording;
+	private JMenuItem mnuTrafficCapture;
 	private JMenuItem mnuTutorials;
 	private JMenuItem mnuExamples;
 	private JMenuItem mnuSampleProjects;
@@ -1345,6 +1350,7 @@ public class MainWindow {
 			if(1 == Helper.dbUpdate(conChat4Us, "UPDATE chatbots SET removed=1 WHERE id=" + chatServer.getDbId() + ";")) { //$NON-NLS-1$ //$NON-NLS-2$
 				ChatServerListModel model = (ChatServerListModel)lstChatBots.getModel();
 				model.removeElement(chatServer);
+				chatServer.setEnabled(false); // Saves the running chats and clears the session journal
 				chatServer.stopServer();
 			} else Helper.logError(Messages.getString("MainWindow.LOG_SERVER_REMOVE_ERROR"), true); //$NON-NLS-1$
 		}
@@ -1629,6 +1635,69 @@ public class MainWindow {
 		editor.requestFocus();
 	}
 
+	/**
+	 * Starts a flight recording of the chat turns, or stops it and saves it to a .jfr file.
+	 */
+	private void menuFlightRecording() {
+		try {
+			if(!ChatEvents.isRecording()) {
+				ChatEvents.startRecording();
+				mnuFlightRecording.setText(Messages.getString("MainWindow.MNU_JFR_DUMP")); //$NON-NLS-1$
+				Helper.logInfo(Messages.getString("MainWindow.LOG_JFR_STARTED")); //$NON-NLS-1$
+				return;
+			}
+			JFileChooser fc = Helper.createFileChooser(Messages.getString("MainWindow.FCO_JFR_TITLE"), "./log", Messages.getString("MainWindow.FCO_JFR_FILTER"), "jfr"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			fc.setSelectedFile(new File(fc.getCurrentDirectory(), "chat4us-" + System.currentTimeMillis() + ".jfr")); //$NON-NLS-1$ //$NON-NLS-2$
+			if(fc.showSaveDialog(mainFrame) != JFileChooser.APPROVE_OPTION)
+				return;
+			File file = fc.getSelectedFile();
+			if(!file.getName().endsWith(".jfr")) //$NON-NLS-1$
+				file = new File(file.getAbsolutePath() + ".jfr"); //$NON-NLS-1$
+			ChatEvents.dumpRecording(file.toPath());
+			mnuFlightRecording.setText(Messages.getString("MainWindow.MNU_JFR_START")); //$NON-NLS-1$
+			Helper.logInfo(String.format(Messages.getString("MainWindow.LOG_JFR_SAVED"), file.getAbsolutePath())); //$NON-NLS-1$
+		} catch(Exception ex) {
+			mnuFlightRecording.setText(Messages.getString(ChatEvents.isRecording() ? "MainWindow.MNU_JFR_DUMP" : "MainWindow.MNU_JFR_START")); //$NON-NLS-1$ //$NON-NLS-2$
+			Helper.logError(ex, Messages.getString("MainWindow.JFR_ERROR"), true); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Starts capturing the requests of the running chat servers for replay, or stops it.
+	 */
+	private void menuTrafficCapture() {
+		ListModel<ChatServer> model = this.lstChatBots.getModel();
+		boolean capturing = false;
+		for(int i = 0; i < model.getSize(); i++)
+			capturing |= model.getElementAt(i).isCapturing();
+		if(capturing) {
+			for(int i = 0; i < model.getSize(); i++) {
+				ChatServer cs = model.getElementAt(i);
+				Path path = cs.stopCapture();
+				if(path != null)
+					Helper.logInfo(String.format(Messages.getString("MainWindow.LOG_CAPTURE_SAVED"), cs.getName(), path.toAbsolutePath())); //$NON-NLS-1$
+			}
+			mnuTrafficCapture.setText(Messages.getString("MainWindow.MNU_CAPTURE_START")); //$NON-NLS-1$
+			return;
+		}
+		int n = 0;
+		for(int i = 0; i < model.getSize(); i++) {
+			ChatServer cs = model.getElementAt(i);
+			if(!cs.isStarted())
+				continue;
+			try {
+				Path path = cs.startCapture();
+				Helper.logInfo(String.format(Messages.getString("MainWindow.LOG_CAPTURE_STARTED"), cs.getName(), path.toAbsolutePath())); //$NON-NLS-1$
+				n++;
+			} catch(Exception ex) {
+				Helper.logError(ex, String.format(Messages.getString("MainWindow.CAPTURE_ERROR"), cs.getName()), true); //$NON-NLS-1$
+			}
+		}
+		if(n > 0)
+			mnuTrafficCapture.setText(Messages.getString("MainWindow.MNU_CAPTURE_STOP")); //$NON-NLS-1$
+		else Helper.logWarning(Messages.getString("MainWindow.CAPTURE_NO_SERVER"), true); //$NON-NLS-1$
+	}
+
 	/**
 	 * Open RIA document into an editor tab.
 	 *
@@ -1934,6 +2003,8 @@ public class MainWindow {
 						settings.setMainWndPos(mainFrame.getLocation());
 						settings.setMainWndSplitPos(new Point(splitPaneHorizontal.getDividerLocation(), splitPaneVertical.getDividerLocation()));
 						settings.save();
+						SqlitePool.closeAll();
+						KeyValueStore.closeAll();
 						try {
 							conChat4Us.close();
 							conChat4Us = null;
@@ -2382,6 +2453,22 @@ public class MainWindow {
 																dlg.dispose();
 															}
 														});
+
+								mnuFlightRecording = new JMenuItem(Messages.getString("MainWindow.MNU_JFR_START")); //$NON-NLS-1$
+								mnuFlightRecording.addActionListener(new ActionListener() {
+									public void actionPerformed(ActionEvent e) {
+										menuFlightRecording();
+									}
+								});
+								mnuTools.add(mnuFlightRecording);
+
+								mnuTrafficCapture = new JMenuItem(Messages.getString("MainWindow.MNU_CAPTURE_START")); //$NON-NLS-1$
+								mnuTrafficCapture.addActionListener(new ActionListener() {
+									public void actionPerformed(ActionEvent e) {
+										menuTrafficCapture();
+									}
+								});
+								mnuTools.add(mnuTrafficCapture);
 								mnuTools.addSeparator();
 								mnuTools.add(mnuSettings);
 
@@ -68,6 +68,7 @@ public class SettingsDialog extends JDialog {
 	private JTextField tfLogsTimeout;
 	private JTextField tfChatsTimeout;
 	private JTextField tfChatSessionsTimeout;
+	private JTextField tfChatSessionsSpill;
 	private JTextField tfAiContextLines;
 	private JList<IdLabelListElement> listGroups;
 	private JList<IdLabelListElement> listPostes;
@@ -116,6 +117,7 @@ public class SettingsDialog extends JDialog {
 		tfLogsTimeout.setText(String.valueOf(settings.getLogsTimeoutDays()));
 		tfChatsTimeout.setText(String.valueOf(settings.getChatsTimeoutDays()));
 		tfChatSessionsTimeout.setText(String.valueOf(settings.getChatSessionsTimeoutMinutes()));
+		tfChatSessionsSpill.setText(String.valueOf(settings.getChatSessionsSpillMinutes()));
 		tfAiContextLines.setText(String.valueOf(settings.getAiContextLines()));
 		tfAiMaxQuery.setText(String.valueOf(settings.getAiQueryMaxLength()));
 		tfAiServersTasks.setText(String.valueOf(settings.getAiServersTasks()));
@@ -505,6 +507,16 @@ public class SettingsDialog extends JDialog {
 			tfChatSessionsTimeout.setText("20"); //$NON-NLS-1$
 			tfChatSessionsTimeout.setHorizontalAlignment(SwingConstants.TRAILING);
 			tfChatSessionsTimeout.setColumns(10);
+
+			JLabel lblNewLabel_5_2 = new JLabel(Messages.getString("SettingsDialog.LBL_SES_MINUTES")); //$NON-NLS-1$
+
+			JLabel lblNewLabel_2_2 = new JLabel(Messages.getString("SettingsDialog.LBL_SES_SPILL")); //$NON-NLS-1$
+			lblNewLabel_2_2.setToolTipText(Messages.getString("SettingsDialog.TT_SES_SPILL")); //$NON-NLS-1$
+
+			tfChatSessionsSpill = new JTextField();
+			tfChatSessionsSpill.setText("5"); //$NON-NLS-1$
+			tfChatSessionsSpill.setHorizontalAlignment(SwingConstants.TRAILING);
+			tfChatSessionsSpill.setColumns(10);
 			GroupLayout gl_panelChatBots = new GroupLayout(panelChatBots);
 			gl_panelChatBots.setHorizontalGroup(
 				gl_panelChatBots.createParallelGroup(Alignment.LEADING)
@@ -515,6 +527,10 @@ public class SettingsDialog extends JDialog {
 								.addComponent(lblNewLabel_2_1)
 								.addPreferredGap(ComponentPlacement.RELATED)
 								.addComponent(tfChatSessionsTimeout, GroupLayout.PREFERRED_SIZE, 44, GroupLayout.PREFERRED_SIZE))
+							.addGroup(gl_panelChatBots.createSequentialGroup()
+								.addComponent(lblNewLabel_2_2)
+								.addPreferredGap(ComponentPlacement.RELATED)
+								.addComponent(tfChatSessionsSpill, GroupLayout.PREFERRED_SIZE, 44, GroupLayout.PREFERRED_SIZE))
 							.addGroup(gl_panelChatBots.createSequentialGroup()
 								.addComponent(lblNewLabel_2)
 								.addPreferredGap(ComponentPlacement.RELATED)
@@ -522,7 +538,8 @@ public class SettingsDialog extends JDialog {
 						.addPreferredGap(ComponentPlacement.RELATED)
 						.addGroup(gl_panelChatBots.createParallelGroup(Alignment.LEADING)
 							.addComponent(lblNewLabel_5)
-							.addComponent(lblNewLabel_5_1)))
+							.addComponent(lblNewLabel_5_1)
+							.addComponent(lblNewLabel_5_2)))
 			);
 			gl_panelChatBots.setVerticalGroup(
 				gl_panelChatBots.createParallelGroup(Alignment.LEADING)
@@ -541,7 +558,12 @@ public class SettingsDialog extends JDialog {
 								.addGroup(gl_panelChatBots.createParallelGroup(Alignment.BASELINE)
 									.addComponent(tfChatSessionsTimeout, GroupLayout.PREFERRED_SIZE, GroupLayout.DEFAULT_SIZE, GroupLayout.PREFERRED_SIZE)
 									.addComponent(lblNewLabel_2_1))))
-						.addContainerGap(157, Short.MAX_VALUE))
+						.addPreferredGap(ComponentPlacement.RELATED)
+						.addGroup(gl_panelChatBots.createParallelGroup(Alignment.BASELINE)
+							.addComponent(tfChatSessionsSpill, GroupLayout.PREFERRED_SIZE, GroupLayout.DEFAULT_SIZE, GroupLayout.PREFERRED_SIZE)
+							.addComponent(lblNewLabel_2_2)
+							.addComponent(lblNewLabel_5_2))
+						.addContainerGap(126, Short.MAX_VALUE))
 			);
 			panelChatBots.setLayout(gl_panelChatBots);
 
@@ -671,6 +693,8 @@ public class SettingsDialog extends JDialog {
 							if(aiLogWhenTooLong < 1) throw new InvalidParameterException(Messages.getString("SettingsDialog.EX_MIN_LOG_LONG_RESPONSE")); //$NON-NLS-1$
 							int chatSessionsTimeoutMinutes = Integer.parseInt(tfChatSessionsTimeout.getText().trim());
 							if(chatSessionsTimeoutMinutes < 1) throw new InvalidParameterException(Messages.getString("SettingsDialog.EX_MIN_CHAT_SES_TIMOUT")); //$NON-NLS-1$
+							int chatSessionsSpillMinutes = Integer.parseInt(tfChatSessionsSpill.getText().trim());
+							if(chatSessionsSpillMinutes < 0) throw new InvalidParameterException(Messages.getString("SettingsDialog.EX_MIN_CHAT_SES_SPILL")); //$NON-NLS-1$
 							int agentResponseTimeoutSeconds = Integer.parseInt(tfAgentResponseTimeout.getText().trim());
 							if(agentResponseTimeoutSeconds < 60) throw new InvalidParameterException(Messages.getString("SettingsDialog.EX_MAX_AGENT_RESPONSE")); //$NON-NLS-1$
 							if(cmbLanguages.getSelectedIndex() < 0) throw new InvalidParameterException(Messages.getString("SettingsDialog.EX_SEL_LANGUAGE")); //$NON-NLS-1$
@@ -688,6 +712,7 @@ public class SettingsDialog extends JDialog {
 							settings.setAiServersTasks(aiServersTasks);
 							settings.setAiLogOnLongResponse(aiLogWhenTooLong);
 							settings.setChatSessionsTimeoutMinutes(chatSessionsTimeoutMinutes);
+							settings.setChatSessionsSpillMinutes(chatSessionsSpillMinutes);
 							settings.setAgentResponseTimeoutSeconds(agentResponseTimeoutSeconds);
 							//settings.setNsLookupOnLogin(nsLookupOnLogin);
 							settings.setNotifyOnErrors(notifyOnError);
@@ -31,12 +31,15 @@ import com.google.gson.annotations.SerializedName;
 
 import io.github.emmrida.chat4us.gui.MainWindow;
 import io.github.emmrida.chat4us.util.Messages;
+import io.github.emmrida.chat4us.util.Settings;
 
 /**
  * Manages the connection to the bot server
  */
 public class ServerConnector {
 
+    private static final int DEF_TIMEOUT_MINUTES = 5;
+
     private final String botUrl; //URL of the bot server
     private final HttpClient httpClient; //HTTP client for making requests
 
@@ -47,8 +50,17 @@ public class ServerConnector {
      * @param botUrl Base URL of the bot server
      */
     public ServerConnector(String botUrl) {
+        this(botUrl, MainWindow.isSelfSigned());
+    }
+
+    /**
+     * Constructor for ServerConnector
+     * @param botUrl Base URL of the bot server
+     * @param selfSigned True to accept the self signed certificate of the bot server
+     */
+    public ServerConnector(String botUrl, boolean selfSigned) {
         this.botUrl = normalizeUrl(botUrl);
-        this.httpClient = createHttpClient();
+        this.httpClient = createHttpClient(selfSigned);
         this.serverToken = null;
     }
 
@@ -64,15 +76,25 @@ public class ServerConnector {
         return url.endsWith("/") ? url.substring(0, url.length() - 1) : url; //$NON-NLS-1$
     }
 
+    /**
+     * Request timeout, from the settings when running inside the app.
+     * @return The timeout duration
+     */
+    private static Duration timeout() {
+        Settings settings = MainWindow.getSettings();
+        return Duration.ofMinutes(settings != null ? settings.getAiLogOnLongResponse() : DEF_TIMEOUT_MINUTES);
+    }
+
     /**
      * Creates an HTTP client that is used to communicate with the bot server
+     * @param selfSigned True to accept self signed certificates
      * @return The HTTP client
      */
-    private HttpClient createHttpClient() {
+    private HttpClient createHttpClient(boolean selfSigned) {
         try {
             SSLContext sslContext = SSLContext.getInstance("TLS"); //$NON-NLS-1$
             SSLParameters sslParameters = new SSLParameters();
-        	if(MainWindow.isSelfSigned()) {
+        	if(selfSigned) {
 	            TrustManager[] trustAllCerts = new TrustManager[] {
 	                new X509TrustManager() {
 	    				public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException { }
@@ -94,7 +116,7 @@ public class ServerConnector {
             return HttpClient.newBuilder()
                     .sslContext(sslContext)
                     .sslParameters(sslParameters)
-                    .connectTimeout(Duration.ofMinutes(MainWindow.getSettings().getAiLogOnLongResponse()))
+                    .connectTimeout(timeout())
                     .version(HttpClient.Version.HTTP_1_1)
                     .build();
 
@@ -126,7 +148,7 @@ public class ServerConnector {
                     .header("Content-Type", "application/x-www-form-urlencoded") //$NON-NLS-1$ //$NON-NLS-2$
                     .header("auth_key", hdr) //$NON-NLS-1$
                     .POST(BodyPublishers.ofString(buildQueryString(formData)))
-                    .timeout(Duration.ofMinutes(MainWindow.getSettings().getAiLogOnLongResponse()))
+                    .timeout(timeout())
                     .build();
 
             HttpResponse<String> response = httpClient.send(request, BodyHandlers.ofString());
@@ -149,6 +171,47 @@ public class ServerConnector {
         }
     }
 
+    /**
+     * Performs a website login operation and stores the token.
+     * @param key1 Website key 1
+     * @param key2 Website key 2
+     * @return true if login successful, false otherwise
+     */
+    public boolean websiteLogin(String key1, String key2) {
+        if (serverToken != null) {
+            System.err.println(Messages.getString("ServerConnector.LOG_ALREADY_LOGGED_IN")); //$NON-NLS-1$
+            return true;
+        }
+
+        try {
+            Map<String, String> formData = Map.of(
+                "key1", key1, //$NON-NLS-1$
+                "key2", key2 //$NON-NLS-1$
+            );
+
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(botUrl + "/login")) //$NON-NLS-1$
+                    .header("Content-Type", "application/x-www-form-urlencoded") //$NON-NLS-1$ //$NON-NLS-2$
+                    .POST(BodyPublishers.ofString(buildQueryString(formData)))
+                    .timeout(timeout())
+                    .build();
+
+            HttpResponse<String> response = httpClient.send(request, BodyHandlers.ofString());
+            ApiResponse apiResponse = parseResponseWithAdditionalFields(response.body());
+
+            if (apiResponse != null && apiResponse.isSuccess() && apiResponse.getToken() != null) {
+                serverToken = apiResponse.getToken();
+                return true;
+            }
+            System.err.println(Messages.getString("ServerConnector.LOG_LOGIN_FAILURE_STATUS") + //$NON-NLS-1$
+                (apiResponse != null ? apiResponse.isSuccess() : "null")); //$NON-NLS-1$
+            return false;
+        } catch (Exception e) {
+            System.err.println(Messages.getString("ServerConnector.EX_LOGIN_ERROR") + e.getMessage()); //$NON-NLS-1$
+            return false;
+        }
+    }
+
     /**
      * Performs logout operation and removes the token
      * @return true if logout successful or no token was present, false on error
@@ -165,7 +228,7 @@ public class ServerConnector {
                     .uri(URI.create(botUrl + "/logout")) //$NON-NLS-1$
                     .header("Content-Type", "application/x-www-form-urlencoded") //$NON-NLS-1$ //$NON-NLS-2$
                     .POST(BodyPublishers.ofString(buildQueryString(formData)))
-                    .timeout(Duration.ofMinutes(MainWindow.getSettings().getAiLogOnLongResponse()))
+                    .timeout(timeout())
                     .build();
 
             HttpResponse<String> response = httpClient.send(request, BodyHandlers.ofString());
@@ -199,7 +262,7 @@ public class ServerConnector {
                     .uri(URI.create(botUrl + "/letschat")) //$NON-NLS-1$
                     .header("Content-Type", "application/x-www-form-urlencoded") //$NON-NLS-1$ //$NON-NLS-2$
                     .POST(BodyPublishers.ofString(buildQueryString(formData)))
-                    .timeout(Duration.ofMinutes(MainWindow.getSettings().getAiLogOnLongResponse()))
+                    .timeout(timeout())
                     .build();
 
             HttpResponse<String> response = httpClient.send(request, BodyHandlers.ofString());
@@ -234,7 +297,7 @@ public class ServerConnector {
                     .uri(URI.create(botUrl + "/message")) //$NON-NLS-1$
                     .header("Content-Type", "application/x-www-form-urlencoded") //$NON-NLS-1$ //$NON-NLS-2$
                     .POST(BodyPublishers.ofString(buildQueryString(formData)))
-                    .timeout(Duration.ofMinutes(MainWindow.getSettings().getAiLogOnLongResponse()))
+                    .timeout(timeout())
                     .build();
 
             HttpResponse<String> response = httpClient.send(request, BodyHandlers.ofString());
@@ -247,6 +310,26 @@ public class ServerConnector {
         }
     }
 
+    /**
+     * Reads the metrics of the bot server, served to local and private network clients only.
+     * @return Metrics in the Prometheus text format, null on error
+     */
+    public String getMetrics() {
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(botUrl + "/metrics")) //$NON-NLS-1$
+                    .GET()
+                    .timeout(timeout())
+                    .build();
+
+            HttpResponse<String> response = httpClient.send(request, BodyHandlers.ofString());
+            return response.statusCode() == 200 ? response.body() : null;
+        } catch (Exception e) {
+            System.err.println(Messages.getString("ServerConnector.EX_METRICS_ERROR") + e.getMessage()); //$NON-NLS-1$
+            return null;
+        }
+    }
+
     /**
      * Helper method to build URL-encoded query string
      * @param parameters Query parameters
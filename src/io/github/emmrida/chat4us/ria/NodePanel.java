@@ -23,6 +23,8 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
 import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
@@ -42,8 +44,9 @@ import javax.swing.JTextArea;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import io.github.emmrida.chat4us.core.ChatBotClient;
 import io.github.emmrida.chat4us.gui.MainWindow;
@@ -1815,42 +1818,132 @@ public class NodePanel extends JPanel {
         }
 
         /**
-         * Creates a new Data instance from an XML node object.
+         * Creates a new Data instance from a streamed question element.
          *
-         * @param node the XML node
-         * @return the new Data instance or null on error.
+         * @param reader the XML reader, on the question start element. Left on its end element.
+         * @return the new Data instance.
+         * @throws XMLStreamException on XML or number format errors.
          */
-        public static Data fromXml(Node node) {
+        public static Data fromXml(XMLStreamReader reader) throws XMLStreamException {
+        	Data data = new Data(); // Missing elements read as empty like in the DOM loader
+        	data.message = data.valType = data.valCondition = data.script = ""; //$NON-NLS-1$
+        	data.sucMessage = data.sucAction = data.sucValue = ""; //$NON-NLS-1$
+        	data.errMessage = data.errAction = data.errValue = ""; //$NON-NLS-1$
+        	String section = null;
         	try {
-	        	Data data = new Data();
-	        	NodeList parentNodes = node.getChildNodes();
-	        	data.id = Integer.parseInt(Helper.getNodeValue(parentNodes, "id")); //$NON-NLS-1$
-				String[] bounds = Helper.getNodeValue(parentNodes, "bounds").split(";"); //$NON-NLS-1$ //$NON-NLS-2$
-				data.xPos = Integer.parseInt(bounds[0]);
-				data.yPos = Integer.parseInt(bounds[1]);
-				data.width = Integer.parseInt(bounds[2]);
-				data.height = Integer.parseInt(bounds[3]);
-				data.message = Helper.unescapeHtml(Helper.getNodeValue(parentNodes, "message")); //$NON-NLS-1$
-				parentNodes = Helper.getNodeByName(parentNodes, "response").getChildNodes(); //$NON-NLS-1$
-				parentNodes = Helper.getNodeByName(parentNodes, "condition").getChildNodes(); //$NON-NLS-1$
-				data.valType = Helper.getNodeValue(parentNodes, "type"); //$NON-NLS-1$
-				data.valCondition = Helper.getNodeValue(parentNodes, "validation"); //$NON-NLS-1$
-				NodeList nodes = Helper.getNodeByName(parentNodes, "on_success").getChildNodes(); //$NON-NLS-1$
-				data.sucMessage = Helper.unescapeHtml(Helper.getNodeValue(nodes, "message")); //$NON-NLS-1$
-				data.sucAction = Helper.getNodeValue(nodes, "action"); //$NON-NLS-1$
-				data.sucValue = Helper.getNodeValue(nodes, "value"); //$NON-NLS-1$
-				data.sucMoveTo = Integer.parseInt(Helper.getNodeValue(nodes, "move")); //$NON-NLS-1$
-				nodes = Helper.getNodeByName(parentNodes, "on_error").getChildNodes(); //$NON-NLS-1$
-				data.errMessage = Helper.unescapeHtml(Helper.getNodeValue(nodes, "message")); //$NON-NLS-1$
-				data.errAction = Helper.getNodeValue(nodes, "action"); //$NON-NLS-1$
-				data.errValue = Helper.getNodeValue(nodes, "value"); //$NON-NLS-1$
-				data.errMoveTo = Integer.parseInt(Helper.getNodeValue(nodes, "move")); //$NON-NLS-1$
-				data.script = Helper.unescapeHtml(Helper.getNodeValue(parentNodes, "script")); //$NON-NLS-1$
-				return data;
-        	} catch (Exception ex) {
-	        	Helper.logError(ex, Messages.getString("NodePanel.LOG_ERR_NODE_LOAD"), true); //$NON-NLS-1$
+	        	while(reader.hasNext()) {
+	        		int event = reader.next();
+	        		if(event == XMLStreamConstants.END_ELEMENT) {
+	        			String name = reader.getLocalName();
+	        			if("question".equals(name)) //$NON-NLS-1$
+	        				break;
+	        			if(name.equals(section))
+	        				section = null;
+	        		} else if(event == XMLStreamConstants.START_ELEMENT) {
+	        			String name = reader.getLocalName();
+	        			boolean suc = "on_success".equals(section); //$NON-NLS-1$
+	        			boolean err = "on_error".equals(section); //$NON-NLS-1$
+	        			switch(name) {
+	        			case "on_success": //$NON-NLS-1$
+	        			case "on_error": section = name; break; //$NON-NLS-1$
+	        			case "id": data.id = Integer.parseInt(reader.getElementText().trim()); break; //$NON-NLS-1$
+	        			case "bounds": //$NON-NLS-1$
+	        				String[] bounds = reader.getElementText().split(";"); //$NON-NLS-1$
+	        				data.xPos = Integer.parseInt(bounds[0]);
+	        				data.yPos = Integer.parseInt(bounds[1]);
+	        				data.width = Integer.parseInt(bounds[2]);
+	        				data.height = Integer.parseInt(bounds[3]);
+	        				break;
+	        			case "message": //$NON-NLS-1$
+	        				String msg = Helper.unescapeHtml(reader.getElementText());
+	        				if(suc) {
+	        					data.sucMessage = msg;
+	        				} else if(err) {
+	        					data.errMessage = msg;
+	        				} else data.message = msg;
+	        				break;
+	        			case "type": data.valType = reader.getElementText(); break; //$NON-NLS-1$
+	        			case "validation": data.valCondition = reader.getElementText(); break; //$NON-NLS-1$
+	        			case "script": data.script = Helper.unescapeHtml(reader.getElementText()); break; //$NON-NLS-1$
+	        			case "action": //$NON-NLS-1$
+	        				if(suc) {
+	        					data.sucAction = reader.getElementText();
+	        				} else if(err) data.errAction = reader.getElementText();
+	        				break;
+	        			case "value": //$NON-NLS-1$
+	        				if(suc) {
+	        					data.sucValue = reader.getElementText();
+	        				} else if(err) data.errValue = reader.getElementText();
+	        				break;
+	        			case "move": //$NON-NLS-1$
+	        				int moveTo = Integer.parseInt(reader.getElementText().trim());
+	        				if(suc) {
+	        					data.sucMoveTo = moveTo;
+	        				} else if(err) data.errMoveTo = moveTo;
+	        				break;
+	        			default: break;
+	        			}
+	        		}
+	        	}
+        	} catch(NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+        		throw new XMLStreamException(Messages.getString("NodePanel.LOG_ERR_NODE_LOAD"), reader.getLocation(), ex); //$NON-NLS-1$
         	}
-        	return null;
+        	return data;
+        }
+
+        /**
+         * Reads a Data instance written by writeTo().
+         *
+         * @param in the binary stream.
+         * @return the new Data instance.
+         * @throws IOException
+         */
+        static Data readFrom(DataInputStream in) throws IOException {
+        	Data data = new Data();
+        	data.id = in.readInt();
+        	data.message = RiaDocument.readString(in);
+        	data.valType = RiaDocument.readString(in);
+        	data.valCondition = RiaDocument.readString(in);
+        	data.sucMessage = RiaDocument.readString(in);
+        	data.sucAction = RiaDocument.readString(in);
+        	data.sucValue = RiaDocument.readString(in);
+        	data.sucMoveTo = in.readInt();
+        	data.errMessage = RiaDocument.readString(in);
+        	data.errAction = RiaDocument.readString(in);
+        	data.errValue = RiaDocument.readString(in);
+        	data.errMoveTo = in.readInt();
+        	data.script = RiaDocument.readString(in);
+        	data.xPos = in.readInt();
+        	data.yPos = in.readInt();
+        	data.width = in.readInt();
+        	data.height = in.readInt();
+        	return data;
+        }
+
+        /**
+         * Writes this instance to a binary stream.
+         *
+         * @param out the binary stream.
+         * @throws IOException
+         */
+        void writeTo(DataOutputStream out) throws IOException {
+        	out.writeInt(id);
+        	RiaDocument.writeString(out, message);
+        	RiaDocument.writeString(out, valType);
+        	RiaDocument.writeString(out, valCondition);
+        	RiaDocument.writeString(out, sucMessage);
+        	RiaDocument.writeString(out, sucAction);
+        	RiaDocument.writeString(out, sucValue);
+        	out.writeInt(sucMoveTo);
+        	RiaDocument.writeString(out, errMessage);
+        	RiaDocument.writeString(out, errAction);
+        	RiaDocument.writeString(out, errValue);
+        	out.writeInt(errMoveTo);
+        	RiaDocument.writeString(out, script);
+        	out.writeInt(xPos);
+        	out.writeInt(yPos);
+        	out.writeInt(width);
+        	out.writeInt(height);
         }
 
         /**
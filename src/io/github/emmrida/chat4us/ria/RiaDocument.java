@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.ria;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import io.github.emmrida.chat4us.util.Helper;
+
+/**
+ * The content of a RIA file: bot info, parameters and nodes. RIA files are read with a
+ * streaming parser, no DOM tree is built. A document can also be written to and read from
+ * a binary stream, used by the compiled flow cache of the chat bot servers.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public final class RiaDocument {
+	private int entryId;
+	private String locale = ""; //$NON-NLS-1$
+	private String botName = ""; //$NON-NLS-1$
+	private String botGuidelines = ""; //$NON-NLS-1$
+	private String botScript = ""; //$NON-NLS-1$
+	private final Map<String, String> params = new LinkedHashMap<>();
+	private final List<NodePanel.Data> nodes = new ArrayList<>();
+
+	private RiaDocument() {}
+
+	/**
+	 * Reads a RIA file.
+	 * @param riaFile RIA file path.
+	 * @return The RIA document.
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	public static RiaDocument read(String riaFile) throws IOException, XMLStreamException {
+		try(InputStream in = new BufferedInputStream(new FileInputStream(riaFile))) {
+			return read(in);
+		}
+	}
+
+	/**
+	 * Reads a RIA document from a stream.
+	 * @param in RIA content.
+	 * @return The RIA document.
+	 * @throws XMLStreamException
+	 */
+	public static RiaDocument read(InputStream in) throws XMLStreamException {
+		XMLInputFactory factory = XMLInputFactory.newDefaultFactory();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		XMLStreamReader reader = factory.createXMLStreamReader(in);
+		try {
+			RiaDocument doc = new RiaDocument();
+			String key = null;
+			while(reader.hasNext()) {
+				if(reader.next() != XMLStreamConstants.START_ELEMENT)
+					continue;
+				switch(reader.getLocalName()) {
+				case "entry_id": doc.entryId = Integer.parseInt(reader.getElementText().trim()); break; //$NON-NLS-1$
+				case "locale": doc.locale = reader.getElementText(); break; //$NON-NLS-1$
+				case "name": doc.botName = reader.getElementText(); break; //$NON-NLS-1$
+				case "guidelines": doc.botGuidelines = reader.getElementText(); break; //$NON-NLS-1$
+				case "script": doc.botScript = Helper.unescapeHtml(reader.getElementText()); break; //$NON-NLS-1$
+				case "key": key = reader.getElementText(); break; //$NON-NLS-1$
+				case "value": //$NON-NLS-1$
+					if(key != null) {
+						doc.params.put(key, reader.getElementText());
+						key = null;
+					}
+					break;
+				case "question": doc.nodes.add(NodePanel.Data.fromXml(reader)); break; //$NON-NLS-1$
+				default: break;
+				}
+			}
+			return doc;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads a document written by writeTo().
+	 * @param in Binary stream over an in memory buffer.
+	 * @return The RIA document.
+	 * @throws IOException
+	 */
+	public static RiaDocument readFrom(DataInputStream in) throws IOException {
+		RiaDocument doc = new RiaDocument();
+		doc.entryId = in.readInt();
+		doc.locale = readString(in);
+		doc.botName = readString(in);
+		doc.botGuidelines = readString(in);
+		doc.botScript = readString(in);
+		int n = in.readInt();
+		for(int i = 0; i < n; i++)
+			doc.params.put(readString(in), readString(in));
+		n = in.readInt();
+		for(int i = 0; i < n; i++)
+			doc.nodes.add(NodePanel.Data.readFrom(in));
+		return doc;
+	}
+
+	/**
+	 * Writes the document to a binary stream.
+	 * @param out Binary stream.
+	 * @throws IOException
+	 */
+	public void writeTo(DataOutputStream out) throws IOException {
+		out.writeInt(this.entryId);
+		writeString(out, this.locale);
+		writeString(out, this.botName);
+		writeString(out, this.botGuidelines);
+		writeString(out, this.botScript);
+		out.writeInt(this.params.size());
+		for(Map.Entry<String, String> e : this.params.entrySet()) {
+			writeString(out, e.getKey());
+			writeString(out, e.getValue());
+		}
+		out.writeInt(this.nodes.size());
+		for(NodePanel.Data data : this.nodes)
+			data.writeTo(out);
+	}
+
+	/**
+	 * Writes a string of any length, null included.
+	 */
+	public static void writeString(DataOutputStream out, String s) throws IOException {
+		if(s == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] b = s.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(b.length);
+			out.write(b);
+		}
+	}
+
+	/**
+	 * Reads a string written by writeString().
+	 */
+	public static String readString(DataInputStream in) throws IOException {
+		int len = in.readInt();
+		if(len < 0)
+			return null;
+		if(len > in.available())
+			throw new EOFException();
+		byte[] b = new byte[len];
+		in.readFully(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return Id of the entry node.
+	 */
+	public int getEntryId() { return this.entryId; }
+
+	/**
+	 * @return Locale of the chat bot.
+	 */
+	public String getLocale() { return this.locale; }
+
+	/**
+	 * @return Bot name.
+	 */
+	public String getBotName() { return this.botName; }
+
+	/**
+	 * @return AI model guidelines.
+	 */
+	public String getBotGuidelines() { return this.botGuidelines; }
+
+	/**
+	 * @return Bot script, unescaped.
+	 */
+	public String getBotScript() { return this.botScript; }
+
+	/**
+	 * @return Bot parameters in the file order.
+	 */
+	public Map<String, String> getParams() { return Collections.unmodifiableMap(this.params); }
+
+	/**
+	 * @return Nodes in the file order.
+	 */
+	public List<NodePanel.Data> getNodes() { return Collections.unmodifiableList(this.nodes); }
+}
@@ -43,11 +43,6 @@ import javax.swing.event.MenuListener;
 import javax.swing.event.PopupMenuEvent;
 import javax.swing.event.PopupMenuListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import io.github.emmrida.chat4us.gui.MainWindow;
 import io.github.emmrida.chat4us.util.CustomSaveFileChooser;
@@ -498,47 +493,20 @@ public class RiaEditorPanel extends JPanel {
 		MainWindow.getInstance().setTabTitle(tabIndex, EDITOR_TITLE + file.getName() + " "); //$NON-NLS-1$
 		if(botParams == null)
 			botParams = new HashMap<>();
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document document = builder.parse(xmlFile);
-        document.getDocumentElement().normalize();
-
-        NodeList nodes = document.getElementsByTagName("info").item(0).getChildNodes(); //$NON-NLS-1$
-        this.entryId = Integer.parseInt(Helper.getNodeValue(nodes, "entry_id")); //$NON-NLS-1$
-        this.botLocale = Helper.getNodeValue(nodes, "locale"); //$NON-NLS-1$
-        nodes = document.getElementsByTagName("ai_model").item(0).getChildNodes(); //$NON-NLS-1$
-        this.botName = Helper.getNodeValue(nodes, "name"); //$NON-NLS-1$
-        this.botGuidelines = Helper.getNodeValue(nodes, "guidelines"); //$NON-NLS-1$
-        this.botScript = Helper.unescapeHtml(Helper.getNodeValue(nodes, "script")); //$NON-NLS-1$
-        Node node;
-        Node item;
-        String param;
-        String value;
-        nodes = document.getElementsByTagName("params").item(0).getChildNodes(); //$NON-NLS-1$
-        for(int i = 0; i < nodes.getLength(); i++) {
-        	node = nodes.item(i);
-        	if(node.getNodeType() == Node.ELEMENT_NODE) {
-        		item = Helper.getNodeByName(node.getChildNodes(), "key").getChildNodes().item(0); //$NON-NLS-1$
-	        	param = ""; //$NON-NLS-1$
-	        	if(item != null)
-	        		param = item.getNodeValue();
-	        	item = Helper.getNodeByName(node.getChildNodes(), "value").getChildNodes().item(0); //$NON-NLS-1$
-	        	value = ""; //$NON-NLS-1$
-	        	if(item != null)
-	        		value = item.getNodeValue();
-	        	this.botParams.put(param, value);
-        	}
-        }
+        RiaDocument document = RiaDocument.read(xmlFile);
+        this.entryId = document.getEntryId();
+        this.botLocale = document.getLocale();
+        this.botName = document.getBotName();
+        this.botGuidelines = document.getBotGuidelines();
+        this.botScript = document.getBotScript();
+        this.botParams.putAll(document.getParams());
 
         NodePanel np;
         NodePanel.Data data;
-        nodes = document.getElementsByTagName("question"); //$NON-NLS-1$
-        for(int i = 0; i < nodes.getLength(); i++) {
-        	node = nodes.item(i);
-        	data = NodePanel.Data.fromXml(node);
-			np = addNode(data.getXPos(), data.getYPos());
-			np.setData(data);
-			nextId = data.getId() + 1;
+        for(NodePanel.Data node : document.getNodes()) {
+			np = addNode(node.getXPos(), node.getYPos());
+			np.setData(node);
+			nextId = node.getId() + 1;
         }
 
         NodePanel nodeTo;
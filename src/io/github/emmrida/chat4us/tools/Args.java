@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.tools;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line options of the tools, given as "-name value" or "-flag".
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+final class Args {
+	private final Map<String, String> values = new HashMap<>();
+
+	/**
+	 * Parses the command line.
+	 * @param args Command line arguments.
+	 * @throws IllegalArgumentException On an argument not starting with '-'.
+	 */
+	Args(String[] args) {
+		for(int i = 0; i < args.length; i++) {
+			if(!args[i].startsWith("-") || args[i].length() < 2) //$NON-NLS-1$
+				throw new IllegalArgumentException("Unexpected argument: " + args[i]); //$NON-NLS-1$
+			String name = args[i].substring(1);
+			if(i + 1 < args.length && !args[i + 1].startsWith("-")) //$NON-NLS-1$
+				this.values.put(name, args[++i]);
+			else this.values.put(name, ""); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * @return True if the option or the flag is given.
+	 */
+	boolean has(String name) { return this.values.containsKey(name); }
+
+	/**
+	 * @return Option value, def if not given.
+	 */
+	String get(String name, String def) {
+		String value = this.values.get(name);
+		return value != null && !value.isEmpty() ? value : def;
+	}
+
+	/**
+	 * @return Option integer value, def if not given.
+	 */
+	int getInt(String name, int def) {
+		String value = this.values.get(name);
+		return value != null && !value.isEmpty() ? Integer.parseInt(value) : def;
+	}
+
+	/**
+	 * @return Option decimal value, def if not given.
+	 */
+	double getDouble(String name, double def) {
+		String value = this.values.get(name);
+		return value != null && !value.isEmpty() ? Double.parseDouble(value) : def;
+	}
+
+	/**
+	 * @return Option value, throws if not given.
+	 * @throws IllegalArgumentException If the option is missing.
+	 */
+	String require(String name) {
+		String value = this.values.get(name);
+		if(value == null || value.isEmpty())
+			throw new IllegalArgumentException("Missing option: -" + name); //$NON-NLS-1$
+		return value;
+	}
+}
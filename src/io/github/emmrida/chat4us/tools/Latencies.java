@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.tools;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of one operation of the load tools, in nanoseconds.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+final class Latencies {
+	private long[] values = new long[1024];
+	private int size = 0;
+	private int errors = 0;
+
+	synchronized void add(long nanos) {
+		if(this.size == this.values.length)
+			this.values = Arrays.copyOf(this.values, this.size * 2);
+		this.values[this.size++] = nanos;
+	}
+
+	synchronized void error() { this.errors++; }
+
+	/**
+	 * Prints a report line: count, errors and percentiles in milliseconds.
+	 */
+	synchronized void print(String name) {
+		long[] v = Arrays.copyOf(this.values, this.size);
+		Arrays.sort(v);
+		int total = this.size + this.errors;
+		System.out.println(String.format("%-10s %8d %7d %6.2f%% %9.1f %9.1f %9.1f %9.1f %9.1f", name, total, this.errors, //$NON-NLS-1$
+				total > 0 ? 100.0 * this.errors / total : 0.0, mean(v), percentile(v, 0.50), percentile(v, 0.90), percentile(v, 0.99), v.length > 0 ? v[v.length - 1] / 1e6 : 0.0));
+	}
+
+	synchronized int count() { return this.size; }
+
+	synchronized int errors() { return this.errors; }
+
+	private static double mean(long[] v) {
+		if(v.length == 0)
+			return 0.0;
+		double sum = 0.0;
+		for(long n : v)
+			sum += n;
+		return sum / v.length / 1e6;
+	}
+
+	private static double percentile(long[] sorted, double p) {
+		if(sorted.length == 0)
+			return 0.0;
+		int i = (int)Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, i))] / 1e6;
+	}
+}
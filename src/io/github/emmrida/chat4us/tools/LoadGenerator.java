@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.tools;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.github.emmrida.chat4us.internalclient.ServerConnector;
+import io.github.emmrida.chat4us.internalclient.ServerConnector.ApiResponse;
+
+/**
+ * Load tests a running chat server. Virtual users log in as the website, open a chat then send
+ * scripted messages with think times between them, the same way the website chat widget does.
+ * Users are started along a ramp-up, linear or by steps. The server metrics are read during the
+ * run to report its saturation next to the client side throughput, latencies and errors.
+ * An in-process mock AI model server can be started so AI nodes answer without a real model,
+ * see MockModelServer.
+ * Usage: LoadGenerator -url https://host:port -key1 k1 -key2 k2 [-insecure] [-users 50]
+ *        [-messages 10] [-rampup 30] [-steps 0] [-think 1000-3000] [-script file]
+ *        [-mock 11434] [-latency lognormal:800,0.5] [-tokens 60] [-token-delay 20] [-errors 0.0]
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public final class LoadGenerator {
+	private static final String[] DEF_SCRIPT = { "Yes", "Rabat", "Paris", "Tokyo", "I don't know", "Ottawa", "Canberra", "Brasilia", "Cairo", "Nairobi" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$
+	private static final String WAITING_MSG = "..."; //$NON-NLS-1$
+	private static final long METRICS_PERIOD_MS = 1000L;
+
+	private final String url;
+	private final boolean insecure;
+	private final String[] script;
+	private final int messages;
+	private final long thinkMin;
+	private final long thinkMax;
+	private final Latencies letsChat = new Latencies();
+	private final Latencies message = new Latencies();
+	private final AtomicInteger chatsEnded = new AtomicInteger();
+	private final AtomicInteger activeUsers = new AtomicInteger();
+
+	private LoadGenerator(String url, boolean insecure, String[] script, int messages, long thinkMin, long thinkMax) {
+		this.url = url;
+		this.insecure = insecure;
+		this.script = script;
+		this.messages = messages;
+		this.thinkMin = thinkMin;
+		this.thinkMax = thinkMax;
+	}
+
+	/**
+	 * Runs the conversation of one virtual user.
+	 * @param token Website token shared by all the users.
+	 * @param index User index.
+	 */
+	private void runUser(String token, int index) {
+		ServerConnector connector = new ServerConnector(this.url, this.insecure);
+		connector.setToken(token);
+		String userId = "load-user-" + index; //$NON-NLS-1$
+		this.activeUsers.incrementAndGet();
+		try {
+			if(!openChat(connector, userId))
+				return;
+			for(int i = 0; i < this.messages; i++) {
+				think();
+				String msg = this.script[i % this.script.length].replace("{user}", userId); //$NON-NLS-1$
+				ApiResponse r = timedMessage(connector, userId, msg);
+				while(r != null && r.isChatbotWaiting() && !r.isChatEnded())
+					r = timedMessage(connector, userId, WAITING_MSG);
+				if(r != null && r.isChatEnded()) {
+					this.chatsEnded.incrementAndGet();
+					if(i + 1 < this.messages && !openChat(connector, userId))
+						return;
+				}
+			}
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} finally {
+			this.activeUsers.decrementAndGet();
+		}
+	}
+
+	private boolean openChat(ServerConnector connector, String userId) {
+		long start = System.nanoTime();
+		ApiResponse r = connector.letsChat(userId);
+		if(r == null || !r.isSuccess()) {
+			this.letsChat.error();
+			return false;
+		}
+		this.letsChat.add(System.nanoTime() - start);
+		return true;
+	}
+
+	private ApiResponse timedMessage(ServerConnector connector, String userId, String msg) {
+		long start = System.nanoTime();
+		ApiResponse r = connector.sendMessage(userId, msg);
+		if(r == null || !r.isSuccess()) {
+			this.message.error();
+			return null;
+		}
+		this.message.add(System.nanoTime() - start);
+		return r;
+	}
+
+	private void think() throws InterruptedException {
+		if(this.thinkMax > 0)
+			Thread.sleep(this.thinkMin + ThreadLocalRandom.current().nextLong(this.thinkMax - this.thinkMin + 1));
+	}
+
+	/**
+	 * @return Start delay of a user, in milliseconds. With steps, users start by groups.
+	 */
+	private static long startDelay(int index, int users, long rampUpMs, int steps) {
+		if(users <= 1 || rampUpMs <= 0)
+			return 0L;
+		if(steps > 1) {
+			int step = (int)((long)index * steps / users);
+			return rampUpMs * step / (steps - 1);
+		}
+		return rampUpMs * index / (users - 1);
+	}
+
+	/**
+	 * @return Script messages, one per non empty line, lines starting with # are comments.
+	 */
+	private static String[] loadScript(String file) throws Exception {
+		List<String> lines = new ArrayList<>();
+		for(String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+			String l = line.strip();
+			if(!l.isEmpty() && !l.startsWith("#")) //$NON-NLS-1$
+				lines.add(l);
+		}
+		if(lines.isEmpty())
+			throw new IllegalArgumentException("Empty script: " + file); //$NON-NLS-1$
+		return lines.toArray(new String[0]);
+	}
+
+	private static long[] parseRange(String range) {
+		String[] p = range.split("-", 2); //$NON-NLS-1$
+		long min = Long.parseLong(p[0].strip());
+		long max = p.length > 1 ? Long.parseLong(p[1].strip()) : min;
+		return new long[] { Math.min(min, max), Math.max(min, max) };
+	}
+
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+		Args a = new Args(args);
+		String url = a.require("url"); //$NON-NLS-1$
+		int users = a.getInt("users", 50); //$NON-NLS-1$
+		int messages = a.getInt("messages", 10); //$NON-NLS-1$
+		long rampUpMs = a.getInt("rampup", 30) * 1000L; //$NON-NLS-1$
+		int steps = a.getInt("steps", 0); //$NON-NLS-1$
+		long[] think = parseRange(a.get("think", "1000-3000")); //$NON-NLS-1$ //$NON-NLS-2$
+		String[] script = a.has("script") ? loadScript(a.require("script")) : DEF_SCRIPT; //$NON-NLS-1$ //$NON-NLS-2$
+		boolean insecure = a.has("insecure"); //$NON-NLS-1$
+
+		MockModelServer mock = null;
+		if(a.has("mock")) { //$NON-NLS-1$
+			int port = a.getInt("mock", MockModelServer.DEF_PORT); //$NON-NLS-1$
+			mock = new MockModelServer(MockModelServer.Latency.parse(a.get("latency", MockModelServer.DEF_LATENCY)), a.getInt("tokens", 60), a.getInt("token-delay", 20), a.getDouble("errors", 0.0)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			mock.start(MockModelServer.DEF_HOST, port);
+			System.out.println(String.format("Mock model server on http://%s:%d (%s)", MockModelServer.DEF_HOST, port, mock)); //$NON-NLS-1$
+		}
+
+		LoadGenerator gen = new LoadGenerator(url, insecure, script, messages, think[0], think[1]);
+		ServerConnector admin = new ServerConnector(url, insecure);
+		if(!admin.websiteLogin(a.require("key1"), a.require("key2"))) { //$NON-NLS-1$ //$NON-NLS-2$
+			System.out.println("Website login failed, check the url and the keys."); //$NON-NLS-1$
+			if(mock != null)
+				mock.stop();
+			System.exit(1);
+		}
+		String token = admin.getCurrentToken();
+		System.out.println(String.format("Target         : %s", url)); //$NON-NLS-1$
+		System.out.println(String.format("Users          : %d, %d messages each, ramp-up %d s%s, think %d-%d ms", users, messages, rampUpMs / 1000L, //$NON-NLS-1$
+				steps > 1 ? String.format(" in %d steps", steps) : "", think[0], think[1])); //$NON-NLS-1$ //$NON-NLS-2$
+
+		ServerSaturation saturation = new ServerSaturation();
+		ScheduledExecutorService scraper = Executors.newSingleThreadScheduledExecutor();
+		scraper.scheduleAtFixedRate(() -> saturation.read(admin), 0L, METRICS_PERIOD_MS, TimeUnit.MILLISECONDS);
+		ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor();
+		long start = System.nanoTime();
+		progress.scheduleAtFixedRate(() -> System.out.println(String.format("[%5.0f s] users %d, turns %d, errors %d", //$NON-NLS-1$
+				(System.nanoTime() - start) / 1e9, gen.activeUsers.get(), gen.message.count(), gen.letsChat.errors() + gen.message.errors())), 5L, 5L, TimeUnit.SECONDS);
+
+		ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+		for(int i = 0; i < users; i++) {
+			final int index = i;
+			long delay = startDelay(i, users, rampUpMs, steps);
+			executor.submit(() -> {
+				long wait = delay - (System.nanoTime() - start) / 1_000_000L;
+				if(wait > 0)
+					Thread.sleep(wait);
+				gen.runUser(token, index);
+				return null;
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		progress.shutdownNow();
+		scraper.shutdown();
+		scraper.awaitTermination(10L, TimeUnit.SECONDS);
+		saturation.read(admin);
+		admin.logout();
+
+		System.out.println();
+		System.out.println(String.format("Duration       : %.1f s", seconds)); //$NON-NLS-1$
+		System.out.println(String.format("Throughput     : %.2f turns/s, %.2f chats/s", gen.message.count() / seconds, gen.letsChat.count() / seconds)); //$NON-NLS-1$
+		System.out.println(String.format("Chats ended    : %d", gen.chatsEnded.get())); //$NON-NLS-1$
+		System.out.println(String.format("%-10s %8s %7s %7s %9s %9s %9s %9s %9s", "Operation", "Count", "Errors", "Rate", "Mean ms", "p50 ms", "p90 ms", "p99 ms", "Max ms")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$
+		gen.letsChat.print("letschat"); //$NON-NLS-1$
+		gen.message.print("message"); //$NON-NLS-1$
+		saturation.print(seconds);
+		if(mock != null) {
+			System.out.println(String.format("Mock model     : %,d queries, %,d errors", mock.getRequests(), mock.getErrors())); //$NON-NLS-1$
+			mock.stop();
+		}
+	}
+}
@@ -0,0 +1,349 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.tools;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+
+/**
+ * Local AI model server answering the Ollama /api/chat and the OpenAI /v1/chat/completions
+ * queries, the latter also used by the DeepSeek, Groq and GPT4All model clients. Answers come
+ * after a latency drawn from a distribution, whole or streamed token by token, so as chat
+ * servers can be load tested without paying for API tokens. The AI answers of a traffic
+ * capture can be served instead of generated ones, see TrafficReplay.
+ * Usage: MockModelServer [-host 127.0.0.1] [-port 11434] [-latency lognormal:800,0.5]
+ *        [-tokens 60] [-token-delay 20] [-errors 0.0]
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public final class MockModelServer {
+	public static final String DEF_HOST = "127.0.0.1"; //$NON-NLS-1$
+	public static final int DEF_PORT = 11434;
+	public static final String DEF_LATENCY = "lognormal:800,0.5"; //$NON-NLS-1$
+
+	private static final String[] WORDS = { "The", "capital", "you", "asked", "about", "is", "a", "large", "city", "known", "for", "its", "history,", "museums", "and", "food.", "Would", "like", "another", "question?" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$ //$NON-NLS-12$ //$NON-NLS-13$ //$NON-NLS-14$ //$NON-NLS-15$ //$NON-NLS-16$ //$NON-NLS-17$ //$NON-NLS-18$ //$NON-NLS-19$ //$NON-NLS-20$
+
+	/**
+	 * Latency distribution, in milliseconds. Specs:
+	 * fixed:ms, uniform:min-max, normal:mean,stddev, lognormal:median,sigma.
+	 */
+	public static final class Latency {
+		private final String spec;
+		private final String kind;
+		private final double a;
+		private final double b;
+
+		private Latency(String spec, String kind, double a, double b) {
+			this.spec = spec;
+			this.kind = kind;
+			this.a = a;
+			this.b = b;
+		}
+
+		/**
+		 * Parses a latency spec.
+		 * @param spec Latency spec.
+		 * @return The latency distribution.
+		 * @throws IllegalArgumentException On a bad spec.
+		 */
+		public static Latency parse(String spec) {
+			String[] kv = spec.split(":", 2); //$NON-NLS-1$
+			String[] p = kv.length > 1 ? kv[1].split("[,-]") : new String[0]; //$NON-NLS-1$
+			try {
+				switch(kv[0]) {
+				case "fixed": return new Latency(spec, kv[0], Double.parseDouble(p[0]), 0.0); //$NON-NLS-1$
+				case "uniform": //$NON-NLS-1$
+				case "normal": //$NON-NLS-1$
+				case "lognormal": return new Latency(spec, kv[0], Double.parseDouble(p[0]), Double.parseDouble(p[1])); //$NON-NLS-1$
+				default: break;
+				}
+			} catch(RuntimeException ex) {
+				// Falls to the exception below
+			}
+			throw new IllegalArgumentException("Bad latency, expected fixed:ms, uniform:min-max, normal:mean,stddev or lognormal:median,sigma: " + spec); //$NON-NLS-1$
+		}
+
+		/**
+		 * @return A latency in milliseconds.
+		 */
+		public long sample() {
+			ThreadLocalRandom rnd = ThreadLocalRandom.current();
+			double ms;
+			switch(this.kind) {
+			case "uniform": ms = this.a + rnd.nextDouble() * (this.b - this.a); break; //$NON-NLS-1$
+			case "normal": ms = this.a + rnd.nextGaussian() * this.b; break; //$NON-NLS-1$
+			case "lognormal": ms = this.a * Math.exp(rnd.nextGaussian() * this.b); break; //$NON-NLS-1$
+			default: ms = this.a; break;
+			}
+			return Math.max(0L, Math.round(ms));
+		}
+
+		@Override
+		public String toString() { return this.spec; }
+	}
+
+	private final Latency latency;
+	private final int tokens;
+	private final long tokenDelayMs;
+	private final double errorRate;
+	private final Gson gson = new Gson();
+	private final AtomicLong nextId = new AtomicLong();
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final AtomicLong nextRecorded = new AtomicLong();
+	private volatile Map<String, List<String>> recorded = null; // Key: user message
+	private volatile List<String> recordedAll = null;
+	private ExecutorService executor = null;
+	private Undertow server = null;
+
+	/**
+	 * Init a mock model server.
+	 * @param latency Time to the first token.
+	 * @param tokens Number of words of the answers.
+	 * @param tokenDelayMs Delay between the streamed words.
+	 * @param errorRate Share of the queries answered with an HTTP 500, from 0 to 1.
+	 */
+	public MockModelServer(Latency latency, int tokens, long tokenDelayMs, double errorRate) {
+		this.latency = latency;
+		this.tokens = Math.max(1, tokens);
+		this.tokenDelayMs = Math.max(0L, tokenDelayMs);
+		this.errorRate = errorRate;
+	}
+
+	/**
+	 * Starts the server. Every query runs on its own virtual thread.
+	 * @param host Host to listen on.
+	 * @param port Port to listen on.
+	 */
+	public synchronized void start(String host, int port) {
+		this.executor = Executors.newVirtualThreadPerTaskExecutor();
+		HttpHandler handler = new HttpHandler() {
+			@Override
+			public void handleRequest(HttpServerExchange exchange) throws Exception {
+				if(exchange.isInIoThread()) {
+					exchange.dispatch(executor, this);
+					return;
+				}
+				processQuery(exchange);
+			}
+		};
+		this.server = Undertow.builder()
+				.addHttpListener(port, host)
+				.setHandler(handler)
+				.build();
+		this.server.start();
+	}
+
+	/**
+	 * Stops the server.
+	 */
+	public synchronized void stop() {
+		if(this.server != null) {
+			this.server.stop();
+			this.server = null;
+		}
+		if(this.executor != null) {
+			this.executor.shutdownNow();
+			this.executor = null;
+		}
+	}
+
+	/**
+	 * Serves recorded answers instead of the generated ones: one of the answers recorded for
+	 * the same user message, or else the next recorded answer in turn.
+	 * @param answers Recorded answers by user message.
+	 */
+	public void setRecordedAnswers(Map<String, List<String>> answers) {
+		List<String> all = new ArrayList<>();
+		for(List<String> l : answers.values())
+			all.addAll(l);
+		this.recorded = all.isEmpty() ? null : answers;
+		this.recordedAll = all.isEmpty() ? null : all;
+	}
+
+	/**
+	 * @return Number of queries received.
+	 */
+	public long getRequests() { return this.requests.sum(); }
+
+	/**
+	 * @return Number of queries answered with an error.
+	 */
+	public long getErrors() { return this.errors.sum(); }
+
+	@Override
+	public String toString() {
+		return String.format("latency %s, %d tokens, %d ms/token, %.1f%% errors", this.latency, this.tokens, this.tokenDelayMs, this.errorRate * 100.0); //$NON-NLS-1$
+	}
+
+	/**
+	 * Answers a query, on a virtual thread.
+	 */
+	private void processQuery(HttpServerExchange exchange) throws IOException, InterruptedException {
+		this.requests.increment();
+		exchange.startBlocking();
+		String body = new String(exchange.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+		String path = exchange.getRequestPath();
+		boolean ollama = path.startsWith("/api/"); //$NON-NLS-1$
+		if(!"POST".equalsIgnoreCase(exchange.getRequestMethod().toString()) || !(ollama || path.endsWith("/chat/completions"))) { //$NON-NLS-1$ //$NON-NLS-2$
+			sendError(exchange, 404, "Not found: " + path); //$NON-NLS-1$
+			return;
+		}
+		JsonObject query;
+		try {
+			query = JsonParser.parseString(body).getAsJsonObject();
+		} catch(RuntimeException ex) {
+			sendError(exchange, 400, "Bad JSON query"); //$NON-NLS-1$
+			return;
+		}
+		String model = query.has("model") ? query.get("model").getAsString() : "mock"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		boolean stream = query.has("stream") && query.get("stream").getAsBoolean(); //$NON-NLS-1$ //$NON-NLS-2$
+		String[] tokens = answer(lastUserMessage(query));
+
+		Thread.sleep(this.latency.sample());
+		if(this.errorRate > 0.0 && ThreadLocalRandom.current().nextDouble() < this.errorRate) {
+			sendError(exchange, 500, "Mock model server error"); //$NON-NLS-1$
+			return;
+		}
+		String id = "chatcmpl-mock-" + this.nextId.incrementAndGet(); //$NON-NLS-1$
+		if(!stream) {
+			exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json"); //$NON-NLS-1$
+			String content = String.join("", tokens); //$NON-NLS-1$
+			exchange.getResponseSender().send(this.gson.toJson(ollama ? ollamaChunk(model, content, true) : openAiCompletion(id, model, content)));
+			return;
+		}
+		exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, ollama ? "application/x-ndjson" : "text/event-stream"); //$NON-NLS-1$ //$NON-NLS-2$
+		OutputStream out = exchange.getOutputStream();
+		for(int i = 0; i < tokens.length; i++) {
+			if(i > 0 && this.tokenDelayMs > 0)
+				Thread.sleep(this.tokenDelayMs);
+			String line = ollama ? this.gson.toJson(ollamaChunk(model, tokens[i], false)) + "\n" : "data: " + this.gson.toJson(openAiChunk(id, model, tokens[i], null)) + "\n\n"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			out.write(line.getBytes(StandardCharsets.UTF_8));
+			out.flush();
+		}
+		String end = ollama ? this.gson.toJson(ollamaChunk(model, "", true)) + "\n" : "data: " + this.gson.toJson(openAiChunk(id, model, null, "stop")) + "\n\ndata: [DONE]\n\n"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		out.write(end.getBytes(StandardCharsets.UTF_8));
+		out.close();
+	}
+
+	/**
+	 * @return The content of the last user message of a query, empty if none.
+	 */
+	private static String lastUserMessage(JsonObject query) {
+		if(!query.has("messages") || !query.get("messages").isJsonArray()) //$NON-NLS-1$ //$NON-NLS-2$
+			return ""; //$NON-NLS-1$
+		JsonArray messages = query.getAsJsonArray("messages"); //$NON-NLS-1$
+		for(int i = messages.size() - 1; i >= 0; i--) {
+			JsonElement e = messages.get(i);
+			if(e.isJsonObject() && e.getAsJsonObject().has("content") && "user".equals(e.getAsJsonObject().get("role").getAsString())) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				return e.getAsJsonObject().get("content").getAsString(); //$NON-NLS-1$
+		}
+		return ""; //$NON-NLS-1$
+	}
+
+	/**
+	 * @return The answer tokens, words with their leading space. Generated answers start with
+	 * an echo of the user message.
+	 */
+	private String[] answer(String userMsg) {
+		List<String> all = this.recordedAll;
+		if(all != null) {
+			List<String> same = this.recorded.get(userMsg);
+			long n = this.nextRecorded.getAndIncrement();
+			String text = same != null ? same.get((int)(n % same.size())) : all.get((int)(n % all.size()));
+			return text.isEmpty() ? new String[] { text } : text.split("(?=\\s)"); //$NON-NLS-1$
+		}
+		String[] tokens = new String[this.tokens];
+		String echo = userMsg.length() > 40 ? userMsg.substring(0, 40) : userMsg;
+		tokens[0] = "[" + echo.replace('\n', ' ') + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+		for(int i = 1; i < tokens.length; i++)
+			tokens[i] = " " + WORDS[(i - 1) % WORDS.length]; //$NON-NLS-1$
+		return tokens;
+	}
+
+	private Map<String, Object> ollamaChunk(String model, String content, boolean done) {
+		Map<String, Object> r = new HashMap<>();
+		r.put("model", model); //$NON-NLS-1$
+		r.put("created_at", Instant.now().toString()); //$NON-NLS-1$
+		r.put("message", Map.of("role", "assistant", "content", content)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		r.put("done", done); //$NON-NLS-1$
+		if(done) {
+			r.put("done_reason", "stop"); //$NON-NLS-1$ //$NON-NLS-2$
+			r.put("eval_count", this.tokens); //$NON-NLS-1$
+		}
+		return r;
+	}
+
+	private Map<String, Object> openAiCompletion(String id, String model, String content) {
+		Map<String, Object> r = new HashMap<>();
+		r.put("id", id); //$NON-NLS-1$
+		r.put("object", "chat.completion"); //$NON-NLS-1$ //$NON-NLS-2$
+		r.put("created", System.currentTimeMillis() / 1000L); //$NON-NLS-1$
+		r.put("model", model); //$NON-NLS-1$
+		r.put("choices", List.of(Map.of("index", 0, "message", Map.of("role", "assistant", "content", content), "finish_reason", "stop"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$
+		r.put("usage", Map.of("prompt_tokens", 0, "completion_tokens", this.tokens, "total_tokens", this.tokens)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		return r;
+	}
+
+	private Map<String, Object> openAiChunk(String id, String model, String content, String finishReason) {
+		Map<String, Object> choice = new HashMap<>();
+		choice.put("index", 0); //$NON-NLS-1$
+		choice.put("delta", content != null ? Map.of("content", content) : Map.of()); //$NON-NLS-1$ //$NON-NLS-2$
+		choice.put("finish_reason", finishReason); //$NON-NLS-1$
+		Map<String, Object> r = new HashMap<>();
+		r.put("id", id); //$NON-NLS-1$
+		r.put("object", "chat.completion.chunk"); //$NON-NLS-1$ //$NON-NLS-2$
+		r.put("created", System.currentTimeMillis() / 1000L); //$NON-NLS-1$
+		r.put("model", model); //$NON-NLS-1$
+		r.put("choices", List.of(choice)); //$NON-NLS-1$
+		return r;
+	}
+
+	private void sendError(HttpServerExchange exchange, int status, String msg) {
+		this.errors.increment();
+		exchange.setStatusCode(status);
+		exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json"); //$NON-NLS-1$
+		exchange.getResponseSender().send(this.gson.toJson(Map.of("error", Map.of("message", msg, "type", "mock_error")))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+		Args a = new Args(args);
+		String host = a.get("host", DEF_HOST); //$NON-NLS-1$
+		int port = a.getInt("port", DEF_PORT); //$NON-NLS-1$
+		MockModelServer mock = new MockModelServer(Latency.parse(a.get("latency", DEF_LATENCY)), a.getInt("tokens", 60), a.getInt("token-delay", 20), a.getDouble("errors", 0.0)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		mock.start(host, port);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			mock.stop();
+			System.out.println(String.format("Queries: %,d, errors: %,d", mock.getRequests(), mock.getErrors())); //$NON-NLS-1$
+		}));
+		System.out.println(String.format("Mock model server on http://%s:%d (%s)", host, port, mock)); //$NON-NLS-1$
+		System.out.println(String.format("Ollama : http://%s:%d/api/chat", host, port)); //$NON-NLS-1$
+		System.out.println(String.format("OpenAI : http://%s:%d/v1/chat/completions", host, port)); //$NON-NLS-1$
+		Thread.currentThread().join();
+	}
+}
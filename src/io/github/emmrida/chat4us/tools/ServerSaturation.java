@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.tools;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.github.emmrida.chat4us.internalclient.ServerConnector;
+
+/**
+ * Saturation of a chat server under load, from the differences between the first and the
+ * last reads of its /metrics.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+final class ServerSaturation {
+	private Map<String, Double> first = null;
+	private Map<String, Double> last = null;
+	private double peakSessions = 0.0;
+	private double peakHeap = 0.0;
+	private int reads = 0;
+	private int failures = 0;
+
+	synchronized void read(ServerConnector connector) {
+		String text = connector.getMetrics();
+		if(text == null) {
+			this.failures++;
+			return;
+		}
+		Map<String, Double> m = parse(text);
+		if(this.first == null)
+			this.first = m;
+		this.last = m;
+		this.reads++;
+		this.peakSessions = Math.max(this.peakSessions, m.getOrDefault("chat4us_sessions", 0.0)); //$NON-NLS-1$
+		this.peakHeap = Math.max(this.peakHeap, m.getOrDefault("jvm_memory_used_bytes", 0.0)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Sums the samples of each metric over its labels, the heap only for the memory.
+	 */
+	private static Map<String, Double> parse(String text) {
+		Map<String, Double> m = new HashMap<>();
+		for(String line : text.split("\n")) { //$NON-NLS-1$
+			if(line.isEmpty() || line.startsWith("#") || line.contains("_bucket{")) //$NON-NLS-1$ //$NON-NLS-2$
+				continue;
+			int sp = line.lastIndexOf(' ');
+			int br = line.indexOf('{');
+			if(sp < 0)
+				continue;
+			String name = line.substring(0, br > 0 && br < sp ? br : sp);
+			if(name.startsWith("jvm_memory_") && !line.contains("area=\"heap\"")) //$NON-NLS-1$ //$NON-NLS-2$
+				continue;
+			try {
+				m.merge(name, Double.parseDouble(line.substring(sp + 1)), Double::sum);
+			} catch(NumberFormatException ex) {
+				// Not a sample line
+			}
+		}
+		return m;
+	}
+
+	private double delta(String name) {
+		return this.last.getOrDefault(name, 0.0) - this.first.getOrDefault(name, 0.0);
+	}
+
+	synchronized void print(double seconds) {
+		if(this.first == null) {
+			System.out.println("Server metrics: not available, /metrics is served to local and private network clients only"); //$NON-NLS-1$
+			return;
+		}
+		double waits = delta("chat4us_queue_wait_seconds_count"); //$NON-NLS-1$
+		double reqs = delta("chat4us_http_request_seconds_count"); //$NON-NLS-1$
+		double aiCount = delta("chat4us_ai_request_seconds_count"); //$NON-NLS-1$
+		System.out.println(String.format("Server metrics : %d reads, %d failed", this.reads, this.failures)); //$NON-NLS-1$
+		System.out.println(String.format("Requests       : %,.0f, %,.0f errors", reqs, delta("chat4us_http_errors_total"))); //$NON-NLS-1$ //$NON-NLS-2$
+		System.out.println(String.format("Queue wait     : %.2f ms mean", waits > 0 ? delta("chat4us_queue_wait_seconds_sum") / waits * 1e3 : 0.0)); //$NON-NLS-1$ //$NON-NLS-2$
+		System.out.println(String.format("AI queries     : %,.0f, %.1f ms mean, %,.0f errors", aiCount, aiCount > 0 ? delta("chat4us_ai_request_seconds_sum") / aiCount * 1e3 : 0.0, delta("chat4us_ai_errors_total"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		System.out.println(String.format("Scripts killed : %,.0f", delta("chat4us_scripts_killed_total"))); //$NON-NLS-1$ //$NON-NLS-2$
+		System.out.println(String.format("Sessions       : %,.0f peak, %,.0f cold", this.peakSessions, this.last.getOrDefault("chat4us_sessions_cold", 0.0))); //$NON-NLS-1$ //$NON-NLS-2$
+		System.out.println(String.format("Heap used      : %,.0f MB peak", this.peakHeap / (1024.0 * 1024.0))); //$NON-NLS-1$
+		System.out.println(String.format("GC time        : %.2f s, %.1f%% of the run", delta("jvm_gc_collection_seconds_total"), seconds > 0 ? 100.0 * delta("jvm_gc_collection_seconds_total") / seconds : 0.0)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.tools;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import io.github.emmrida.chat4us.core.ChatBotClient;
+import io.github.emmrida.chat4us.core.ChatSession;
+
+/**
+ * Measures the heap used by idle chat sessions. Sessions are created the way the chat client
+ * does on /letschat, started, then kept alive while the heap is measured. No database nor
+ * network is needed.
+ * Usage: SessionHeapBenchmark [ria_file [sessions_count]]
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public final class SessionHeapBenchmark {
+	private static final String DEF_RIA_FILE = "chatbots/capitals-quiz.ria"; //$NON-NLS-1$
+	private static final int DEF_SESSIONS = 100_000;
+
+	private SessionHeapBenchmark() {}
+
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+		String riaFile = args.length > 0 ? args[0] : DEF_RIA_FILE;
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : DEF_SESSIONS;
+
+		ChatBotClient client = new ChatBotClient();
+		client.loadRIA(riaFile, null);
+		String locale = client.getMainLocale();
+		client.letsChat(new ChatSession(client.riaChatSession(locale))); // Warm up the lazily initialized parts
+
+		ChatSession[] sessions = new ChatSession[count];
+		long before = usedHeap();
+		for(int i = 0; i < count; i++) {
+			ChatSession ses = new ChatSession(client.riaChatSession(locale));
+			ses.setUserId("user-" + i); //$NON-NLS-1$
+			client.letsChat(ses);
+			sessions[i] = ses;
+		}
+		long after = usedHeap();
+
+		long bytes = Math.max(0L, after - before);
+		System.out.println(String.format("RIA file        : %s", riaFile)); //$NON-NLS-1$
+		System.out.println(String.format("Idle sessions   : %,d", sessions.length)); //$NON-NLS-1$
+		System.out.println(String.format("Heap used       : %,d KB", bytes / 1024)); //$NON-NLS-1$
+		System.out.println(String.format("Bytes / session : %,d", bytes / count)); //$NON-NLS-1$
+		System.out.println(String.format("History         : %d lines, kept %d max", sessions[0].getHistoryChatMessagesCount(), ChatSession.HISTORY_LIMIT)); //$NON-NLS-1$
+	}
+
+	/**
+	 * @return Heap used after a few full GCs.
+	 */
+	private static long usedHeap() throws InterruptedException {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long used = Long.MAX_VALUE;
+		for(int i = 0; i < 5; i++) {
+			System.gc();
+			Thread.sleep(100);
+			used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+		}
+		return used;
+	}
+}
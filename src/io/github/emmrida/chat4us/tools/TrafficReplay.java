@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.tools;
+
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.github.emmrida.chat4us.core.TrafficCapture;
+import io.github.emmrida.chat4us.internalclient.ServerConnector;
+import io.github.emmrida.chat4us.internalclient.ServerConnector.ApiResponse;
+
+/**
+ * Replays a traffic capture of a chat server (Tools > Start traffic capture) against a test
+ * server. Each captured session runs on its own virtual thread and sends its requests at their
+ * captured times divided by the speed factor, so the message mix, the timing and the chat flow
+ * paths are the production ones. A request is never sent before the answer to the previous one
+ * of its session, like a real user. The captured AI answers can be served by an in-process mock
+ * model server, point the bot AI server to it. Replay latencies are reported next to the
+ * captured service times, with the test server saturation.
+ * Usage: TrafficReplay -file capture.c4tc -url https://host:port -key1 k1 -key2 k2 [-insecure]
+ *        [-speed 1] [-sessions 0] [-mock 11434] [-latency lognormal:800,0.5] [-token-delay 20]
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public final class TrafficReplay {
+	private static final long METRICS_PERIOD_MS = 1000L;
+	private static final long LATE_MICROS = 100_000L;
+
+	private final String url;
+	private final boolean insecure;
+	private final double speed;
+	private final Latencies letsChat = new Latencies();
+	private final Latencies message = new Latencies();
+	private final AtomicInteger late = new AtomicInteger();
+	private final AtomicInteger activeSessions = new AtomicInteger();
+	private volatile long startNanos;
+
+	private TrafficReplay(String url, boolean insecure, double speed) {
+		this.url = url;
+		this.insecure = insecure;
+		this.speed = speed;
+	}
+
+	/**
+	 * Replays the requests of one captured session.
+	 * @param token Website token shared by all the sessions.
+	 * @param session Session number.
+	 * @param records Requests of the session, in order.
+	 */
+	private void runSession(String token, int session, List<TrafficCapture.Record> records) {
+		ServerConnector connector = new ServerConnector(this.url, this.insecure);
+		connector.setToken(token);
+		String userId = "replay-" + session; //$NON-NLS-1$
+		this.activeSessions.incrementAndGet();
+		try {
+			boolean opened = false;
+			for(TrafficCapture.Record rec : records) {
+				waitFor(rec.getOffsetMicros());
+				if(rec.getType() == TrafficCapture.LETSCHAT) {
+					opened = timed(this.letsChat, () -> connector.letsChat(userId));
+				} else {
+					if(!opened) // Capture started during the chat
+						opened = timed(this.letsChat, () -> connector.letsChat(userId));
+					timed(this.message, () -> connector.sendMessage(userId, rec.getMessage()));
+				}
+			}
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} finally {
+			this.activeSessions.decrementAndGet();
+		}
+	}
+
+	private interface Request {
+		ApiResponse send();
+	}
+
+	private static boolean timed(Latencies latencies, Request request) {
+		long start = System.nanoTime();
+		ApiResponse r = request.send();
+		if(r == null || !r.isSuccess()) {
+			latencies.error();
+			return false;
+		}
+		latencies.add(System.nanoTime() - start);
+		return true;
+	}
+
+	/**
+	 * Sleeps until the scaled time of a captured request, counts the requests sent late.
+	 */
+	private void waitFor(long offsetMicros) throws InterruptedException {
+		long dueMicros = (long)(offsetMicros / this.speed);
+		long nowMicros = (System.nanoTime() - this.startNanos) / 1000L;
+		if(dueMicros > nowMicros)
+			Thread.sleep((dueMicros - nowMicros) / 1000L, (int)((dueMicros - nowMicros) % 1000L) * 1000);
+		else if(nowMicros - dueMicros > LATE_MICROS)
+			this.late.incrementAndGet();
+	}
+
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+		Args a = new Args(args);
+		Path file = Path.of(a.require("file")); //$NON-NLS-1$
+		String url = a.require("url"); //$NON-NLS-1$
+		double speed = a.getDouble("speed", 1.0); //$NON-NLS-1$
+		int maxSessions = a.getInt("sessions", 0); //$NON-NLS-1$
+		boolean insecure = a.has("insecure"); //$NON-NLS-1$
+		if(speed <= 0.0)
+			throw new IllegalArgumentException("Bad speed: " + speed); //$NON-NLS-1$
+
+		// Load the capture, sessions in the order of their first request
+		Map<Integer, List<TrafficCapture.Record>> sessions = new LinkedHashMap<>();
+		Map<String, List<String>> aiAnswers = new HashMap<>(); // Key: user message
+		Latencies capLetsChat = new Latencies();
+		Latencies capMessage = new Latencies();
+		long[] lastOffset = { 0L };
+		long started = TrafficCapture.read(file, rec -> {
+			List<TrafficCapture.Record> l = sessions.get(rec.getSession());
+			if(l == null) {
+				if(maxSessions > 0 && sessions.size() >= maxSessions)
+					return;
+				l = new ArrayList<>();
+				sessions.put(rec.getSession(), l);
+			}
+			l.add(rec);
+			lastOffset[0] = Math.max(lastOffset[0], rec.getOffsetMicros());
+			(rec.getType() == TrafficCapture.LETSCHAT ? capLetsChat : capMessage).add(rec.getServiceMicros() * 1000L);
+			if(rec.getAiAnswer() != null)
+				aiAnswers.computeIfAbsent(rec.getMessage(), k -> new ArrayList<>()).add(rec.getAiAnswer());
+		});
+		System.out.println(String.format("Capture        : %s, started %s", file, new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(started)))); //$NON-NLS-1$ //$NON-NLS-2$
+		System.out.println(String.format("Requests       : %d chats, %d messages, %d AI answers, %d sessions over %.1f s", //$NON-NLS-1$
+				capLetsChat.count(), capMessage.count(), aiAnswers.values().stream().mapToInt(List::size).sum(), sessions.size(), lastOffset[0] / 1e6));
+		if(sessions.isEmpty())
+			return;
+
+		MockModelServer mock = null;
+		if(a.has("mock")) { //$NON-NLS-1$
+			int port = a.getInt("mock", MockModelServer.DEF_PORT); //$NON-NLS-1$
+			mock = new MockModelServer(MockModelServer.Latency.parse(a.get("latency", MockModelServer.DEF_LATENCY)), 60, a.getInt("token-delay", 20), 0.0); //$NON-NLS-1$ //$NON-NLS-2$
+			mock.setRecordedAnswers(aiAnswers);
+			mock.start(MockModelServer.DEF_HOST, port);
+			System.out.println(String.format("Mock model server on http://%s:%d (%s), serving the captured answers", MockModelServer.DEF_HOST, port, mock)); //$NON-NLS-1$
+		}
+
+		TrafficReplay replay = new TrafficReplay(url, insecure, speed);
+		ServerConnector admin = new ServerConnector(url, insecure);
+		if(!admin.websiteLogin(a.require("key1"), a.require("key2"))) { //$NON-NLS-1$ //$NON-NLS-2$
+			System.out.println("Website login failed, check the url and the keys."); //$NON-NLS-1$
+			if(mock != null)
+				mock.stop();
+			System.exit(1);
+		}
+		String token = admin.getCurrentToken();
+		System.out.println(String.format("Target         : %s at %.1fx, about %.1f s", url, speed, lastOffset[0] / 1e6 / speed)); //$NON-NLS-1$
+
+		ServerSaturation saturation = new ServerSaturation();
+		ScheduledExecutorService scraper = Executors.newSingleThreadScheduledExecutor();
+		scraper.scheduleAtFixedRate(() -> saturation.read(admin), 0L, METRICS_PERIOD_MS, TimeUnit.MILLISECONDS);
+		ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor();
+		replay.startNanos = System.nanoTime();
+		progress.scheduleAtFixedRate(() -> System.out.println(String.format("[%5.0f s] sessions %d, turns %d, errors %d, late %d", //$NON-NLS-1$
+				(System.nanoTime() - replay.startNanos) / 1e9, replay.activeSessions.get(), replay.message.count(), replay.letsChat.errors() + replay.message.errors(), replay.late.get())), 5L, 5L, TimeUnit.SECONDS);
+
+		ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+		for(Map.Entry<Integer, List<TrafficCapture.Record>> e : sessions.entrySet())
+			executor.submit(() -> replay.runSession(token, e.getKey(), e.getValue()));
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		double seconds = (System.nanoTime() - replay.startNanos) / 1e9;
+		progress.shutdownNow();
+		scraper.shutdown();
+		scraper.awaitTermination(10L, TimeUnit.SECONDS);
+		saturation.read(admin);
+		admin.logout();
+
+		System.out.println();
+		System.out.println(String.format("Duration       : %.1f s, captured %.1f s", seconds, lastOffset[0] / 1e6)); //$NON-NLS-1$
+		System.out.println(String.format("Throughput     : %.2f turns/s, captured %.2f turns/s", replay.message.count() / seconds, lastOffset[0] > 0 ? capMessage.count() / (lastOffset[0] / 1e6) : 0.0)); //$NON-NLS-1$
+		System.out.println(String.format("Late requests  : %d, sent more than %d ms after their time", replay.late.get(), LATE_MICROS / 1000L)); //$NON-NLS-1$
+		System.out.println(String.format("%-10s %8s %7s %7s %9s %9s %9s %9s %9s", "Operation", "Count", "Errors", "Rate", "Mean ms", "p50 ms", "p90 ms", "p99 ms", "Max ms")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$
+		capLetsChat.print("letschat*"); //$NON-NLS-1$
+		replay.letsChat.print("letschat"); //$NON-NLS-1$
+		capMessage.print("message*"); //$NON-NLS-1$
+		replay.message.print("message"); //$NON-NLS-1$
+		System.out.println("* Captured server side service times."); //$NON-NLS-1$
+		saturation.print(seconds);
+		if(mock != null) {
+			System.out.println(String.format("Mock model     : %,d queries, %,d errors", mock.getRequests(), mock.getErrors())); //$NON-NLS-1$
+			mock.stop();
+		}
+	}
+}
@@ -0,0 +1,299 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Keyword lookup engine for the CSV files used by ScriptEx.loadCSVContent. The file is memory
+ * mapped and a hash index is built on the first lookup of each column, then lookups only read
+ * the matching lines. The index is rebuilt when the file modification time or size changes.
+ * The indexes of the last MAX_FILES files and separators used are kept.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public class CsvIndex {
+	private static final String REGEX_META = "\\^$.|?*+()[]{}"; //$NON-NLS-1$
+
+	private static final int MAX_FILES = 64;
+
+	private static final Map<String, CsvIndex> INDEXES = new LinkedHashMap<>(16, 0.75f, true) { // Guarded by itself
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CsvIndex> eldest) {
+			return size() > MAX_FILES;
+		}
+	};
+
+	private final Path path;
+	private final Charset charset;
+	private final byte[] sepBytes; // Literal separator, null if regex
+	private final Pattern sepPattern;
+	private volatile Snapshot snapshot;
+
+	/**
+	 * Init a CSV index.
+	 * @param path CSV file path.
+	 * @param separator Separator, a literal or a regular expression.
+	 */
+	private CsvIndex(Path path, String separator) {
+		this.path = path;
+		this.charset = Charset.defaultCharset(); // Same as the FileReader used so far
+		boolean literal = !separator.isEmpty() && separator.chars().noneMatch(c -> REGEX_META.indexOf(c) >= 0) && StandardCharsets.UTF_8.equals(charset);
+		this.sepBytes = literal ? separator.getBytes(charset) : null;
+		this.sepPattern = literal ? null : Pattern.compile(separator);
+		this.snapshot = null;
+	}
+
+	/**
+	 * Returns the index of a CSV file and separator.
+	 * @param filePath CSV file path.
+	 * @param separator Separator, a literal or a regular expression.
+	 * @return The CSV index.
+	 */
+	public static CsvIndex forFile(String filePath, String separator) {
+		Path p = Path.of(filePath).toAbsolutePath().normalize();
+		synchronized(INDEXES) {
+			return INDEXES.computeIfAbsent(p.toString() + '\n' + separator, k -> new CsvIndex(p, separator));
+		}
+	}
+
+	/**
+	 * Returns the lines whose column equals the keyword, concatenated in the file order.
+	 * @param keyword The keyword to search for.
+	 * @param column The column index to search in.
+	 * @param limit The max number of lines to return.
+	 * @return The matching lines, empty string if not found.
+	 * @throws IOException
+	 */
+	public String lookup(String keyword, int column, int limit) throws IOException {
+		for(int attempt = 0; ; attempt++) {
+			Snapshot snap = null;
+			try {
+				snap = current();
+				return lookup(snap, keyword, column, limit);
+			} catch(InternalError ex) { // Faulty mapped memory access, the file was truncated after the size check
+				invalidate(snap);
+				if(attempt > 0)
+					throw new IOException(Messages.getString("CsvIndex.FILE_TRUNCATED") + path, ex); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * Returns the lines of a snapshot whose column equals the keyword.
+	 * @param snap File snapshot.
+	 * @param keyword The keyword to search for.
+	 * @param column The column index to search in.
+	 * @param limit The max number of lines to return.
+	 * @return The matching lines, empty string if not found.
+	 */
+	private static String lookup(Snapshot snap, String keyword, int column, int limit) {
+		ColumnIndex idx = snap.index(column);
+		int[] chain = idx.heads.get(keyword);
+		if(chain == null)
+			return ""; //$NON-NLS-1$
+		StringBuilder content = new StringBuilder();
+		int count = 0;
+		for(int line = chain[0]; line >= 0 && count < limit; line = idx.next[line], count++)
+			content.append(snap.line(line));
+		return content.toString();
+	}
+
+	/**
+	 * Returns the file snapshot, mapping the file again if it changed.
+	 * @return The current snapshot.
+	 * @throws IOException
+	 */
+	private Snapshot current() throws IOException {
+		BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+		long mtime = attrs.lastModifiedTime().toMillis();
+		long size = attrs.size();
+		Snapshot snap = snapshot;
+		if(snap == null || snap.mtime != mtime || snap.size != size) {
+			synchronized(this) {
+				snap = snapshot;
+				if(snap == null || snap.mtime != mtime || snap.size != size) {
+					snap = new Snapshot(mtime, size);
+					snapshot = snap;
+				}
+			}
+		}
+		return snap;
+	}
+
+	/**
+	 * Drops a snapshot so as the file is mapped again by the next lookup.
+	 * @param snap Snapshot to drop, may be null.
+	 */
+	private synchronized void invalidate(Snapshot snap) {
+		if(snap != null && snapshot == snap)
+			snapshot = null;
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * A mapped version of the file with its line offsets and column indexes.
+	 */
+	private class Snapshot {
+		private final long mtime;
+		private final long size;
+		private final MappedByteBuffer buffer;
+		private final int[] lineStarts; // lineStarts[lineCount] is the end of the last line
+		private final int lineCount;
+		private final Map<Integer, ColumnIndex> columns;
+
+		private Snapshot(long mtime, long size) throws IOException {
+			if(size > Integer.MAX_VALUE)
+				throw new IOException(Messages.getString("CsvIndex.FILE_TOO_LARGE") + path); //$NON-NLS-1$
+			this.mtime = mtime;
+			this.size = size;
+			try (FileChannel fc = FileChannel.open(path, StandardOpenOption.READ)) {
+				this.buffer = fc.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+			int len = (int)size;
+			int[] starts = new int[1024];
+			int n = 0;
+			int pos = 0;
+			while(pos < len) {
+				if(n + 1 >= starts.length)
+					starts = Arrays.copyOf(starts, starts.length * 2);
+				starts[n++] = pos;
+				while(pos < len && buffer.get(pos) != '\n')
+					pos++;
+				pos++;
+			}
+			if(n >= starts.length)
+				starts = Arrays.copyOf(starts, n + 1);
+			starts[n] = Math.min(pos, len);
+			this.lineStarts = starts;
+			this.lineCount = n;
+			this.columns = new ConcurrentHashMap<>();
+		}
+
+		/**
+		 * Returns the index of a column, building it on the first call.
+		 * @param column Column index.
+		 * @return The column index.
+		 */
+		private ColumnIndex index(int column) {
+			return columns.computeIfAbsent(column, this::buildIndex);
+		}
+
+		private ColumnIndex buildIndex(int column) {
+			Map<String, int[]> heads = new HashMap<>();
+			int[] next = new int[lineCount];
+			Arrays.fill(next, -1);
+			String key;
+			int[] chain;
+			for(int line = 0; line < lineCount; line++) {
+				key = field(line, column);
+				if(key == null)
+					continue;
+				chain = heads.get(key);
+				if(chain == null) {
+					heads.put(key, new int[] { line, line });
+				} else {
+					next[chain[1]] = line;
+					chain[1] = line;
+				}
+			}
+			return new ColumnIndex(heads, next);
+		}
+
+		/**
+		 * @param line Line number.
+		 * @return Line end offset without the line break.
+		 */
+		private int lineEnd(int line) {
+			int end = lineStarts[line + 1];
+			if(end > lineStarts[line] && end <= (int)size && buffer.get(end - 1) == '\n')
+				end--;
+			if(end > lineStarts[line] && buffer.get(end - 1) == '\r')
+				end--;
+			return end;
+		}
+
+		/**
+		 * @param line Line number.
+		 * @return Line content without the line break.
+		 */
+		private String line(int line) {
+			int start = lineStarts[line];
+			byte[] bytes = new byte[lineEnd(line) - start];
+			buffer.get(start, bytes);
+			return new String(bytes, charset);
+		}
+
+		/**
+		 * @param line Line number.
+		 * @param column Column index.
+		 * @return The column value or null if the line is too short.
+		 */
+		private String field(int line, int column) {
+			if(sepBytes == null) {
+				String[] values = sepPattern.split(line(line));
+				return column < values.length ? values[column] : null;
+			}
+			int start = lineStarts[line];
+			int end = lineEnd(line);
+			int col = 0;
+			int fieldStart = start;
+			int pos = start;
+			while(pos <= end - sepBytes.length) {
+				if(matchesSeparator(pos)) {
+					if(col == column)
+						return decode(fieldStart, pos);
+					col++;
+					pos += sepBytes.length;
+					fieldStart = pos;
+				} else pos++;
+			}
+			return col == column ? decode(fieldStart, end) : null;
+		}
+
+		private boolean matchesSeparator(int pos) {
+			for(int i = 0; i < sepBytes.length; i++)
+				if(buffer.get(pos + i) != sepBytes[i])
+					return false;
+			return true;
+		}
+
+		private String decode(int start, int end) {
+			byte[] bytes = new byte[end - start];
+			buffer.get(start, bytes);
+			return new String(bytes, charset);
+		}
+	}
+
+	/**
+	 * Hash index of a column. Lines sharing a value are chained in the file order.
+	 */
+	private static class ColumnIndex {
+		private final Map<String, int[]> heads; // value : [first line, last line]
+		private final int[] next;
+
+		private ColumnIndex(Map<String, int[]> heads, int[] next) {
+			this.heads = heads;
+			this.next = next;
+		}
+	}
+}
@@ -123,6 +123,8 @@ public class Helper {
     private static final JPopupMenu tbPopupMenu = new JPopupMenu();
 
     private static final Gson GSON = new Gson();
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*" + //$NON-NLS-1$
+            "@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$"); //$NON-NLS-1$
 
     /**
      * Compares a text IP address (IPv4 or IPv6) with an InetAddress instance
@@ -1056,11 +1058,7 @@ public class Helper {
     * @return True if the string is a valid email
     */
 	public static boolean isValidEmail(String email) {
-       // Regex for email validation
-       String emailRegex = "^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*" + //$NON-NLS-1$
-                           "@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$"; //$NON-NLS-1$
-       Pattern pattern = Pattern.compile(emailRegex);
-       return email != null && pattern.matcher(email).matches();
+       return email != null && EMAIL_PATTERN.matcher(email).matches();
    }
 
 	/**
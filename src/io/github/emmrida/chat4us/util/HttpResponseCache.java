@@ -0,0 +1,293 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.util;
+
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Shared cache of the GET responses loaded by the ScriptEx remote content functions.
+ * Freshness follows Cache-Control max-age, no-cache, no-store and Expires unless the script
+ * gives its own TTL, stale entries are revalidated with ETag/Last-Modified, the memory used
+ * is bounded with an LRU eviction and concurrent fetches of the same URL share one request.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public class HttpResponseCache {
+	public static final long NO_TTL = -1L;
+
+	private final HttpClient client;
+	private final Duration timeout;
+	private final long maxBytes;
+	private final long maxEntryBytes;
+	private final Map<String, Entry> entries; // LRU, guarded by this
+	private final Map<String, CompletableFuture<String>> inflight;
+	private long bytes;
+
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final LongAdder revalidations;
+	private final LongAdder evictions;
+
+	/**
+	 * Init a response cache.
+	 * @param client HTTP client used to fetch.
+	 * @param timeout Request timeout.
+	 * @param maxBytes Max memory used by the cached contents.
+	 */
+	public HttpResponseCache(HttpClient client, Duration timeout, long maxBytes) {
+		this.client = client;
+		this.timeout = timeout;
+		this.maxBytes = maxBytes;
+		this.maxEntryBytes = maxBytes / 8;
+		this.entries = new LinkedHashMap<>(64, 0.75f, true);
+		this.inflight = new ConcurrentHashMap<>();
+		this.bytes = 0;
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.revalidations = new LongAdder();
+		this.evictions = new LongAdder();
+	}
+
+	/**
+	 * Returns the content of a URL from the cache, fetching or revalidating it if needed.
+	 * @param url The URL.
+	 * @param ttlSeconds Freshness lifetime overriding the response headers, NO_TTL to follow them.
+	 * @return The content, HTTPError: code or Exception: message.
+	 */
+	public CompletableFuture<String> get(String url, long ttlSeconds) {
+		Entry entry;
+		synchronized(this) {
+			entry = entries.get(url);
+		}
+		if(entry != null && entry.isFresh(ttlSeconds, System.currentTimeMillis())) {
+			hits.increment();
+			return CompletableFuture.completedFuture(entry.content);
+		}
+		CompletableFuture<String> future = new CompletableFuture<>();
+		CompletableFuture<String> prev = inflight.putIfAbsent(url, future);
+		if(prev != null) {
+			hits.increment();
+			return prev;
+		}
+		misses.increment();
+		fetch(url, ttlSeconds, entry).whenComplete((content, ex) -> {
+			inflight.remove(url, future);
+			if(ex != null) {
+				future.completeExceptionally(ex);
+			} else future.complete(content);
+		});
+		return future;
+	}
+
+	/**
+	 * Sends the request, a conditional one when a stale entry has validators.
+	 * @param url The URL.
+	 * @param ttlSeconds TTL override or NO_TTL.
+	 * @param stale Stale cached entry or null.
+	 * @return The content.
+	 */
+	private CompletableFuture<String> fetch(String url, long ttlSeconds, Entry stale) {
+		HttpRequest request;
+		try {
+			HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(timeout).GET();
+			if(stale != null) {
+				if(stale.etag != null)
+					builder.header("If-None-Match", stale.etag); //$NON-NLS-1$
+				if(stale.lastModified != null)
+					builder.header("If-Modified-Since", stale.lastModified); //$NON-NLS-1$
+			}
+			request = builder.build();
+		} catch(Exception ex) {
+			return CompletableFuture.completedFuture(toError(ex));
+		}
+		return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).handle((rsp, ex) -> {
+			if(ex != null)
+				return toError(ex);
+			int status = rsp.statusCode();
+			if(status == HttpURLConnection.HTTP_NOT_MODIFIED && stale != null) {
+				revalidations.increment();
+				store(url, stale.content, rsp.headers(), ttlSeconds, stale);
+				return stale.content;
+			}
+			if(status != HttpURLConnection.HTTP_OK)
+				return "HTTPError: " + status; //$NON-NLS-1$
+			String content = rsp.body().lines().collect(Collectors.joining());
+			store(url, content, rsp.headers(), ttlSeconds, null);
+			return content;
+		});
+	}
+
+	/**
+	 * Caches a content if the response headers or the TTL override allow it.
+	 * @param url The URL.
+	 * @param content The content.
+	 * @param headers Response headers.
+	 * @param ttlSeconds TTL override or NO_TTL.
+	 * @param stale Revalidated entry whose validators are kept if the response has none.
+	 */
+	private void store(String url, String content, HttpHeaders headers, long ttlSeconds, Entry stale) {
+		String cc = headers.firstValue("Cache-Control").orElse("").toLowerCase(Locale.ROOT); //$NON-NLS-1$ //$NON-NLS-2$
+		String etag = headers.firstValue("ETag").orElse(stale != null ? stale.etag : null); //$NON-NLS-1$
+		String lastModified = headers.firstValue("Last-Modified").orElse(stale != null ? stale.lastModified : null); //$NON-NLS-1$
+		long now = System.currentTimeMillis();
+		boolean noStore = cc.contains("no-store"); //$NON-NLS-1$
+		long expiresAt = noStore ? now : now + freshness(cc, headers) * 1000L;
+		Entry entry = new Entry(content, now, expiresAt, etag, lastModified);
+		if((noStore && ttlSeconds < 0) || entry.size > maxEntryBytes
+				|| (!entry.isFresh(ttlSeconds, now) && etag == null && lastModified == null)) { // Neither fresh nor revalidable
+			synchronized(this) {
+				Entry old = entries.remove(url); // Older than the content just fetched
+				if(old != null)
+					bytes -= old.size;
+			}
+			return;
+		}
+		synchronized(this) {
+			Entry old = entries.put(url, entry);
+			if(old != null)
+				bytes -= old.size;
+			bytes += entry.size;
+			Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+			while(bytes > maxBytes && it.hasNext()) {
+				Map.Entry<String, Entry> eldest = it.next();
+				bytes -= eldest.getValue().size;
+				it.remove();
+				evictions.increment();
+			}
+		}
+	}
+
+	/**
+	 * Computes the freshness lifetime of a response.
+	 * @param cc Lower cased Cache-Control header.
+	 * @param headers Response headers.
+	 * @return Freshness lifetime in seconds, 0 if the response must be revalidated.
+	 */
+	private static long freshness(String cc, HttpHeaders headers) {
+		if(cc.contains("no-cache")) //$NON-NLS-1$
+			return 0;
+		int i = cc.indexOf("max-age="); //$NON-NLS-1$
+		if(i >= 0) {
+			int start = i + 8;
+			int end = start;
+			while(end < cc.length() && Character.isDigit(cc.charAt(end)))
+				end++;
+			try {
+				return Long.parseLong(cc.substring(start, end));
+			} catch(NumberFormatException ex) {
+				return 0;
+			}
+		}
+		String expires = headers.firstValue("Expires").orElse(null); //$NON-NLS-1$
+		if(expires != null) {
+			try {
+				long exp = ZonedDateTime.parse(expires, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+				return Math.max(0, (exp - System.currentTimeMillis()) / 1000L);
+			} catch(Exception ex) {
+				return 0;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Logs a request error the same way the blocking function does.
+	 * @param ex Request error.
+	 * @return Exception: message
+	 */
+	private static String toError(Throwable ex) {
+		Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+		String msg = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+		Helper.logWarning(cause, Messages.getString("ScriptEx.SE_LRCGET_EXCEPTION") + msg); //$NON-NLS-1$
+		return "Exception: " + msg; //$NON-NLS-1$
+	}
+
+	/**
+	 * Removes all the cached responses.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * @return Memory used by the cached contents.
+	 */
+	public synchronized long getBytes() { return this.bytes; }
+
+	/**
+	 * @return Number of the cached responses.
+	 */
+	public synchronized int size() { return this.entries.size(); }
+
+	/**
+	 * @return Number of the requests served from the cache or joined to a running fetch.
+	 */
+	public long getHits() { return this.hits.sum(); }
+
+	/**
+	 * @return Number of the requests sent to the network.
+	 */
+	public long getMisses() { return this.misses.sum(); }
+
+	/**
+	 * @return Number of the stale responses revalidated with a 304.
+	 */
+	public long getRevalidations() { return this.revalidations.sum(); }
+
+	/**
+	 * @return Number of the responses evicted to stay in the memory bound.
+	 */
+	public long getEvictions() { return this.evictions.sum(); }
+
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * A cached response.
+	 */
+	private static class Entry {
+		private final String content;
+		private final long fetchedAt;
+		private final long expiresAt;
+		private final String etag;
+		private final String lastModified;
+		private final long size;
+
+		private Entry(String content, long fetchedAt, long expiresAt, String etag, String lastModified) {
+			this.content = content;
+			this.fetchedAt = fetchedAt;
+			this.expiresAt = expiresAt;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.size = 64L + 2L * content.length();
+		}
+
+		/**
+		 * @param ttlSeconds TTL override of the caller, from the fetch time, or NO_TTL to follow the response headers.
+		 * @param now Current time.
+		 * @return True if the content can be served without revalidation.
+		 */
+		private boolean isFresh(long ttlSeconds, long now) {
+			return ttlSeconds >= 0 ? this.fetchedAt + ttlSeconds * 1000L > now : this.expiresAt > now;
+		}
+	}
+}
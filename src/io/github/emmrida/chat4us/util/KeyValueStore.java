@@ -0,0 +1,560 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded key-value store used by the ScriptEx kv functions to keep the scripts state.
+ * Records are appended to a memory mapped log file and an in-memory hash index of the live
+ * records is rebuilt when the store is opened. Writers wait for the log to be synced to the
+ * disk, concurrent writers sharing one sync, and the log is compacted in the background
+ * when most of it is made of overwritten or deleted records.
+ * <p>
+ * The log of a store file <i>name</i> is kept in <i>name</i>.<i>generation</i>, a new
+ * generation being written by each compaction.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public class KeyValueStore {
+	private static final int MAGIC = 0x43344B56; // C4KV
+	private static final int HEADER_SIZE = 8;
+	private static final byte RECORD_MARK = 0x7E;
+	private static final int RECORD_HEADER_SIZE = 13; // Mark, key length, value length, CRC
+	private static final int MIN_MAP_SIZE = 1 << 20;
+	private static final int MIN_COMPACT_SIZE = 1 << 20;
+	private static final int MAX_KEY_BYTES = 4096;
+	private static final int MAX_VALUE_BYTES = 16 << 20;
+
+	private static final Map<String, KeyValueStore> STORES = new ConcurrentHashMap<>();
+	private static final BlockingQueue<KeyValueStore> SYNC_QUEUE = new LinkedBlockingQueue<>();
+	private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "KeyValueStoreCompactor"); //$NON-NLS-1$
+		t.setDaemon(true);
+		return t;
+	});
+
+	static {
+		Thread t = new Thread(KeyValueStore::syncLoop, "KeyValueStoreSync"); //$NON-NLS-1$
+		t.setDaemon(true);
+		t.start();
+	}
+
+	private final Path base;
+	private Segment segment;
+	private Map<String, Integer> index; // key : record offset
+	private int writePos;
+	private long garbage;
+	private long appendedSeq;
+	private long syncedSeq;
+	private boolean syncQueued;
+	private boolean compacting;
+	private boolean closed;
+
+	/**
+	 * Opens the last complete log generation of a store and rebuilds its index.
+	 * @param base Store file path.
+	 * @throws IOException
+	 */
+	private KeyValueStore(Path base) throws IOException {
+		this.base = base;
+		this.index = new HashMap<>();
+		Files.createDirectories(base.getParent());
+		int last = 0;
+		List<Integer> stale = new ArrayList<>();
+		for(int gen : generations()) {
+			if(last > 0)
+				stale.add(gen);
+			else if(Segment.isComplete(segmentPath(gen)))
+				last = gen;
+			else stale.add(gen);
+		}
+		for(int gen : stale)
+			Files.deleteIfExists(segmentPath(gen));
+		if(last == 0) {
+			this.segment = Segment.create(segmentPath(1), 1, MIN_MAP_SIZE);
+			this.segment.complete();
+			this.writePos = HEADER_SIZE;
+		} else {
+			this.segment = Segment.open(segmentPath(last), last);
+			this.writePos = scan(segment, HEADER_SIZE, segment.buffer.capacity(), index);
+			this.segment.clearFrom(writePos); // Drop a torn tail so it can't be read back later
+		}
+		this.garbage = writePos - HEADER_SIZE - liveBytes();
+	}
+
+	/**
+	 * Returns the store of a file, opening it on the first call.
+	 * @param filePath Store file path.
+	 * @return The store.
+	 * @throws IOException
+	 */
+	public static KeyValueStore open(String filePath) throws IOException {
+		Path p = new File(filePath).getAbsoluteFile().toPath().normalize();
+		String key = p.toString();
+		synchronized(STORES) {
+			KeyValueStore store = STORES.get(key);
+			if(store == null) {
+				store = new KeyValueStore(p);
+				STORES.put(key, store);
+			}
+			return store;
+		}
+	}
+
+	/**
+	 * Syncs and closes all the open stores.
+	 */
+	public static void closeAll() {
+		synchronized(STORES) {
+			for(KeyValueStore store : STORES.values())
+				store.close();
+			STORES.clear();
+		}
+	}
+
+	/**
+	 * @param key The key.
+	 * @return The value or null if not found.
+	 * @throws IOException
+	 */
+	public synchronized String get(String key) throws IOException {
+		checkOpen();
+		Integer pos = index.get(key);
+		if(pos == null)
+			return null;
+		int kl = segment.buffer.getInt(pos + 1);
+		int vl = segment.buffer.getInt(pos + 5);
+		byte[] bytes = new byte[vl];
+		segment.buffer.get(pos + RECORD_HEADER_SIZE + kl, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param prefix Key prefix, empty for all the keys.
+	 * @return The keys starting with the prefix.
+	 * @throws IOException
+	 */
+	public synchronized List<String> keys(String prefix) throws IOException {
+		checkOpen();
+		List<String> keys = new ArrayList<>();
+		for(String key : index.keySet())
+			if(key.startsWith(prefix))
+				keys.add(key);
+		return keys;
+	}
+
+	/**
+	 * Stores a value and waits for it to be synced to the disk.
+	 * @param key The key.
+	 * @param value The value, null deletes the key.
+	 * @throws IOException
+	 */
+	public void put(String key, String value) throws IOException {
+		awaitSync(append(key, value != null ? value.getBytes(StandardCharsets.UTF_8) : null));
+	}
+
+	/**
+	 * Deletes a key and waits for the deletion to be synced to the disk.
+	 * @param key The key.
+	 * @return True if the key was found.
+	 * @throws IOException
+	 */
+	public boolean delete(String key) throws IOException {
+		synchronized(this) {
+			checkOpen();
+			if(!index.containsKey(key))
+				return false;
+		}
+		put(key, null);
+		return true;
+	}
+
+	/**
+	 * Appends a record to the log and updates the index.
+	 * @param key The key.
+	 * @param value The value bytes, null for a deletion.
+	 * @return The record sequence number to wait for.
+	 * @throws IOException
+	 */
+	private synchronized long append(String key, byte[] value) throws IOException {
+		checkOpen();
+		byte[] kb = key.getBytes(StandardCharsets.UTF_8);
+		if(kb.length == 0 || kb.length > MAX_KEY_BYTES || (value != null && value.length > MAX_VALUE_BYTES))
+			throw new IOException(Messages.getString("KeyValueStore.RECORD_TOO_LARGE") + key); //$NON-NLS-1$
+		int size = segment.write(writePos, kb, value);
+		Integer old = value != null ? index.put(key, writePos) : index.remove(key);
+		if(old != null)
+			garbage += recordSize(segment.buffer, old);
+		if(value == null)
+			garbage += size;
+		writePos += size;
+		if(!compacting && writePos > MIN_COMPACT_SIZE && garbage > writePos / 2) {
+			compacting = true;
+			COMPACTOR.execute(this::compact);
+		}
+		return ++appendedSeq;
+	}
+
+	/**
+	 * Waits for the sync thread to sync a record, the records appended meanwhile by other
+	 * writers being synced at the same time.
+	 * @param seq Record sequence number.
+	 * @throws IOException
+	 */
+	private synchronized void awaitSync(long seq) throws IOException {
+		if(!syncQueued) {
+			syncQueued = true;
+			SYNC_QUEUE.offer(this);
+		}
+		while(syncedSeq < seq && !closed) {
+			try {
+				wait();
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IOException(ex);
+			}
+		}
+	}
+
+	/**
+	 * Sync thread loop. Syncs the stores having writers waiting.
+	 */
+	private static void syncLoop() {
+		KeyValueStore store;
+		MappedByteBuffer buffer;
+		long target;
+		while(true) {
+			try {
+				store = SYNC_QUEUE.take();
+			} catch(InterruptedException ex) {
+				return;
+			}
+			synchronized(store) {
+				store.syncQueued = false;
+				if(store.closed)
+					continue;
+				target = store.appendedSeq;
+				buffer = store.segment.buffer;
+			}
+			try {
+				buffer.force();
+			} catch(Exception ex) {
+				Helper.logWarning(ex, Messages.getString("KeyValueStore.SYNC_ERROR") + store.base); //$NON-NLS-1$
+			}
+			synchronized(store) {
+				if(target > store.syncedSeq)
+					store.syncedSeq = target;
+				store.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Writes the live records to a new log generation, then switches to it. Writers are only
+	 * blocked while the records appended during the copy are moved to the new log.
+	 */
+	private void compact() {
+		Map<String, Integer> snapshot;
+		Segment old;
+		int snapEnd;
+		synchronized(this) {
+			if(closed) {
+				compacting = false;
+				return;
+			}
+			snapshot = new HashMap<>(index);
+			old = segment;
+			snapEnd = writePos;
+		}
+		Segment next = null;
+		try {
+			next = Segment.create(segmentPath(old.generation + 1), old.generation + 1, Math.max(MIN_MAP_SIZE, (int)Math.min(Integer.MAX_VALUE, 2L * liveBytes(old.buffer, snapshot))));
+			Map<String, Integer> nextIndex = new HashMap<>();
+			int pos = HEADER_SIZE;
+			for(Map.Entry<String, Integer> e : snapshot.entrySet()) {
+				nextIndex.put(e.getKey(), pos);
+				pos += next.copy(pos, old.buffer, e.getValue());
+			}
+			synchronized(this) {
+				if(closed) {
+					next.discard();
+					compacting = false;
+					return;
+				}
+				// Move the records appended during the copy
+				int tailEnd = pos + writePos - snapEnd;
+				next.ensureCapacity(tailEnd);
+				for(int src = snapEnd; src < writePos; ) {
+					int size = next.copy(pos, segment.buffer, src);
+					String key = readKey(segment.buffer, src);
+					if(segment.buffer.getInt(src + 5) < 0)
+						nextIndex.remove(key);
+					else nextIndex.put(key, pos);
+					pos += size;
+					src += size;
+				}
+				next.complete();
+				segment = next;
+				index = nextIndex;
+				writePos = pos;
+				garbage = writePos - HEADER_SIZE - liveBytes();
+				syncedSeq = appendedSeq;
+				compacting = false;
+				notifyAll();
+			}
+			old.discard();
+		} catch(Exception ex) {
+			Helper.logWarning(ex, Messages.getString("KeyValueStore.COMPACTION_ERROR") + base); //$NON-NLS-1$
+			if(next != null)
+				next.discard();
+			synchronized(this) {
+				compacting = false;
+			}
+		}
+	}
+
+	/**
+	 * Syncs and closes the store. Waiting writers are released.
+	 */
+	public synchronized void close() {
+		if(closed)
+			return;
+		closed = true;
+		try {
+			segment.buffer.force();
+			segment.channel.close();
+		} catch(Exception ex) {
+			Helper.logWarning(ex, Messages.getString("KeyValueStore.SYNC_ERROR") + base); //$NON-NLS-1$
+		}
+		notifyAll();
+	}
+
+	private void checkOpen() throws IOException {
+		if(closed)
+			throw new IOException(Messages.getString("KeyValueStore.CLOSED") + base); //$NON-NLS-1$
+	}
+
+	/**
+	 * Replays the records of a log into an index.
+	 * @param seg Log segment.
+	 * @param from First record offset.
+	 * @param end End of the mapped log.
+	 * @param index Index to update.
+	 * @return The offset following the last valid record.
+	 */
+	private static int scan(Segment seg, int from, int end, Map<String, Integer> index) {
+		MappedByteBuffer buf = seg.buffer;
+		CRC32 crc = new CRC32();
+		int pos = from;
+		while(pos + RECORD_HEADER_SIZE <= end && buf.get(pos) == RECORD_MARK) {
+			int kl = buf.getInt(pos + 1);
+			int vl = buf.getInt(pos + 5);
+			if(kl <= 0 || kl > MAX_KEY_BYTES || vl < -1 || vl > MAX_VALUE_BYTES || (long)pos + RECORD_HEADER_SIZE + kl + Math.max(vl, 0) > end)
+				break;
+			byte[] data = new byte[kl + Math.max(vl, 0)];
+			buf.get(pos + RECORD_HEADER_SIZE, data);
+			crc.reset();
+			crc.update(data);
+			if((int)crc.getValue() != buf.getInt(pos + 9))
+				break;
+			String key = new String(data, 0, kl, StandardCharsets.UTF_8);
+			if(vl < 0)
+				index.remove(key);
+			else index.put(key, pos);
+			pos += RECORD_HEADER_SIZE + data.length;
+		}
+		return pos;
+	}
+
+	private static String readKey(MappedByteBuffer buf, int pos) {
+		byte[] kb = new byte[buf.getInt(pos + 1)];
+		buf.get(pos + RECORD_HEADER_SIZE, kb);
+		return new String(kb, StandardCharsets.UTF_8);
+	}
+
+	private static int recordSize(MappedByteBuffer buf, int pos) {
+		return RECORD_HEADER_SIZE + buf.getInt(pos + 1) + Math.max(buf.getInt(pos + 5), 0);
+	}
+
+	private long liveBytes() {
+		return liveBytes(segment.buffer, index);
+	}
+
+	private static long liveBytes(MappedByteBuffer buf, Map<String, Integer> index) {
+		long bytes = 0;
+		for(int pos : index.values())
+			bytes += recordSize(buf, pos);
+		return bytes;
+	}
+
+	/**
+	 * @return The existing log generations, newest first.
+	 * @throws IOException
+	 */
+	private List<Integer> generations() throws IOException {
+		String prefix = base.getFileName().toString() + '.';
+		List<Integer> gens = new ArrayList<>();
+		File[] files = base.getParent().toFile().listFiles();
+		if(files != null) {
+			for(File f : files) {
+				String name = f.getName();
+				if(name.startsWith(prefix) && name.length() > prefix.length() && name.substring(prefix.length()).chars().allMatch(Character::isDigit)) {
+					try {
+						gens.add(Integer.parseInt(name.substring(prefix.length())));
+					} catch(NumberFormatException ex) {
+						// Not a log generation
+					}
+				}
+			}
+		}
+		gens.sort((a, b) -> Integer.compare(b, a));
+		return gens;
+	}
+
+	private Path segmentPath(int generation) {
+		return base.resolveSibling(base.getFileName().toString() + '.' + String.format("%08d", generation)); //$NON-NLS-1$
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * A mapped log file. The header magic is written once the file is complete so a log
+	 * generation left by an interrupted compaction is ignored.
+	 */
+	private static class Segment {
+		private final Path path;
+		private final int generation;
+		private final FileChannel channel;
+		private MappedByteBuffer buffer;
+
+		private Segment(Path path, int generation, FileChannel channel, int capacity) throws IOException {
+			this.path = path;
+			this.generation = generation;
+			this.channel = channel;
+			this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		}
+
+		private static Segment create(Path path, int generation, int capacity) throws IOException {
+			FileChannel fc = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			return new Segment(path, generation, fc, capacity);
+		}
+
+		private static Segment open(Path path, int generation) throws IOException {
+			FileChannel fc = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			long size = fc.size();
+			if(size > Integer.MAX_VALUE) {
+				fc.close();
+				throw new IOException(Messages.getString("KeyValueStore.BAD_FILE") + path); //$NON-NLS-1$
+			}
+			return new Segment(path, generation, fc, Math.max((int)size, MIN_MAP_SIZE));
+		}
+
+		private static boolean isComplete(Path path) {
+			try (FileChannel fc = FileChannel.open(path, StandardOpenOption.READ)) {
+				java.nio.ByteBuffer header = java.nio.ByteBuffer.allocate(4);
+				return fc.read(header, 0) == 4 && header.getInt(0) == MAGIC;
+			} catch(IOException ex) {
+				return false;
+			}
+		}
+
+		/**
+		 * Syncs the records then writes the header magic.
+		 */
+		private void complete() {
+			buffer.force();
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(4, 1); // Format version
+			buffer.force();
+		}
+
+		/**
+		 * Grows the mapping to hold a given size.
+		 * @param end Needed size.
+		 * @throws IOException
+		 */
+		private void ensureCapacity(int end) throws IOException {
+			if(end < 0) // Overflow
+				throw new IOException(Messages.getString("KeyValueStore.BAD_FILE") + path); //$NON-NLS-1$
+			if(end <= buffer.capacity())
+				return;
+			int capacity = (int)Math.min(Integer.MAX_VALUE, Math.max(2L * buffer.capacity(), end));
+			buffer.force();
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		}
+
+		/**
+		 * Writes a record.
+		 * @return The record size.
+		 */
+		private int write(int pos, byte[] key, byte[] value) throws IOException {
+			int vl = value != null ? value.length : 0;
+			int size = RECORD_HEADER_SIZE + key.length + vl;
+			ensureCapacity(pos + size);
+			CRC32 crc = new CRC32();
+			crc.update(key);
+			if(value != null)
+				crc.update(value);
+			buffer.put(pos + RECORD_HEADER_SIZE, key);
+			if(value != null)
+				buffer.put(pos + RECORD_HEADER_SIZE + key.length, value);
+			buffer.putInt(pos + 1, key.length);
+			buffer.putInt(pos + 5, value != null ? vl : -1);
+			buffer.putInt(pos + 9, (int)crc.getValue());
+			buffer.put(pos, RECORD_MARK);
+			return size;
+		}
+
+		/**
+		 * Copies a record from another log.
+		 * @return The record size.
+		 */
+		private int copy(int pos, MappedByteBuffer src, int srcPos) throws IOException {
+			int size = recordSize(src, srcPos);
+			ensureCapacity(pos + size);
+			byte[] bytes = new byte[size];
+			src.get(srcPos, bytes);
+			buffer.put(pos, bytes);
+			return size;
+		}
+
+		private void clearFrom(int pos) {
+			byte[] zeros = new byte[8192];
+			for(int p = pos; p < buffer.capacity(); p += zeros.length)
+				buffer.put(p, zeros, 0, Math.min(zeros.length, buffer.capacity() - p));
+		}
+
+		/**
+		 * Closes and deletes the file. Deletion may fail while the mapping is alive, the
+		 * file is then deleted when the store is opened again.
+		 */
+		private void discard() {
+			try {
+				channel.close();
+				Files.deleteIfExists(path);
+			} catch(IOException ex) {
+				// Deleted on the next open
+			}
+		}
+	}
+}
@@ -12,18 +12,33 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
+import java.net.URI;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
+import com.caoccao.javet.exceptions.JavetException;
+import com.caoccao.javet.values.reference.V8ValueFunction;
+import com.caoccao.javet.values.reference.V8ValuePromise;
+
+import io.github.emmrida.chat4us.core.ScriptContext;
+import io.github.emmrida.chat4us.core.ScriptScheduler;
 import io.github.emmrida.chat4us.gui.MainWindow;
 
 /**
@@ -35,6 +50,18 @@ import io.github.emmrida.chat4us.gui.MainWindow;
 public class ScriptEx {
 	private static final int CONNECT_TIMEOUT = 5000;
 	private static final int READ_TIMEOUT = 10000;
+	private static final int DB_THREADS = 4;
+
+	private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+			.connectTimeout(Duration.ofMillis(CONNECT_TIMEOUT))
+			.followRedirects(HttpClient.Redirect.NORMAL)
+			.build();
+	private static final HttpResponseCache RESPONSE_CACHE = new HttpResponseCache(HTTP_CLIENT, Duration.ofMillis(READ_TIMEOUT), 16L * 1024L * 1024L);
+	private static final ExecutorService DB_EXECUTOR = Executors.newFixedThreadPool(DB_THREADS, r -> {
+		Thread t = new Thread(r, "ScriptExDB"); //$NON-NLS-1$
+		t.setDaemon(true);
+		return t;
+	});
 
 	//private static final String CHATBOTS_DIR = "./routes";
 
@@ -87,7 +114,8 @@ public class ScriptEx {
 	}
 
 	/**
-	 * Load content from a CSV file by keyword.
+	 * Load content from a CSV file by keyword. The file is indexed on the searched column
+	 * at the first call and indexed again only when it changes.
 	 * @param filePath The file path of the CSV file
 	 * @param keyword The keyword to search for.
 	 * @param column The column index to search in
@@ -102,55 +130,33 @@ public class ScriptEx {
 			Helper.logWarning(Messages.getString("ScriptEx.SE_LCSVC_WRONG_PATH") + filePath); //$NON-NLS-1$
 			return null;
 		}
-		StringBuilder content = new StringBuilder();
-		try(BufferedReader reader = new BufferedReader(new java.io.FileReader(filePath))) {
-			String line;
-			String[] values;
-			int count = 0;
-			while((line = reader.readLine()) != null && count < limit) {
-				values = line.split(separator);
-				if (values[column].equals(keyword)) {
-					content.append(line);
-					count++;
-				}
-			}
+		try {
+			return CsvIndex.forFile(filePath, separator).lookup(keyword, column, limit);
 		} catch (Exception ex) {
 			Helper.logWarning(ex, Messages.getString("ScriptEx.SE_LCSVC_EXCEPTION") + ex.getMessage()); //$NON-NLS-1$
 			return null;
 		}
-		return content.toString();
 	}
 
 	/**
-	 * Load content from a remote URL using a GET request
+	 * Load content from a remote URL using a GET request. Responses are cached as allowed
+	 * by their Cache-Control, Expires, ETag and Last-Modified headers.
 	 * @param url The URL
 	 * @return The content
 	 */
 	public static String loadRemoteContentGET(String url) {
-        StringBuilder response = new StringBuilder();
-        try {
-            URL requestUrl = new URL(url);
-            HttpURLConnection connection = (HttpURLConnection) requestUrl.openConnection();
-            connection.setRequestMethod("GET"); //$NON-NLS-1$
-            connection.setConnectTimeout(CONNECT_TIMEOUT);
-            connection.setReadTimeout(READ_TIMEOUT);
+		return loadRemoteContentGET(url, (int)HttpResponseCache.NO_TTL);
+	}
 
-            int responseCode = connection.getResponseCode();
-            if (responseCode == HttpURLConnection.HTTP_OK) { // 200 OK
-                BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-                reader.close();
-            } else {
-                return "HTTPError: " + responseCode; //$NON-NLS-1$
-            }
-        } catch (Exception ex) {
-        	Helper.logWarning(ex, Messages.getString("ScriptEx.SE_LRCGET_EXCEPTION") + ex.getMessage()); //$NON-NLS-1$
-            return "Exception: " + ex.getMessage(); //$NON-NLS-1$
-        }
-        return response.toString();
+	/**
+	 * Load content from a remote URL using a GET request, keeping the response in the cache
+	 * for a given time whatever its headers say.
+	 * @param url The URL
+	 * @param ttlSeconds Time to keep the response in seconds, 0 to revalidate it on every call.
+	 * @return The content
+	 */
+	public static String loadRemoteContentGET(String url, int ttlSeconds) {
+		return RESPONSE_CACHE.get(url, ttlSeconds).join();
 	}
 
 	/**
@@ -199,6 +205,181 @@ public class ScriptEx {
         return response.toString();
     }
 
+    /**
+     * Load content from a remote URL using a GET request without blocking the script.
+     * Use it with await, several requests started before awaiting run in parallel.
+     * @param url The URL
+     * @return A promise of the content, same values as loadRemoteContentGET.
+     * @throws JavetException
+     */
+    public static V8ValuePromise loadRemoteContentGETAsync(String url) throws JavetException {
+    	return loadRemoteContentGETAsync(url, (int)HttpResponseCache.NO_TTL);
+    }
+
+    /**
+     * Load content from a remote URL using a GET request without blocking the script,
+     * keeping the response in the cache for a given time whatever its headers say.
+     * @param url The URL
+     * @param ttlSeconds Time to keep the response in seconds, 0 to revalidate it on every call.
+     * @return A promise of the content, same values as loadRemoteContentGET.
+     * @throws JavetException
+     */
+    public static V8ValuePromise loadRemoteContentGETAsync(String url, int ttlSeconds) throws JavetException {
+    	return toPromise(RESPONSE_CACHE.get(url, ttlSeconds));
+    }
+
+    /**
+     * Load content from a remote URL using a POST request without blocking the script.
+     * Use it with await, several requests started before awaiting run in parallel.
+     * @param url The URL
+     * @param params The parameters
+     * @return A promise of the content, same values as loadRemoteContentPOST.
+     * @throws JavetException
+     */
+    public static V8ValuePromise loadRemoteContentPOSTAsync(String url, Map<String, String> params) throws JavetException {
+    	CompletableFuture<String> future;
+    	try {
+    		HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+    				.timeout(Duration.ofMillis(READ_TIMEOUT))
+    				.header("Content-Type", "application/x-www-form-urlencoded") //$NON-NLS-1$ //$NON-NLS-2$
+    				.POST(HttpRequest.BodyPublishers.ofString(getParamsString(params), StandardCharsets.UTF_8))
+    				.build();
+    		future = HTTP_CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+    				.handle((rsp, ex) -> toContent(rsp, ex, "ScriptEx.SE_LRCPOST_EXCEPTION")); //$NON-NLS-1$
+    	} catch(Exception ex) {
+    		future = CompletableFuture.completedFuture(toContent(null, ex, "ScriptEx.SE_LRCPOST_EXCEPTION")); //$NON-NLS-1$
+    	}
+    	return toPromise(future);
+    }
+
+    /**
+     * Converts an async HTTP response the same way the blocking functions do.
+     * @param rsp HTTP response, null on error.
+     * @param ex Request error, null on success.
+     * @param errKey Message key of the warning to log on error.
+     * @return The content, HTTPError: code or Exception: message.
+     */
+    private static String toContent(HttpResponse<String> rsp, Throwable ex, String errKey) {
+    	if(ex != null) {
+    		Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    		String msg = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    		Helper.logWarning(cause, Messages.getString(errKey) + msg);
+    		return "Exception: " + msg; //$NON-NLS-1$
+    	}
+    	if(rsp.statusCode() != HttpURLConnection.HTTP_OK)
+    		return "HTTPError: " + rsp.statusCode(); //$NON-NLS-1$
+    	return rsp.body().lines().collect(Collectors.joining());
+    }
+
+    /**
+     * Hands a background task to the running script as a promise.
+     * @param future Background task.
+     * @return The promise to return to the script.
+     * @throws JavetException
+     */
+    private static V8ValuePromise toPromise(CompletableFuture<?> future) throws JavetException {
+    	ScriptContext ctx = ScriptContext.current();
+    	if(ctx == null)
+    		throw new IllegalStateException(Messages.getString("ScriptEx.SE_ASYNC_NO_CONTEXT")); //$NON-NLS-1$
+    	return ctx.toPromise(future);
+    }
+
+    /**
+     * Returns the shared cache of the running bot, the default scope outside a script.
+     * @return The shared cache.
+     */
+    private static SharedCache sharedCache() {
+    	ScriptContext ctx = ScriptContext.current();
+    	return SharedCache.forScope(ctx != null ? ctx.getScript().getRiaFile() : null);
+    }
+
+    /**
+     * Get a value from the cache shared by all the sessions of the bot.
+     * @param key The key
+     * @return The cached value, null if not found or expired.
+     */
+    public static Object cacheGet(String key) {
+    	return sharedCache().get(key);
+    }
+
+    /**
+     * Put a value in the cache shared by all the sessions of the bot until it is evicted.
+     * @param key The key
+     * @param value The value, a string, number, boolean, array or plain object. Null removes the key.
+     */
+    public static void cachePut(String key, Object value) {
+    	sharedCache().put(key, value, 0);
+    }
+
+    /**
+     * Put a value in the cache shared by all the sessions of the bot for a given time.
+     * @param key The key
+     * @param value The value, a string, number, boolean, array or plain object. Null removes the key.
+     * @param ttlSeconds Time to keep the value in seconds, 0 to keep it until evicted.
+     */
+    public static void cachePut(String key, Object value, int ttlSeconds) {
+    	sharedCache().put(key, value, ttlSeconds);
+    }
+
+    /**
+     * Get a value from the shared cache, computing and caching it if not found. Two sessions
+     * may compute it at the same time, the first cached value is returned to both.
+     * @param key The key
+     * @param compute Function computing the value, returning null caches nothing.
+     * @param ttlSeconds Time to keep the value in seconds, 0 to keep it until evicted.
+     * @return The cached or computed value.
+     * @throws JavetException
+     */
+    public static Object cacheComputeIfAbsent(String key, V8ValueFunction compute, int ttlSeconds) throws JavetException {
+    	try(V8ValueFunction fn = compute) {
+    		SharedCache cache = sharedCache();
+    		Object value = cache.get(key);
+    		if(value != null)
+    			return value;
+    		value = fn.callObject(null);
+    		return cache.putIfAbsent(key, value, ttlSeconds);
+    	}
+    }
+
+    /**
+     * Add a number to a shared counter atomically, creating it from 0 if not found.
+     * @param key The key
+     * @param delta The number to add
+     * @return The new counter value
+     */
+    public static double cacheIncrement(String key, double delta) {
+    	return sharedCache().increment(key, delta, 0);
+    }
+
+    /**
+     * Add a number to a shared counter atomically, creating it from 0 if not found. Use it for
+     * rate limits, the counter expires ttlSeconds after its creation.
+     * @param key The key
+     * @param delta The number to add
+     * @param ttlSeconds Life time in seconds of a new counter, 0 to keep it until evicted.
+     * @return The new counter value
+     */
+    public static double cacheIncrement(String key, double delta, int ttlSeconds) {
+    	return sharedCache().increment(key, delta, ttlSeconds);
+    }
+
+    /**
+     * Remove a value from the cache shared by all the sessions of the bot.
+     * @param key The key
+     * @return The removed value or null.
+     */
+    public static Object cacheRemove(String key) {
+    	return sharedCache().remove(key);
+    }
+
+    /**
+     * Get the statistics of the bot shared cache.
+     * @return Object with size, max_size, hits, misses, evictions and expirations.
+     */
+    public static Map<String, Object> cacheStats() {
+    	return sharedCache().getStats();
+    }
+
     /**
      *  Helper method to convert Map to URL-encoded form data
      * @param params The parameters
@@ -218,6 +399,120 @@ public class ScriptEx {
         return result.toString();
     }
 
+    /**
+     * Declare a background job running a function of the bot script. Only allowed in the
+     * onLoad() function of the bot script. Jobs run while the chat server is running and
+     * usually store their results in the shared cache with cachePut.
+     * @param spec Cron expression like "*&#47;10 * * * *" (minute hour day month weekday) or
+     * "@every 30s", "@every 5m", "@every 2h".
+     * @param functionName Name of the bot script function to run.
+     * @return True if the job was declared, false otherwise.
+     */
+    public static boolean schedule(String spec, String functionName) {
+    	try {
+    		ScriptScheduler.declare(spec, functionName);
+    		return true;
+    	} catch (Exception ex) {
+    		Helper.logWarning(ex, Messages.getString("ScriptEx.SE_SCHEDULE_EXCEPTION") + ex.getMessage()); //$NON-NLS-1$
+    		return false;
+    	}
+    }
+
+    /**
+     * Open a key-value store file under the chat bots folder.
+     * @param storeFile The store file
+     * @return The store, null if the path is unsafe or an error occurs.
+     */
+    private static KeyValueStore kvStore(String storeFile) {
+		File file = new File(storeFile);
+		File base = new File(MainWindow.CHATBOTS_ROOT_FOLDER);
+		if(Helper.getRelativePath(file, base).startsWith("..")) { //$NON-NLS-1$
+			Helper.logWarning(Messages.getString("ScriptEx.SE_KV_WRONG_PATH") + storeFile); //$NON-NLS-1$
+			return null;
+		}
+		try {
+			return KeyValueStore.open(storeFile);
+		} catch (Exception ex) {
+			Helper.logWarning(ex, Messages.getString("ScriptEx.SE_KV_EXCEPTION") + ex.getMessage()); //$NON-NLS-1$
+			return null;
+		}
+    }
+
+    /**
+     * Get a value from a key-value store
+     * @param storeFile The store file
+     * @param key The key
+     * @return The value, null if not found or an error occurs.
+     */
+    public static String kvGet(String storeFile, String key) {
+    	KeyValueStore store = kvStore(storeFile);
+    	if(store == null)
+    		return null;
+    	try {
+    		return store.get(key);
+    	} catch (Exception ex) {
+    		Helper.logWarning(ex, Messages.getString("ScriptEx.SE_KV_EXCEPTION") + ex.getMessage()); //$NON-NLS-1$
+    		return null;
+    	}
+    }
+
+    /**
+     * Put a value in a key-value store. Returns once the value is written to the disk.
+     * @param storeFile The store file
+     * @param key The key
+     * @param value The value, null deletes the key.
+     * @return True if the value was stored, false otherwise.
+     */
+    public static boolean kvPut(String storeFile, String key, String value) {
+    	KeyValueStore store = kvStore(storeFile);
+    	if(store == null)
+    		return false;
+    	try {
+    		store.put(key, value);
+    		return true;
+    	} catch (Exception ex) {
+    		Helper.logWarning(ex, Messages.getString("ScriptEx.SE_KV_EXCEPTION") + ex.getMessage()); //$NON-NLS-1$
+    		return false;
+    	}
+    }
+
+    /**
+     * Delete a key from a key-value store
+     * @param storeFile The store file
+     * @param key The key
+     * @return True if the key was found and deleted, false otherwise.
+     */
+    public static boolean kvDelete(String storeFile, String key) {
+    	KeyValueStore store = kvStore(storeFile);
+    	if(store == null)
+    		return false;
+    	try {
+    		return store.delete(key);
+    	} catch (Exception ex) {
+    		Helper.logWarning(ex, Messages.getString("ScriptEx.SE_KV_EXCEPTION") + ex.getMessage()); //$NON-NLS-1$
+    		return false;
+    	}
+    }
+
+    /**
+     * Get the keys of a key-value store
+     * @param storeFile The store file
+     * @param prefix The keys prefix, empty string for all the keys.
+     * @return The keys starting with the prefix, null if an error occurs.
+     */
+    public static String[] kvKeys(String storeFile, String prefix) {
+    	KeyValueStore store = kvStore(storeFile);
+    	if(store == null)
+    		return null;
+    	try {
+    		List<String> keys = store.keys(prefix != null ? prefix : ""); //$NON-NLS-1$
+    		return keys.toArray(new String[keys.size()]);
+    	} catch (Exception ex) {
+    		Helper.logWarning(ex, Messages.getString("ScriptEx.SE_KV_EXCEPTION") + ex.getMessage()); //$NON-NLS-1$
+    		return null;
+    	}
+    }
+
     /**
      * Execute a SQL query
      * @param dbFile The database file
@@ -227,8 +522,8 @@ public class ScriptEx {
      */
     public static Object[][] sqlQuery(String dbFile, String query, Object args) {
         List<Object[]> results = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbFile); //$NON-NLS-1$
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (SqlitePool.PooledConnection pc = SqlitePool.forFile(dbFile).acquire()) {
+            PreparedStatement stmt = pc.prepare(query);
             setParameters(stmt, ((List<Object>)args).toArray(new Object[((List<Object>)args).size()]));
             try (ResultSet rs = stmt.executeQuery()) {
                 int columnCount = rs.getMetaData().getColumnCount();
@@ -256,8 +551,8 @@ public class ScriptEx {
      */
     public static int sqlUpdate(String dbFile, String query, Object args) {
         int affectedRows = 0;
-        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbFile); //$NON-NLS-1$
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (SqlitePool.PooledConnection pc = SqlitePool.forFile(dbFile).acquire()) {
+            PreparedStatement stmt = pc.prepare(query);
         	setParameters(stmt, ((List<Object>)args).toArray(new Object[((List<Object>)args).size()]));
             affectedRows = stmt.executeUpdate();
         } catch (SQLException ex) {
@@ -275,13 +570,14 @@ public class ScriptEx {
      */
     public static int sqlInsert(String dbFile, String query, Object args) {
         int gKey = 0;
-        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbFile); //$NON-NLS-1$
-             PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+        try (SqlitePool.PooledConnection pc = SqlitePool.forFile(dbFile).acquire()) {
+            PreparedStatement stmt = pc.prepare(query, true);
         	setParameters(stmt, ((List<Object>)args).toArray(new Object[((List<Object>)args).size()]));
             if(stmt.executeUpdate() > 0) {
-	            ResultSet gKeys = stmt.getGeneratedKeys();
-	            if(gKeys.next())
-	                gKey = gKeys.getInt(1);
+	            try (ResultSet gKeys = stmt.getGeneratedKeys()) {
+		            if(gKeys.next())
+		                gKey = gKeys.getInt(1);
+	            }
             }
         } catch (SQLException ex) {
 			Helper.logWarning(ex, Messages.getString("ScriptEx.SE_SINSERT_EXCEPTION") + ex.getMessage()); //$NON-NLS-1$
@@ -289,6 +585,112 @@ public class ScriptEx {
         return gKey;
     }
 
+    /**
+     * Execute a SQL statement once per parameters row in a single transaction, so as
+     * all the rows are committed at once. Nothing is written if a row fails.
+     * @param dbFile The database file
+     * @param query The SQL query
+     * @param rows The parameters of every row, an array of arrays.
+     * @return The number of affected rows, -1 on error.
+     */
+    public static int sqlBatch(String dbFile, String query, Object rows) {
+        int affectedRows = 0;
+        try (SqlitePool.PooledConnection pc = SqlitePool.forFile(dbFile).acquire()) {
+            Connection conn = pc.getConnection();
+            PreparedStatement stmt = pc.prepare(query);
+            conn.setAutoCommit(false);
+            try {
+                for(Object row : toList(rows)) {
+                    setParameters(stmt, toList(row).toArray());
+                    stmt.addBatch();
+                }
+                for(int count : stmt.executeBatch()) {
+                    if(count > 0)
+                        affectedRows += count;
+                }
+            } catch (SQLException | IllegalArgumentException ex) {
+                stmt.clearBatch(); // The statement is cached, the next batch must not run these rows
+                throw ex;
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+        } catch (SQLException | IllegalArgumentException ex) {
+			Helper.logWarning(ex, Messages.getString("ScriptEx.SE_SBATCH_EXCEPTION") + ex.getMessage()); //$NON-NLS-1$
+			return -1;
+        }
+        return affectedRows;
+    }
+
+    /**
+     * Execute a SQL query on the database executor without blocking the script.
+     * @param dbFile The database file
+     * @param query The SQL query
+     * @param args The query parameters
+     * @return A promise of the query results
+     * @throws JavetException
+     * @throws IllegalArgumentException If args is not an array.
+     */
+    public static V8ValuePromise sqlQueryAsync(String dbFile, String query, Object args) throws JavetException {
+    	List<Object> params = toList(args);
+    	return toPromise(CompletableFuture.supplyAsync(() -> sqlQuery(dbFile, query, params), DB_EXECUTOR));
+    }
+
+    /**
+     * Execute a SQL update on the database executor without blocking the script.
+     * @param dbFile The database file
+     * @param query The SQL query
+     * @param args The query parameters
+     * @return A promise of the number of affected rows
+     * @throws JavetException
+     * @throws IllegalArgumentException If args is not an array.
+     */
+    public static V8ValuePromise sqlUpdateAsync(String dbFile, String query, Object args) throws JavetException {
+    	List<Object> params = toList(args);
+    	return toPromise(CompletableFuture.supplyAsync(() -> sqlUpdate(dbFile, query, params), DB_EXECUTOR));
+    }
+
+    /**
+     * Execute a SQL insert on the database executor without blocking the script.
+     * @param dbFile The database file
+     * @param query The SQL query
+     * @param args The query parameters
+     * @return A promise of the generated key, 0 on error.
+     * @throws JavetException
+     * @throws IllegalArgumentException If args is not an array.
+     */
+    public static V8ValuePromise sqlInsertAsync(String dbFile, String query, Object args) throws JavetException {
+    	List<Object> params = toList(args);
+    	return toPromise(CompletableFuture.supplyAsync(() -> sqlInsert(dbFile, query, params), DB_EXECUTOR));
+    }
+
+    /**
+     * Execute a SQL batch on the database executor without blocking the script.
+     * @param dbFile The database file
+     * @param query The SQL query
+     * @param rows The parameters of every row, an array of arrays.
+     * @return A promise of the number of affected rows, -1 on error.
+     * @throws JavetException
+     * @throws IllegalArgumentException If rows is not an array of arrays.
+     */
+    public static V8ValuePromise sqlBatchAsync(String dbFile, String query, Object rows) throws JavetException {
+    	List<Object> params = new ArrayList<>();
+    	for(Object row : toList(rows))
+    		params.add(toList(row));
+    	return toPromise(CompletableFuture.supplyAsync(() -> sqlBatch(dbFile, query, params), DB_EXECUTOR));
+    }
+
+    /**
+     * Copies the elements of a script array.
+     * @param value Script array, as converted by the proxy converter.
+     * @return The array elements.
+     * @throws IllegalArgumentException If value is not an array.
+     */
+    private static List<Object> toList(Object value) {
+    	if(!(value instanceof List<?>))
+    		throw new IllegalArgumentException(String.format(Messages.getString("ScriptEx.SE_ARRAY_EXPECTED"), value)); //$NON-NLS-1$
+    	return new ArrayList<>((List<?>)value);
+    }
+
     /**
      * Set query parameters
      * @param stmt The statement
@@ -48,6 +48,7 @@ public class Settings {
 	private int aiServersTasks;
 	private int aiLogOnLongResponse;
 	private int chatSessionsTimeoutMinutes;
+	private int chatSessionsSpillMinutes;
 	private int agentResponseTimeoutSeconds;
 	private boolean nsLookupOnLogin; // Igored
 	private boolean minimizeToTray;
@@ -79,6 +80,7 @@ public class Settings {
 		aiServersTasks = 4;
 		aiLogOnLongResponse = 2;
 		chatSessionsTimeoutMinutes = 20;
+		chatSessionsSpillMinutes = 5;
 		agentResponseTimeoutSeconds = 120;
 		nsLookupOnLogin = false;
 		minimizeToTray = false;
@@ -134,6 +136,8 @@ public class Settings {
 			bw.write(aiLogOnLongResponse + System.lineSeparator());
 			bw.write("chatSessionsTimeoutMinutes="); //$NON-NLS-1$
 			bw.write(chatSessionsTimeoutMinutes + System.lineSeparator());
+			bw.write("chatSessionsSpillMinutes="); //$NON-NLS-1$
+			bw.write(chatSessionsSpillMinutes + System.lineSeparator());
 			bw.write("agentResponseTimeoutSeconds="); //$NON-NLS-1$
 			bw.write(agentResponseTimeoutSeconds + System.lineSeparator());
 			bw.write("nsLookupOnLogin="); //$NON-NLS-1$
@@ -202,6 +206,8 @@ public class Settings {
 					st.setAiLogOnLongResponse(Integer.parseInt(line.substring(20).trim()));
 				} else if (line.startsWith("chatSessionsTimeoutMinutes=")) { //$NON-NLS-1$
 					st.setChatSessionsTimeoutMinutes(Integer.parseInt(line.substring(27).trim()));
+				} else if (line.startsWith("chatSessionsSpillMinutes=")) { //$NON-NLS-1$
+					st.setChatSessionsSpillMinutes(Integer.parseInt(line.substring(25).trim()));
 				} else if (line.startsWith("agentResponseTimeoutSeconds=")) { //$NON-NLS-1$
 					st.setAgentResponseTimeoutSeconds(Integer.parseInt(line.substring(28).trim()));
 				} else if (line.startsWith("nsLookupOnLogin=")) { //$NON-NLS-1$
@@ -256,6 +262,13 @@ public class Settings {
 	 */
 	public int getChatSessionsTimeoutMinutes() { return chatSessionsTimeoutMinutes; }
 
+	/**
+	 * Gets the idle minutes after which chat sessions are moved out of the heap.
+	 *
+	 * @return the chat sessions spill minutes, 0 if disabled
+	 */
+	public int getChatSessionsSpillMinutes() { return chatSessionsSpillMinutes; }
+
 	/**
 	 * Gets the ai servers tasks.
 	 *
@@ -326,6 +339,13 @@ public class Settings {
 	 */
 	public void setChatSessionsTimeoutMinutes(int minutes) { this.chatSessionsTimeoutMinutes = minutes; }
 
+	/**
+	 * Sets the idle minutes after which chat sessions are moved out of the heap.
+	 *
+	 * @param minutes the new chat sessions spill minutes, 0 to disable
+	 */
+	public void setChatSessionsSpillMinutes(int minutes) { this.chatSessionsSpillMinutes = minutes; }
+
 	/**
 	 * Sets the ai servers tasks.
 	 *
@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory cache shared by the sessions of a chat bot. Each bot, identified by its RIA file,
+ * gets its own scope bounded in entries with a least recently used eviction. Entries may
+ * expire after a time to live. Maps and lists are cached as unmodifiable deep copies and
+ * returned as copies, so as a session can not change the value seen by the others.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public class SharedCache {
+	public static final int DEF_MAX_ENTRIES = 10000;
+
+	private static final Map<String, SharedCache> SCOPES = new ConcurrentHashMap<>();
+
+	private final String scope;
+	private final int maxEntries;
+	private final LinkedHashMap<String, Entry> entries;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long expirations;
+
+	/**
+	 * Init a cache scope.
+	 * @param scope Scope name.
+	 * @param maxEntries Max number of entries.
+	 */
+	private SharedCache(String scope, int maxEntries) {
+		this.scope = scope;
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				if(size() > SharedCache.this.maxEntries) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cache of a scope, creating it on the first call.
+	 * @param scope Scope name, the RIA file of the bot.
+	 * @return The scope cache.
+	 */
+	public static SharedCache forScope(String scope) {
+		return SCOPES.computeIfAbsent(scope != null ? scope : "", s -> new SharedCache(s, DEF_MAX_ENTRIES)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns a live entry or null, removing it if expired. Must hold the lock.
+	 * @param key Entry key.
+	 * @param now Current time in milliseconds.
+	 * @return The live entry or null.
+	 */
+	private Entry live(String key, long now) {
+		Entry e = entries.get(key);
+		if(e != null && e.expiresAt > 0 && e.expiresAt <= now) {
+			entries.remove(key);
+			expirations++;
+			return null;
+		}
+		return e;
+	}
+
+	/**
+	 * @param key Entry key.
+	 * @return The cached value or null if not found or expired.
+	 */
+	public synchronized Object get(String key) {
+		Entry e = live(key, System.currentTimeMillis());
+		if(e == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return copy(e.value, false);
+	}
+
+	/**
+	 * Caches a value.
+	 * @param key Entry key.
+	 * @param value Value to cache, null removes the entry.
+	 * @param ttlSeconds Time to live in seconds, 0 or less to keep it until evicted.
+	 */
+	public synchronized void put(String key, Object value, long ttlSeconds) {
+		if(value == null) {
+			entries.remove(key);
+			return;
+		}
+		entries.put(key, new Entry(copy(value, true), expiry(ttlSeconds)));
+	}
+
+	/**
+	 * Caches a value if the key is not cached yet.
+	 * @param key Entry key.
+	 * @param value Value to cache.
+	 * @param ttlSeconds Time to live in seconds, 0 or less to keep it until evicted.
+	 * @return The value cached before, or the given one if it was cached.
+	 */
+	public synchronized Object putIfAbsent(String key, Object value, long ttlSeconds) {
+		Entry e = live(key, System.currentTimeMillis());
+		if(e != null) {
+			hits++;
+			return copy(e.value, false);
+		}
+		misses++;
+		if(value != null)
+			entries.put(key, new Entry(copy(value, true), expiry(ttlSeconds)));
+		return value;
+	}
+
+	/**
+	 * Adds a delta to a numeric entry atomically. A missing, expired or non numeric entry
+	 * starts from 0 with the given time to live.
+	 * @param key Entry key.
+	 * @param delta Value to add.
+	 * @param ttlSeconds Time to live in seconds of a new entry, 0 or less to keep it until evicted.
+	 * @return The new value.
+	 */
+	public synchronized double increment(String key, double delta, long ttlSeconds) {
+		Entry e = live(key, System.currentTimeMillis());
+		if(e != null && e.value instanceof Number) {
+			double v = ((Number)e.value).doubleValue() + delta;
+			entries.put(key, new Entry(v, e.expiresAt));
+			return v;
+		}
+		entries.put(key, new Entry(delta, expiry(ttlSeconds)));
+		return delta;
+	}
+
+	/**
+	 * @param key Entry key.
+	 * @return The removed value or null.
+	 */
+	public synchronized Object remove(String key) {
+		Entry e = entries.remove(key);
+		return e != null ? copy(e.value, false) : null;
+	}
+
+	/**
+	 * @return Scope statistics: size, max_size, hits, misses, evictions and expirations.
+	 */
+	public synchronized Map<String, Object> getStats() {
+		Map<String, Object> stats = new HashMap<>();
+		stats.put("scope", scope); //$NON-NLS-1$
+		stats.put("size", entries.size()); //$NON-NLS-1$
+		stats.put("max_size", maxEntries); //$NON-NLS-1$
+		stats.put("hits", hits); //$NON-NLS-1$
+		stats.put("misses", misses); //$NON-NLS-1$
+		stats.put("evictions", evictions); //$NON-NLS-1$
+		stats.put("expirations", expirations); //$NON-NLS-1$
+		return stats;
+	}
+
+	/**
+	 * Deep copies the maps, lists and arrays of a value, other values are returned as is.
+	 * @param value Value to copy.
+	 * @param frozen True to make the copied maps and lists unmodifiable.
+	 * @return The copy.
+	 */
+	private static Object copy(Object value, boolean frozen) {
+		if(value instanceof Map<?, ?>) {
+			Map<?, ?> map = (Map<?, ?>)value;
+			Map<Object, Object> copy = new LinkedHashMap<>(Math.max(4, map.size() * 4 / 3 + 1));
+			for(Map.Entry<?, ?> e : map.entrySet())
+				copy.put(e.getKey(), copy(e.getValue(), frozen));
+			return frozen ? Collections.unmodifiableMap(copy) : copy;
+		}
+		if(value instanceof Collection<?> || value instanceof Object[]) {
+			Collection<?> items = value instanceof Object[] ? Arrays.asList((Object[])value) : (Collection<?>)value;
+			List<Object> copy = new ArrayList<>(items.size());
+			for(Object item : items)
+				copy.add(copy(item, frozen));
+			return frozen ? Collections.unmodifiableList(copy) : copy;
+		}
+		return value;
+	}
+
+	private static long expiry(long ttlSeconds) {
+		return ttlSeconds > 0 ? System.currentTimeMillis() + ttlSeconds * 1000L : 0L;
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * A cached value and its expiration time, 0 if it does not expire.
+	 */
+	private static class Entry {
+		private final Object value;
+		private final long expiresAt;
+
+		private Entry(Object value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
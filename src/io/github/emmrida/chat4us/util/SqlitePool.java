@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2025 El Mhadder Mohamed Rida. All rights reserved.
+ * This code is licensed under the [MIT License](https://opensource.org/licenses/MIT).
+ */
+package io.github.emmrida.chat4us.util;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of SQLite connections used by the ScriptEx SQL functions, one pool per database file.
+ * Connections are opened in WAL mode and keep their prepared statements cached by SQL text,
+ * so a script call reuses an open database and a parsed statement.
+ *
+ * @author El Mhadder Mohamed Rida
+ */
+public class SqlitePool {
+	private static final int MAX_IDLE_CONNECTIONS = 4;
+	private static final int STATEMENTS_CACHE_SIZE = 32;
+	private static final int BUSY_TIMEOUT = 5000;
+
+	private static final Map<String, SqlitePool> POOLS = new ConcurrentHashMap<>();
+
+	private final String dbFile;
+	private final ConcurrentLinkedDeque<PooledConnection> idle;
+	private final AtomicInteger idleCount;
+
+	/**
+	 * Init a connection pool.
+	 * @param dbFile Database file.
+	 */
+	private SqlitePool(String dbFile) {
+		this.dbFile = dbFile;
+		this.idle = new ConcurrentLinkedDeque<>();
+		this.idleCount = new AtomicInteger(0);
+	}
+
+	/**
+	 * Returns the pool of a database file.
+	 * @param dbFile Database file.
+	 * @return The connection pool of the file.
+	 */
+	public static SqlitePool forFile(String dbFile) {
+		return POOLS.computeIfAbsent(new File(dbFile).getAbsoluteFile().toPath().normalize().toString(), SqlitePool::new);
+	}
+
+	/**
+	 * Closes the idle connections of all the pools.
+	 */
+	public static void closeAll() {
+		for(SqlitePool pool : POOLS.values()) {
+			PooledConnection pc;
+			while((pc = pool.idle.pollFirst()) != null) {
+				pool.idleCount.decrementAndGet();
+				pc.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Takes an idle connection or opens a new one. Close the returned connection to give it back.
+	 * @return A pooled connection.
+	 * @throws SQLException
+	 */
+	public PooledConnection acquire() throws SQLException {
+		PooledConnection pc = idle.pollFirst();
+		if(pc != null) {
+			idleCount.decrementAndGet();
+			return pc;
+		}
+		Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbFile); //$NON-NLS-1$
+		try (Statement stmt = conn.createStatement()) {
+			stmt.execute("PRAGMA journal_mode=WAL;"); //$NON-NLS-1$
+			stmt.execute("PRAGMA synchronous=NORMAL;"); //$NON-NLS-1$
+			stmt.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT + ";"); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch(SQLException ex) {
+			conn.close();
+			throw ex;
+		}
+		return new PooledConnection(conn);
+	}
+
+	/**
+	 * Gives a connection back. Extra connections and connections left in a bad state are closed.
+	 * @param pc Pooled connection.
+	 */
+	private void release(PooledConnection pc) {
+		try {
+			if(pc.conn.isClosed()) {
+				pc.dispose();
+				return;
+			}
+			if(!pc.conn.getAutoCommit()) {
+				pc.conn.rollback();
+				pc.conn.setAutoCommit(true);
+			}
+		} catch(SQLException ex) {
+			pc.dispose();
+			return;
+		}
+		if(idleCount.incrementAndGet() > MAX_IDLE_CONNECTIONS) {
+			idleCount.decrementAndGet();
+			pc.dispose();
+		} else idle.offerFirst(pc);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * A connection borrowed from the pool with its prepared statements cache.
+	 */
+	public class PooledConnection implements AutoCloseable {
+		private final Connection conn;
+		private final Map<String, PreparedStatement> statements;
+
+		/**
+		 * Init a pooled connection.
+		 * @param conn SQLite connection.
+		 */
+		private PooledConnection(Connection conn) {
+			this.conn = conn;
+			this.statements = new LinkedHashMap<>(STATEMENTS_CACHE_SIZE, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+					if(size() > STATEMENTS_CACHE_SIZE) {
+						closeStatement(eldest.getValue());
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		/**
+		 * @return The SQLite connection.
+		 */
+		public Connection getConnection() { return this.conn; }
+
+		/**
+		 * Returns a cached prepared statement, preparing it on the first use.
+		 * @param sql SQL text.
+		 * @return Prepared statement with its parameters and batch cleared.
+		 * @throws SQLException
+		 */
+		public PreparedStatement prepare(String sql) throws SQLException {
+			return prepare(sql, false);
+		}
+
+		/**
+		 * Returns a cached prepared statement, preparing it on the first use.
+		 * @param sql SQL text.
+		 * @param generatedKeys True to return the generated keys.
+		 * @return Prepared statement with its parameters and batch cleared.
+		 * @throws SQLException
+		 */
+		public PreparedStatement prepare(String sql, boolean generatedKeys) throws SQLException {
+			String key = generatedKeys ? "K:" + sql : sql; //$NON-NLS-1$
+			PreparedStatement stmt = statements.get(key);
+			if(stmt == null || stmt.isClosed()) {
+				stmt = generatedKeys ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) : conn.prepareStatement(sql);
+				statements.put(key, stmt);
+			} else {
+				stmt.clearParameters();
+				stmt.clearBatch(); // Rows left by a failed batch
+			}
+			return stmt;
+		}
+
+		/**
+		 * Closes a statement removed from the cache.
+		 * @param stmt Prepared statement.
+		 */
+		private void closeStatement(PreparedStatement stmt) {
+			try {
+				stmt.close();
+			} catch(SQLException ex) {
+				// Already unusable
+			}
+		}
+
+		/**
+		 * Closes the statements and the connection.
+		 */
+		private void dispose() {
+			for(PreparedStatement stmt : statements.values())
+				closeStatement(stmt);
+			statements.clear();
+			try {
+				conn.close();
+			} catch(SQLException ex) {
+				Helper.logWarning(ex, Messages.getString("SqlitePool.CLOSE_ERROR") + dbFile); //$NON-NLS-1$
+			}
+		}
+
+		/**
+		 * Gives the connection back to the pool.
+		 */
+		@Override
+		public void close() {
+			release(this);
+		}
+	}
+}